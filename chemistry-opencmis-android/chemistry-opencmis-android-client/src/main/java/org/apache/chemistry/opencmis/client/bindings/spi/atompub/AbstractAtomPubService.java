@@ -22,8 +22,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,10 +34,12 @@ import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
 import org.apache.chemistry.opencmis.client.bindings.impl.RepositoryInfoCache;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.LinkAccess;
+import org.apache.chemistry.opencmis.client.bindings.spi.LinkWarmup;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomAcl;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomBase;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomLink;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.RepositoryWorkspace;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.ServiceDoc;
@@ -52,6 +56,7 @@ import org.apache.chemistry.opencmis.commons.data.Properties;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
@@ -83,6 +88,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PolicyIdListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.QueryTypeImpl;
 import org.xmlpull.v1.XmlSerializer;
 
 import android.util.Xml;
@@ -90,7 +96,7 @@ import android.util.Xml;
 /**
  * Base class for all AtomPub client services.
  */
-public abstract class AbstractAtomPubService implements LinkAccess {
+public abstract class AbstractAtomPubService implements LinkAccess, LinkWarmup {
 
     protected enum IdentifierType {
         ID, PATH
@@ -102,6 +108,25 @@ public abstract class AbstractAtomPubService implements LinkAccess {
     protected static final String NAME_RELATIVE_PATH_SEGMENT = "relativePathSegment";
     protected static final String NAME_NUM_ITEMS = "numItems";
 
+    /**
+     * Properties requested when an object is only fetched to discover its
+     * links.
+     */
+    protected static final String LINK_DISCOVERY_FILTER = PropertyIds.OBJECT_ID + "," + PropertyIds.OBJECT_TYPE_ID
+            + "," + PropertyIds.BASE_TYPE_ID + "," + PropertyIds.VERSION_SERIES_ID + ","
+            + PropertyIds.IS_PRIVATE_WORKING_COPY + "," + PropertyIds.CONTENT_STREAM_LENGTH;
+
+    /**
+     * Base types that are queried when links are loaded in batches.
+     */
+    private static final String[] LINK_WARMUP_BASE_TYPES = { BaseTypeId.CMIS_DOCUMENT.value(),
+            BaseTypeId.CMIS_FOLDER.value() };
+
+    /**
+     * Maximum number of objects per link warmup query.
+     */
+    private static final int LINK_WARMUP_QUERY_SIZE = 100;
+
     private BindingSession session;
 
     /**
@@ -199,14 +224,211 @@ public abstract class AbstractAtomPubService implements LinkAccess {
     public String loadLink(String repositoryId, String id, String rel, String type) {
         String link = getLink(repositoryId, id, rel, type);
         if (link == null) {
-            getObjectInternal(repositoryId, IdentifierType.ID, id, ReturnVersion.THIS, null, null, null, null, null,
-                    null, null);
+            loadLinks(repositoryId, id);
             link = getLink(repositoryId, id, rel, type);
         }
 
         return link;
     }
 
+    /**
+     * Fetches an object through the object-by-id URI template to populate the
+     * link cache. Only the data that is required to discover the links is
+     * requested.
+     */
+    protected void loadLinks(String repositoryId, String id) {
+        getObjectInternal(repositoryId, IdentifierType.ID, id, ReturnVersion.THIS, LINK_DISCOVERY_FILTER,
+                Boolean.FALSE, IncludeRelationships.NONE, null, Boolean.FALSE, Boolean.FALSE, null);
+    }
+
+    public void warmupChildLinks(String repositoryId, String folderId) {
+        // find the link
+        String link = loadLink(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_CHILDREN);
+
+        if (link == null) {
+            throwLinkException(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_CHILDREN);
+        }
+
+        BigInteger skipCount = BigInteger.ZERO;
+
+        while (true) {
+            UrlBuilder url = new UrlBuilder(link);
+            url.addParameter(Constants.PARAM_FILTER, LINK_DISCOVERY_FILTER);
+            url.addParameter(Constants.PARAM_ALLOWABLE_ACTIONS, Boolean.FALSE);
+            url.addParameter(Constants.PARAM_RELATIONSHIPS, IncludeRelationships.NONE);
+            url.addParameter(Constants.PARAM_SKIP_COUNT, skipCount);
+
+            // read and cache the links of all entries on this page
+            Response resp = read(url);
+            AtomFeed feed = parse(resp.getStream(), AtomFeed.class);
+
+            for (AtomEntry entry : feed.getEntries()) {
+                if (entry.getId() == null) {
+                    continue;
+                }
+
+                lockLinks();
+                try {
+                    removeLinks(repositoryId, entry.getId());
+                    for (AtomElement element : entry.getElements()) {
+                        if (element.getObject() instanceof AtomLink) {
+                            addLink(repositoryId, entry.getId(), (AtomLink) element.getObject());
+                        }
+                    }
+                } finally {
+                    unlockLinks();
+                }
+            }
+
+            boolean hasMoreItems = false;
+            for (AtomElement element : feed.getElements()) {
+                if (element.getObject() instanceof AtomLink && isNextLink(element)) {
+                    hasMoreItems = true;
+                }
+            }
+
+            if (!hasMoreItems || feed.getEntries().isEmpty()) {
+                break;
+            }
+
+            skipCount = skipCount.add(BigInteger.valueOf(feed.getEntries().size()));
+        }
+    }
+
+    public void warmupLinks(String repositoryId, Collection<String> objectIds) {
+        if (objectIds == null) {
+            return;
+        }
+
+        Set<String> missing = new LinkedHashSet<String>();
+        for (String objectId : objectIds) {
+            // an object is known if the cache has a branch for its id
+            if (objectId != null && getLinkCache().checkLink(repositoryId, objectId, Constants.REL_SELF, null) < 2) {
+                missing.add(objectId);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        // query the links in batches
+        String link = loadCollection(repositoryId, Constants.COLLECTION_QUERY);
+        if (link != null) {
+            boolean linksInResults = true;
+            for (String baseType : LINK_WARMUP_BASE_TYPES) {
+                List<String> ids = new ArrayList<String>(missing);
+                for (int i = 0; i < ids.size() && linksInResults; i += LINK_WARMUP_QUERY_SIZE) {
+                    linksInResults = queryLinks(repositoryId, link, baseType,
+                            ids.subList(i, Math.min(i + LINK_WARMUP_QUERY_SIZE, ids.size())), missing);
+                }
+            }
+        }
+
+        // fetch the remaining objects one by one
+        for (String objectId : missing) {
+            loadLinks(repositoryId, objectId);
+        }
+    }
+
+    /**
+     * Sends a query for the given objects of a base type and caches the links
+     * of the results. The ids of the cached objects are removed from
+     * <code>missing</code>.
+     * 
+     * @return <code>false</code> if the repository doesn't return links with
+     *         query results or doesn't support the query, <code>true</code>
+     *         otherwise
+     */
+    private boolean queryLinks(String repositoryId, String link, String baseType, List<String> objectIds,
+            Set<String> missing) {
+        StringBuilder statement = new StringBuilder("SELECT ");
+        statement.append(PropertyIds.OBJECT_ID);
+        statement.append(" FROM ");
+        statement.append(baseType);
+        statement.append(" WHERE ");
+        statement.append(PropertyIds.OBJECT_ID);
+        statement.append(" IN (");
+        for (int i = 0; i < objectIds.size(); i++) {
+            if (i > 0) {
+                statement.append(',');
+            }
+            statement.append('\'');
+            statement.append(objectIds.get(i).replace("\\", "\\\\").replace("'", "\\'"));
+            statement.append('\'');
+        }
+        statement.append(')');
+
+        // some repositories only add the links if allowable actions are
+        // requested
+        final QueryTypeImpl query = new QueryTypeImpl();
+        query.setStatement(statement.toString());
+        query.setSearchAllVersions(Boolean.FALSE);
+        query.setIncludeAllowableActions(Boolean.TRUE);
+        query.setIncludeRelationships(IncludeRelationships.NONE);
+        query.setRenditionFilter("cmis:none");
+        query.setMaxItems(BigInteger.valueOf(objectIds.size()));
+        query.setSkipCount(BigInteger.ZERO);
+
+        final CmisVersion cmisVersion = getCmisVersion(repositoryId);
+
+        AtomFeed feed;
+        try {
+            Response resp = post(new UrlBuilder(link), Constants.MEDIATYPE_QUERY, new Output() {
+                public void write(OutputStream out) throws Exception {
+                    XmlSerializer writer = Xml.newSerializer();
+                    writer.setOutput(out, AtomEntryWriter.ENCODING);
+                    XMLUtils.startXmlDocument(writer);
+                    XMLConverter.writeQuery(writer, cmisVersion, query);
+                    XMLUtils.endXmlDocument(writer);
+                }
+            });
+            feed = parse(resp.getStream(), AtomFeed.class);
+        } catch (CmisBaseException e) {
+            return false;
+        }
+
+        int hits = 0;
+        int linked = 0;
+        for (AtomEntry entry : feed.getEntries()) {
+            if (entry.getId() == null) {
+                continue;
+            }
+            hits++;
+
+            // an entry without a self link must not create a cache branch
+            // for its object
+            boolean hasSelfLink = false;
+            for (AtomElement element : entry.getElements()) {
+                if (element.getObject() instanceof AtomLink
+                        && Constants.REL_SELF.equals(((AtomLink) element.getObject()).getRel())) {
+                    hasSelfLink = true;
+                }
+            }
+
+            if (!hasSelfLink) {
+                continue;
+            }
+
+            lockLinks();
+            try {
+                removeLinks(repositoryId, entry.getId());
+                for (AtomElement element : entry.getElements()) {
+                    if (element.getObject() instanceof AtomLink) {
+                        addLink(repositoryId, entry.getId(), (AtomLink) element.getObject());
+                    }
+                }
+            } finally {
+                unlockLinks();
+            }
+
+            missing.remove(entry.getId());
+            linked++;
+        }
+
+        return hits == 0 || linked > 0;
+    }
+
     /**
      * Gets the content link from the cache if it is there or loads it into the
      * cache if it is not there.
@@ -22,6 +22,7 @@ import java.io.File;
 import java.math.BigInteger;
 import java.util.Map;
 
+import org.apache.chemistry.opencmis.bridge.client.SharedHttpInvoker;
 import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
 import org.apache.chemistry.opencmis.commons.impl.server.AbstractServiceFactory;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
@@ -33,6 +34,15 @@ public abstract class AbstractBridgeServiceFactory extends AbstractServiceFactor
     public static final String BRIDGE_TEMP_DIRECTORY = "bridge.tempDirectory";
     public static final String BRIDGE_MEMORY_THERESHOLD = "bridge.memoryThreshold";
     public static final String BRIDGE_MAX_CONTENT_SIZE = "bridge.maxContentSize";
+    public static final String BRIDGE_HTTP_SHARED = "bridge.http.shared";
+    public static final String BRIDGE_HTTP_MAX_CONNECTIONS = "bridge.http.maxConnections";
+    public static final String BRIDGE_HTTP_MAX_CONNECTIONS_PER_ROUTE = "bridge.http.maxConnectionsPerRoute";
+    public static final String BRIDGE_HTTP_CONNECT_TIMEOUT = "bridge.http.connectTimeout";
+    public static final String BRIDGE_HTTP_READ_TIMEOUT = "bridge.http.readTimeout";
+
+    public static final String CACHE_OBJECTS_MAX_MEMORY = "cache.objects.maxMemory";
+    public static final String CACHE_OBJECTS_TIME_TO_LIVE = "cache.objects.timeToLive";
+    public static final String CACHE_OBJECTS_VALIDATE = "cache.objects.validate";
 
     public static final String SERVICE_CLASS = "service.class";
     public static final String SERVICE_DEFAULT_MAX_ITEMS_OBJECTS = "service.defaultMaxItems";
@@ -45,6 +55,11 @@ public abstract class AbstractBridgeServiceFactory extends AbstractServiceFactor
     private static final BigInteger DEFAULT_MAX_ITEMS_TYPES = BigInteger.valueOf(1000);
     private static final BigInteger DEFAULT_DEPTH_TYPES = BigInteger.valueOf(10);
 
+    private static final long DEFAULT_CACHE_TTL = 30 * 1000;
+
+    private static final int DEFAULT_HTTP_MAX_CONNECTIONS = 200;
+    private static final int DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE = 50;
+
     private ThreadLocal<CmisServiceWrapper<FilterCmisService>> threadLocalService = new ThreadLocal<CmisServiceWrapper<FilterCmisService>>();
 
     private Map<String, String> parameters;
@@ -60,6 +75,10 @@ public abstract class AbstractBridgeServiceFactory extends AbstractServiceFactor
     private int memoryThreshold;
     private long maxContentSize;
 
+    private ObjectDataCache objectDataCache;
+
+    private boolean sharedHttp;
+
     @Override
     public void init(Map<String, String> parameters) {
         this.parameters = parameters;
@@ -81,6 +100,23 @@ public abstract class AbstractBridgeServiceFactory extends AbstractServiceFactor
             throw new RuntimeException("Could not parse bride configuration values: " + e.getMessage(), e);
         }
 
+        // start the shared HTTP transport
+        String sharedHttpStr = parameters.get(BRIDGE_HTTP_SHARED);
+        if (sharedHttpStr != null && Boolean.parseBoolean(sharedHttpStr.trim())) {
+            try {
+                int maxConnections = getIntParameter(BRIDGE_HTTP_MAX_CONNECTIONS, DEFAULT_HTTP_MAX_CONNECTIONS);
+                int maxConnectionsPerRoute = getIntParameter(BRIDGE_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+                        DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE);
+                int connectTimeout = getIntParameter(BRIDGE_HTTP_CONNECT_TIMEOUT, -1);
+                int readTimeout = getIntParameter(BRIDGE_HTTP_READ_TIMEOUT, -1);
+
+                SharedHttpInvoker.start(maxConnections, maxConnectionsPerRoute, connectTimeout, readTimeout);
+                sharedHttp = true;
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Could not parse HTTP configuration values: " + e.getMessage(), e);
+            }
+        }
+
         // find service class
         String className = parameters.get(SERVICE_CLASS);
         if (className == null || className.trim().length() == 0) {
@@ -106,13 +142,51 @@ public abstract class AbstractBridgeServiceFactory extends AbstractServiceFactor
         } catch (NumberFormatException e) {
             throw new RuntimeException("Could not parse service default values: " + e.getMessage(), e);
         }
+
+        // set up the shared object cache
+        try {
+            String maxMemoryStr = parameters.get(CACHE_OBJECTS_MAX_MEMORY);
+            long maxMemory = (maxMemoryStr == null || maxMemoryStr.trim().length() == 0 ? 0 : Long
+                    .parseLong(maxMemoryStr.trim()));
+
+            if (maxMemory > 0) {
+                String timeToLiveStr = parameters.get(CACHE_OBJECTS_TIME_TO_LIVE);
+                long timeToLive = (timeToLiveStr == null || timeToLiveStr.trim().length() == 0 ? DEFAULT_CACHE_TTL
+                        : Long.parseLong(timeToLiveStr.trim()));
+
+                String validateStr = parameters.get(CACHE_OBJECTS_VALIDATE);
+                boolean validate = (validateStr == null || validateStr.trim().length() == 0 ? true : Boolean
+                        .parseBoolean(validateStr.trim()));
+
+                objectDataCache = new ObjectDataCache(maxMemory, timeToLive, validate);
+                objectDataCache.registerMBean();
+            }
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Could not parse object cache configuration values: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (objectDataCache != null) {
+            objectDataCache.unregisterMBean();
+            objectDataCache = null;
+        }
+
+        if (sharedHttp) {
+            SharedHttpInvoker.stop();
+            sharedHttp = false;
+        }
     }
 
     @Override
     public CmisService getService(CallContext context) {
         CmisServiceWrapper<FilterCmisService> wrapperService = threadLocalService.get();
         if (wrapperService == null) {
-            wrapperService = new CmisServiceWrapper<FilterCmisService>(createService(context), defaultTypesMaxItems,
+            FilterCmisService service = createService(context);
+            service.setObjectDataCache(objectDataCache);
+
+            wrapperService = new CmisServiceWrapper<FilterCmisService>(service, defaultTypesMaxItems,
                     defaultTypesDepth, defaultMaxItems, defaultDepth);
             threadLocalService.set(wrapperService);
         }
@@ -135,6 +209,14 @@ public abstract class AbstractBridgeServiceFactory extends AbstractServiceFactor
         return parameters;
     }
 
+    /**
+     * Returns the shared object cache or <code>null</code> if it is turned
+     * off.
+     */
+    protected ObjectDataCache getObjectDataCache() {
+        return objectDataCache;
+    }
+
     @Override
     public File getTempDirectory() {
         return tempDirectory;
@@ -150,6 +232,18 @@ public abstract class AbstractBridgeServiceFactory extends AbstractServiceFactor
         return maxContentSize;
     }
 
+    /**
+     * Gets an int parameter from the parameters.
+     */
+    protected int getIntParameter(String key, int def) {
+        String value = parameters.get(key);
+        if (value == null || value.trim().length() == 0) {
+            return def;
+        }
+
+        return Integer.parseInt(value.trim());
+    }
+
     /**
      * Gets a BigInteger parameter from the parameters.
      */
@@ -70,6 +70,8 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
 
     private CallContext context;
 
+    private transient ObjectDataCache objectDataCache;
+
     /**
      * Called after the object has been created.
      * 
@@ -95,6 +97,20 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
         return context;
     }
 
+    /**
+     * Sets the shared object cache or <code>null</code> to forward all calls.
+     */
+    public void setObjectDataCache(ObjectDataCache objectDataCache) {
+        this.objectDataCache = objectDataCache;
+    }
+
+    /**
+     * Returns the shared object cache or <code>null</code> if there is none.
+     */
+    public ObjectDataCache getObjectDataCache() {
+        return objectDataCache;
+    }
+
     /**
      * Returns a client repository service.
      */
@@ -166,6 +182,10 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
 
     @Override
     public TypeDefinition getTypeDefinition(String repositoryId, String typeId, ExtensionsData extension) {
+        if (objectDataCache != null && extension == null) {
+            return objectDataCache.getTypeDefinition(this, repositoryId, typeId);
+        }
+
         return getRepositoryService().getTypeDefinition(repositoryId, typeId, extension);
     }
 
@@ -173,6 +193,12 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     public ObjectInFolderList getChildren(String repositoryId, String folderId, String filter, String orderBy,
             Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
             Boolean includePathSegment, BigInteger maxItems, BigInteger skipCount, ExtensionsData extension) {
+        if (objectDataCache != null && extension == null) {
+            return objectDataCache.getChildren(this, repositoryId, folderId, filter, orderBy,
+                    includeAllowableActions, includeRelationships, renditionFilter, includePathSegment, maxItems,
+                    skipCount);
+        }
+
         return getNavigationService().getChildren(repositoryId, folderId, filter, orderBy, includeAllowableActions,
                 includeRelationships, renditionFilter, includePathSegment, maxItems, skipCount, extension);
     }
@@ -224,23 +250,29 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     public String createDocument(String repositoryId, Properties properties, String folderId,
             ContentStream contentStream, VersioningState versioningState, List<String> policies, Acl addAces,
             Acl removeAces, ExtensionsData extension) {
-        return getObjectService().createDocument(repositoryId, properties, folderId, contentStream, versioningState,
-                policies, addAces, removeAces, extension);
+        String objectId = getObjectService().createDocument(repositoryId, properties, folderId, contentStream,
+                versioningState, policies, addAces, removeAces, extension);
+        invalidateChildren(repositoryId, folderId);
+        return objectId;
     }
 
     @Override
     public String createDocumentFromSource(String repositoryId, String sourceId, Properties properties,
             String folderId, VersioningState versioningState, List<String> policies, Acl addAces, Acl removeAces,
             ExtensionsData extension) {
-        return getObjectService().createDocumentFromSource(repositoryId, sourceId, properties, folderId,
-                versioningState, policies, addAces, removeAces, extension);
+        String objectId = getObjectService().createDocumentFromSource(repositoryId, sourceId, properties,
+                folderId, versioningState, policies, addAces, removeAces, extension);
+        invalidateChildren(repositoryId, folderId);
+        return objectId;
     }
 
     @Override
     public String createFolder(String repositoryId, Properties properties, String folderId, List<String> policies,
             Acl addAces, Acl removeAces, ExtensionsData extension) {
-        return getObjectService().createFolder(repositoryId, properties, folderId, policies, addAces, removeAces,
-                extension);
+        String objectId = getObjectService().createFolder(repositoryId, properties, folderId, policies, addAces,
+                removeAces, extension);
+        invalidateChildren(repositoryId, folderId);
+        return objectId;
     }
 
     @Override
@@ -253,8 +285,10 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     @Override
     public String createPolicy(String repositoryId, Properties properties, String folderId, List<String> policies,
             Acl addAces, Acl removeAces, ExtensionsData extension) {
-        return getObjectService().createPolicy(repositoryId, properties, folderId, policies, addAces, removeAces,
-                extension);
+        String objectId = getObjectService().createPolicy(repositoryId, properties, folderId, policies, addAces,
+                removeAces, extension);
+        invalidateChildren(repositoryId, folderId);
+        return objectId;
     }
 
     @Override
@@ -266,6 +300,11 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     public ObjectData getObject(String repositoryId, String objectId, String filter, Boolean includeAllowableActions,
             IncludeRelationships includeRelationships, String renditionFilter, Boolean includePolicyIds,
             Boolean includeAcl, ExtensionsData extension) {
+        if (objectDataCache != null && extension == null) {
+            return objectDataCache.getObject(this, repositoryId, objectId, filter, includeAllowableActions,
+                    includeRelationships, renditionFilter, includePolicyIds, includeAcl);
+        }
+
         return getObjectService().getObject(repositoryId, objectId, filter, includeAllowableActions,
                 includeRelationships, renditionFilter, includePolicyIds, includeAcl, extension);
     }
@@ -299,18 +338,26 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     @Override
     public void updateProperties(String repositoryId, Holder<String> objectId, Holder<String> changeToken,
             Properties properties, ExtensionsData extension) {
+        String orgObjectId = (objectId == null ? null : objectId.getValue());
         getObjectService().updateProperties(repositoryId, objectId, changeToken, properties, extension);
+        invalidateObject(repositoryId, orgObjectId);
     }
 
     @Override
     public void moveObject(String repositoryId, Holder<String> objectId, String targetFolderId, String sourceFolderId,
             ExtensionsData extension) {
+        String orgObjectId = (objectId == null ? null : objectId.getValue());
         getObjectService().moveObject(repositoryId, objectId, targetFolderId, sourceFolderId, extension);
+        invalidateObject(repositoryId, orgObjectId);
+        invalidateChildren(repositoryId, targetFolderId);
+        invalidateChildren(repositoryId, sourceFolderId);
     }
 
     @Override
     public void deleteObject(String repositoryId, String objectId, Boolean allVersions, ExtensionsData extension) {
         getObjectService().deleteObject(repositoryId, objectId, allVersions, extension);
+        invalidateObject(repositoryId, objectId);
+        invalidateAllChildren(repositoryId);
     }
 
     @Override
@@ -318,45 +365,62 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
             ExtensionsData extension) {
         // TODO: rework -> object cache
         getObjectService().deleteObject(repositoryId, objectId, allVersions, extension);
+        invalidateObject(repositoryId, objectId);
+        invalidateAllChildren(repositoryId);
     }
 
     @Override
     public FailedToDeleteData deleteTree(String repositoryId, String folderId, Boolean allVersions,
             UnfileObject unfileObjects, Boolean continueOnFailure, ExtensionsData extension) {
-        return getObjectService().deleteTree(repositoryId, folderId, allVersions, unfileObjects, continueOnFailure,
-                extension);
+        FailedToDeleteData result = getObjectService().deleteTree(repositoryId, folderId, allVersions,
+                unfileObjects, continueOnFailure, extension);
+        invalidateObject(repositoryId, folderId);
+        invalidateAllChildren(repositoryId);
+        return result;
     }
 
     @Override
     public void setContentStream(String repositoryId, Holder<String> objectId, Boolean overwriteFlag,
             Holder<String> changeToken, ContentStream contentStream, ExtensionsData extension) {
+        String orgObjectId = (objectId == null ? null : objectId.getValue());
         getObjectService().setContentStream(repositoryId, objectId, overwriteFlag, changeToken, contentStream,
                 extension);
+        invalidateObject(repositoryId, orgObjectId);
     }
 
     @Override
     public void deleteContentStream(String repositoryId, Holder<String> objectId, Holder<String> changeToken,
             ExtensionsData extension) {
+        String orgObjectId = (objectId == null ? null : objectId.getValue());
         getObjectService().deleteContentStream(repositoryId, objectId, changeToken, extension);
+        invalidateObject(repositoryId, orgObjectId);
     }
 
     @Override
     public void checkOut(String repositoryId, Holder<String> objectId, ExtensionsData extension,
             Holder<Boolean> contentCopied) {
+        String orgObjectId = (objectId == null ? null : objectId.getValue());
         getVersioningService().checkOut(repositoryId, objectId, extension, contentCopied);
+        invalidateObject(repositoryId, orgObjectId);
+        invalidateAllChildren(repositoryId);
     }
 
     @Override
     public void cancelCheckOut(String repositoryId, String objectId, ExtensionsData extension) {
         getVersioningService().cancelCheckOut(repositoryId, objectId, extension);
+        invalidateObject(repositoryId, objectId);
+        invalidateAllChildren(repositoryId);
     }
 
     @Override
     public void checkIn(String repositoryId, Holder<String> objectId, Boolean major, Properties properties,
             ContentStream contentStream, String checkinComment, List<String> policies, Acl addAces, Acl removeAces,
             ExtensionsData extension) {
+        String orgObjectId = (objectId == null ? null : objectId.getValue());
         getVersioningService().checkIn(repositoryId, objectId, major, properties, contentStream, checkinComment,
                 policies, addAces, removeAces, extension);
+        invalidateObject(repositoryId, orgObjectId);
+        invalidateAllChildren(repositoryId);
     }
 
     @Override
@@ -402,11 +466,15 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     public void addObjectToFolder(String repositoryId, String objectId, String folderId, Boolean allVersions,
             ExtensionsData extension) {
         getMultiFilingService().addObjectToFolder(repositoryId, objectId, folderId, allVersions, extension);
+        invalidateObject(repositoryId, objectId);
+        invalidateChildren(repositoryId, folderId);
     }
 
     @Override
     public void removeObjectFromFolder(String repositoryId, String objectId, String folderId, ExtensionsData extension) {
         getMultiFilingService().removeObjectFromFolder(repositoryId, objectId, folderId, extension);
+        invalidateObject(repositoryId, objectId);
+        invalidateChildren(repositoryId, folderId);
     }
 
     @Override
@@ -420,7 +488,9 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     @Override
     public Acl applyAcl(String repositoryId, String objectId, Acl addAces, Acl removeAces,
             AclPropagation aclPropagation, ExtensionsData extension) {
-        return getAclService().applyAcl(repositoryId, objectId, addAces, removeAces, aclPropagation, extension);
+        Acl acl = getAclService().applyAcl(repositoryId, objectId, addAces, removeAces, aclPropagation, extension);
+        invalidateObject(repositoryId, objectId);
+        return acl;
     }
 
     @Override
@@ -442,7 +512,9 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
             }
         }
 
-        return getAclService().applyAcl(repositoryId, objectId, aces, removeAces, aclPropagation, null);
+        Acl acl = getAclService().applyAcl(repositoryId, objectId, aces, removeAces, aclPropagation, null);
+        invalidateObject(repositoryId, objectId);
+        return acl;
     }
 
     @Override
@@ -453,6 +525,7 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     @Override
     public void applyPolicy(String repositoryId, String policyId, String objectId, ExtensionsData extension) {
         getPolicyService().applyPolicy(repositoryId, policyId, objectId, extension);
+        invalidateObject(repositoryId, objectId);
     }
 
     @Override
@@ -464,6 +537,37 @@ public abstract class FilterCmisService extends AbstractCmisService implements S
     @Override
     public void removePolicy(String repositoryId, String policyId, String objectId, ExtensionsData extension) {
         getPolicyService().removePolicy(repositoryId, policyId, objectId, extension);
+        invalidateObject(repositoryId, objectId);
+    }
+
+    /**
+     * Removes all cached versions of an object and the cached children pages
+     * that list the object from the shared object cache.
+     */
+    protected void invalidateObject(String repositoryId, String objectId) {
+        if (objectDataCache != null) {
+            objectDataCache.invalidateObject(repositoryId, objectId);
+        }
+    }
+
+    /**
+     * Removes all cached children pages of a folder from the shared object
+     * cache.
+     */
+    protected void invalidateChildren(String repositoryId, String folderId) {
+        if (objectDataCache != null) {
+            objectDataCache.invalidateChildren(repositoryId, folderId);
+        }
+    }
+
+    /**
+     * Removes all cached children pages of a repository from the shared
+     * object cache.
+     */
+    protected void invalidateAllChildren(String repositoryId) {
+        if (objectDataCache != null) {
+            objectDataCache.invalidateAllChildren(repositoryId);
+        }
     }
 
     @Override
@@ -0,0 +1,769 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.bridge;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.Ace;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memory bounded cache for objects, children pages and type definitions that
+ * is shared by all users of a bridge.
+ * <p>
+ * Objects are validated with a {@code getProperties} call that only asks for
+ * the change token. This call also checks that the current user is allowed to
+ * read the object, so objects are shared across users. Objects that have been
+ * requested with allowable actions, an ACL, relationships or policy ids depend
+ * on the user and are cached per user. If validation is turned off, all
+ * objects are cached per user. The change token is always fetched from the
+ * repository, even if the filter doesn't select it, and removed from the
+ * object again.
+ * <p>
+ * Children pages are always cached per user because the repository filters
+ * them by permissions. They cannot be validated cheaply and expire after the
+ * time-to-live, like objects without a change token. Type definitions are
+ * cached per repository and expire after the time-to-live.
+ * <p>
+ * Changes made through the bridge invalidate the affected entries, including
+ * the children pages that list a changed object. Changes made directly in the
+ * repository are detected by the change token check or the time-to-live.
+ */
+public class ObjectDataCache implements ObjectDataCacheMBean {
+
+    public static final String JMX_DOMAIN = "org.apache.chemistry.opencmis";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectDataCache.class);
+
+    private static final int OBJECT = 0;
+    private static final int CHILDREN = 1;
+    private static final int TYPE = 2;
+    private static final String[] KIND_NAMES = { "objects", "children", "types" };
+
+    private static final String CHANGE_TOKEN_FILTER = PropertyIds.CHANGE_TOKEN;
+
+    private final long maxMemorySize;
+    private final long timeToLive;
+    private final boolean validate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, Set<String>> groups;
+    private final Map<String, Set<String>> pagesByChild;
+    private long memorySize;
+
+    private final AtomicLong[] hits = { new AtomicLong(), new AtomicLong(), new AtomicLong() };
+    private final AtomicLong[] misses = { new AtomicLong(), new AtomicLong(), new AtomicLong() };
+    private final AtomicLong validations = new AtomicLong();
+    private final AtomicLong staleEntries = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ObjectName name;
+
+    /**
+     * Creates the cache.
+     * 
+     * @param maxMemorySize
+     *            the estimated memory size of all entries in bytes
+     * @param timeToLive
+     *            the time in milliseconds after which entries that cannot be
+     *            validated expire, 0 to keep them until they are evicted
+     * @param validate
+     *            <code>true</code> to check the change token of an object
+     *            before it is served from the cache
+     */
+    public ObjectDataCache(long maxMemorySize, long timeToLive, boolean validate) {
+        this.maxMemorySize = maxMemorySize;
+        this.timeToLive = timeToLive;
+        this.validate = validate;
+
+        entries = new LinkedHashMap<String, Entry>(1024, 0.75f, true);
+        groups = new HashMap<String, Set<String>>();
+        pagesByChild = new HashMap<String, Set<String>>();
+    }
+
+    /**
+     * Returns an object from the cache or the repository.
+     */
+    public ObjectData getObject(FilterCmisService service, String repositoryId, String objectId, String filter,
+            Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+            Boolean includePolicyIds, Boolean includeAcl) {
+        boolean userSpecific = !validate || Boolean.TRUE.equals(includeAllowableActions)
+                || Boolean.TRUE.equals(includeAcl) || Boolean.TRUE.equals(includePolicyIds)
+                || (includeRelationships != null && includeRelationships != IncludeRelationships.NONE);
+
+        String group = createKey(repositoryId, "object", objectId);
+        String key = createKey(group, userSpecific ? getUser(service) : null, filter, includeAllowableActions,
+                includeRelationships, renditionFilter, includePolicyIds, includeAcl);
+
+        Entry entry = getEntry(key);
+        if (entry != null) {
+            if (!validate || isCurrent(service, repositoryId, objectId, key, entry)) {
+                hits[OBJECT].incrementAndGet();
+                return (ObjectData) entry.value;
+            }
+        }
+
+        misses[OBJECT].incrementAndGet();
+
+        // the change token is needed to validate the entry later
+        boolean addChangeToken = validate && !selectsChangeToken(filter);
+
+        ObjectData object = service.getObjectService().getObject(repositoryId, objectId,
+                addChangeToken ? filter + "," + CHANGE_TOKEN_FILTER : filter, includeAllowableActions,
+                includeRelationships, renditionFilter, includePolicyIds, includeAcl, null);
+
+        if (object != null) {
+            String changeToken = getChangeToken(object.getProperties());
+            if (addChangeToken) {
+                removeChangeToken(object);
+            }
+            put(key, group, object, null, changeToken, validate && changeToken != null, estimateSize(object));
+        }
+
+        return object;
+    }
+
+    /**
+     * Returns a children page from the cache or the repository.
+     */
+    public ObjectInFolderList getChildren(FilterCmisService service, String repositoryId, String folderId,
+            String filter, String orderBy, Boolean includeAllowableActions, IncludeRelationships includeRelationships,
+            String renditionFilter, Boolean includePathSegment, BigInteger maxItems, BigInteger skipCount) {
+        String group = createKey(repositoryId, "children", folderId);
+        String key = createKey(group, getUser(service), filter, orderBy, includeAllowableActions,
+                includeRelationships, renditionFilter, includePathSegment, maxItems, skipCount);
+
+        Entry entry = getEntry(key);
+        if (entry != null) {
+            hits[CHILDREN].incrementAndGet();
+            return (ObjectInFolderList) entry.value;
+        }
+
+        misses[CHILDREN].incrementAndGet();
+
+        ObjectInFolderList children = service.getNavigationService().getChildren(repositoryId, folderId, filter,
+                orderBy, includeAllowableActions, includeRelationships, renditionFilter, includePathSegment, maxItems,
+                skipCount, null);
+
+        if (children != null) {
+            put(key, group, children, getChildGroups(repositoryId, children), null, false, estimateSize(children));
+        }
+
+        return children;
+    }
+
+    /**
+     * Returns a type definition from the cache or the repository.
+     */
+    public TypeDefinition getTypeDefinition(FilterCmisService service, String repositoryId, String typeId) {
+        String key = createKey(repositoryId, "type", typeId);
+
+        Entry entry = getEntry(key);
+        if (entry != null) {
+            hits[TYPE].incrementAndGet();
+            return (TypeDefinition) entry.value;
+        }
+
+        misses[TYPE].incrementAndGet();
+
+        TypeDefinition type = service.getRepositoryService().getTypeDefinition(repositoryId, typeId, null);
+
+        if (type != null) {
+            put(key, key, type, null, null, false, estimateSize(type));
+        }
+
+        return type;
+    }
+
+    /**
+     * Removes all cached versions of an object and all cached children pages
+     * that contain the object.
+     */
+    public void invalidateObject(String repositoryId, String objectId) {
+        if (objectId == null) {
+            return;
+        }
+
+        String group = createKey(repositoryId, "object", objectId);
+
+        lock.lock();
+        try {
+            removeGroup(group);
+
+            Set<String> pages = pagesByChild.remove(group);
+            if (pages != null) {
+                for (String key : pages) {
+                    Entry entry = entries.get(key);
+                    if (entry != null) {
+                        removeEntry(key, entry);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached children pages of a folder.
+     */
+    public void invalidateChildren(String repositoryId, String folderId) {
+        if (folderId == null) {
+            return;
+        }
+
+        removeGroup(createKey(repositoryId, "children", folderId));
+    }
+
+    /**
+     * Removes all cached children pages of a repository. This is necessary
+     * if the parents of a changed object are unknown.
+     */
+    public void invalidateAllChildren(String repositoryId) {
+        String prefix = createKey(repositoryId, "children", "");
+
+        lock.lock();
+        try {
+            for (Iterator<Map.Entry<String, Set<String>>> iter = groups.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry<String, Set<String>> group = iter.next();
+                if (group.getKey().startsWith(prefix)) {
+                    for (String key : group.getValue()) {
+                        Entry entry = entries.remove(key);
+                        if (entry != null) {
+                            memorySize -= entry.size;
+                            unlinkChildren(key, entry);
+                        }
+                    }
+                    iter.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- management ---
+
+    /**
+     * Registers the cache with the platform MBean server.
+     */
+    public void registerMBean() {
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=BridgeObjectDataCache,id="
+                    + Integer.toHexString(System.identityHashCode(this)));
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(this, ObjectDataCacheMBean.class), objectName);
+            name = objectName;
+        } catch (Exception e) {
+            LOG.warn("Could not register object cache MBean: " + e, e);
+        }
+    }
+
+    /**
+     * Unregisters the cache from the platform MBean server.
+     */
+    public void unregisterMBean() {
+        if (name == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOG.warn("Could not unregister object cache MBean: " + e, e);
+        } finally {
+            name = null;
+        }
+    }
+
+    public long getHits() {
+        return hits[OBJECT].get() + hits[CHILDREN].get() + hits[TYPE].get();
+    }
+
+    public long getMisses() {
+        return misses[OBJECT].get() + misses[CHILDREN].get() + misses[TYPE].get();
+    }
+
+    public double getHitRatio() {
+        return ratio(getHits(), getMisses());
+    }
+
+    public String[] getHitRatios() {
+        String[] result = new String[KIND_NAMES.length];
+        for (int i = 0; i < result.length; i++) {
+            long h = hits[i].get();
+            long m = misses[i].get();
+            result[i] = KIND_NAMES[i] + ": hits=" + h + ", misses=" + m + ", ratio=" + ratio(h, m);
+        }
+        return result;
+    }
+
+    public long getValidations() {
+        return validations.get();
+    }
+
+    public long getStaleEntries() {
+        return staleEntries.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getEntries() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMemorySize() {
+        lock.lock();
+        try {
+            return memorySize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxMemorySize() {
+        return maxMemorySize;
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            groups.clear();
+            pagesByChild.clear();
+            memorySize = 0;
+        } finally {
+            lock.unlock();
+        }
+
+        for (int i = 0; i < KIND_NAMES.length; i++) {
+            hits[i].set(0);
+            misses[i].set(0);
+        }
+        validations.set(0);
+        staleEntries.set(0);
+        evictions.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Object cache [entries=" + getEntries() + ", memory=" + getMemorySize() + "/" + maxMemorySize
+                + ", hits=" + getHits() + ", misses=" + getMisses() + "]";
+    }
+
+    // --- internal ---
+
+    /**
+     * Checks the change token of a cached object.
+     */
+    private boolean isCurrent(FilterCmisService service, String repositoryId, String objectId, String key,
+            Entry entry) {
+        validations.incrementAndGet();
+
+        String changeToken = null;
+        try {
+            Properties properties = service.getObjectService().getProperties(repositoryId, objectId,
+                    CHANGE_TOKEN_FILTER, null);
+            changeToken = getChangeToken(properties);
+        } catch (CmisBaseException e) {
+            // the object is gone or the user must not see it
+            // -> let the regular call report the error
+            remove(key);
+            return false;
+        }
+
+        if (entry.changeToken == null ? changeToken == null : entry.changeToken.equals(changeToken)) {
+            return true;
+        }
+
+        staleEntries.incrementAndGet();
+        remove(key);
+
+        return false;
+    }
+
+    private Entry getEntry(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (!entry.validated && timeToLive > 0 && System.currentTimeMillis() - entry.created > timeToLive) {
+                removeEntry(key, entry);
+                return null;
+            }
+
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String key, String group, Object value, String[] childGroups, String changeToken,
+            boolean validated, long size) {
+        if (size > maxMemorySize) {
+            return;
+        }
+
+        Entry entry = new Entry(group, value, childGroups, changeToken, validated, size);
+
+        lock.lock();
+        try {
+            Entry oldEntry = entries.put(key, entry);
+            if (oldEntry != null) {
+                memorySize -= oldEntry.size;
+                unlinkChildren(key, oldEntry);
+            }
+            memorySize += size;
+
+            Set<String> keys = groups.get(group);
+            if (keys == null) {
+                keys = new HashSet<String>();
+                groups.put(group, keys);
+            }
+            keys.add(key);
+
+            if (childGroups != null) {
+                for (String childGroup : childGroups) {
+                    Set<String> pages = pagesByChild.get(childGroup);
+                    if (pages == null) {
+                        pages = new HashSet<String>();
+                        pagesByChild.put(childGroup, pages);
+                    }
+                    pages.add(key);
+                }
+            }
+
+            // evict least recently used entries
+            Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+            while (memorySize > maxMemorySize && iter.hasNext()) {
+                Map.Entry<String, Entry> eldest = iter.next();
+                iter.remove();
+                memorySize -= eldest.getValue().size;
+                removeFromGroup(eldest.getKey(), eldest.getValue());
+                unlinkChildren(eldest.getKey(), eldest.getValue());
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                removeEntry(key, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeGroup(String group) {
+        lock.lock();
+        try {
+            Set<String> keys = groups.remove(group);
+            if (keys == null) {
+                return;
+            }
+
+            for (String key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    memorySize -= entry.size;
+                    unlinkChildren(key, entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeEntry(String key, Entry entry) {
+        entries.remove(key);
+        memorySize -= entry.size;
+        removeFromGroup(key, entry);
+        unlinkChildren(key, entry);
+    }
+
+    private void removeFromGroup(String key, Entry entry) {
+        Set<String> keys = groups.get(entry.group);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                groups.remove(entry.group);
+            }
+        }
+    }
+
+    /**
+     * Removes a children page from the index of the pages that list an
+     * object.
+     */
+    private void unlinkChildren(String key, Entry entry) {
+        if (entry.childGroups == null) {
+            return;
+        }
+
+        for (String childGroup : entry.childGroups) {
+            Set<String> pages = pagesByChild.get(childGroup);
+            if (pages != null) {
+                pages.remove(key);
+                if (pages.isEmpty()) {
+                    pagesByChild.remove(childGroup);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the object groups of all children of a page.
+     */
+    private static String[] getChildGroups(String repositoryId, ObjectInFolderList children) {
+        if (children.getObjects() == null) {
+            return null;
+        }
+
+        List<String> result = new ArrayList<String>(children.getObjects().size());
+        for (ObjectInFolderData child : children.getObjects()) {
+            if (child.getObject() != null && child.getObject().getId() != null) {
+                result.add(createKey(repositoryId, "object", child.getObject().getId()));
+            }
+        }
+
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Returns whether a property filter selects the change token.
+     */
+    static boolean selectsChangeToken(String filter) {
+        if (filter == null || filter.trim().length() == 0) {
+            return true;
+        }
+
+        for (String queryName : filter.split(",")) {
+            String s = queryName.trim();
+            if ("*".equals(s) || CHANGE_TOKEN_FILTER.equals(s)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the change token that has been added to the filter.
+     */
+    private static void removeChangeToken(ObjectData object) {
+        Properties properties = object.getProperties();
+        if (properties instanceof PropertiesImpl) {
+            ((PropertiesImpl) properties).removeProperty(PropertyIds.CHANGE_TOKEN);
+        } else if (properties != null && object instanceof ObjectDataImpl) {
+            PropertiesImpl copy = new PropertiesImpl(properties);
+            copy.removeProperty(PropertyIds.CHANGE_TOKEN);
+            ((ObjectDataImpl) object).setProperties(copy);
+        }
+    }
+
+    private static String getUser(FilterCmisService service) {
+        String user = service.getCallContext().getUsername();
+        return user == null ? "" : user;
+    }
+
+    private static String createKey(Object... parts) {
+        StringBuilder sb = new StringBuilder(128);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            if (parts[i] != null) {
+                sb.append(parts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String getChangeToken(Properties properties) {
+        if (properties == null || properties.getProperties() == null) {
+            return null;
+        }
+
+        PropertyData<?> changeToken = properties.getProperties().get(PropertyIds.CHANGE_TOKEN);
+        if (changeToken == null || !(changeToken.getFirstValue() instanceof String)) {
+            return null;
+        }
+
+        return (String) changeToken.getFirstValue();
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    // --- size estimation ---
+
+    private static long estimateSize(ObjectData object) {
+        long size = 128;
+        if (object == null) {
+            return size;
+        }
+
+        if (object.getProperties() != null) {
+            size += estimateSize(object.getProperties().getPropertyList());
+        }
+        if (object.getAllowableActions() != null && object.getAllowableActions().getAllowableActions() != null) {
+            size += 16 * object.getAllowableActions().getAllowableActions().size();
+        }
+        if (object.getAcl() != null && object.getAcl().getAces() != null) {
+            for (Ace ace : object.getAcl().getAces()) {
+                size += 64 + estimateSize(ace.getPrincipalId());
+                if (ace.getPermissions() != null) {
+                    for (String permission : ace.getPermissions()) {
+                        size += estimateSize(permission);
+                    }
+                }
+            }
+        }
+        if (object.getRenditions() != null) {
+            size += 256 * object.getRenditions().size();
+        }
+        if (object.getRelationships() != null) {
+            for (ObjectData relationship : object.getRelationships()) {
+                size += estimateSize(relationship);
+            }
+        }
+        if (object.getPolicyIds() != null && object.getPolicyIds().getPolicyIds() != null) {
+            for (String policyId : object.getPolicyIds().getPolicyIds()) {
+                size += estimateSize(policyId);
+            }
+        }
+
+        return size;
+    }
+
+    private static long estimateSize(List<PropertyData<?>> properties) {
+        long size = 0;
+        if (properties == null) {
+            return size;
+        }
+
+        for (PropertyData<?> property : properties) {
+            size += 64 + estimateSize(property.getId());
+            if (property.getValues() != null) {
+                for (Object value : property.getValues()) {
+                    size += (value instanceof String ? estimateSize((String) value) : 32);
+                }
+            }
+        }
+
+        return size;
+    }
+
+    private static long estimateSize(ObjectInFolderList children) {
+        long size = 64;
+        if (children.getObjects() != null) {
+            for (ObjectInFolderData child : children.getObjects()) {
+                size += 32 + estimateSize(child.getObject()) + estimateSize(child.getPathSegment());
+            }
+        }
+
+        return size;
+    }
+
+    private static long estimateSize(TypeDefinition type) {
+        long size = 1024;
+        if (type.getPropertyDefinitions() != null) {
+            size += 512 * type.getPropertyDefinitions().size();
+        }
+
+        return size;
+    }
+
+    private static long estimateSize(String s) {
+        return s == null ? 0 : 40 + 2 * s.length();
+    }
+
+    /**
+     * Cache entry.
+     */
+    private static class Entry {
+        final String group;
+        final Object value;
+        final String[] childGroups;
+        final String changeToken;
+        final boolean validated;
+        final long size;
+        final long created;
+
+        Entry(String group, Object value, String[] childGroups, String changeToken, boolean validated, long size) {
+            this.group = group;
+            this.value = value;
+            this.childGroups = childGroups;
+            this.changeToken = changeToken;
+            this.validated = validated;
+            this.size = size;
+            this.created = System.currentTimeMillis();
+        }
+    }
+}
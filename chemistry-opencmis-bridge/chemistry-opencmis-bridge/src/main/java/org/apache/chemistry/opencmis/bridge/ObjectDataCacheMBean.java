@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.bridge;
+
+/**
+ * Management interface of the {@link ObjectDataCache}.
+ */
+public interface ObjectDataCacheMBean {
+
+    /**
+     * Returns the number of requests that have been served from the cache.
+     */
+    long getHits();
+
+    /**
+     * Returns the number of requests that have been forwarded to the
+     * repository.
+     */
+    long getMisses();
+
+    /**
+     * Returns the ratio of hits to all requests.
+     */
+    double getHitRatio();
+
+    /**
+     * Returns one line with hits, misses and hit ratio per kind of entry.
+     */
+    String[] getHitRatios();
+
+    /**
+     * Returns the number of change token checks.
+     */
+    long getValidations();
+
+    /**
+     * Returns the number of entries that failed the change token check.
+     */
+    long getStaleEntries();
+
+    /**
+     * Returns the number of entries that have been dropped to stay within the
+     * memory limit.
+     */
+    long getEvictions();
+
+    /**
+     * Returns the number of cached entries.
+     */
+    int getEntries();
+
+    /**
+     * Returns the estimated memory size of all entries in bytes.
+     */
+    long getMemorySize();
+
+    /**
+     * Returns the memory limit in bytes.
+     */
+    long getMaxMemorySize();
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    void clear();
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.bridge.client;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.ClientVersion;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.AbstractApacheClientHttpInvoker;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.params.CookiePolicy;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.ProxySelectorRoutePlanner;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+
+/**
+ * A HTTP invoker that sends the requests of all bindings of the bridge
+ * through one pooled Apache HTTP client.
+ * <p>
+ * Backend connections are reused across users. User specific data is not
+ * kept in the client: authentication headers are added per request by the
+ * authentication provider of the binding and cookies are handled by the
+ * authentication provider, too. The client itself ignores cookies.
+ * <p>
+ * SSL connections use the default SSL socket factory of the JVM. Custom SSL
+ * socket factories and hostname verifiers of authentication providers are
+ * not supported. Timeouts are set for the whole client, the timeout session
+ * parameters of the bindings are ignored.
+ */
+public class SharedHttpInvoker extends AbstractApacheClientHttpInvoker {
+
+    private static final Object LOCK = new Object();
+    private static DefaultHttpClient sharedClient;
+    private static int references;
+
+    /**
+     * Creates the shared HTTP client or increments its reference count if it
+     * already exists.
+     * 
+     * @param maxConnections
+     *            the maximum number of open connections
+     * @param maxConnectionsPerRoute
+     *            the maximum number of open connections to one host
+     * @param connectTimeout
+     *            the connect timeout in milliseconds or -1 for the default
+     * @param readTimeout
+     *            the read timeout in milliseconds or -1 for the default
+     */
+    public static void start(int maxConnections, int maxConnectionsPerRoute, int connectTimeout, int readTimeout) {
+        synchronized (LOCK) {
+            references++;
+            if (sharedClient != null) {
+                return;
+            }
+
+            HttpParams params = new BasicHttpParams();
+
+            HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+            HttpProtocolParams.setUserAgent(params, ClientVersion.OPENCMIS_CLIENT);
+            HttpProtocolParams.setContentCharset(params, IOUtils.UTF8);
+            HttpProtocolParams.setUseExpectContinue(params, true);
+
+            // pooled connections can be idle for a long time
+            HttpConnectionParams.setStaleCheckingEnabled(params, true);
+
+            if (connectTimeout >= 0) {
+                HttpConnectionParams.setConnectionTimeout(params, connectTimeout);
+            }
+            if (readTimeout >= 0) {
+                HttpConnectionParams.setSoTimeout(params, readTimeout);
+            }
+
+            // never share cookies across users
+            params.setParameter(ClientPNames.COOKIE_POLICY, CookiePolicy.IGNORE_COOKIES);
+
+            SchemeRegistry registry = SchemeRegistryFactory.createSystemDefault();
+
+            PoolingClientConnectionManager connManager = new PoolingClientConnectionManager(registry);
+            connManager.setMaxTotal(maxConnections);
+            connManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+            DefaultHttpClient httpclient = new DefaultHttpClient(connManager, params);
+            httpclient.setRoutePlanner(new ProxySelectorRoutePlanner(registry, null));
+
+            sharedClient = httpclient;
+        }
+    }
+
+    /**
+     * Decrements the reference count of the shared HTTP client and closes all
+     * connections if it is not used anymore.
+     */
+    public static void stop() {
+        synchronized (LOCK) {
+            if (references == 0) {
+                return;
+            }
+
+            references--;
+            if (references == 0 && sharedClient != null) {
+                sharedClient.getConnectionManager().shutdown();
+                sharedClient = null;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the shared HTTP client has been started.
+     */
+    public static boolean isStarted() {
+        synchronized (LOCK) {
+            return sharedClient != null;
+        }
+    }
+
+    @Override
+    protected DefaultHttpClient createHttpClient(UrlBuilder url, BindingSession session) {
+        synchronized (LOCK) {
+            if (sharedClient == null) {
+                throw new CmisConnectionException("The shared HTTP client of the bridge is not running!");
+            }
+
+            return sharedClient;
+        }
+    }
+}
@@ -42,6 +42,11 @@ public class SimpleCmisBindingFactory {
         parameters.put(SessionParameter.USER, context.getUsername());
         parameters.put(SessionParameter.PASSWORD, context.getPassword());
 
+        // use the shared transport of the bridge if it is running
+        if (SharedHttpInvoker.isStarted() && !parameters.containsKey(SessionParameter.HTTP_INVOKER_CLASS)) {
+            parameters.put(SessionParameter.HTTP_INVOKER_CLASS, SharedHttpInvoker.class.getName());
+        }
+
         // create the binding object
         String bindingTypeStr = parameters.get(SessionParameter.BINDING_TYPE);
         BindingType bindingType = BindingType.fromValue(bindingTypeStr);
@@ -19,9 +19,13 @@
 package org.apache.chemistry.opencmis.bridge.lrucache;
 
 import java.io.Serializable;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
@@ -29,50 +33,57 @@ import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
 /**
  * Simple LRU cache for {@link CmisBinding} objects. The cache key is consists
  * of the repository id and the user.
+ * <p>
+ * Lookups don't lock. Each entry remembers when it has been used last. If the
+ * cache grows beyond its size, the thread that added the entry removes the
+ * least recently used entries plus a small margin, so that the eviction cost
+ * is shared by many insertions.
  */
 public class CmisBindingCache implements Serializable {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final LinkedHashMap<String, CmisBinding> cache;
+    private final int size;
+    private final int margin;
+    private final ConcurrentHashMap<String, Entry> cache;
+    private final ReentrantLock evictionLock = new ReentrantLock();
 
     public CmisBindingCache(final int size) {
-        cache = new LinkedHashMap<String, CmisBinding>(size + 1, 0.70f, true) {
-
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, CmisBinding> eldest) {
-                return size() > size;
-            }
-        };
+        this.size = size;
+        this.margin = Math.max(1, size / 20);
+        this.cache = new ConcurrentHashMap<String, Entry>(size + margin + 1, 0.75f, 64);
     }
 
     public CmisBinding getCmisBinding(CallContext context) {
-        lock.writeLock().lock();
-        try {
-            return cache.get(getCacheKey(context));
-        } finally {
-            lock.writeLock().unlock();
+        Entry entry = cache.get(getCacheKey(context));
+        if (entry == null) {
+            return null;
         }
+
+        entry.touch();
+        return entry.binding;
     }
 
     public CmisBinding putCmisBinding(CallContext context, CmisBinding binding) {
-        lock.writeLock().lock();
-        try {
-            String key = getCacheKey(context);
-            CmisBinding extistingBinding = cache.get(getCacheKey(context));
-            if (extistingBinding == null) {
-                cache.put(key, binding);
-            } else {
-                binding = extistingBinding;
-            }
+        Entry entry = new Entry(binding);
+        Entry existingEntry = cache.putIfAbsent(getCacheKey(context), entry);
+        if (existingEntry != null) {
+            existingEntry.touch();
+            return existingEntry.binding;
+        }
 
-            return binding;
-        } finally {
-            lock.writeLock().unlock();
+        if (cache.size() > size) {
+            evict();
         }
+
+        return binding;
+    }
+
+    /**
+     * Returns the number of cached bindings.
+     */
+    public int getSize() {
+        return cache.size();
     }
 
     protected String getCacheKey(CallContext context) {
@@ -86,4 +97,76 @@ public class CmisBindingCache implements Serializable {
 
         return key;
     }
+
+    /**
+     * Removes the least recently used entries.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            // another thread is already cleaning up
+            return;
+        }
+
+        try {
+            int excess = cache.size() - size;
+            if (excess <= 0) {
+                return;
+            }
+
+            // take a snapshot of the access times, they change while sorting
+            List<Candidate> candidates = new ArrayList<Candidate>(cache.size());
+            for (Map.Entry<String, Entry> e : cache.entrySet()) {
+                candidates.add(new Candidate(e.getKey(), e.getValue()));
+            }
+
+            Collections.sort(candidates, new Comparator<Candidate>() {
+                public int compare(Candidate c1, Candidate c2) {
+                    return (c1.lastAccess < c2.lastAccess ? -1 : (c1.lastAccess == c2.lastAccess ? 0 : 1));
+                }
+            });
+
+            int count = Math.min(candidates.size(), excess + margin);
+            for (int i = 0; i < count; i++) {
+                Candidate eldest = candidates.get(i);
+                cache.remove(eldest.key, eldest.entry);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Cache entry.
+     */
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final CmisBinding binding;
+        volatile long lastAccess;
+
+        Entry(CmisBinding binding) {
+            this.binding = binding;
+            touch();
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
+
+    /**
+     * Eviction candidate.
+     */
+    private static class Candidate {
+        final String key;
+        final Entry entry;
+        final long lastAccess;
+
+        Candidate(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
 }
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ObjectDataCacheTest {
+
+    private static final String REPOSITORY_ID = "test";
+    private static final long MAX_MEMORY = 1024 * 1024;
+
+    private Backend backend;
+
+    @Before
+    public void setUp() {
+        backend = new Backend();
+        backend.tokens.put("doc", "1");
+        backend.tokens.put("other", "1");
+        backend.children.put("folder", new String[] { "doc", "other" });
+    }
+
+    @Test
+    public void testSharedObjects() {
+        ObjectDataCache cache = new ObjectDataCache(MAX_MEMORY, 0, true);
+
+        ObjectData object1 = getObject(cache, "alice", "doc", null, null, null, null, null);
+        ObjectData object2 = getObject(cache, "bob", "doc", null, null, null, null, null);
+
+        // plain objects are shared and validated for every user
+        assertSame(object1, object2);
+        assertEquals(1, backend.getObjectCalls.size());
+        assertEquals(1, backend.getPropertiesCalls.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getValidations());
+    }
+
+    @Test
+    public void testUserSpecificObjects() {
+        ObjectDataCache cache = new ObjectDataCache(MAX_MEMORY, 0, true);
+
+        // options whose results depend on the user
+        getObject(cache, "alice", "doc", Boolean.TRUE, null, null, null, "a");
+        getObject(cache, "bob", "doc", Boolean.TRUE, null, null, null, "a");
+        getObject(cache, "alice", "doc", null, null, null, Boolean.TRUE, "b");
+        getObject(cache, "bob", "doc", null, null, null, Boolean.TRUE, "b");
+        getObject(cache, "alice", "doc", null, IncludeRelationships.SOURCE, null, null, "c");
+        getObject(cache, "bob", "doc", null, IncludeRelationships.SOURCE, null, null, "c");
+        getObject(cache, "alice", "doc", null, null, Boolean.TRUE, null, "d");
+        getObject(cache, "bob", "doc", null, null, Boolean.TRUE, null, "d");
+        assertEquals(8, backend.getObjectCalls.size());
+
+        // the same user gets its own entries
+        getObject(cache, "alice", "doc", Boolean.TRUE, null, null, null, "a");
+        getObject(cache, "bob", "doc", null, IncludeRelationships.SOURCE, null, null, "c");
+        assertEquals(8, backend.getObjectCalls.size());
+
+        // no relationships are shared again
+        getObject(cache, "alice", "doc", null, IncludeRelationships.NONE, null, null, "e");
+        getObject(cache, "bob", "doc", null, IncludeRelationships.NONE, null, null, "e");
+        assertEquals(9, backend.getObjectCalls.size());
+    }
+
+    @Test
+    public void testNoValidation() {
+        ObjectDataCache cache = new ObjectDataCache(MAX_MEMORY, 0, false);
+
+        getObject(cache, "alice", "doc", null, null, null, null, null);
+        getObject(cache, "alice", "doc", null, null, null, null, null);
+        getObject(cache, "bob", "doc", null, null, null, null, null);
+
+        // all objects are cached per user and never validated
+        assertEquals(2, backend.getObjectCalls.size());
+        assertEquals(0, backend.getPropertiesCalls.size());
+        assertEquals(0, cache.getValidations());
+    }
+
+    @Test
+    public void testStaleObject() {
+        ObjectDataCache cache = new ObjectDataCache(MAX_MEMORY, 0, true);
+
+        getObject(cache, "alice", "doc", null, null, null, null, null);
+        backend.tokens.put("doc", "2");
+
+        ObjectData object = getObject(cache, "alice", "doc", null, null, null, null, null);
+        assertEquals("2", object.getProperties().getProperties().get(PropertyIds.CHANGE_TOKEN).getFirstValue());
+        assertEquals(2, backend.getObjectCalls.size());
+        assertEquals(1, cache.getStaleEntries());
+
+        // the new version is cached
+        getObject(cache, "alice", "doc", null, null, null, null, null);
+        assertEquals(2, backend.getObjectCalls.size());
+
+        // objects that are gone or hidden are not served
+        backend.tokens.remove("doc");
+        try {
+            getObject(cache, "alice", "doc", null, null, null, null, null);
+            fail("CmisObjectNotFoundException expected!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+        assertEquals(0, cache.getEntries());
+    }
+
+    @Test
+    public void testFilterWithoutChangeToken() {
+        ObjectDataCache cache = new ObjectDataCache(MAX_MEMORY, 0, true);
+
+        ObjectData object = getObject(cache, "alice", "doc", null, null, null, null, "cmis:name");
+        assertEquals("cmis:name," + PropertyIds.CHANGE_TOKEN, backend.getObjectCalls.get(0));
+        assertNull(object.getProperties().getProperties().get(PropertyIds.CHANGE_TOKEN));
+        assertNotNull(object.getProperties().getProperties().get(PropertyIds.NAME));
+
+        // the entry can be validated and stays current
+        assertSame(object, getObject(cache, "alice", "doc", null, null, null, null, "cmis:name"));
+        assertEquals(1, backend.getObjectCalls.size());
+        assertEquals(0, cache.getStaleEntries());
+
+        // filters that select the change token are passed on unchanged
+        getObject(cache, "alice", "doc", null, null, null, null, "cmis:name, cmis:changeToken");
+        getObject(cache, "alice", "doc", null, null, null, null, "*");
+        assertEquals("cmis:name, cmis:changeToken", backend.getObjectCalls.get(1));
+        assertEquals("*", backend.getObjectCalls.get(2));
+
+        assertTrue(ObjectDataCache.selectsChangeToken(null));
+        assertTrue(ObjectDataCache.selectsChangeToken(" "));
+        assertTrue(ObjectDataCache.selectsChangeToken("cmis:name,*"));
+        assertFalse(ObjectDataCache.selectsChangeToken("cmis:name,cmis:objectId"));
+    }
+
+    @Test
+    public void testEviction() {
+        ObjectDataCache cache = new ObjectDataCache(4096, 0, true);
+
+        for (int i = 0; i < 100; i++) {
+            backend.tokens.put("doc" + i, "1");
+        }
+
+        for (int i = 0; i < 100; i++) {
+            getObject(cache, "alice", "doc" + i, null, null, null, null, null);
+            // keep the first object in use
+            getObject(cache, "alice", "doc0", null, null, null, null, null);
+        }
+
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getEntries() < 100);
+        assertTrue(cache.getMemorySize() <= cache.getMaxMemorySize());
+
+        // the least recently used objects are gone, the busy one is not
+        int calls = backend.getObjectCalls.size();
+        getObject(cache, "alice", "doc0", null, null, null, null, null);
+        assertEquals(calls, backend.getObjectCalls.size());
+        getObject(cache, "alice", "doc1", null, null, null, null, null);
+        assertEquals(calls + 1, backend.getObjectCalls.size());
+
+        cache.clear();
+        assertEquals(0, cache.getEntries());
+        assertEquals(0, cache.getMemorySize());
+    }
+
+    @Test
+    public void testChildren() {
+        ObjectDataCache cache = new ObjectDataCache(MAX_MEMORY, 0, true);
+
+        ObjectInFolderList children = getChildren(cache, "alice", "folder");
+        assertEquals(2, children.getObjects().size());
+        assertSame(children, getChildren(cache, "alice", "folder"));
+        assertEquals(1, backend.getChildrenCalls.size());
+
+        // children pages are cached per user
+        getChildren(cache, "bob", "folder");
+        assertEquals(2, backend.getChildrenCalls.size());
+
+        // a changed child invalidates the pages of all users
+        cache.invalidateObject(REPOSITORY_ID, "doc");
+        getChildren(cache, "alice", "folder");
+        getChildren(cache, "bob", "folder");
+        assertEquals(4, backend.getChildrenCalls.size());
+
+        cache.invalidateChildren(REPOSITORY_ID, "folder");
+        getChildren(cache, "alice", "folder");
+        assertEquals(5, backend.getChildrenCalls.size());
+
+        cache.invalidateAllChildren(REPOSITORY_ID);
+        getChildren(cache, "alice", "folder");
+        assertEquals(6, backend.getChildrenCalls.size());
+    }
+
+    @Test
+    public void testUpdatePropertiesInvalidatesParents() {
+        ObjectDataCache cache = new ObjectDataCache(MAX_MEMORY, 0, true);
+        FilterCmisService service = createService(cache, "alice");
+
+        service.getChildren(REPOSITORY_ID, "folder", null, null, null, null, null, null, null, null, null);
+        service.getObject(REPOSITORY_ID, "doc", null, null, null, null, null, null, null);
+        assertEquals(1, backend.getChildrenCalls.size());
+        assertEquals(1, backend.getObjectCalls.size());
+
+        service.updateProperties(REPOSITORY_ID, new Holder<String>("doc"), null, new PropertiesImpl(), null);
+
+        service.getChildren(REPOSITORY_ID, "folder", null, null, null, null, null, null, null, null, null);
+        service.getObject(REPOSITORY_ID, "doc", null, null, null, null, null, null, null);
+        assertEquals(2, backend.getChildrenCalls.size());
+        assertEquals(2, backend.getObjectCalls.size());
+    }
+
+    private ObjectData getObject(ObjectDataCache cache, String user, String objectId,
+            Boolean includeAllowableActions, IncludeRelationships includeRelationships, Boolean includePolicyIds,
+            Boolean includeAcl, String filter) {
+        return cache.getObject(createService(cache, user), REPOSITORY_ID, objectId, filter, includeAllowableActions,
+                includeRelationships, null, includePolicyIds, includeAcl);
+    }
+
+    private ObjectInFolderList getChildren(ObjectDataCache cache, String user, String folderId) {
+        return cache.getChildren(createService(cache, user), REPOSITORY_ID, folderId, null, null, null, null, null,
+                null, null, null);
+    }
+
+    private FilterCmisService createService(ObjectDataCache cache, String user) {
+        CallContext context = Mockito.mock(CallContext.class);
+        Mockito.when(context.getUsername()).thenReturn(user);
+
+        FilterCmisService service = Mockito.mock(FilterCmisService.class, Mockito.CALLS_REAL_METHODS);
+        Mockito.doReturn(backend.objectService).when(service).getObjectService();
+        Mockito.doReturn(backend.navigationService).when(service).getNavigationService();
+        service.setCallContext(context);
+        service.setObjectDataCache(cache);
+
+        return service;
+    }
+
+    private static ObjectData createObject(String id, String changeToken) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name-" + id));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.CHANGE_TOKEN, changeToken));
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+
+        return object;
+    }
+
+    /**
+     * Backend repository that records the calls.
+     */
+    private static class Backend {
+        final Map<String, String> tokens = new HashMap<String, String>();
+        final Map<String, String[]> children = new HashMap<String, String[]>();
+        final List<String> getObjectCalls = new ArrayList<String>();
+        final List<String> getPropertiesCalls = new ArrayList<String>();
+        final List<String> getChildrenCalls = new ArrayList<String>();
+
+        final ObjectService objectService = Mockito.mock(ObjectService.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                String method = invocation.getMethod().getName();
+                Object[] args = invocation.getArguments();
+
+                if ("getObject".equals(method)) {
+                    getObjectCalls.add((String) args[2]);
+                    return createObject(checkObjectId((String) args[1]), tokens.get(args[1]));
+                } else if ("getProperties".equals(method)) {
+                    getPropertiesCalls.add((String) args[2]);
+                    return createObject(checkObjectId((String) args[1]), tokens.get(args[1])).getProperties();
+                }
+
+                return null;
+            }
+        });
+
+        final NavigationService navigationService = Mockito.mock(NavigationService.class, new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                if ("getChildren".equals(invocation.getMethod().getName())) {
+                    String folderId = (String) invocation.getArguments()[1];
+                    getChildrenCalls.add(folderId);
+
+                    List<ObjectInFolderData> list = new ArrayList<ObjectInFolderData>();
+                    for (String childId : children.get(folderId)) {
+                        ObjectInFolderDataImpl child = new ObjectInFolderDataImpl();
+                        child.setObject(createObject(childId, tokens.get(childId)));
+                        list.add(child);
+                    }
+
+                    ObjectInFolderListImpl result = new ObjectInFolderListImpl();
+                    result.setObjects(Collections.unmodifiableList(list));
+                    return result;
+                }
+
+                return null;
+            }
+        });
+
+        String checkObjectId(String objectId) {
+            if (!tokens.containsKey(objectId)) {
+                throw new CmisObjectNotFoundException(objectId);
+            }
+            return objectId;
+        }
+    }
+}
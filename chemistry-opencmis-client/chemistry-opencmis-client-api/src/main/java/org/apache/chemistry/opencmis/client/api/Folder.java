@@ -182,6 +182,29 @@ public interface Folder extends FileableCmisObject, FolderProperties {
      */
     List<Tree<FileableCmisObject>> getDescendants(int depth, OperationContext context);
 
+    /**
+     * Walks the tree below this folder with several threads and passes each
+     * object to the visitor.
+     * <p>
+     * In contrast to {@link #getDescendants(int)}, the walk only uses
+     * {@code getChildren} calls, which every repository supports, and doesn't
+     * keep the tree in memory. Children are fetched page by page. The number
+     * of folders that are waiting to be read is bounded; if the limit is
+     * reached, the walk thread reads the subfolder itself.
+     * 
+     * @param depth
+     *            the maximum depth, {@code -1} for unlimited
+     * @param parallelism
+     *            the number of threads that read folders concurrently
+     * @param context
+     *            the {@link OperationContext} used to fetch the children
+     * @param visitor
+     *            the visitor, must be thread-safe
+     * 
+     * @return a handle to wait for or cancel the walk
+     */
+    TreeWalk walkTree(int depth, int parallelism, OperationContext context, TreeVisitor visitor);
+
     /**
      * Returns the children of this folder.
      * 
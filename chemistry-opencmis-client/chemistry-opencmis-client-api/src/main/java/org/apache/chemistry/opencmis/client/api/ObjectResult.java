@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.api;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+
+/**
+ * Result for one object id of a multi-get.
+ * 
+ * @see Session#getObjects(java.util.Collection, OperationContext)
+ */
+public interface ObjectResult {
+
+    /**
+     * Returns the requested object id.
+     */
+    String getId();
+
+    /**
+     * Returns the object.
+     * 
+     * @return the object or {@code null} if the object couldn't be retrieved
+     */
+    CmisObject getObject();
+
+    /**
+     * Returns the exception that has been thrown when the object has been
+     * retrieved.
+     * 
+     * @return the exception or {@code null} if the object has been retrieved
+     */
+    CmisBaseException getException();
+}
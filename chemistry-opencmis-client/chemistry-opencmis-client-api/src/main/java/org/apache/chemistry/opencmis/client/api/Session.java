@@ -20,6 +20,7 @@ package org.apache.chemistry.opencmis.client.api;
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -296,6 +297,28 @@ public interface Session extends Serializable {
      */
     Folder getRootFolder(OperationContext context);
 
+    /**
+     * Walks the tree below a folder with several threads and passes each
+     * object to the visitor.
+     * 
+     * @param folderId
+     *            the id of the folder
+     * @param depth
+     *            the maximum depth, {@code -1} for unlimited
+     * @param parallelism
+     *            the number of threads that read folders concurrently
+     * @param context
+     *            the {@link OperationContext} used to fetch the folder and
+     *            the children
+     * @param visitor
+     *            the visitor, must be thread-safe
+     * 
+     * @return a handle to wait for or cancel the walk
+     * 
+     * @see Folder#walkTree(int, int, OperationContext, TreeVisitor)
+     */
+    TreeWalk walkTree(ObjectId folderId, int depth, int parallelism, OperationContext context, TreeVisitor visitor);
+
     /**
      * Returns all checked out documents.
      * 
@@ -415,6 +438,29 @@ public interface Session extends Serializable {
      */
     CmisObject getObject(String objectId, OperationContext context);
 
+    /**
+     * Returns multiple CMIS objects.
+     * <p>
+     * Objects are taken from the session cache if the cache is turned on in the
+     * given {@link OperationContext}. The other objects are loaded from the
+     * repository, with queries if the repository and the operation context
+     * allow it and with concurrent {@link #getObject(String, OperationContext)}
+     * calls otherwise. Loaded objects are put into the cache.
+     * <p>
+     * This method doesn't throw an exception if an object cannot be retrieved.
+     * The exception is attached to the result of the object id instead.
+     * 
+     * @param objectIds
+     *            the object IDs
+     * @param context
+     *            the {@link OperationContext} to use
+     * 
+     * @return one result per object ID, in the order of the given IDs
+     * 
+     * @cmis 1.0
+     */
+    List<ObjectResult> getObjects(Collection<? extends ObjectId> objectIds, OperationContext context);
+
     /**
      * Returns a CMIS object from the session cache. If the object is not in the
      * cache or the cache is turned off per default {@link OperationContext}, it
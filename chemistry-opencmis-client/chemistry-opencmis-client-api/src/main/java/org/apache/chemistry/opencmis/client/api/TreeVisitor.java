@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.api;
+
+/**
+ * Receives the objects found by a folder tree walk.
+ * <p>
+ * A tree walk may call the visitor from several threads at the same time.
+ * Implementations must be thread-safe. The walk thread that calls the visitor
+ * doesn't fetch more children until the visitor returns, so a slow visitor
+ * slows down the walk.
+ * 
+ * @see Folder#walkTree(int, int, OperationContext, TreeVisitor)
+ */
+public interface TreeVisitor {
+
+    /**
+     * Called for each object in the tree.
+     * 
+     * @param object
+     *            the object
+     * @param depth
+     *            the depth of the object relative to the start folder,
+     *            children of the start folder have the depth 1
+     * 
+     * @return {@code true} if the walk should descend into this object if it
+     *         is a folder, {@code false} if the subtree should be skipped
+     */
+    boolean visit(FileableCmisObject object, int depth);
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle of a running folder tree walk.
+ * 
+ * @see Folder#walkTree(int, int, OperationContext, TreeVisitor)
+ */
+public interface TreeWalk {
+
+    /**
+     * Cancels the walk. Folders that are being read are finished up to the
+     * current child, no new folders are read.
+     */
+    void cancel();
+
+    /**
+     * Returns whether the walk has been cancelled, either by
+     * {@link #cancel()} or because of an error.
+     */
+    boolean isCancelled();
+
+    /**
+     * Returns whether the walk has finished.
+     */
+    boolean isDone();
+
+    /**
+     * Returns the number of objects that have been passed to the visitor so
+     * far.
+     */
+    long getVisitedCount();
+
+    /**
+     * Waits until the walk has finished.
+     * 
+     * @throws InterruptedException
+     *             if the current thread has been interrupted
+     * @throws RuntimeException
+     *             the first exception thrown by the repository or the visitor,
+     *             if any
+     */
+    void await() throws InterruptedException;
+
+    /**
+     * Waits until the walk has finished or the timeout has elapsed.
+     * 
+     * @return {@code true} if the walk has finished, {@code false} if the
+     *         timeout has elapsed
+     * 
+     * @throws InterruptedException
+     *             if the current thread has been interrupted
+     * @throws RuntimeException
+     *             the first exception thrown by the repository or the visitor,
+     *             if any
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi;
+
+import java.util.Collection;
+
+/**
+ * Loads the internal links of many objects at once. Only bindings that use
+ * links implement this interface, so check with <code>instanceof</code>
+ * before using it. It bypasses the CMIS domain model. Use with care!
+ * 
+ * @see LinkAccess
+ */
+public interface LinkWarmup {
+
+    /**
+     * Loads the links of all children of a folder into the cache. One request
+     * is sent per page of children.
+     */
+    void warmupChildLinks(String repositoryId, String folderId);
+
+    /**
+     * Loads the links of the given objects into the cache. Objects that are
+     * already in the cache are skipped. The others are looked up in batches
+     * with a query if the repository returns links with query results, and
+     * one by one otherwise.
+     */
+    void warmupLinks(String repositoryId, Collection<String> objectIds);
+}
@@ -22,8 +22,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,10 +36,12 @@ import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
 import org.apache.chemistry.opencmis.client.bindings.impl.RepositoryInfoCache;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.LinkAccess;
+import org.apache.chemistry.opencmis.client.bindings.spi.LinkWarmup;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomAcl;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomBase;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomLink;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.RepositoryWorkspace;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.ServiceDoc;
@@ -54,6 +58,7 @@ import org.apache.chemistry.opencmis.commons.data.Properties;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
@@ -86,22 +91,58 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.PolicyIdListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.QueryTypeImpl;
 
 /**
  * Base class for all AtomPub client services.
  */
-public abstract class AbstractAtomPubService implements LinkAccess {
+public abstract class AbstractAtomPubService implements LinkAccess, LinkWarmup {
 
     protected enum IdentifierType {
         ID, PATH
     }
 
+    /**
+     * Decides which entries of a children feed contribute their links to the
+     * link cache.
+     */
+    protected enum FeedLinkCachePolicy {
+        /** Cache the links of all entries. */
+        ALL,
+        /**
+         * Cache only the links of entries that can be navigated into. The
+         * links of other objects are loaded when they are needed.
+         */
+        FOLDERS,
+        /** Don't cache links of feed entries. */
+        NONE
+    }
+
     protected static final String NAME_COLLECTION = "collection";
     protected static final String NAME_URI_TEMPLATE = "uritemplate";
     protected static final String NAME_PATH_SEGMENT = "pathSegment";
     protected static final String NAME_RELATIVE_PATH_SEGMENT = "relativePathSegment";
     protected static final String NAME_NUM_ITEMS = "numItems";
 
+    /**
+     * Properties requested when an object is only fetched to discover its
+     * links.
+     */
+    protected static final String LINK_DISCOVERY_FILTER = PropertyIds.OBJECT_ID + "," + PropertyIds.OBJECT_TYPE_ID
+            + "," + PropertyIds.BASE_TYPE_ID + "," + PropertyIds.VERSION_SERIES_ID + ","
+            + PropertyIds.IS_PRIVATE_WORKING_COPY + "," + PropertyIds.CONTENT_STREAM_LENGTH;
+
+    /**
+     * Base types that are queried when links are loaded in batches.
+     */
+    private static final String[] LINK_WARMUP_BASE_TYPES = { BaseTypeId.CMIS_DOCUMENT.value(),
+            BaseTypeId.CMIS_FOLDER.value() };
+
+    /**
+     * Maximum number of objects per link warmup query.
+     */
+    private static final int LINK_WARMUP_QUERY_SIZE = 100;
+
     private BindingSession session;
 
     /**
@@ -174,6 +215,77 @@ public abstract class AbstractAtomPubService implements LinkAccess {
         return linkCache;
     }
 
+    /**
+     * Returns the policy that decides which links of feed entries are added to
+     * the link cache. "true" and "false" are accepted for "all" and "none".
+     */
+    protected FeedLinkCachePolicy getFeedLinkCachePolicy() {
+        Object value = session.get(SessionParameter.CACHE_LINKS_FEEDS);
+        if (value == null) {
+            return FeedLinkCachePolicy.ALL;
+        }
+
+        String policy = value.toString().trim();
+        if (policy.equalsIgnoreCase("true") || policy.equalsIgnoreCase("all")) {
+            return FeedLinkCachePolicy.ALL;
+        } else if (policy.equalsIgnoreCase("false") || policy.equalsIgnoreCase("none")) {
+            return FeedLinkCachePolicy.NONE;
+        } else if (policy.equalsIgnoreCase("folders")) {
+            return FeedLinkCachePolicy.FOLDERS;
+        }
+
+        throw new CmisRuntimeException("Invalid value for session parameter " + SessionParameter.CACHE_LINKS_FEEDS
+                + ": " + value);
+    }
+
+    /**
+     * Adds the links of a feed entry to the link cache if the given policy
+     * asks for it.
+     */
+    protected void cacheFeedEntryLinks(String repositoryId, AtomEntry entry, FeedLinkCachePolicy policy) {
+        if (policy == FeedLinkCachePolicy.NONE) {
+            return;
+        }
+
+        if (policy == FeedLinkCachePolicy.FOLDERS) {
+            boolean hasDownLink = false;
+            for (AtomElement element : entry.getElements()) {
+                if (element.getObject() instanceof AtomLink
+                        && Constants.REL_DOWN.equals(((AtomLink) element.getObject()).getRel())) {
+                    hasDownLink = true;
+                    break;
+                }
+            }
+
+            if (!hasDownLink) {
+                return;
+            }
+        }
+
+        cacheEntryLinks(repositoryId, entry);
+    }
+
+    /**
+     * Replaces the cached links of an object with the links of the given
+     * entry.
+     */
+    protected void cacheEntryLinks(String repositoryId, AtomEntry entry) {
+        lockLinks();
+        try {
+            // clean up cache
+            removeLinks(repositoryId, entry.getId());
+
+            // walk through the entry
+            for (AtomElement element : entry.getElements()) {
+                if (element.getObject() instanceof AtomLink) {
+                    addLink(repositoryId, entry.getId(), (AtomLink) element.getObject());
+                }
+            }
+        } finally {
+            unlockLinks();
+        }
+    }
+
     /**
      * Gets a link from the cache.
      */
@@ -203,14 +315,184 @@ public abstract class AbstractAtomPubService implements LinkAccess {
     public String loadLink(String repositoryId, String id, String rel, String type) {
         String link = getLink(repositoryId, id, rel, type);
         if (link == null) {
-            getObjectInternal(repositoryId, IdentifierType.ID, id, ReturnVersion.THIS, null, null, null, null, null,
-                    null, null);
+            loadLinks(repositoryId, id);
             link = getLink(repositoryId, id, rel, type);
         }
 
         return link;
     }
 
+    /**
+     * Fetches an object through the object-by-id URI template to populate the
+     * link cache. Only the data that is required to discover the links is
+     * requested.
+     */
+    protected void loadLinks(String repositoryId, String id) {
+        getObjectInternal(repositoryId, IdentifierType.ID, id, ReturnVersion.THIS, LINK_DISCOVERY_FILTER,
+                Boolean.FALSE, IncludeRelationships.NONE, null, Boolean.FALSE, Boolean.FALSE, null);
+    }
+
+    public void warmupChildLinks(String repositoryId, String folderId) {
+        // find the link
+        String link = loadLink(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_CHILDREN);
+
+        if (link == null) {
+            throwLinkException(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_CHILDREN);
+        }
+
+        final String repId = repositoryId;
+        final int[] count = new int[1];
+        BigInteger skipCount = BigInteger.ZERO;
+
+        while (true) {
+            UrlBuilder url = new UrlBuilder(link);
+            url.addParameter(Constants.PARAM_FILTER, LINK_DISCOVERY_FILTER);
+            url.addParameter(Constants.PARAM_ALLOWABLE_ACTIONS, Boolean.FALSE);
+            url.addParameter(Constants.PARAM_RELATIONSHIPS, IncludeRelationships.NONE);
+            url.addParameter(Constants.PARAM_SKIP_COUNT, skipCount);
+
+            // read and cache the links of all entries on this page
+            count[0] = 0;
+            Response resp = read(url);
+            AtomFeed feed = parseFeed(resp.getStream(), new AtomEntryHandler() {
+                public void handleEntry(AtomEntry entry) {
+                    if (entry.getId() != null) {
+                        cacheEntryLinks(repId, entry);
+                    }
+                    count[0]++;
+                }
+            });
+
+            boolean hasMoreItems = false;
+            for (AtomElement element : feed.getElements()) {
+                if (element.getObject() instanceof AtomLink && isNextLink(element)) {
+                    hasMoreItems = true;
+                }
+            }
+
+            if (!hasMoreItems || count[0] == 0) {
+                break;
+            }
+
+            skipCount = skipCount.add(BigInteger.valueOf(count[0]));
+        }
+    }
+
+    public void warmupLinks(String repositoryId, Collection<String> objectIds) {
+        if (objectIds == null) {
+            return;
+        }
+
+        Set<String> missing = new LinkedHashSet<String>();
+        for (String objectId : objectIds) {
+            // an object is known if the cache has a branch for its id
+            if (objectId != null && getLinkCache().checkLink(repositoryId, objectId, Constants.REL_SELF, null) < 2) {
+                missing.add(objectId);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        // query the links in batches
+        String link = loadCollection(repositoryId, Constants.COLLECTION_QUERY);
+        if (link != null) {
+            boolean linksInResults = true;
+            for (String baseType : LINK_WARMUP_BASE_TYPES) {
+                List<String> ids = new ArrayList<String>(missing);
+                for (int i = 0; i < ids.size() && linksInResults; i += LINK_WARMUP_QUERY_SIZE) {
+                    linksInResults = queryLinks(repositoryId, link, baseType,
+                            ids.subList(i, Math.min(i + LINK_WARMUP_QUERY_SIZE, ids.size())), missing);
+                }
+            }
+        }
+
+        // fetch the remaining objects one by one
+        for (String objectId : missing) {
+            loadLinks(repositoryId, objectId);
+        }
+    }
+
+    /**
+     * Sends a query for the given objects of a base type and caches the links
+     * of the results. The ids of the cached objects are removed from
+     * <code>missing</code>.
+     * 
+     * @return <code>false</code> if the repository doesn't return links with
+     *         query results or doesn't support the query, <code>true</code>
+     *         otherwise
+     */
+    private boolean queryLinks(final String repositoryId, String link, String baseType, List<String> objectIds,
+            final Set<String> missing) {
+        StringBuilder statement = new StringBuilder("SELECT ");
+        statement.append(PropertyIds.OBJECT_ID);
+        statement.append(" FROM ");
+        statement.append(baseType);
+        statement.append(" WHERE ");
+        statement.append(PropertyIds.OBJECT_ID);
+        statement.append(" IN (");
+        for (int i = 0; i < objectIds.size(); i++) {
+            if (i > 0) {
+                statement.append(',');
+            }
+            statement.append('\'');
+            statement.append(objectIds.get(i).replace("\\", "\\\\").replace("'", "\\'"));
+            statement.append('\'');
+        }
+        statement.append(')');
+
+        // some repositories only add the links if allowable actions are
+        // requested
+        final QueryTypeImpl query = new QueryTypeImpl();
+        query.setStatement(statement.toString());
+        query.setSearchAllVersions(Boolean.FALSE);
+        query.setIncludeAllowableActions(Boolean.TRUE);
+        query.setIncludeRelationships(IncludeRelationships.NONE);
+        query.setRenditionFilter("cmis:none");
+        query.setMaxItems(BigInteger.valueOf(objectIds.size()));
+        query.setSkipCount(BigInteger.ZERO);
+
+        final CmisVersion cmisVersion = getCmisVersion(repositoryId);
+        final int[] counts = new int[2];
+
+        try {
+            Response resp = post(new UrlBuilder(link), Constants.MEDIATYPE_QUERY, new Output() {
+                public void write(OutputStream out) throws Exception {
+                    XMLStreamWriter writer = XMLUtils.createWriter(out);
+                    XMLUtils.startXmlDocument(writer);
+                    XMLConverter.writeQuery(writer, cmisVersion, query);
+                    XMLUtils.endXmlDocument(writer);
+                }
+            });
+
+            parseFeed(resp.getStream(), new AtomEntryHandler() {
+                public void handleEntry(AtomEntry entry) {
+                    if (entry.getId() == null) {
+                        return;
+                    }
+                    counts[0]++;
+
+                    // an entry without a self link must not create a cache
+                    // branch for its object
+                    for (AtomElement element : entry.getElements()) {
+                        if (element.getObject() instanceof AtomLink
+                                && Constants.REL_SELF.equals(((AtomLink) element.getObject()).getRel())) {
+                            cacheEntryLinks(repositoryId, entry);
+                            missing.remove(entry.getId());
+                            counts[1]++;
+                            break;
+                        }
+                    }
+                }
+            });
+        } catch (CmisBaseException e) {
+            return false;
+        }
+
+        return counts[0] == 0 || counts[1] > 0;
+    }
+
     /**
      * Gets the content link from the cache if it is there or loads it into the
      * cache if it is not there.
@@ -606,6 +888,31 @@ public abstract class AbstractAtomPubService implements LinkAccess {
         return (T) parseResult;
     }
 
+    /**
+     * Parses a feed and passes its entries to the given handler while the
+     * stream is read. The returned feed only contains the top level elements.
+     */
+    protected AtomFeed parseFeed(InputStream stream, AtomEntryHandler handler) {
+        AtomPubParser parser = new AtomPubParser(stream, handler);
+
+        try {
+            parser.parse();
+        } catch (CmisBaseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CmisConnectionException("Parsing exception!", e);
+        }
+
+        AtomBase parseResult = parser.getResults();
+
+        if (!(parseResult instanceof AtomFeed)) {
+            throw new CmisConnectionException("Unexpected document! Received: "
+                    + (parseResult == null ? "something unknown" : parseResult.getType()));
+        }
+
+        return (AtomFeed) parseResult;
+    }
+
     /**
      * Performs a GET on an URL, checks the response code and returns the
      * result.
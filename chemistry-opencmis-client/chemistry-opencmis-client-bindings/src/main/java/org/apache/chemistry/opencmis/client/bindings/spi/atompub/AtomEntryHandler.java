@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
+
+/**
+ * Receives the entries of a top level Atom feed while the feed is parsed.
+ * Entries that are handed over to a handler are not added to the resulting
+ * {@link org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed}
+ * object and can be garbage collected as soon as the handler has processed
+ * them.
+ */
+public interface AtomEntryHandler {
+
+    /**
+     * Handles an entry.
+     */
+    void handleEntry(AtomEntry entry);
+}
@@ -45,7 +45,7 @@ import org.apache.chemistry.opencmis.commons.data.PropertyString;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
-import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
 import org.apache.chemistry.opencmis.commons.impl.XMLConstants;
 import org.apache.chemistry.opencmis.commons.impl.XMLConverter;
 import org.apache.chemistry.opencmis.commons.impl.XMLUtils;
@@ -233,20 +233,17 @@ public class AtomEntryWriter {
 
     private void writeContent(XMLStreamWriter writer) throws XMLStreamException, IOException {
         @SuppressWarnings("resource")
-        Base64.InputStream b64stream = new Base64.InputStream(stream, Base64.ENCODE);
-
-        char[] buffer = new char[BUFFER_SIZE];
-        int pos = 0;
-        int b;
-        while ((b = b64stream.read()) > -1) {
-            buffer[pos++] = (char) (b & 0xFF);
-            if (pos == buffer.length) {
-                writer.writeCharacters(buffer, 0, buffer.length);
-                pos = 0;
+        Base64Codec.EncoderInputStream b64stream = new Base64Codec.EncoderInputStream(stream);
+
+        byte[] bytes = new byte[Base64Codec.ENCODED_BLOCK_SIZE];
+        char[] buffer = new char[Base64Codec.ENCODED_BLOCK_SIZE];
+        int n;
+        while ((n = b64stream.read(bytes)) > -1) {
+            // it's base64/ASCII
+            for (int i = 0; i < n; i++) {
+                buffer[i] = (char) bytes[i];
             }
-        }
-        if (pos > 0) {
-            writer.writeCharacters(buffer, 0, pos);
+            writer.writeCharacters(buffer, 0, n);
         }
     }
 }
@@ -81,14 +81,24 @@ public class AtomPubParser {
     public static final String LINK_REL_CONTENT = "@@content@@";
 
     private final InputStream stream;
+    private final AtomEntryHandler entryHandler;
     private AtomBase parseResult;
 
     public AtomPubParser(InputStream stream) {
+        this(stream, null);
+    }
+
+    /**
+     * Creates a parser that streams the entries of a top level feed to the
+     * given handler instead of collecting them in the feed object.
+     */
+    public AtomPubParser(InputStream stream, AtomEntryHandler entryHandler) {
         if (stream == null) {
             throw new IllegalArgumentException("No stream.");
         }
 
         this.stream = stream;
+        this.entryHandler = entryHandler;
     }
 
     /**
@@ -105,7 +115,7 @@ public class AtomPubParser {
 
                     if (XMLConstants.NAMESPACE_ATOM.equals(name.getNamespaceURI())) {
                         if (TAG_FEED.equals(name.getLocalPart())) {
-                            parseResult = parseFeed(parser);
+                            parseResult = parseFeed(parser, entryHandler);
                             break;
                         } else if (TAG_ENTRY.equals(name.getLocalPart())) {
                             parseResult = parseEntry(parser);
@@ -218,9 +228,10 @@ public class AtomPubParser {
     }
 
     /**
-     * Parses an Atom feed.
+     * Parses an Atom feed. If a handler is provided, the entries are passed to
+     * the handler as soon as they have been parsed.
      */
-    private AtomFeed parseFeed(XMLStreamReader parser) throws XMLStreamException {
+    private AtomFeed parseFeed(XMLStreamReader parser, AtomEntryHandler handler) throws XMLStreamException {
         AtomFeed result = new AtomFeed();
 
         XMLUtils.next(parser);
@@ -234,7 +245,11 @@ public class AtomPubParser {
                     if (TAG_LINK.equals(name.getLocalPart())) {
                         result.addElement(parseLink(parser));
                     } else if (TAG_ENTRY.equals(name.getLocalPart())) {
-                        result.addEntry(parseEntry(parser));
+                        if (handler == null) {
+                            result.addEntry(parseEntry(parser));
+                        } else {
+                            handler.handleEntry(parseEntry(parser));
+                        }
                     } else {
                         XMLUtils.skip(parser);
                     }
@@ -363,7 +378,7 @@ public class AtomPubParser {
 
                 if (XMLConstants.NAMESPACE_ATOM.equals(name.getNamespaceURI())) {
                     if (TAG_FEED.equals(name.getLocalPart())) {
-                        result = new AtomElement(childName, parseFeed(parser));
+                        result = new AtomElement(childName, parseFeed(parser, null));
                     } else {
                         XMLUtils.skip(parser);
                     }
@@ -21,6 +21,7 @@ package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.stream.XMLStreamWriter;
 
@@ -184,24 +185,11 @@ public class DiscoveryServiceImpl extends AbstractAtomPubService implements Disc
                 XMLUtils.endXmlDocument(writer);
             }
         });
-        AtomFeed feed = parse(resp.getStream(), AtomFeed.class);
-
-        // handle top level
-        for (AtomElement element : feed.getElements()) {
-            if (element.getObject() instanceof AtomLink) {
-                if (isNextLink(element)) {
-                    result.setHasMoreItems(Boolean.TRUE);
-                }
-            } else if (isInt(NAME_NUM_ITEMS, element)) {
-                result.setNumItems((BigInteger) element.getObject());
-            }
-        }
-
-        // get the result set
-        if (!feed.getEntries().isEmpty()) {
-            result.setObjects(new ArrayList<ObjectData>(feed.getEntries().size()));
+        // the hits are collected while the feed is read
+        final List<ObjectData> hits = new ArrayList<ObjectData>();
 
-            for (AtomEntry entry : feed.getEntries()) {
+        AtomFeed feed = parseFeed(resp.getStream(), new AtomEntryHandler() {
+            public void handleEntry(AtomEntry entry) {
                 ObjectData hit = null;
 
                 // walk through the entry
@@ -212,9 +200,25 @@ public class DiscoveryServiceImpl extends AbstractAtomPubService implements Disc
                 }
 
                 if (hit != null) {
-                    result.getObjects().add(hit);
+                    hits.add(hit);
                 }
             }
+        });
+
+        // handle top level
+        for (AtomElement element : feed.getElements()) {
+            if (element.getObject() instanceof AtomLink) {
+                if (isNextLink(element)) {
+                    result.setHasMoreItems(Boolean.TRUE);
+                }
+            } else if (isInt(NAME_NUM_ITEMS, element)) {
+                result.setNumItems((BigInteger) element.getObject());
+            }
+        }
+
+        // set the result set
+        if (!hits.isEmpty()) {
+            result.setObjects(hits);
         }
 
         return result;
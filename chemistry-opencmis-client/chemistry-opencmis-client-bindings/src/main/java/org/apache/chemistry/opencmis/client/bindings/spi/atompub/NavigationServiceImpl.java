@@ -82,9 +82,35 @@ public class NavigationServiceImpl extends AbstractAtomPubService implements Nav
         url.addParameter(Constants.PARAM_MAX_ITEMS, maxItems);
         url.addParameter(Constants.PARAM_SKIP_COUNT, skipCount);
 
-        // read and parse
+        // read and parse, the children are converted while the feed is read
+        final String repId = repositoryId;
+        final FeedLinkCachePolicy linkCachePolicy = getFeedLinkCachePolicy();
+        final List<ObjectInFolderData> children = new ArrayList<ObjectInFolderData>();
+
         Response resp = read(url);
-        AtomFeed feed = parse(resp.getStream(), AtomFeed.class);
+        AtomFeed feed = parseFeed(resp.getStream(), new AtomEntryHandler() {
+            public void handleEntry(AtomEntry entry) {
+                ObjectInFolderDataImpl child = null;
+                String pathSegment = null;
+
+                cacheFeedEntryLinks(repId, entry, linkCachePolicy);
+
+                // walk through the entry
+                for (AtomElement element : entry.getElements()) {
+                    if (isStr(NAME_PATH_SEGMENT, element)) {
+                        pathSegment = (String) element.getObject();
+                    } else if (element.getObject() instanceof ObjectData) {
+                        child = new ObjectInFolderDataImpl();
+                        child.setObject((ObjectData) element.getObject());
+                    }
+                }
+
+                if (child != null) {
+                    child.setPathSegment(pathSegment);
+                    children.add(child);
+                }
+            }
+        });
 
         // handle top level
         for (AtomElement element : feed.getElements()) {
@@ -97,39 +123,9 @@ public class NavigationServiceImpl extends AbstractAtomPubService implements Nav
             }
         }
 
-        // get the children
-        if (!feed.getEntries().isEmpty()) {
-            result.setObjects(new ArrayList<ObjectInFolderData>(feed.getEntries().size()));
-
-            for (AtomEntry entry : feed.getEntries()) {
-                ObjectInFolderDataImpl child = null;
-                String pathSegment = null;
-
-                lockLinks();
-                try {
-                    // clean up cache
-                    removeLinks(repositoryId, entry.getId());
-
-                    // walk through the entry
-                    for (AtomElement element : entry.getElements()) {
-                        if (element.getObject() instanceof AtomLink) {
-                            addLink(repositoryId, entry.getId(), (AtomLink) element.getObject());
-                        } else if (isStr(NAME_PATH_SEGMENT, element)) {
-                            pathSegment = (String) element.getObject();
-                        } else if (element.getObject() instanceof ObjectData) {
-                            child = new ObjectInFolderDataImpl();
-                            child.setObject((ObjectData) element.getObject());
-                        }
-                    }
-                } finally {
-                    unlockLinks();
-                }
-
-                if (child != null) {
-                    child.setPathSegment(pathSegment);
-                    result.getObjects().add(child);
-                }
-            }
+        // set the children
+        if (!children.isEmpty()) {
+            result.setObjects(children);
         }
 
         return result;
@@ -314,6 +314,21 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
      */
     protected Object parse(InputStream stream, String charset, ContainerFactory containerFactory) {
 
+        if (IOUtils.UTF8.equalsIgnoreCase(charset)) {
+            // UTF-8 is scanned directly
+            Object obj = null;
+            try {
+                JSONParser parser = new JSONParser();
+                obj = parser.parse(stream, containerFactory);
+            } catch (Exception e) {
+                throw new CmisConnectionException("Parsing exception!", e);
+            } finally {
+                IOUtils.consumeAndClose(stream);
+            }
+
+            return obj;
+        }
+
         InputStreamReader reader = null;
 
         Object obj = null;
@@ -338,8 +353,11 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
      * result.
      */
     protected Response read(UrlBuilder url) {
-        // make the call
-        Response resp = getHttpInvoker().invokeGET(url, session);
+        // make the call, unless it is part of a batch
+        Response resp = BrowserBatch.intercept(session, url, null, null);
+        if (resp == null) {
+            resp = getHttpInvoker().invokeGET(url, session);
+        }
 
         // check response code
         if (resp.getResponseCode() != 200) {
@@ -354,8 +372,11 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
      * result.
      */
     protected Response post(UrlBuilder url, String contentType, Output writer) {
-        // make the call
-        Response resp = getHttpInvoker().invokePOST(url, contentType, writer, session);
+        // make the call, unless it is part of a batch
+        Response resp = BrowserBatch.intercept(session, url, contentType, writer);
+        if (resp == null) {
+            resp = getHttpInvoker().invokePOST(url, contentType, writer, session);
+        }
 
         // check response code
         if (resp.getResponseCode() != 200 && resp.getResponseCode() != 201) {
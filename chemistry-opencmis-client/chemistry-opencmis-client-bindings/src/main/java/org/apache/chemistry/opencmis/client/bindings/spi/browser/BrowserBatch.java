@@ -0,0 +1,493 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.browser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.Constants;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONValue;
+
+/**
+ * Sends several Browser Binding calls in one request to the {@code batch}
+ * action (OpenCMIS extension).
+ * <p>
+ * Operations are composed from the regular binding services. The batch
+ * executes each operation twice: the first run only records the HTTP call of
+ * the operation, the second run, after the batch request, hands the recorded
+ * result to the service, which parses it as usual. Only the first call of an
+ * operation to the repository URLs is part of the batch. Further calls of an
+ * operation, for example to fetch a type definition while parsing the result,
+ * are sent as usual. Operations that don't make a call to the repository URLs
+ * are executed in the first run and keep that result.
+ * <p>
+ * This leads to the following contract for {@link Operation#execute()}:
+ * <ul>
+ * <li>The method is called twice. Everything it does before the first
+ * binding call happens twice, so it should have no side effects there.</li>
+ * <li>In the first run, the first binding call to the repository ends with an
+ * internal {@link RuntimeException} that is thrown through the binding code.
+ * Code that catches {@link RuntimeException} around a binding call also runs
+ * in the first run. It should rethrow the exception or only compute a
+ * fallback value, because a fallback call to the repository would be sent
+ * right away. The value of the first run is discarded.</li>
+ * <li>Operations must not depend on each other, because all calls are
+ * recorded before any of them is sent.</li>
+ * </ul>
+ * Content streams cannot be sent or received in a batch.
+ * 
+ * <pre>
+ * BrowserBatch batch = new BrowserBatch(repositoryId);
+ * BrowserBatch.Result&lt;ObjectData&gt; doc = batch.add(new BrowserBatch.Operation&lt;ObjectData&gt;() {
+ *     public ObjectData execute() {
+ *         return binding.getObjectService().getObject(repositoryId, docId, ...);
+ *     }
+ * });
+ * batch.execute();
+ * ObjectData object = doc.get();
+ * </pre>
+ */
+public class BrowserBatch {
+
+    private static final ThreadLocal<BrowserBatch> CURRENT = new ThreadLocal<BrowserBatch>();
+
+    private static final String CONTENT_TYPE_URLENCODED = "application/x-www-form-urlencoded";
+    private static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
+
+    /**
+     * An operation of a batch.
+     */
+    public interface Operation<T> {
+
+        /**
+         * Executes the operation. This method is called twice, see
+         * {@link BrowserBatch} for the contract.
+         */
+        T execute();
+    }
+
+    /**
+     * The result of an operation.
+     */
+    public static class Result<T> {
+        private boolean done;
+        private T value;
+        private RuntimeException exception;
+
+        void setValue(T value) {
+            this.value = value;
+            this.exception = null;
+            this.done = true;
+        }
+
+        void setException(RuntimeException exception) {
+            this.value = null;
+            this.exception = exception;
+            this.done = true;
+        }
+
+        /**
+         * Returns whether the operation has been executed.
+         */
+        public boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Returns the value of the operation or throws the exception of the
+         * operation.
+         */
+        public T get() {
+            if (!done) {
+                throw new IllegalStateException("Batch has not been executed!");
+            }
+            if (exception != null) {
+                throw exception;
+            }
+
+            return value;
+        }
+    }
+
+    private final String repositoryId;
+    private final List<Entry<?>> entries = new ArrayList<Entry<?>>();
+    private BindingSession session;
+    private Entry<?> current;
+    private boolean recording;
+    private boolean executed;
+
+    /**
+     * Creates a new batch for the given repository.
+     */
+    public BrowserBatch(String repositoryId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Repository ID must be set!");
+        }
+
+        this.repositoryId = repositoryId;
+    }
+
+    /**
+     * Adds an operation to the batch. The operation is not executed before
+     * {@link #execute()} is called.
+     */
+    public <T> Result<T> add(Operation<T> operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation must be set!");
+        }
+        if (executed) {
+            throw new IllegalStateException("Batch has already been executed!");
+        }
+
+        Entry<T> entry = new Entry<T>(operation);
+        entries.add(entry);
+
+        return entry.result;
+    }
+
+    /**
+     * Returns the number of operations.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Executes the batch. Every operation is run twice, once to record its
+     * call and once to parse the result of its call.
+     */
+    public void execute() {
+        if (executed) {
+            throw new IllegalStateException("Batch has already been executed!");
+        }
+        executed = true;
+
+        // record the calls
+        List<Entry<?>> batched = new ArrayList<Entry<?>>();
+        recording = true;
+        for (Entry<?> entry : entries) {
+            run(entry);
+            if (entry.call != null) {
+                batched.add(entry);
+            }
+        }
+
+        if (batched.isEmpty()) {
+            return;
+        }
+
+        // send the batch
+        List<Object> results = send(batched);
+
+        // hand the results to the operations
+        recording = false;
+        for (int i = 0; i < batched.size(); i++) {
+            Entry<?> entry = batched.get(i);
+            entry.response = createResponse(results.get(i));
+            run(entry);
+        }
+    }
+
+    private void run(Entry<?> entry) {
+        current = entry;
+        CURRENT.set(this);
+        try {
+            entry.run();
+        } catch (RecordedException re) {
+            // the call has been recorded
+        } catch (RuntimeException e) {
+            if (!recording || entry.call == null) {
+                entry.result.setException(e);
+            }
+        } finally {
+            CURRENT.remove();
+            current = null;
+        }
+    }
+
+    private List<Object> send(List<Entry<?>> batched) {
+        JSONArray operations = new JSONArray();
+        for (Entry<?> entry : batched) {
+            operations.add(entry.call.toJSON());
+        }
+
+        final FormDataWriter formData = new FormDataWriter(Constants.CMISACTION_BATCH);
+        formData.addParameter(Constants.CONTROL_OPERATIONS, operations.toJSONString());
+
+        BatchService service = new BatchService(session);
+        UrlBuilder url = service.getRepositoryUrl(repositoryId);
+        Response resp = service.post(url, formData.getContentType(), new Output() {
+            public void write(OutputStream out) throws IOException {
+                formData.write(out);
+            }
+        });
+
+        List<Object> results = service.parseArray(resp.getStream(), resp.getCharset());
+        if (results == null || results.size() != batched.size()) {
+            throw new CmisConnectionException("Unexpected batch response!");
+        }
+
+        return results;
+    }
+
+    private Response createResponse(Object result) {
+        if (!(result instanceof Map)) {
+            throw new CmisConnectionException("Unexpected batch response!");
+        }
+
+        Map<?, ?> map = (Map<?, ?>) result;
+
+        Object status = map.get(JSONConstants.JSON_BATCH_STATUS);
+        if (!(status instanceof Number)) {
+            throw new CmisConnectionException("Unexpected batch response!");
+        }
+        int code = ((Number) status).intValue();
+
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put("content-type", Collections.singletonList(CONTENT_TYPE_JSON));
+
+        Object location = map.get(JSONConstants.JSON_BATCH_LOCATION);
+        if (location instanceof String) {
+            headers.put("location", Collections.singletonList((String) location));
+        }
+
+        ByteArrayInputStream body = null;
+        Object json = map.get(JSONConstants.JSON_BATCH_RESULT);
+        if (json != null) {
+            body = new ByteArrayInputStream(IOUtils.toUTF8Bytes(JSONValue.toJSONString(json)));
+        }
+
+        if (code >= 400) {
+            return new Response(code, "Batch operation failed", headers, null, body);
+        } else {
+            return new Response(code, "OK", headers, body, null);
+        }
+    }
+
+    /**
+     * Called by the services before a GET or POST request is sent.
+     * 
+     * @return the response that should be used instead of sending the
+     *         request, or {@code null} if the request should be sent
+     */
+    static Response intercept(BindingSession session, UrlBuilder url, String contentType, Output writer) {
+        BrowserBatch batch = CURRENT.get();
+        if (batch == null) {
+            return null;
+        }
+
+        return batch.intercept0(session, url, contentType, writer);
+    }
+
+    private Response intercept0(BindingSession callSession, UrlBuilder url, String contentType, Output writer) {
+        if (current.intercepted) {
+            // only the first call of an operation is part of the batch
+            return null;
+        }
+
+        RepositoryUrlCache urlCache = (RepositoryUrlCache) callSession.get(SpiSessionParameter.REPOSITORY_URL_CACHE);
+        if (urlCache == null) {
+            return null;
+        }
+
+        String repositoryUrl = urlCache.getRepositoryBaseUrl(repositoryId);
+        String rootUrl = urlCache.getRootUrl(repositoryId);
+        if (repositoryUrl == null || rootUrl == null) {
+            return null;
+        }
+
+        String urlStr = url.toString();
+        int q = urlStr.indexOf('?');
+        String urlPath = (q < 0 ? urlStr : urlStr.substring(0, q));
+        String query = (q < 0 ? null : urlStr.substring(q + 1));
+
+        String path;
+        if (urlPath.equals(repositoryUrl)) {
+            path = null;
+        } else if (urlPath.equals(rootUrl)) {
+            path = "/";
+        } else if (urlPath.startsWith(rootUrl + "/")) {
+            path = decodePath(urlPath.substring(rootUrl.length()));
+        } else {
+            // not a call to this repository, for example a repository info
+            // call to the service URL
+            return null;
+        }
+
+        current.intercepted = true;
+
+        if (recording) {
+            if (session == null) {
+                session = callSession;
+            } else if (session != callSession) {
+                throw new CmisInvalidArgumentException("All operations of a batch must use the same binding!");
+            }
+
+            Call call = new Call(path);
+            call.addParameters(query);
+
+            if (writer != null) {
+                if (contentType == null || !contentType.toLowerCase(Locale.ENGLISH).startsWith(CONTENT_TYPE_URLENCODED)) {
+                    throw new CmisNotSupportedException("Content streams are not supported in a batch!");
+                }
+
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                try {
+                    writer.write(body);
+                } catch (Exception e) {
+                    throw new CmisRuntimeException("Could not record batch operation: " + e.getMessage(), e);
+                }
+                call.addParameters(IOUtils.toUTF8String(body.toByteArray()));
+            }
+
+            current.call = call;
+
+            throw new RecordedException();
+        }
+
+        return current.response;
+    }
+
+    private static String decodePath(String path) {
+        // path segments never contain a '+' that stands for a space
+        return IOUtils.decodeURL(path.replace("+", "%2B"));
+    }
+
+    /**
+     * An operation and its state.
+     */
+    private static class Entry<T> {
+        final Operation<T> operation;
+        final Result<T> result = new Result<T>();
+        Call call;
+        Response response;
+        boolean intercepted;
+
+        Entry(Operation<T> operation) {
+            this.operation = operation;
+        }
+
+        void run() {
+            intercepted = false;
+            result.setValue(operation.execute());
+        }
+    }
+
+    /**
+     * A recorded call.
+     */
+    private static class Call {
+        final String path;
+        final Map<String, List<String>> parameters = new LinkedHashMap<String, List<String>>();
+
+        Call(String path) {
+            this.path = path;
+        }
+
+        void addParameters(String query) {
+            if (query == null || query.length() == 0) {
+                return;
+            }
+
+            for (String pair : query.split("&")) {
+                if (pair.length() == 0) {
+                    continue;
+                }
+
+                int x = pair.indexOf('=');
+                String name = IOUtils.decodeURL(x < 0 ? pair : pair.substring(0, x));
+                String value = (x < 0 ? "" : IOUtils.decodeURL(pair.substring(x + 1)));
+
+                List<String> values = parameters.get(name);
+                if (values == null) {
+                    values = new ArrayList<String>(1);
+                    parameters.put(name, values);
+                }
+                values.add(value);
+            }
+        }
+
+        JSONObject toJSON() {
+            JSONObject params = new JSONObject();
+            for (Map.Entry<String, List<String>> param : parameters.entrySet()) {
+                if (param.getValue().size() == 1) {
+                    params.put(param.getKey(), param.getValue().get(0));
+                } else {
+                    JSONArray values = new JSONArray();
+                    values.addAll(param.getValue());
+                    params.put(param.getKey(), values);
+                }
+            }
+
+            JSONObject result = new JSONObject();
+            if (path != null) {
+                result.put(JSONConstants.JSON_BATCH_PATH, path);
+            }
+            result.put(JSONConstants.JSON_BATCH_PARAMETERS, params);
+
+            return result;
+        }
+    }
+
+    /**
+     * Thrown to stop an operation after its call has been recorded.
+     */
+    private static class RecordedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RecordedException() {
+            super("Recorded for batch");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Sends the batch request.
+     */
+    private static class BatchService extends AbstractBrowserBindingService {
+        BatchService(BindingSession session) {
+            setSession(session);
+        }
+    }
+}
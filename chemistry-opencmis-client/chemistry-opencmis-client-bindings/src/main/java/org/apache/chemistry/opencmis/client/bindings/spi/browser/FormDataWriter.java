@@ -37,6 +37,14 @@ import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.MimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 
+/**
+ * Writes the body of a Browser binding POST request.
+ * <p>
+ * Requests with content are sent as multipart/form-data. All form fields are
+ * written before the content part, and the content part is always the last
+ * part. Servers can therefore pass the content on to the repository while it
+ * is being received, without buffering it first.
+ */
 public final class FormDataWriter {
 
     private static final String CONTENT_TYPE_URLENCODED = "application/x-www-form-urlencoded;charset=utf-8";
@@ -239,7 +247,7 @@ public final class FormDataWriter {
                 writeLine(out, param.getValue());
             }
 
-            // content
+            // content, always the last part
             String filename = contentStream.getFileName();
             if (filename == null || filename.length() == 0) {
                 filename = "content";
@@ -32,7 +32,7 @@ import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
-import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 
 /**
@@ -169,7 +169,7 @@ public class Response {
                         && (transferEncoding.toLowerCase().trim().equals("base64"))) {
                     // if the stream is base64 encoded, decode it
                     length = null;
-                    stream = new Base64.InputStream(stream);
+                    stream = new Base64Codec.DecoderInputStream(stream);
                 }
             }
         }
@@ -22,16 +22,20 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.TestCase;
 
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AtomEntryHandler;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AtomEntryWriter;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AtomPubParser;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomBase;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomEntry;
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomFeed;
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomLink;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
@@ -114,6 +118,55 @@ public class AtomParserTest extends TestCase {
         }
     }
 
+    public void testFeedWithEntryHandler() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        sb.append("<atom:feed xmlns:atom=\"http://www.w3.org/2005/Atom\"");
+        sb.append(" xmlns:cmis=\"http://docs.oasis-open.org/ns/cmis/core/200908/\"");
+        sb.append(" xmlns:cmisra=\"http://docs.oasis-open.org/ns/cmis/restatom/200908/\">");
+        sb.append("<atom:link rel=\"next\" href=\"http://host/next\"/>");
+        for (int i = 0; i < 3; i++) {
+            sb.append("<atom:entry>");
+            sb.append("<atom:link rel=\"self\" href=\"http://host/" + i + "\"/>");
+            sb.append("<cmisra:object><cmis:properties>");
+            sb.append("<cmis:propertyId propertyDefinitionId=\"cmis:objectId\"><cmis:value>id" + i
+                    + "</cmis:value></cmis:propertyId>");
+            sb.append("</cmis:properties></cmisra:object>");
+            sb.append("</atom:entry>");
+        }
+        sb.append("<cmisra:numItems>3</cmisra:numItems>");
+        sb.append("</atom:feed>");
+
+        final List<String> ids = new ArrayList<String>();
+        AtomPubParser parser = new AtomPubParser(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")),
+                new AtomEntryHandler() {
+                    public void handleEntry(AtomEntry entry) {
+                        ids.add(entry.getId());
+                    }
+                });
+        parser.parse();
+
+        assertTrue(parser.getResults() instanceof AtomFeed);
+        AtomFeed feed = (AtomFeed) parser.getResults();
+
+        // entries are handed over to the handler, not collected
+        assertTrue(feed.getEntries().isEmpty());
+        assertEquals(Arrays.asList("id0", "id1", "id2"), ids);
+
+        // top level elements before and after the entries are available
+        boolean foundNext = false;
+        boolean foundNumItems = false;
+        for (AtomElement element : feed.getElements()) {
+            if (element.getObject() instanceof AtomLink) {
+                foundNext = "next".equals(((AtomLink) element.getObject()).getRel());
+            } else if (element.getObject() instanceof BigInteger) {
+                foundNumItems = BigInteger.valueOf(3).equals(element.getObject());
+            }
+        }
+        assertTrue(foundNext);
+        assertTrue(foundNumItems);
+    }
+
     protected void assertEquals(PropertyData<?> expected, PropertyData<?> actual) throws Exception {
         if (expected == null && actual == null) {
             return;
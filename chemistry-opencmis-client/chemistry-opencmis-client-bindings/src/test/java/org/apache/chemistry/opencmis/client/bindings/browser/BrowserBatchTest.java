@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.browser;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.AbstractBrowserBindingService;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.BrowserBatch;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.RepositoryUrlCache;
+import org.apache.chemistry.opencmis.client.bindings.spi.browser.SpiSessionParameter;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+/**
+ * Tests the record and replay contract of the Browser binding batch.
+ */
+public class BrowserBatchTest extends TestCase {
+
+    private static final String REPOSITORY_ID = "repo";
+    private static final String REPOSITORY_URL = "http://localhost/cmis/browser/repo";
+    private static final String ROOT_URL = REPOSITORY_URL + "/root";
+
+    public void testOperationsThatCatchRuntimeExceptions() {
+        FakeHttpInvoker invoker = new FakeHttpInvoker("[{\"status\":200,\"result\":{\"id\":\"doc1\"}},"
+                + "{\"status\":404,\"result\":{\"exception\":\"objectNotFound\",\"message\":\"gone\"}}]");
+        final TestService service = new TestService(createSession(invoker));
+        final int[] catches = new int[2];
+
+        BrowserBatch batch = new BrowserBatch(REPOSITORY_ID);
+        BrowserBatch.Result<String> found = batch.add(new BrowserBatch.Operation<String>() {
+            public String execute() {
+                try {
+                    return service.getObjectId("doc1");
+                } catch (RuntimeException e) {
+                    catches[0]++;
+                    return "fallback";
+                }
+            }
+        });
+        BrowserBatch.Result<String> missing = batch.add(new BrowserBatch.Operation<String>() {
+            public String execute() {
+                try {
+                    return service.getObjectId("doc2");
+                } catch (RuntimeException e) {
+                    catches[1]++;
+                    return "fallback";
+                }
+            }
+        });
+
+        batch.execute();
+
+        // the recording run ends in the catch block, its value is discarded
+        assertEquals("doc1", found.get());
+        assertEquals(1, catches[0]);
+
+        // a failed operation ends in the catch block in both runs
+        assertEquals("fallback", missing.get());
+        assertEquals(2, catches[1]);
+
+        // both calls have been sent in one request
+        assertEquals(1, invoker.posts);
+        assertEquals(0, invoker.gets);
+    }
+
+    private static BindingSession createSession(HttpInvoker invoker) {
+        RepositoryUrlCache urlCache = new RepositoryUrlCache();
+        urlCache.addRepository(REPOSITORY_ID, REPOSITORY_URL, ROOT_URL);
+
+        SessionImpl session = new SessionImpl();
+        session.put(CmisBindingsHelper.HTTP_INVOKER_OBJECT, invoker, true);
+        session.put(SpiSessionParameter.REPOSITORY_URL_CACHE, urlCache, true);
+
+        return session;
+    }
+
+    private static class TestService extends AbstractBrowserBindingService {
+        public TestService(BindingSession session) {
+            setSession(session);
+        }
+
+        public String getObjectId(String objectId) {
+            Response resp = read(getObjectUrl(REPOSITORY_ID, objectId, "object"));
+            Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
+            return (String) json.get("id");
+        }
+    }
+
+    private static class FakeHttpInvoker implements HttpInvoker {
+        private final String batchResponse;
+        int gets;
+        int posts;
+
+        public FakeHttpInvoker(String batchResponse) {
+            this.batchResponse = batchResponse;
+        }
+
+        public Response invokeGET(UrlBuilder url, BindingSession session) {
+            gets++;
+            return createResponse("{\"id\":\"direct\"}");
+        }
+
+        public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length) {
+            return invokeGET(url, session);
+        }
+
+        public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session) {
+            posts++;
+            assertEquals(REPOSITORY_URL, url.toString());
+            return createResponse(batchResponse);
+        }
+
+        public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer,
+                BindingSession session) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Response invokeDELETE(UrlBuilder url, BindingSession session) {
+            throw new UnsupportedOperationException();
+        }
+
+        private static Response createResponse(String json) {
+            InputStream stream = new ByteArrayInputStream(IOUtils.toUTF8Bytes(json));
+            return new Response(200, "OK", Collections.singletonMap("Content-Type",
+                    Collections.singletonList("application/json; charset=UTF-8")), stream, null);
+        }
+    }
+}
@@ -27,7 +27,6 @@ import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.ObjectFactory;
@@ -62,19 +61,8 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     private static final long serialVersionUID = 1L;
 
     private SessionImpl session;
-    private ObjectType objectType;
-    private List<SecondaryType> secondaryTypes;
-    private Map<String, Property<?>> properties;
-    private AllowableActions allowableActions;
-    private List<Rendition> renditions;
-    private Acl acl;
-    private List<Policy> policies;
-    private List<Relationship> relationships;
-    private Map<ExtensionLevel, List<CmisExtensionElement>> extensions;
     private OperationContext creationContext;
-    private long refreshTimestamp;
-
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ObjectState state;
 
     /**
      * Initializes the object.
@@ -96,11 +84,18 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
         }
 
         this.session = session;
-        this.objectType = objectType;
-        this.secondaryTypes = null;
-        this.extensions = new EnumMap<ExtensionLevel, List<CmisExtensionElement>>(ExtensionLevel.class);
         this.creationContext = new OperationContextImpl(context);
-        this.refreshTimestamp = System.currentTimeMillis();
+
+        List<SecondaryType> secondaryTypes = null;
+        Map<String, Property<?>> properties = null;
+        AllowableActions allowableActions = null;
+        List<Rendition> renditions = null;
+        Acl acl = null;
+        List<Policy> policies = null;
+        List<Relationship> relationships = null;
+        Map<ExtensionLevel, List<CmisExtensionElement>> extensions = new EnumMap<ExtensionLevel, List<CmisExtensionElement>>(
+                ExtensionLevel.class);
+        long refreshTimestamp = System.currentTimeMillis();
 
         ObjectFactory of = getObjectFactory();
 
@@ -129,21 +124,22 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
                     }
                 }
 
-                this.properties = of.convertProperties(objectType, secondaryTypes, objectData.getProperties());
+                properties = of.convertProperties(objectType, secondaryTypes, objectData.getProperties());
                 extensions.put(ExtensionLevel.PROPERTIES, objectData.getProperties().getExtensions());
             }
 
             // handle allowable actions
             if (objectData.getAllowableActions() != null) {
-                this.allowableActions = objectData.getAllowableActions();
+                allowableActions = objectData.getAllowableActions();
                 extensions.put(ExtensionLevel.ALLOWABLE_ACTIONS, objectData.getAllowableActions().getExtensions());
             }
 
             // handle renditions
             if (objectData.getRenditions() != null) {
-                this.renditions = new ArrayList<Rendition>();
+                String objectId = getPropertyValue(properties, PropertyIds.OBJECT_ID);
+                renditions = new ArrayList<Rendition>();
                 for (RenditionData rd : objectData.getRenditions()) {
-                    this.renditions.add(of.convertRendition(getId(), rd));
+                    renditions.add(of.convertRendition(objectId, rd));
                 }
             }
 
@@ -179,34 +175,68 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
             extensions.put(ExtensionLevel.OBJECT, objectData.getExtensions());
         }
 
+        // publish the new state in one step
+        this.state = new ObjectState(objectType, secondaryTypes, properties, allowableActions, renditions, acl,
+                policies, relationships, extensions, refreshTimestamp);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getPropertyValue(Map<String, Property<?>> properties, String id) {
+        if (properties == null) {
+            return null;
+        }
+
+        Property<?> property = properties.get(id);
+        if (property == null) {
+            return null;
+        }
+
+        return (T) property.getValue();
     }
 
     /**
-     * Acquires a write lock.
+     * Returns the current state snapshot of this object.
      */
+    ObjectState getState() {
+        return state;
+    }
+
+    /**
+     * Formerly acquired a write lock. The object state is now an immutable
+     * snapshot and this method does nothing.
+     *
+     * @deprecated the object state doesn't need to be locked anymore
+     */
+    @Deprecated
     protected void writeLock() {
-        lock.writeLock().lock();
     }
 
     /**
-     * Releases a write lock.
+     * Formerly released a write lock. This method does nothing.
+     *
+     * @deprecated the object state doesn't need to be locked anymore
      */
+    @Deprecated
     protected void writeUnlock() {
-        lock.writeLock().unlock();
     }
 
     /**
-     * Acquires a read lock.
+     * Formerly acquired a read lock. The object state is now an immutable
+     * snapshot and this method does nothing.
+     *
+     * @deprecated the object state doesn't need to be locked anymore
      */
+    @Deprecated
     protected void readLock() {
-        lock.readLock().lock();
     }
 
     /**
-     * Releases a read lock.
+     * Formerly released a read lock. This method does nothing.
+     *
+     * @deprecated the object state doesn't need to be locked anymore
      */
+    @Deprecated
     protected void readUnlock() {
-        lock.readLock().unlock();
     }
 
     /**
@@ -227,12 +257,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
      * Returns the object type.
      */
     protected ObjectType getObjectType() {
-        readLock();
-        try {
-            return objectType;
-        } finally {
-            readUnlock();
-        }
+        return state.objectType;
     }
 
     /**
@@ -273,17 +298,12 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
      * Returns the query name of a property.
      */
     protected String getPropertyQueryName(String propertyId) {
-        readLock();
-        try {
-            PropertyDefinition<?> propDef = objectType.getPropertyDefinitions().get(propertyId);
-            if (propDef == null) {
-                return null;
-            }
-
-            return propDef.getQueryName();
-        } finally {
-            readUnlock();
+        PropertyDefinition<?> propDef = state.objectType.getPropertyDefinitions().get(propertyId);
+        if (propDef == null) {
+            return null;
         }
+
+        return propDef.getQueryName();
     }
 
     // --- delete ---
@@ -293,12 +313,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     }
 
     public void delete(boolean allVersions) {
-        readLock();
-        try {
-            getSession().delete(this, allVersions);
-        } finally {
-            readUnlock();
-        }
+        getSession().delete(this, allVersions);
     }
 
     // --- update properties ---
@@ -321,39 +336,36 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
             throw new IllegalArgumentException("Properties must not be empty!");
         }
 
-        readLock();
-        String newObjectId = null;
-        try {
-            String objectId = getObjectId();
-            Holder<String> objectIdHolder = new Holder<String>(objectId);
+        // work on one consistent snapshot of this object
+        ObjectState current = state;
 
-            String changeToken = getChangeToken();
-            Holder<String> changeTokenHolder = new Holder<String>(changeToken);
+        String objectId = getObjectId();
+        Holder<String> objectIdHolder = new Holder<String>(objectId);
 
-            Set<Updatability> updatebility = EnumSet.noneOf(Updatability.class);
-            updatebility.add(Updatability.READWRITE);
+        String changeToken = getPropertyValue(current, PropertyIds.CHANGE_TOKEN);
+        Holder<String> changeTokenHolder = new Holder<String>(changeToken);
 
-            // check if checked out
-            Boolean isCheckedOut = getPropertyValue(PropertyIds.IS_VERSION_SERIES_CHECKED_OUT);
-            if (Boolean.TRUE.equals(isCheckedOut)) {
-                updatebility.add(Updatability.WHENCHECKEDOUT);
-            }
+        Set<Updatability> updatebility = EnumSet.noneOf(Updatability.class);
+        updatebility.add(Updatability.READWRITE);
 
-            // it's time to update
-            getBinding().getObjectService().updateProperties(
-                    getRepositoryId(),
-                    objectIdHolder,
-                    changeTokenHolder,
-                    getObjectFactory()
-                            .convertProperties(properties, this.objectType, this.secondaryTypes, updatebility), null);
+        // check if checked out
+        Boolean isCheckedOut = getPropertyValue(current, PropertyIds.IS_VERSION_SERIES_CHECKED_OUT);
+        if (Boolean.TRUE.equals(isCheckedOut)) {
+            updatebility.add(Updatability.WHENCHECKEDOUT);
+        }
 
-            newObjectId = objectIdHolder.getValue();
+        // it's time to update
+        getBinding().getObjectService().updateProperties(
+                getRepositoryId(),
+                objectIdHolder,
+                changeTokenHolder,
+                getObjectFactory().convertProperties(properties, current.objectType, current.secondaryTypes,
+                        updatebility), null);
 
-            // remove the object from the cache, it has been changed
-            getSession().removeObjectFromCache(objectId);
-        } finally {
-            readUnlock();
-        }
+        String newObjectId = objectIdHolder.getValue();
+
+        // remove the object from the cache, it has been changed
+        getSession().removeObjectFromCache(objectId);
 
         if (refresh) {
             refresh();
@@ -419,27 +431,21 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     }
 
     public List<Property<?>> getProperties() {
-        readLock();
-        try {
-            return Collections.unmodifiableList(new ArrayList<Property<?>>(this.properties.values()));
-        } finally {
-            readUnlock();
-        }
+        return state.getProperties();
     }
 
     @SuppressWarnings("unchecked")
     public <T> Property<T> getProperty(String id) {
-        readLock();
-        try {
-            return (Property<T>) this.properties.get(id);
-        } finally {
-            readUnlock();
-        }
+        return (Property<T>) state.getProperty(id);
     }
 
-    @SuppressWarnings("unchecked")
     public <T> T getPropertyValue(String id) {
-        Property<T> property = getProperty(id);
+        return getPropertyValue(state, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getPropertyValue(ObjectState state, String id) {
+        Property<?> property = state.getProperty(id);
         if (property == null) {
             return null;
         }
@@ -448,46 +454,32 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     }
 
     public ObjectType getType() {
-        readLock();
-        try {
-            return this.objectType;
-        } finally {
-            readUnlock();
-        }
+        return state.objectType;
     }
 
     public List<SecondaryType> getSecondaryTypes() {
-        readLock();
-        try {
-            return this.secondaryTypes;
-        } finally {
-            readUnlock();
-        }
+        return state.secondaryTypes;
     }
 
     public List<ObjectType> findObjectType(String id) {
         List<ObjectType> result = null;
 
-        readLock();
-        try {
-            if (objectType.getPropertyDefinitions().containsKey(id)) {
-                result = new ArrayList<ObjectType>();
-                result.add(objectType);
-            }
+        ObjectState current = state;
+        if (current.objectType.getPropertyDefinitions().containsKey(id)) {
+            result = new ArrayList<ObjectType>();
+            result.add(current.objectType);
+        }
 
-            if (secondaryTypes != null) {
-                for (SecondaryType secondaryType : secondaryTypes) {
-                    if (secondaryType.getPropertyDefinitions() != null
-                            && secondaryType.getPropertyDefinitions().containsKey(id)) {
-                        if (result == null) {
-                            result = new ArrayList<ObjectType>();
-                        }
-                        result.add(secondaryType);
+        if (current.secondaryTypes != null) {
+            for (SecondaryType secondaryType : current.secondaryTypes) {
+                if (secondaryType.getPropertyDefinitions() != null
+                        && secondaryType.getPropertyDefinitions().containsKey(id)) {
+                    if (result == null) {
+                        result = new ArrayList<ObjectType>();
                     }
+                    result.add(secondaryType);
                 }
             }
-        } finally {
-            readUnlock();
         }
 
         return result;
@@ -496,23 +488,13 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     // --- allowable actions ---
 
     public AllowableActions getAllowableActions() {
-        readLock();
-        try {
-            return this.allowableActions;
-        } finally {
-            readUnlock();
-        }
+        return state.allowableActions;
     }
 
     // --- renditions ---
 
     public List<Rendition> getRenditions() {
-        readLock();
-        try {
-            return this.renditions;
-        } finally {
-            readUnlock();
-        }
+        return state.renditions;
     }
 
     // --- ACL ---
@@ -547,62 +529,37 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     }
 
     public Acl getAcl() {
-        readLock();
-        try {
-            return this.acl;
-        } finally {
-            readUnlock();
-        }
+        return state.acl;
     }
 
     // --- policies ---
 
     public void applyPolicy(ObjectId... policyIds) {
-        readLock();
-        try {
-            getSession().applyPolicy(this, policyIds);
-        } finally {
-            readUnlock();
-        }
+        getSession().applyPolicy(this, policyIds);
 
         refresh();
     }
 
     public void removePolicy(ObjectId... policyIds) {
-        readLock();
-        try {
-            getSession().removePolicy(this, policyIds);
-        } finally {
-            readUnlock();
-        }
+        getSession().removePolicy(this, policyIds);
 
         refresh();
     }
 
     public List<Policy> getPolicies() {
-        readLock();
-        try {
-            return this.policies;
-        } finally {
-            readUnlock();
-        }
+        return state.policies;
     }
 
     // --- relationships ---
 
     public List<Relationship> getRelationships() {
-        readLock();
-        try {
-            return this.relationships;
-        } finally {
-            readUnlock();
-        }
+        return state.relationships;
     }
 
     // --- extensions ---
 
     public List<CmisExtensionElement> getExtensions(ExtensionLevel level) {
-        List<CmisExtensionElement> ext = extensions.get(level);
+        List<CmisExtensionElement> ext = state.extensions.get(level);
         if (ext == null) {
             return null;
         }
@@ -619,58 +576,41 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     // --- other ---
 
     public long getRefreshTimestamp() {
-        readLock();
-        try {
-            return this.refreshTimestamp;
-        } finally {
-            readUnlock();
-        }
+        return state.refreshTimestamp;
     }
 
     public void refresh() {
-        writeLock();
-        try {
-            String objectId = getObjectId();
-
-            OperationContext oc = getCreationContext();
-
-            // get the latest data from the repository
-            ObjectData objectData = getSession()
-                    .getBinding()
-                    .getObjectService()
-                    .getObject(getRepositoryId(), objectId, oc.getFilterString(), oc.isIncludeAllowableActions(),
-                            oc.getIncludeRelationships(), oc.getRenditionFilterString(), oc.isIncludePolicies(),
-                            oc.isIncludeAcls(), null);
-
-            // reset this object
-            initialize(getSession(), getObjectType(), objectData, this.creationContext);
-        } finally {
-            writeUnlock();
-        }
+        String objectId = getObjectId();
+
+        OperationContext oc = getCreationContext();
+
+        // get the latest data from the repository
+        ObjectData objectData = getSession()
+                .getBinding()
+                .getObjectService()
+                .getObject(getRepositoryId(), objectId, oc.getFilterString(), oc.isIncludeAllowableActions(),
+                        oc.getIncludeRelationships(), oc.getRenditionFilterString(), oc.isIncludePolicies(),
+                        oc.isIncludeAcls(), null);
+
+        // reset this object, readers keep seeing the old state until the new
+        // state has been published
+        initialize(getSession(), getObjectType(), objectData, this.creationContext);
     }
 
     public void refreshIfOld(long durationInMillis) {
-        writeLock();
-        try {
-            if (this.refreshTimestamp < System.currentTimeMillis() - durationInMillis) {
-                refresh();
-            }
-        } finally {
-            writeUnlock();
+        if (state.refreshTimestamp < System.currentTimeMillis() - durationInMillis) {
+            refresh();
         }
     }
 
     @Override
     public String toString() {
-        readLock();
-        try {
-            if (objectType == null) {
-                return "<unknown>";
-            }
-
-            return objectType.getBaseTypeId() + " (" + objectType.getId() + "): " + getId();
-        } finally {
-            readUnlock();
+        ObjectState current = state;
+        if (current == null || current.objectType == null) {
+            return "<unknown>";
         }
+
+        return current.objectType.getBaseTypeId() + " (" + current.objectType.getId() + "): "
+                + getPropertyValue(current, PropertyIds.OBJECT_ID);
     }
 }
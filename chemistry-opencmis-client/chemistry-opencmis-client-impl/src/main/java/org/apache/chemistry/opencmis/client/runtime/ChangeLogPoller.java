@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls the change log of a repository and removes the changed objects from
+ * the session cache.
+ * <p>
+ * The poller only holds a weak reference to the session and stops when the
+ * session has been garbage collected or {@link #stop()} has been called. All
+ * pollers share one daemon thread.
+ */
+class ChangeLogPoller implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogPoller.class);
+
+    /** Number of change events requested per call. */
+    static final int MAX_ITEMS = 1000;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "opencmis-changelog-poller");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final WeakReference<SessionImpl> sessionRef;
+    private String changeLogToken;
+    private volatile ScheduledFuture<?> future;
+
+    ChangeLogPoller(SessionImpl session, String changeLogToken) {
+        this.sessionRef = new WeakReference<SessionImpl>(session);
+        this.changeLogToken = changeLogToken;
+    }
+
+    /**
+     * Starts polling.
+     */
+    void start(long intervalMillis) {
+        future = SCHEDULER.scheduleWithFixedDelay(this, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling.
+     */
+    void stop() {
+        ScheduledFuture<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the change log token of the last poll.
+     */
+    synchronized String getChangeLogToken() {
+        return changeLogToken;
+    }
+
+    public void run() {
+        SessionImpl session = sessionRef.get();
+        if (session == null) {
+            stop();
+            return;
+        }
+
+        try {
+            poll(session);
+        } catch (Exception e) {
+            // try again next time
+            LOG.debug("Polling the change log failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * Fetches all changes since the last poll and invalidates the changed
+     * objects.
+     * <p>
+     * The stored token is the token of the last event that has been seen.
+     * {@code getContentChanges} returns the event of the passed token first,
+     * so the first event of each page is skipped.
+     *
+     * @return the number of invalidated objects
+     */
+    synchronized int poll(SessionImpl session) {
+        Set<String> changedIds = new LinkedHashSet<String>();
+
+        boolean hasMore = true;
+        while (hasMore) {
+            Holder<String> tokenHolder = new Holder<String>(changeLogToken);
+            ObjectList changes;
+            try {
+                changes = session
+                        .getBinding()
+                        .getDiscoveryService()
+                        .getContentChanges(session.getRepositoryId(), tokenHolder, Boolean.FALSE, null, Boolean.FALSE,
+                                Boolean.FALSE, BigInteger.valueOf(MAX_ITEMS), null);
+            } catch (CmisConstraintException e) {
+                // the token is not valid anymore, we don't know what has
+                // changed
+                return restart(session, e);
+            } catch (CmisInvalidArgumentException e) {
+                return restart(session, e);
+            }
+
+            if (changes != null && changes.getObjects() != null) {
+                // the change log is inclusive: the first event is the one of
+                // the token we passed in, which has already been processed
+                boolean first = (changeLogToken != null);
+                for (ObjectData od : changes.getObjects()) {
+                    if (first) {
+                        first = false;
+                        continue;
+                    }
+                    if (od.getId() != null) {
+                        changedIds.add(od.getId());
+                    }
+                }
+            }
+
+            String newToken = tokenHolder.getValue();
+            hasMore = changes != null && Boolean.TRUE.equals(changes.hasMoreItems()) && newToken != null
+                    && !newToken.equals(changeLogToken);
+            if (newToken != null) {
+                changeLogToken = newToken;
+            }
+        }
+
+        if (!changedIds.isEmpty()) {
+            session.invalidateObjects(changedIds);
+            LOG.debug("Removed {} changed object(s) from the cache.", changedIds.size());
+        }
+
+        return changedIds.size();
+    }
+
+    private int restart(SessionImpl session, CmisBaseException e) {
+        LOG.debug("Change log token {} has been rejected, clearing the cache: {}", changeLogToken, e.toString());
+        changeLogToken = session.getLatestChangeLogToken();
+        session.clearObjectCache();
+        return -1;
+    }
+}
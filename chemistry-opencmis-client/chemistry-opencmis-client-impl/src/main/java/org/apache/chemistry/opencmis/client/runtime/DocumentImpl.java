@@ -206,16 +206,11 @@ public class DocumentImpl extends AbstractFilableCmisObject implements Document
     public ObjectId checkOut() {
         String newObjectId = null;
 
-        readLock();
-        try {
-            String objectId = getObjectId();
-            Holder<String> objectIdHolder = new Holder<String>(objectId);
+        String objectId = getObjectId();
+        Holder<String> objectIdHolder = new Holder<String>(objectId);
 
-            getBinding().getVersioningService().checkOut(getRepositoryId(), objectIdHolder, null, null);
-            newObjectId = objectIdHolder.getValue();
-        } finally {
-            readUnlock();
-        }
+        getBinding().getVersioningService().checkOut(getRepositoryId(), objectIdHolder, null, null);
+        newObjectId = objectIdHolder.getValue();
 
         // remove original version from cache, the path and a few versioning
         // properties are not valid anymore
@@ -241,25 +236,20 @@ public class DocumentImpl extends AbstractFilableCmisObject implements Document
             String checkinComment, List<Policy> policies, List<Ace> addAces, List<Ace> removeAces) {
         String newObjectId = null;
 
-        readLock();
-        try {
-            Holder<String> objectIdHolder = new Holder<String>(getObjectId());
+        Holder<String> objectIdHolder = new Holder<String>(getObjectId());
 
-            ObjectFactory of = getObjectFactory();
+        ObjectFactory of = getObjectFactory();
 
-            Set<Updatability> updatebility = EnumSet.noneOf(Updatability.class);
-            updatebility.add(Updatability.READWRITE);
-            updatebility.add(Updatability.WHENCHECKEDOUT);
+        Set<Updatability> updatebility = EnumSet.noneOf(Updatability.class);
+        updatebility.add(Updatability.READWRITE);
+        updatebility.add(Updatability.WHENCHECKEDOUT);
 
-            getBinding().getVersioningService().checkIn(getRepositoryId(), objectIdHolder, major,
-                    of.convertProperties(properties, getType(), getSecondaryTypes(), updatebility),
-                    of.convertContentStream(contentStream), checkinComment, of.convertPolicies(policies),
-                    of.convertAces(addAces), of.convertAces(removeAces), null);
+        getBinding().getVersioningService().checkIn(getRepositoryId(), objectIdHolder, major,
+                of.convertProperties(properties, getType(), getSecondaryTypes(), updatebility),
+                of.convertContentStream(contentStream), checkinComment, of.convertPolicies(policies),
+                of.convertAces(addAces), of.convertAces(removeAces), null);
 
-            newObjectId = objectIdHolder.getValue();
-        } finally {
-            readUnlock();
-        }
+        newObjectId = objectIdHolder.getValue();
 
         // remove PWC from cache, it doesn't exist anymore
         getSession().removeObjectFromCache(this);
@@ -279,13 +269,8 @@ public class DocumentImpl extends AbstractFilableCmisObject implements Document
         String objectId;
         String versionSeriesId;
 
-        readLock();
-        try {
-            objectId = getObjectId();
-            versionSeriesId = getVersionSeriesId();
-        } finally {
-            readUnlock();
-        }
+        objectId = getObjectId();
+        versionSeriesId = getVersionSeriesId();
 
         List<ObjectData> versions = getBinding().getVersioningService().getAllVersions(getRepositoryId(), objectId,
                 versionSeriesId, context.getFilterString(), context.isIncludeAllowableActions(), null);
@@ -317,13 +302,8 @@ public class DocumentImpl extends AbstractFilableCmisObject implements Document
         String objectId;
         String versionSeriesId;
 
-        readLock();
-        try {
-            objectId = getObjectId();
-            versionSeriesId = getVersionSeriesId();
-        } finally {
-            readUnlock();
-        }
+        objectId = getObjectId();
+        versionSeriesId = getVersionSeriesId();
 
         if (versionSeriesId == null) {
             throw new CmisRuntimeException("Version series id is unknown!");
@@ -396,18 +376,13 @@ public class DocumentImpl extends AbstractFilableCmisObject implements Document
     public ObjectId setContentStream(ContentStream contentStream, boolean overwrite, boolean refresh) {
         String newObjectId = null;
 
-        readLock();
-        try {
-            Holder<String> objectIdHolder = new Holder<String>(getObjectId());
-            Holder<String> changeTokenHolder = new Holder<String>((String) getPropertyValue(PropertyIds.CHANGE_TOKEN));
+        Holder<String> objectIdHolder = new Holder<String>(getObjectId());
+        Holder<String> changeTokenHolder = new Holder<String>((String) getPropertyValue(PropertyIds.CHANGE_TOKEN));
 
-            getBinding().getObjectService().setContentStream(getRepositoryId(), objectIdHolder, overwrite,
-                    changeTokenHolder, getObjectFactory().convertContentStream(contentStream), null);
+        getBinding().getObjectService().setContentStream(getRepositoryId(), objectIdHolder, overwrite,
+                changeTokenHolder, getObjectFactory().convertContentStream(contentStream), null);
 
-            newObjectId = objectIdHolder.getValue();
-        } finally {
-            readUnlock();
-        }
+        newObjectId = objectIdHolder.getValue();
 
         if (refresh) {
             refresh();
@@ -440,18 +415,13 @@ public class DocumentImpl extends AbstractFilableCmisObject implements Document
     public ObjectId appendContentStream(ContentStream contentStream, boolean isLastChunk, boolean refresh) {
         String newObjectId = null;
 
-        readLock();
-        try {
-            Holder<String> objectIdHolder = new Holder<String>(getObjectId());
-            Holder<String> changeTokenHolder = new Holder<String>((String) getPropertyValue(PropertyIds.CHANGE_TOKEN));
+        Holder<String> objectIdHolder = new Holder<String>(getObjectId());
+        Holder<String> changeTokenHolder = new Holder<String>((String) getPropertyValue(PropertyIds.CHANGE_TOKEN));
 
-            getBinding().getObjectService().appendContentStream(getRepositoryId(), objectIdHolder, changeTokenHolder,
-                    getObjectFactory().convertContentStream(contentStream), isLastChunk, null);
+        getBinding().getObjectService().appendContentStream(getRepositoryId(), objectIdHolder, changeTokenHolder,
+                getObjectFactory().convertContentStream(contentStream), isLastChunk, null);
 
-            newObjectId = objectIdHolder.getValue();
-        } finally {
-            readUnlock();
-        }
+        newObjectId = objectIdHolder.getValue();
 
         if (refresh) {
             refresh();
@@ -480,18 +450,13 @@ public class DocumentImpl extends AbstractFilableCmisObject implements Document
     public ObjectId deleteContentStream(boolean refresh) {
         String newObjectId = null;
 
-        readLock();
-        try {
-            Holder<String> objectIdHolder = new Holder<String>(getObjectId());
-            Holder<String> changeTokenHolder = new Holder<String>((String) getPropertyValue(PropertyIds.CHANGE_TOKEN));
+        Holder<String> objectIdHolder = new Holder<String>(getObjectId());
+        Holder<String> changeTokenHolder = new Holder<String>((String) getPropertyValue(PropertyIds.CHANGE_TOKEN));
 
-            getBinding().getObjectService().deleteContentStream(getRepositoryId(), objectIdHolder, changeTokenHolder,
-                    null);
+        getBinding().getObjectService().deleteContentStream(getRepositoryId(), objectIdHolder, changeTokenHolder,
+                null);
 
-            newObjectId = objectIdHolder.getValue();
-        } finally {
-            readUnlock();
-        }
+        newObjectId = objectIdHolder.getValue();
 
         if (refresh) {
             refresh();
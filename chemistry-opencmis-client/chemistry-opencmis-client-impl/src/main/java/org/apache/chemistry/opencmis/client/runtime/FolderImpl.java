@@ -36,6 +36,8 @@ import org.apache.chemistry.opencmis.client.api.ObjectType;
 import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Policy;
 import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.client.api.TreeVisitor;
+import org.apache.chemistry.opencmis.client.api.TreeWalk;
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
 import org.apache.chemistry.opencmis.client.runtime.util.TreeImpl;
@@ -188,18 +190,13 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
     public List<ObjectType> getAllowedChildObjectTypes() {
         List<ObjectType> result = new ArrayList<ObjectType>();
 
-        readLock();
-        try {
-            List<String> otids = getPropertyValue(PropertyIds.ALLOWED_CHILD_OBJECT_TYPE_IDS);
-            if (otids == null) {
-                return result;
-            }
+        List<String> otids = getPropertyValue(PropertyIds.ALLOWED_CHILD_OBJECT_TYPE_IDS);
+        if (otids == null) {
+            return result;
+        }
 
-            for (String otid : otids) {
-                result.add(getSession().getTypeDefinition(otid));
-            }
-        } finally {
-            readUnlock();
+        for (String otid : otids) {
+            result.add(getSession().getTypeDefinition(otid));
         }
 
         return result;
@@ -299,6 +296,10 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
         return convertBindingContainer(providerContainerList, context);
     }
 
+    public TreeWalk walkTree(int depth, int parallelism, OperationContext context, TreeVisitor visitor) {
+        return new FolderTreeWalker(depth, parallelism, context, visitor).start(this);
+    }
+
     public List<Tree<FileableCmisObject>> getFolderTree(int depth) {
         return getFolderTree(depth, getSession().getDefaultContext());
     }
@@ -374,28 +375,23 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
     public String getPath() {
         String path;
 
-        readLock();
-        try {
-            // get the path property
-            path = getPropertyValue(PropertyIds.PATH);
+        // get the path property
+        path = getPropertyValue(PropertyIds.PATH);
 
-            // if the path property isn't set, get it
-            if (path == null) {
-                String objectId = getObjectId();
-                ObjectData objectData = getBinding().getObjectService().getObject(getRepositoryId(), objectId,
-                        getPropertyQueryName(PropertyIds.PATH), false, IncludeRelationships.NONE, "cmis:none", false,
-                        false, null);
+        // if the path property isn't set, get it
+        if (path == null) {
+            String objectId = getObjectId();
+            ObjectData objectData = getBinding().getObjectService().getObject(getRepositoryId(), objectId,
+                    getPropertyQueryName(PropertyIds.PATH), false, IncludeRelationships.NONE, "cmis:none", false,
+                    false, null);
 
-                if ((objectData.getProperties() != null) && (objectData.getProperties().getProperties() != null)) {
-                    PropertyData<?> pathProperty = objectData.getProperties().getProperties().get(PropertyIds.PATH);
+            if ((objectData.getProperties() != null) && (objectData.getProperties().getProperties() != null)) {
+                PropertyData<?> pathProperty = objectData.getProperties().getProperties().get(PropertyIds.PATH);
 
-                    if (pathProperty instanceof PropertyString) {
-                        path = ((PropertyString) pathProperty).getFirstValue();
-                    }
+                if (pathProperty instanceof PropertyString) {
+                    path = ((PropertyString) pathProperty).getFirstValue();
                 }
             }
-        } finally {
-            readUnlock();
         }
 
         // we still don't know the path ... it's not a CMIS compliant repository
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.TreeVisitor;
+import org.apache.chemistry.opencmis.client.api.TreeWalk;
+
+/**
+ * Walks a folder tree with a fixed number of threads.
+ * <p>
+ * Each folder is read by one task that pages through the children and passes
+ * them to the visitor. Subfolders are handed to the thread pool as new tasks.
+ * If too many folders are already waiting, the current thread reads the
+ * subfolder itself. This bounds the memory used for pending folders and
+ * slows down the walk when the visitor or the repository can't keep up.
+ */
+class FolderTreeWalker implements TreeWalk {
+
+    private static final int QUEUED_FOLDERS_PER_THREAD = 64;
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final int maxDepth;
+    private final OperationContext context;
+    private final TreeVisitor visitor;
+    private final ExecutorService executor;
+    private final Semaphore queueSlots;
+
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final AtomicLong visitedCount = new AtomicLong();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean cancelled;
+
+    FolderTreeWalker(int depth, int parallelism, OperationContext context, TreeVisitor visitor) {
+        if (depth == 0 || depth < -1) {
+            throw new IllegalArgumentException("Depth must be -1 or greater than 0!");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0!");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("Operation context must be set!");
+        }
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor must be set!");
+        }
+
+        this.maxDepth = depth;
+        this.context = context;
+        this.visitor = visitor;
+        this.executor = Executors.newFixedThreadPool(parallelism, new WalkerThreadFactory());
+        this.queueSlots = new Semaphore(parallelism * QUEUED_FOLDERS_PER_THREAD);
+    }
+
+    /**
+     * Starts the walk at the given folder.
+     */
+    TreeWalk start(Folder folder) {
+        submit(folder, 1);
+        return this;
+    }
+
+    /**
+     * Hands a folder to the thread pool.
+     * 
+     * @return <code>false</code> if too many folders are waiting and the
+     *         caller has to read the folder itself
+     */
+    private boolean submit(final Folder folder, final int depth) {
+        if (cancelled) {
+            return true;
+        }
+
+        if (!queueSlots.tryAcquire()) {
+            return false;
+        }
+
+        pendingTasks.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        walk(folder, depth);
+                    } finally {
+                        queueSlots.release();
+                        taskFinished();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queueSlots.release();
+            taskFinished();
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads a folder and all subfolders that couldn't be handed to the thread
+     * pool. Those are kept on an explicit stack, so that a deep tree doesn't
+     * overflow the thread stack.
+     */
+    private void walk(Folder folder, int depth) {
+        LinkedList<Level> levels = new LinkedList<Level>();
+
+        try {
+            levels.addFirst(new Level(folder, depth));
+
+            while (!levels.isEmpty()) {
+                if (cancelled) {
+                    return;
+                }
+
+                Level level = levels.getFirst();
+                if (!level.children.hasNext()) {
+                    levels.removeFirst();
+                    continue;
+                }
+
+                CmisObject child = level.children.next();
+                if (!(child instanceof FileableCmisObject)) {
+                    continue;
+                }
+
+                visitedCount.incrementAndGet();
+                boolean descend = visitor.visit((FileableCmisObject) child, level.depth);
+
+                if (descend && (child instanceof Folder) && (maxDepth == -1 || level.depth < maxDepth)
+                        && !submit((Folder) child, level.depth + 1)) {
+                    // too many folders are waiting, read this one on the
+                    // current thread
+                    levels.addFirst(new Level((Folder) child, level.depth + 1));
+                }
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            cancelled = true;
+        }
+    }
+
+    private void taskFinished() {
+        if (pendingTasks.decrementAndGet() == 0) {
+            executor.shutdown();
+            done.countDown();
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    public long getVisitedCount() {
+        return visitedCount.get();
+    }
+
+    public void await() throws InterruptedException {
+        done.await();
+        throwFailure();
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!done.await(timeout, unit)) {
+            return false;
+        }
+
+        throwFailure();
+        return true;
+    }
+
+    private void throwFailure() {
+        RuntimeException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * A folder that is being read by the current thread.
+     */
+    private class Level {
+        private final Iterator<CmisObject> children;
+        private final int depth;
+
+        Level(Folder folder, int depth) {
+            this.children = folder.getChildren(context).iterator();
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Creates daemon threads, so that an abandoned walk doesn't keep the JVM
+     * alive.
+     */
+    private static class WalkerThreadFactory implements ThreadFactory {
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "opencmis-tree-walker-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.ObjectResult;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads multiple objects by id.
+ * <p>
+ * Objects are taken from the cache first. The remaining objects are looked up
+ * with {@code cmis:objectId IN (...)} queries if the repository supports
+ * metadata queries and the operation context only selects properties of the
+ * base types. Queries don't return ACLs, policies and the properties of
+ * subtypes, so all other requests and all objects the queries didn't find are
+ * fetched one by one with a bounded number of threads.
+ */
+class ObjectBatchLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectBatchLoader.class);
+
+    /** Maximum number of ids in one query. */
+    static final int QUERY_BATCH_SIZE = 100;
+
+    /** Maximum number of concurrent getObject calls. */
+    static final int PARALLELISM = 8;
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private static final BaseTypeId[] QUERY_BASE_TYPES = new BaseTypeId[] { BaseTypeId.CMIS_DOCUMENT,
+            BaseTypeId.CMIS_FOLDER };
+
+    private final SessionImpl session;
+    private final OperationContext context;
+    private final int parallelism;
+
+    ObjectBatchLoader(SessionImpl session, OperationContext context, int parallelism) {
+        this.session = session;
+        this.context = context;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Loads the objects.
+     */
+    List<ObjectResult> load(Collection<? extends ObjectId> objectIds) {
+        List<String> ids = new ArrayList<String>(objectIds.size());
+        for (ObjectId objectId : objectIds) {
+            if (objectId == null || objectId.getId() == null) {
+                throw new IllegalArgumentException("Object Ids must be set!");
+            }
+            ids.add(objectId.getId());
+        }
+
+        Map<String, ObjectResult> results = new ConcurrentHashMap<String, ObjectResult>();
+        Set<String> missing = new LinkedHashSet<String>();
+
+        // ask the cache first
+        Cache cache = session.getCache();
+        for (String id : ids) {
+            CmisObject object = null;
+            if (context.isCacheEnabled()) {
+                object = cache.getById(id, context.getCacheKey());
+            }
+
+            if (object != null) {
+                results.put(id, new ObjectResultImpl(id, object, null));
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty() && canQuery()) {
+            for (BaseTypeId baseType : QUERY_BASE_TYPES) {
+                if (missing.isEmpty()) {
+                    break;
+                }
+                query(baseType, missing, results);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            fetch(new ArrayList<String>(missing), results);
+        }
+
+        List<ObjectResult> result = new ArrayList<ObjectResult>(ids.size());
+        for (String id : ids) {
+            result.add(results.get(id));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether objects can be looked up by query with this context.
+     */
+    private boolean canQuery() {
+        if (context.isIncludeAcls() || context.isIncludePolicies()) {
+            return false;
+        }
+
+        // "*" would only return the properties of the base type
+        Set<String> filter = context.getFilter();
+        if (filter == null || filter.isEmpty() || filter.contains(OperationContextImpl.PROPERTIES_STAR)) {
+            return false;
+        }
+
+        RepositoryCapabilities capabilities = session.getRepositoryInfo().getCapabilities();
+        if (capabilities == null) {
+            return false;
+        }
+
+        CapabilityQuery queryCapability = capabilities.getQueryCapability();
+        return queryCapability == CapabilityQuery.METADATAONLY || queryCapability == CapabilityQuery.BOTHSEPARATE
+                || queryCapability == CapabilityQuery.BOTHCOMBINED;
+    }
+
+    /**
+     * Looks up objects of one base type by query.
+     */
+    private void query(BaseTypeId baseType, Set<String> missing, Map<String, ObjectResult> results) {
+        try {
+            ObjectType type = session.getTypeDefinition(baseType.value());
+            if (!Boolean.TRUE.equals(type.isQueryable()) || !coversFilter(type)) {
+                return;
+            }
+
+            boolean searchAllVersions = baseType == BaseTypeId.CMIS_DOCUMENT
+                    && Boolean.TRUE.equals(session.getRepositoryInfo().getCapabilities()
+                            .isAllVersionsSearchableSupported());
+
+            List<String> ids = new ArrayList<String>(missing);
+            for (int start = 0; start < ids.size(); start += QUERY_BATCH_SIZE) {
+                List<String> batch = ids.subList(start, Math.min(start + QUERY_BATCH_SIZE, ids.size()));
+
+                for (CmisObject object : session.queryObjects(baseType.value(), createWhereClause(batch),
+                        searchAllVersions, context)) {
+                    String id = object.getId();
+                    if (id != null && missing.remove(id)) {
+                        results.put(id, new ObjectResultImpl(id, object, null));
+                        if (context.isCacheEnabled()) {
+                            session.getCache().put(object, context.getCacheKey());
+                        }
+                    }
+                }
+            }
+        } catch (CmisBaseException e) {
+            // fetch the remaining objects one by one
+            LOG.debug("Query for {} objects failed: {}", baseType.value(), e.toString());
+        }
+    }
+
+    /**
+     * Returns whether all properties of the filter are queryable properties
+     * of the given type.
+     */
+    private boolean coversFilter(ObjectType type) {
+        Map<String, PropertyDefinition<?>> propertyDefinitions = type.getPropertyDefinitions();
+        if (propertyDefinitions == null) {
+            return false;
+        }
+
+        for (String propertyId : context.getFilter()) {
+            PropertyDefinition<?> propDef = propertyDefinitions.get(propertyId);
+            if (propDef == null || !propertyId.equals(propDef.getQueryName())
+                    || Boolean.FALSE.equals(propDef.isQueryable())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String createWhereClause(List<String> ids) {
+        StringBuilder sb = new StringBuilder("cmis:objectId IN (");
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+
+            sb.append('\'');
+            String id = ids.get(i);
+            for (int j = 0; j < id.length(); j++) {
+                char c = id.charAt(j);
+                if (c == '\'' || c == '\\') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            sb.append('\'');
+        }
+
+        sb.append(')');
+
+        return sb.toString();
+    }
+
+    /**
+     * Fetches the objects one by one. The current thread is one of the
+     * workers.
+     */
+    private void fetch(final List<String> ids, final Map<String, ObjectResult> results) {
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            public void run() {
+                int i;
+                while ((i = next.getAndIncrement()) < ids.size()) {
+                    String id = ids.get(i);
+                    results.put(id, fetch(id));
+                }
+            }
+        };
+
+        int threads = Math.min(parallelism, ids.size()) - 1;
+        if (threads <= 0) {
+            worker.run();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new LoaderThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(worker));
+            }
+
+            worker.run();
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CmisRuntimeException("Interrupted!", e);
+                } catch (ExecutionException e) {
+                    throw new CmisRuntimeException("Loading objects failed: " + e.getCause(), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ObjectResult fetch(String id) {
+        try {
+            return new ObjectResultImpl(id, session.getObject(id, context), null);
+        } catch (CmisBaseException e) {
+            return new ObjectResultImpl(id, null, e);
+        } catch (RuntimeException e) {
+            return new ObjectResultImpl(id, null, new CmisRuntimeException(e.getMessage(), e));
+        }
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final String prefix = "opencmis-getobjects-" + POOL_NUMBER.incrementAndGet() + "-";
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.io.Serializable;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ObjectResult;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+
+/**
+ * Implementation of <code>ObjectResult</code>.
+ */
+public class ObjectResultImpl implements ObjectResult, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final CmisObject object;
+    private final CmisBaseException exception;
+
+    /**
+     * Constructor.
+     */
+    public ObjectResultImpl(String id, CmisObject object, CmisBaseException exception) {
+        this.id = id;
+        this.object = object;
+        this.exception = exception;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public CmisObject getObject() {
+        return object;
+    }
+
+    public CmisBaseException getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return "Object result [id=" + id + ", object=" + object + ", exception=" + exception + "]";
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.Policy;
+import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.api.Relationship;
+import org.apache.chemistry.opencmis.client.api.Rendition;
+import org.apache.chemistry.opencmis.client.api.SecondaryType;
+import org.apache.chemistry.opencmis.commons.data.Acl;
+import org.apache.chemistry.opencmis.commons.data.AllowableActions;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.enums.ExtensionLevel;
+
+/**
+ * Immutable snapshot of the state of a {@link AbstractCmisObject}.
+ * <p>
+ * A new snapshot is created whenever the object is initialized or refreshed
+ * and is published through a single volatile field. Readers therefore never
+ * see a half-initialized object and never have to acquire a lock.
+ * <p>
+ * Properties are held in an array ordered by the property definitions of the
+ * primary type, followed by the properties of the secondary types. Lookups by
+ * property id use a small open addressing hash table of array indexes, which
+ * is considerably smaller than a {@link LinkedHashMap} with its entry objects.
+ */
+final class ObjectState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Property<?>[] NO_PROPERTIES = new Property<?>[0];
+    private static final short[] NO_INDEX = new short[0];
+
+    final ObjectType objectType;
+    final List<SecondaryType> secondaryTypes;
+    final AllowableActions allowableActions;
+    final List<Rendition> renditions;
+    final Acl acl;
+    final List<Policy> policies;
+    final List<Relationship> relationships;
+    final Map<ExtensionLevel, List<CmisExtensionElement>> extensions;
+    final long refreshTimestamp;
+
+    private final Property<?>[] properties;
+    private final short[] index;
+
+    ObjectState(ObjectType objectType, List<SecondaryType> secondaryTypes, Map<String, Property<?>> properties,
+            AllowableActions allowableActions, List<Rendition> renditions, Acl acl, List<Policy> policies,
+            List<Relationship> relationships, Map<ExtensionLevel, List<CmisExtensionElement>> extensions,
+            long refreshTimestamp) {
+        this.objectType = objectType;
+        this.secondaryTypes = secondaryTypes;
+        this.allowableActions = allowableActions;
+        this.renditions = renditions;
+        this.acl = acl;
+        this.policies = policies;
+        this.relationships = relationships;
+        this.extensions = extensions;
+        this.refreshTimestamp = refreshTimestamp;
+
+        if (properties == null || properties.isEmpty()) {
+            this.properties = NO_PROPERTIES;
+            this.index = NO_INDEX;
+        } else {
+            this.properties = orderProperties(objectType, secondaryTypes, properties);
+            this.index = buildIndex(this.properties);
+        }
+    }
+
+    /**
+     * Returns the property with the given id or {@code null} if the object
+     * doesn't have this property.
+     */
+    Property<?> getProperty(String id) {
+        if (id == null || index.length == 0) {
+            return null;
+        }
+
+        int mask = index.length - 1;
+        int slot = spread(id.hashCode()) & mask;
+        while (true) {
+            int pos = index[slot];
+            if (pos == 0) {
+                return null;
+            }
+
+            Property<?> property = properties[pos - 1];
+            if (id.equals(property.getId())) {
+                return property;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns an unmodifiable view of all properties.
+     */
+    List<Property<?>> getProperties() {
+        return Collections.unmodifiableList(Arrays.asList(properties));
+    }
+
+    /**
+     * Returns the number of properties.
+     */
+    int getPropertyCount() {
+        return properties.length;
+    }
+
+    private static Property<?>[] orderProperties(ObjectType objectType, List<SecondaryType> secondaryTypes,
+            Map<String, Property<?>> properties) {
+        Map<String, Property<?>> remaining = new LinkedHashMap<String, Property<?>>(properties);
+        Property<?>[] result = new Property<?>[properties.size()];
+        int pos = 0;
+
+        if (objectType != null && objectType.getPropertyDefinitions() != null) {
+            for (String propertyId : objectType.getPropertyDefinitions().keySet()) {
+                Property<?> property = remaining.remove(propertyId);
+                if (property != null) {
+                    result[pos++] = property;
+                }
+            }
+        }
+
+        if (secondaryTypes != null) {
+            for (SecondaryType secondaryType : secondaryTypes) {
+                if (secondaryType.getPropertyDefinitions() == null) {
+                    continue;
+                }
+                for (String propertyId : secondaryType.getPropertyDefinitions().keySet()) {
+                    Property<?> property = remaining.remove(propertyId);
+                    if (property != null) {
+                        result[pos++] = property;
+                    }
+                }
+            }
+        }
+
+        // properties that are not covered by a type definition keep the order
+        // in which the repository sent them
+        for (Property<?> property : remaining.values()) {
+            result[pos++] = property;
+        }
+
+        return result;
+    }
+
+    private static short[] buildIndex(Property<?>[] properties) {
+        if (properties.length >= Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many properties: " + properties.length);
+        }
+
+        // keep the load factor at or below 0.5
+        int size = 4;
+        while (size < properties.length * 2) {
+            size <<= 1;
+        }
+
+        short[] result = new short[size];
+        int mask = size - 1;
+        for (int i = 0; i < properties.length; i++) {
+            String id = properties[i].getId();
+            if (id == null) {
+                continue;
+            }
+
+            int slot = spread(id.hashCode()) & mask;
+            while (result[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            result[slot] = (short) (i + 1);
+        }
+
+        return result;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
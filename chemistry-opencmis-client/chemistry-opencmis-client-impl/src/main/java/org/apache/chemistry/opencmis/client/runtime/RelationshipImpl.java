@@ -42,17 +42,12 @@ public class RelationshipImpl extends AbstractCmisObject implements Relationship
     }
 
     public CmisObject getSource(OperationContext context) {
-        readLock();
-        try {
-            ObjectId sourceId = getSourceId();
-            if (sourceId == null) {
-                return null;
-            }
-
-            return getSession().getObject(sourceId, context);
-        } finally {
-            readUnlock();
+        ObjectId sourceId = getSourceId();
+        if (sourceId == null) {
+            return null;
         }
+
+        return getSession().getObject(sourceId, context);
     }
 
     public ObjectId getSourceId() {
@@ -69,17 +64,12 @@ public class RelationshipImpl extends AbstractCmisObject implements Relationship
     }
 
     public CmisObject getTarget(OperationContext context) {
-        readLock();
-        try {
-            ObjectId targetId = getTargetId();
-            if (targetId == null) {
-                return null;
-            }
-
-            return getSession().getObject(targetId, context);
-        } finally {
-            readUnlock();
+        ObjectId targetId = getTargetId();
+        if (targetId == null) {
+            return null;
         }
+
+        return getSession().getObject(targetId, context);
     }
 
     public ObjectId getTargetId() {
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merges concurrent requests for the same key into one call.
+ * <p>
+ * The first thread that asks for a key executes the call. Threads that ask
+ * for the same key while the call is running wait for it and get the same
+ * result or the same exception.
+ */
+class RequestCoalescer<T> {
+
+    /**
+     * A call that can be coalesced.
+     */
+    interface Call<T> {
+        T call();
+    }
+
+    private final ConcurrentMap<String, Flight<T>> flights = new ConcurrentHashMap<String, Flight<T>>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Executes the call or waits for a running call with the same key.
+     */
+    T execute(String key, Call<T> call) {
+        requestCount.incrementAndGet();
+
+        Flight<T> flight = new Flight<T>();
+        Flight<T> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            coalescedCount.incrementAndGet();
+            return running.await();
+        }
+
+        try {
+            flight.result = call.call();
+            return flight.result;
+        } catch (RuntimeException e) {
+            flight.exception = e;
+            throw e;
+        } catch (Error e) {
+            flight.exception = e;
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+            flight.done.countDown();
+        }
+    }
+
+    /**
+     * Returns the number of requests.
+     */
+    long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of requests that have been served by a call of
+     * another thread.
+     */
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of calls that are currently running.
+     */
+    int getRunningCount() {
+        return flights.size();
+    }
+
+    /**
+     * A running call.
+     */
+    private static class Flight<T> {
+        final CountDownLatch done = new CountDownLatch(1);
+        T result;
+        Throwable exception;
+
+        T await() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        done.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        // the result is shared, don't abandon it
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            }
+            if (exception instanceof Error) {
+                throw (Error) exception;
+            }
+
+            return result;
+        }
+    }
+}
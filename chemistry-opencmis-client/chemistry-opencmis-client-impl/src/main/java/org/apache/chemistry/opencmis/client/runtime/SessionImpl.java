@@ -18,10 +18,13 @@
  */
 package org.apache.chemistry.opencmis.client.runtime;
 
+import java.io.File;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -38,6 +41,7 @@ import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.ObjectFactory;
 import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.ObjectResult;
 import org.apache.chemistry.opencmis.client.api.ObjectType;
 import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Policy;
@@ -47,13 +51,18 @@ import org.apache.chemistry.opencmis.client.api.Relationship;
 import org.apache.chemistry.opencmis.client.api.SecondaryType;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.client.api.TreeVisitor;
+import org.apache.chemistry.opencmis.client.api.TreeWalk;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
 import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.ContentCache;
+import org.apache.chemistry.opencmis.client.runtime.cache.InvalidatableCache;
 import org.apache.chemistry.opencmis.client.runtime.repository.ObjectFactoryImpl;
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
 import org.apache.chemistry.opencmis.client.runtime.util.TreeImpl;
 import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.Ace;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -61,17 +70,21 @@ import org.apache.chemistry.opencmis.commons.data.BulkUpdateObjectIdAndChangeTok
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.Updatability;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
@@ -88,6 +101,8 @@ import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.commons.spi.NavigationService;
 import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
 import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Persistent model session.
@@ -108,7 +123,7 @@ public class SessionImpl implements Session {
         CREATE_AND_CHECKOUT_UPDATABILITY.add(Updatability.WHENCHECKEDOUT);
     }
 
-    // private static Logger log = LoggerFactory.getLogger(SessionImpl.class);
+    private static final Logger LOG = LoggerFactory.getLogger(SessionImpl.class);
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -148,6 +163,22 @@ public class SessionImpl implements Session {
     private Cache cache;
     private final boolean cachePathOmit;
 
+    /*
+     * Content cache (not serializable, shared by all sessions with the same
+     * cache directory)
+     */
+    private transient ContentCache contentCache;
+
+    /*
+     * Change log poller (not serializable)
+     */
+    private transient ChangeLogPoller changeLogPoller;
+
+    /*
+     * Merges concurrent getObject calls (not serializable)
+     */
+    private transient volatile RequestCoalescer<CmisObject> requestCoalescer;
+
     /*
      * Repository info (serializable)
      */
@@ -486,29 +517,52 @@ public class SessionImpl implements Session {
             throw new IllegalArgumentException("Operation context must be set!");
         }
 
-        CmisObject result = null;
-
         // ask the cache first
         if (context.isCacheEnabled()) {
-            result = this.cache.getById(objectId, context.getCacheKey());
+            CmisObject result = this.cache.getById(objectId, context.getCacheKey());
             if (result != null) {
                 return result;
             }
+
+            // concurrent requests for the same object share one call
+            final String id = objectId;
+            final OperationContext ctxt = context;
+            return getRequestCoalescer().execute(coalescerKey('i', objectId, context),
+                    new RequestCoalescer.Call<CmisObject>() {
+                        public CmisObject call() {
+                            // another call might just have filled the cache
+                            CmisObject cached = cache.getById(id, ctxt.getCacheKey());
+                            if (cached != null) {
+                                return cached;
+                            }
+
+                            CmisObject object = fetchObject(id, ctxt);
+                            cache.put(object, ctxt.getCacheKey());
+                            return object;
+                        }
+                    });
         }
 
-        // get the object
+        return fetchObject(objectId, context);
+    }
+
+    public List<ObjectResult> getObjects(Collection<? extends ObjectId> objectIds, OperationContext context) {
+        if (objectIds == null) {
+            throw new IllegalArgumentException("Object Ids must be set!");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("Operation context must be set!");
+        }
+
+        return new ObjectBatchLoader(this, context, ObjectBatchLoader.PARALLELISM).load(objectIds);
+    }
+
+    private CmisObject fetchObject(String objectId, OperationContext context) {
         ObjectData objectData = this.binding.getObjectService().getObject(getRepositoryId(), objectId,
                 context.getFilterString(), context.isIncludeAllowableActions(), context.getIncludeRelationships(),
                 context.getRenditionFilterString(), context.isIncludePolicies(), context.isIncludeAcls(), null);
 
-        result = getObjectFactory().convertObject(objectData, context);
-
-        // put into cache
-        if (context.isCacheEnabled()) {
-            this.cache.put(result, context.getCacheKey());
-        }
-
-        return result;
+        return getObjectFactory().convertObject(objectData, context);
     }
 
     public CmisObject getObjectByPath(String path) {
@@ -523,29 +577,88 @@ public class SessionImpl implements Session {
             throw new IllegalArgumentException("Operation context must be set!");
         }
 
-        CmisObject result = null;
-
-        // ask the cache first
-        if (context.isCacheEnabled() && !cachePathOmit) {
-            result = this.cache.getByPath(path, context.getCacheKey());
-            if (result != null) {
-                return result;
+        if (context.isCacheEnabled()) {
+            // ask the cache first
+            if (!cachePathOmit) {
+                CmisObject result = this.cache.getByPath(path, context.getCacheKey());
+                if (result != null) {
+                    return result;
+                }
             }
+
+            // concurrent requests for the same path share one call
+            final String p = path;
+            final OperationContext ctxt = context;
+            return getRequestCoalescer().execute(coalescerKey('p', path, context),
+                    new RequestCoalescer.Call<CmisObject>() {
+                        public CmisObject call() {
+                            if (!cachePathOmit) {
+                                // another call might just have filled the cache
+                                CmisObject cached = cache.getByPath(p, ctxt.getCacheKey());
+                                if (cached != null) {
+                                    return cached;
+                                }
+                            }
+
+                            CmisObject object = fetchObjectByPath(p, ctxt);
+                            cache.putPath(p, object, ctxt.getCacheKey());
+                            return object;
+                        }
+                    });
         }
 
-        // get the object
+        return fetchObjectByPath(path, context);
+    }
+
+    private CmisObject fetchObjectByPath(String path, OperationContext context) {
         ObjectData objectData = this.binding.getObjectService().getObjectByPath(getRepositoryId(), path,
                 context.getFilterString(), context.isIncludeAllowableActions(), context.getIncludeRelationships(),
                 context.getRenditionFilterString(), context.isIncludePolicies(), context.isIncludeAcls(), null);
 
-        result = getObjectFactory().convertObject(objectData, context);
+        return getObjectFactory().convertObject(objectData, context);
+    }
 
-        // put into cache
-        if (context.isCacheEnabled()) {
-            this.cache.putPath(path, result, context.getCacheKey());
+    private RequestCoalescer<CmisObject> getRequestCoalescer() {
+        RequestCoalescer<CmisObject> rc = requestCoalescer;
+        if (rc == null) {
+            synchronized (this) {
+                rc = requestCoalescer;
+                if (rc == null) {
+                    rc = new RequestCoalescer<CmisObject>();
+                    requestCoalescer = rc;
+                }
+            }
         }
 
-        return result;
+        return rc;
+    }
+
+    private static String coalescerKey(char type, String idOrPath, OperationContext context) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(type);
+        sb.append(idOrPath.length());
+        sb.append(':');
+        sb.append(idOrPath);
+        sb.append(context.getCacheKey());
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of {@code getObject} and {@code getObjectByPath}
+     * calls that missed the cache.
+     */
+    public long getObjectRequestCount() {
+        return getRequestCoalescer().getRequestCount();
+    }
+
+    /**
+     * Returns the number of {@code getObject} and {@code getObjectByPath}
+     * calls that didn't contact the repository but waited for an identical
+     * call of another thread.
+     */
+    public long getCoalescedObjectRequestCount() {
+        return getRequestCoalescer().getCoalescedCount();
     }
 
     public void removeObjectFromCache(ObjectId objectId) {
@@ -584,6 +697,20 @@ public class SessionImpl implements Session {
         return (Folder) rootFolder;
     }
 
+    public TreeWalk walkTree(ObjectId folderId, int depth, int parallelism, OperationContext context,
+            TreeVisitor visitor) {
+        if ((folderId == null) || (folderId.getId() == null)) {
+            throw new IllegalArgumentException("Folder Id must be set!");
+        }
+
+        CmisObject folder = getObject(folderId, context);
+        if (!(folder instanceof Folder)) {
+            throw new IllegalArgumentException("Object is not a folder!");
+        }
+
+        return ((Folder) folder).walkTree(depth, parallelism, context, visitor);
+    }
+
     public ItemIterable<ObjectType> getTypeChildren(final String typeId, final boolean includePropertyDefinitions) {
         final RepositoryService repositoryService = getBinding().getRepositoryService();
         final ObjectFactory of = this.getObjectFactory();
@@ -800,11 +927,80 @@ public class SessionImpl implements Session {
 
             repositoryInfo = objectFactory.convertRepositoryInfo(getBinding().getRepositoryService().getRepositoryInfo(
                     repositoryId, null));
+
+            startChangeLogPoller();
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Starts the change log poller if it has been configured and the
+     * repository supports change logs.
+     */
+    private void startChangeLogPoller() {
+        if (changeLogPoller != null) {
+            changeLogPoller.stop();
+            changeLogPoller = null;
+        }
+
+        long interval = 0;
+        try {
+            String value = parameters.get(SessionParameter.CACHE_CHANGELOG_INTERVAL);
+            if (value != null) {
+                interval = Long.parseLong(value);
+            }
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid change log poll interval: {}", parameters.get(SessionParameter.CACHE_CHANGELOG_INTERVAL));
+        }
+
+        if (interval <= 0) {
+            return;
+        }
+
+        String token = repositoryInfo.getLatestChangeLogToken();
+        if (token == null || repositoryInfo.getCapabilities() == null
+                || repositoryInfo.getCapabilities().getChangesCapability() == null
+                || repositoryInfo.getCapabilities().getChangesCapability() == CapabilityChanges.NONE) {
+            LOG.warn("Repository {} doesn't provide a change log. Change log polling is turned off.",
+                    repositoryInfo.getId());
+            return;
+        }
+
+        changeLogPoller = new ChangeLogPoller(this, token);
+        changeLogPoller.start(interval);
+    }
+
+    /**
+     * Removes changed objects and their paths from the cache.
+     */
+    void invalidateObjects(Collection<String> objectIds) {
+        lock.readLock().lock();
+        try {
+            if (cache instanceof InvalidatableCache) {
+                ((InvalidatableCache) cache).invalidate(objectIds);
+            } else {
+                for (String objectId : objectIds) {
+                    cache.remove(objectId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all objects from the cache.
+     */
+    void clearObjectCache() {
+        lock.readLock().lock();
+        try {
+            cache.clear();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     public CmisBinding getBinding() {
         lock.readLock().lock();
         try {
@@ -1122,6 +1318,25 @@ public class SessionImpl implements Session {
             throw new IllegalArgumentException("Invalid document id!");
         }
 
+        // check the content cache
+        ContentCache cc = getContentCache();
+        String version = null;
+        if (cc != null) {
+            // the version of the given object costs no request, only a plain
+            // id or a revalidating session has to ask the repository
+            version = getKnownContentVersion(docId);
+            if (version == null) {
+                version = getCurrentContentVersion(docId);
+            }
+
+            if (version != null) {
+                ContentStream cached = cc.get(getRepositoryId(), docId.getId(), streamId, version, offset, length);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
         // get the stream
         ContentStream contentStream = null;
         try {
@@ -1132,9 +1347,96 @@ public class SessionImpl implements Session {
             return null;
         }
 
+        // only complete streams of a known version are cached
+        if (cc != null && version != null && offset == null && length == null
+                && !(contentStream instanceof PartialContentStream)) {
+            contentStream = cc.put(getRepositoryId(), docId.getId(), streamId, version, contentStream);
+        }
+
         return contentStream;
     }
 
+    /**
+     * Returns the content cache or {@code null} if the content cache is turned
+     * off.
+     */
+    private ContentCache getContentCache() {
+        String directory = parameters.get(SessionParameter.CACHE_CONTENT_DIRECTORY);
+        if (directory == null) {
+            return null;
+        }
+
+        ContentCache cc = contentCache;
+        if (cc == null) {
+            long maxSize;
+            try {
+                maxSize = Long.parseLong(parameters.get(SessionParameter.CACHE_CONTENT_SIZE));
+                if (maxSize < 0) {
+                    maxSize = ContentCache.DEFAULT_MAX_SIZE;
+                }
+            } catch (Exception e) {
+                maxSize = ContentCache.DEFAULT_MAX_SIZE;
+            }
+
+            cc = ContentCache.getInstance(new File(directory), maxSize);
+            contentCache = cc;
+        }
+
+        return cc;
+    }
+
+    /**
+     * Returns the version of the content of a document as the given object
+     * knows it, which is the change token or the last modification date.
+     * Returns {@code null} if the object doesn't provide it or if the session
+     * always revalidates.
+     */
+    private String getKnownContentVersion(ObjectId docId) {
+        if ((docId instanceof CmisObject)
+                && !Boolean.parseBoolean(parameters.get(SessionParameter.CACHE_CONTENT_REVALIDATE))) {
+            CmisObject object = (CmisObject) docId;
+            return getContentVersion(object.getChangeToken(), object.getLastModificationDate());
+        }
+
+        return null;
+    }
+
+    /**
+     * Asks the repository for the current version of the content of a
+     * document.
+     */
+    private String getCurrentContentVersion(ObjectId docId) {
+        try {
+            ObjectData objectData = getBinding().getObjectService().getObject(getRepositoryId(), docId.getId(),
+                    PropertyIds.CHANGE_TOKEN + "," + PropertyIds.LAST_MODIFICATION_DATE, false,
+                    IncludeRelationships.NONE, "cmis:none", false, false, null);
+            if (objectData == null || objectData.getProperties() == null
+                    || objectData.getProperties().getProperties() == null) {
+                return null;
+            }
+
+            Map<String, PropertyData<?>> properties = objectData.getProperties().getProperties();
+            PropertyData<?> changeToken = properties.get(PropertyIds.CHANGE_TOKEN);
+            PropertyData<?> lastModified = properties.get(PropertyIds.LAST_MODIFICATION_DATE);
+
+            return getContentVersion(changeToken == null ? null : (String) changeToken.getFirstValue(),
+                    lastModified == null ? null : (GregorianCalendar) lastModified.getFirstValue());
+        } catch (CmisBaseException e) {
+            // don't use the cache
+            return null;
+        }
+    }
+
+    private static String getContentVersion(String changeToken, GregorianCalendar lastModified) {
+        if (changeToken != null) {
+            return "t:" + changeToken;
+        }
+        if (lastModified != null) {
+            return "d:" + lastModified.getTimeInMillis();
+        }
+        return null;
+    }
+
     // --- ACL ---
 
     public Acl getAcl(ObjectId objectId, boolean onlyBasicPermissions) {
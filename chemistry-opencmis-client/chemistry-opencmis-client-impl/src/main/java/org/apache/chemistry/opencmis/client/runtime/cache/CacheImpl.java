@@ -23,9 +23,15 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.client.api.CmisObject;
@@ -37,7 +43,7 @@ import org.apache.chemistry.opencmis.commons.SessionParameter;
  * Synchronized cache implementation. The cache is limited to a specific size of
  * entries and works in a LRU mode.
  */
-public class CacheImpl implements Cache {
+public class CacheImpl implements InvalidatableCache {
 
     private static final long serialVersionUID = 1L;
 
@@ -287,6 +293,49 @@ public class CacheImpl implements Cache {
         }
     }
 
+    public void invalidate(Collection<String> objectIds) {
+        if (objectIds == null || objectIds.isEmpty()) {
+            return;
+        }
+
+        Set<String> ids = new HashSet<String>(objectIds);
+
+        lock.writeLock().lock();
+        try {
+            // find the paths of the changed objects
+            List<String> prefixes = new ArrayList<String>();
+            for (Map.Entry<String, CacheItem<String>> entry : pathToIdMap.entrySet()) {
+                if (ids.contains(entry.getValue().peekItem())) {
+                    String path = entry.getKey();
+                    prefixes.add(path.endsWith("/") ? path : path + "/");
+                }
+            }
+
+            // remove these paths and everything below them
+            Iterator<Map.Entry<String, CacheItem<String>>> iter = pathToIdMap.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<String, CacheItem<String>> entry = iter.next();
+                String path = entry.getKey();
+                if (ids.contains(entry.getValue().peekItem())) {
+                    iter.remove();
+                    continue;
+                }
+                for (String prefix : prefixes) {
+                    if (path.startsWith(prefix)) {
+                        iter.remove();
+                        break;
+                    }
+                }
+            }
+
+            for (String objectId : ids) {
+                objectMap.remove(objectId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public int getCacheSize() {
         return this.cacheSize;
     }
@@ -315,6 +364,14 @@ public class CacheImpl implements Cache {
             return (timestamp + ttl < System.currentTimeMillis());
         }
 
+        /**
+         * Returns the item even if it is expired, as long as it is still
+         * referenced.
+         */
+        public synchronized T peekItem() {
+            return (item == null ? null : item.get());
+        }
+
         public synchronized T getItem() {
             if (isExpired()) {
                 item = null;
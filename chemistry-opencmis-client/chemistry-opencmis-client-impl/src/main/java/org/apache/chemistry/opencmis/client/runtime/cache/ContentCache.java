@@ -0,0 +1,714 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Size-bounded on-disk cache for content streams.
+ * <p>
+ * Entries are identified by repository id, object id and stream id and carry
+ * the version of the content, which is the change token of the document (or
+ * its last modification date if the repository doesn't provide change
+ * tokens). An entry is only returned if the requested version matches.
+ * <p>
+ * Each entry consists of two files: the raw content in a {@code .bin} file,
+ * which can be memory mapped or read at any offset, and the metadata in a
+ * {@code .properties} file. The files are spread over 256 subdirectories.
+ * The least recently used entries are evicted when the cache exceeds its
+ * maximum size. The usage order survives restarts through the last
+ * modification time of the metadata files.
+ * <p>
+ * Every version of a content stream gets a content file of its own, and the
+ * content file of an evicted or replaced entry is only deleted when the last
+ * stream that reads it has been closed. This works on file systems that
+ * don't allow deleting or replacing open files.
+ * <p>
+ * Caches are shared by all sessions that use the same directory.
+ */
+public class ContentCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentCache.class);
+
+    /** Default maximum size of the cache (1 GiB). */
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L;
+
+    private static final String DATA_SUFFIX = ".bin";
+    private static final String META_SUFFIX = ".properties";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String META_REPOSITORY_ID = "repositoryId";
+    private static final String META_OBJECT_ID = "objectId";
+    private static final String META_STREAM_ID = "streamId";
+    private static final String META_VERSION = "version";
+    private static final String META_FILENAME = "fileName";
+    private static final String META_MIMETYPE = "mimeType";
+    private static final String META_LENGTH = "length";
+    private static final String META_DATA_FILE = "dataFile";
+
+    private static final Map<File, ContentCache> CACHES = new HashMap<File, ContentCache>();
+
+    private final File directory;
+    private final long maxSize;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+    private long size;
+    private final List<File> undeletedFiles = new ArrayList<File>();
+
+    /**
+     * Returns the cache for the given directory. Caches are shared across
+     * sessions.
+     * 
+     * @throws IllegalArgumentException
+     *             if the cache of this directory is already in use with a
+     *             different maximum size
+     */
+    public static ContentCache getInstance(File directory, long maxSize) {
+        File dir;
+        try {
+            dir = directory.getCanonicalFile();
+        } catch (IOException e) {
+            dir = directory.getAbsoluteFile();
+        }
+
+        synchronized (CACHES) {
+            ContentCache cache = CACHES.get(dir);
+            if (cache == null) {
+                cache = new ContentCache(dir, maxSize);
+                CACHES.put(dir, cache);
+            } else if (cache.maxSize != maxSize) {
+                throw new IllegalArgumentException("Content cache " + dir + " is already in use with a max size of "
+                        + cache.maxSize + " bytes!");
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Creates a cache and loads the entries that are already on disk.
+     */
+    public ContentCache(File directory, long maxSize) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory must be set!");
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max size must not be negative!");
+        }
+
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create cache directory: " + directory);
+        }
+
+        load();
+    }
+
+    /**
+     * Returns the content stream if the cache has the given version of it.
+     *
+     * @param offset
+     *            the offset or {@code null}
+     * @param length
+     *            the length or {@code null}
+     *
+     * @return the content stream or {@code null} if the cache doesn't have
+     *         the content in this version
+     */
+    public ContentStream get(String repositoryId, String objectId, String streamId, String version,
+            BigInteger offset, BigInteger length) {
+        if (version == null) {
+            return null;
+        }
+
+        String key = createKey(repositoryId, objectId, streamId);
+        Entry entry;
+        InputStream stream = null;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (!version.equals(entry.version)) {
+                // the caller may know an older version than the cache, the
+                // entry is replaced when a newer version is downloaded
+                return null;
+            }
+
+            // opened under the lock, so that the entry can't be replaced or
+            // evicted in between; the file is kept until the stream is closed
+            try {
+                stream = new ReaderInputStream(new FileInputStream(entry.dataFile), entry);
+            } catch (IOException e) {
+                LOG.warn("Cannot read cached content of {}: {}", objectId, e.toString());
+                removeEntry(key);
+                return null;
+            }
+            entry.readers++;
+        }
+
+        try {
+            long start = (offset == null ? 0 : offset.longValue());
+            long end = entry.length;
+            if (length != null) {
+                end = Math.min(end, start + length.longValue());
+            }
+            if (start > entry.length) {
+                start = entry.length;
+            }
+
+            // mark as recently used, also for the next start
+            getMetaFile(key).setLastModified(System.currentTimeMillis());
+
+            if (offset == null && length == null) {
+                return new ContentStreamImpl(entry.fileName, BigInteger.valueOf(entry.length), entry.mimeType,
+                        stream);
+            }
+
+            long skipped = 0;
+            while (skipped < start) {
+                long n = stream.skip(start - skipped);
+                if (n <= 0) {
+                    throw new IOException("Cannot skip to offset " + start);
+                }
+                skipped += n;
+            }
+
+            return new PartialContentStreamImpl(entry.fileName, BigInteger.valueOf(end - start), entry.mimeType,
+                    new BoundedInputStream(stream, end - start));
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stream);
+            LOG.warn("Cannot read cached content of {}: {}", objectId, e.toString());
+            synchronized (this) {
+                removeEntry(key);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Wraps a content stream that has been fetched from the repository. The
+     * content is written to the cache while the caller reads the stream. It
+     * becomes a cache entry when the stream has been read completely.
+     *
+     * @return a content stream that must be used instead of the original
+     *         stream
+     */
+    public ContentStream put(String repositoryId, String objectId, String streamId, String version,
+            ContentStream contentStream) {
+        if (version == null || contentStream == null || contentStream.getStream() == null) {
+            return contentStream;
+        }
+
+        long expectedLength = contentStream.getLength();
+        if (expectedLength > maxSize) {
+            return contentStream;
+        }
+
+        String key = createKey(repositoryId, objectId, streamId);
+        File tempFile;
+        OutputStream out;
+        try {
+            File subDir = getMetaFile(key).getParentFile();
+            subDir.mkdirs();
+            tempFile = File.createTempFile(key, TEMP_SUFFIX, subDir);
+            out = new FileOutputStream(tempFile);
+        } catch (IOException e) {
+            LOG.warn("Cannot create cache file: {}", e.toString());
+            return contentStream;
+        }
+
+        Entry entry = new Entry(version, contentStream.getFileName(), contentStream.getMimeType(), -1, null);
+        InputStream stream = new CachingInputStream(contentStream.getStream(), out, tempFile, key, repositoryId,
+                objectId, streamId, entry, expectedLength);
+
+        return new ContentStreamImpl(contentStream.getFileName(), contentStream.getBigLength(),
+                contentStream.getMimeType(), stream);
+    }
+
+    /**
+     * Removes all versions of a content stream from the cache.
+     */
+    public synchronized void remove(String repositoryId, String objectId, String streamId) {
+        removeEntry(createKey(repositoryId, objectId, streamId));
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        for (String key : new ArrayList<String>(entries.keySet())) {
+            removeEntry(key);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of all cached content streams.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    // --- internals ---
+
+    private synchronized void commit(String key, String repositoryId, String objectId, String streamId,
+            Entry entry, File tempFile) {
+        removeEntry(key);
+
+        Properties meta = new Properties();
+        meta.setProperty(META_REPOSITORY_ID, repositoryId);
+        meta.setProperty(META_OBJECT_ID, objectId);
+        if (streamId != null) {
+            meta.setProperty(META_STREAM_ID, streamId);
+        }
+        meta.setProperty(META_VERSION, entry.version);
+        if (entry.fileName != null) {
+            meta.setProperty(META_FILENAME, entry.fileName);
+        }
+        if (entry.mimeType != null) {
+            meta.setProperty(META_MIMETYPE, entry.mimeType);
+        }
+        meta.setProperty(META_LENGTH, String.valueOf(entry.length));
+
+        // a new file for every entry, the file of the old entry may still be
+        // open
+        String name = tempFile.getName();
+        name = name.substring(0, name.length() - TEMP_SUFFIX.length()) + DATA_SUFFIX;
+        File dataFile = new File(tempFile.getParentFile(), name);
+        meta.setProperty(META_DATA_FILE, dataFile.getName());
+        entry.dataFile = dataFile;
+
+        File metaFile = getMetaFile(key);
+        try {
+            if (!tempFile.renameTo(dataFile)) {
+                throw new IOException("Cannot rename " + tempFile + " to " + dataFile);
+            }
+
+            OutputStream out = new FileOutputStream(metaFile);
+            try {
+                meta.store(out, null);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot add content of {} to the cache: {}", objectId, e.toString());
+            delete(tempFile);
+            delete(dataFile);
+            delete(metaFile);
+            return;
+        }
+
+        // the old meta file has been overwritten
+        undeletedFiles.remove(metaFile);
+
+        entries.put(key, entry);
+        size += entry.length;
+
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+        while (size > maxSize && iter.hasNext()) {
+            Map.Entry<String, Entry> eldest = iter.next();
+            iter.remove();
+            size -= eldest.getValue().length;
+            deleteFiles(eldest.getKey(), eldest.getValue());
+        }
+
+        // files that could not be deleted before
+        for (Iterator<File> fileIter = undeletedFiles.iterator(); fileIter.hasNext();) {
+            File file = fileIter.next();
+            if (file.delete() || !file.exists()) {
+                fileIter.remove();
+            }
+        }
+    }
+
+    private void removeEntry(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.length;
+            deleteFiles(key, entry);
+        }
+    }
+
+    private void deleteFiles(String key, Entry entry) {
+        // the meta file first, so that a half deleted entry isn't loaded again
+        delete(getMetaFile(key));
+
+        // the content file is deleted when the last reader is done
+        entry.removed = true;
+        if (entry.readers == 0) {
+            delete(entry.dataFile);
+        }
+    }
+
+    /**
+     * Called when a stream of a cache entry has been closed.
+     */
+    private synchronized void release(Entry entry) {
+        entry.readers--;
+        if (entry.removed && entry.readers == 0) {
+            delete(entry.dataFile);
+        }
+    }
+
+    private void delete(File file) {
+        if (file != null && !file.delete() && file.exists()) {
+            LOG.warn("Cannot delete cache file {}, trying again later", file);
+            undeletedFiles.add(file);
+        }
+    }
+
+    private void load() {
+        List<File> metaFiles = new ArrayList<File>();
+        Set<File> dataFiles = new HashSet<File>();
+        File[] subDirs = directory.listFiles();
+        if (subDirs == null) {
+            return;
+        }
+
+        for (File subDir : subDirs) {
+            File[] files = subDir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(META_SUFFIX)) {
+                    metaFiles.add(file);
+                } else if (file.getName().endsWith(DATA_SUFFIX)) {
+                    dataFiles.add(file);
+                } else if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    // left over from an interrupted download
+                    delete(file);
+                }
+            }
+        }
+
+        // least recently used first
+        Collections.sort(metaFiles, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                long l1 = f1.lastModified();
+                long l2 = f2.lastModified();
+                return (l1 < l2 ? -1 : (l1 == l2 ? 0 : 1));
+            }
+        });
+
+        synchronized (this) {
+            for (File metaFile : metaFiles) {
+                String name = metaFile.getName();
+                String key = name.substring(0, name.length() - META_SUFFIX.length());
+                try {
+                    Properties meta = new Properties();
+                    InputStream in = new FileInputStream(metaFile);
+                    try {
+                        meta.load(in);
+                    } finally {
+                        in.close();
+                    }
+
+                    File dataFile = new File(metaFile.getParentFile(), meta.getProperty(META_DATA_FILE, key
+                            + DATA_SUFFIX));
+                    Entry entry = new Entry(meta.getProperty(META_VERSION), meta.getProperty(META_FILENAME),
+                            meta.getProperty(META_MIMETYPE), Long.parseLong(meta.getProperty(META_LENGTH)), dataFile);
+                    if (entry.version == null || dataFile.length() != entry.length) {
+                        throw new IOException("Invalid cache entry");
+                    }
+
+                    entries.put(key, entry);
+                    size += entry.length;
+                    dataFiles.remove(dataFile);
+                } catch (Exception e) {
+                    delete(metaFile);
+                }
+            }
+
+            // content files of entries that have been removed while they
+            // were read, or of invalid entries
+            for (File dataFile : dataFiles) {
+                delete(dataFile);
+            }
+
+            evict();
+        }
+    }
+
+    private File getMetaFile(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key + META_SUFFIX);
+    }
+
+    private static String createKey(String repositoryId, String objectId, String streamId) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(repositoryId.getBytes("UTF-8"));
+            md.update((byte) 0);
+            md.update(objectId.getBytes("UTF-8"));
+            md.update((byte) 0);
+            if (streamId != null) {
+                md.update(streamId.getBytes("UTF-8"));
+            }
+
+            byte[] digest = md.digest();
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0x0f, 16));
+                sb.append(Character.forDigit(b & 0x0f, 16));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            // SHA-1 and UTF-8 are always available
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        final String version;
+        final String fileName;
+        final String mimeType;
+        long length;
+        File dataFile;
+        int readers;
+        boolean removed;
+
+        Entry(String version, String fileName, String mimeType, long length, File dataFile) {
+            this.version = version;
+            this.fileName = fileName;
+            this.mimeType = mimeType;
+            this.length = length;
+            this.dataFile = dataFile;
+        }
+    }
+
+    /**
+     * Reads the content file of an entry and releases it when it is closed.
+     */
+    private class ReaderInputStream extends FilterInputStream {
+        private final Entry entry;
+        private boolean closed;
+
+        ReaderInputStream(InputStream in, Entry entry) {
+            super(in);
+            this.entry = entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                super.close();
+            } finally {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * Copies everything that is read to the cache file.
+     */
+    private class CachingInputStream extends FilterInputStream {
+        private final OutputStream out;
+        private final File tempFile;
+        private final String key;
+        private final String repositoryId;
+        private final String objectId;
+        private final String streamId;
+        private final Entry entry;
+        private final long expectedLength;
+        private long count;
+        private boolean eof;
+        private boolean failed;
+        private boolean closed;
+
+        CachingInputStream(InputStream in, OutputStream out, File tempFile, String key, String repositoryId,
+                String objectId, String streamId, Entry entry, long expectedLength) {
+            super(in);
+            this.out = out;
+            this.tempFile = tempFile;
+            this.key = key;
+            this.repositoryId = repositoryId;
+            this.objectId = objectId;
+            this.streamId = streamId;
+            this.entry = entry;
+            this.expectedLength = expectedLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                eof = true;
+            } else {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int r = super.read(b, off, len);
+            if (r == -1) {
+                eof = true;
+            } else {
+                write(b, off, r);
+            }
+            return r;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes are not cached
+            failed = true;
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (failed) {
+                return;
+            }
+
+            try {
+                out.write(b, off, len);
+                count += len;
+                if (count > maxSize) {
+                    failed = true;
+                }
+            } catch (IOException e) {
+                failed = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                super.close();
+            } finally {
+                IOUtils.closeQuietly(out);
+
+                if (eof && !failed && (expectedLength < 0 || expectedLength == count)) {
+                    entry.length = count;
+                    commit(key, repositoryId, objectId, streamId, entry, tempFile);
+                } else if (!tempFile.delete()) {
+                    LOG.warn("Cannot delete cache file {}", tempFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream that ends after a number of bytes.
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int r = super.read(b, off, (int) Math.min(len, remaining));
+            if (r > 0) {
+                remaining -= r;
+            }
+            return r;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long s = super.skip(Math.min(n, remaining));
+            remaining -= s;
+            return s;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.util.Collection;
+
+/**
+ * A {@link Cache} that can remove changed objects together with their path
+ * entries.
+ * <p>
+ * Caches that don't implement this interface are invalidated with
+ * {@link Cache#remove(String)}.
+ */
+public interface InvalidatableCache extends Cache {
+
+    /**
+     * Removes the given objects, all paths that point to them and, for
+     * folders, all paths below their paths.
+     */
+    void invalidate(Collection<String> objectIds);
+}
@@ -0,0 +1,702 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+
+/**
+ * Transfers large content streams in chunks.
+ * <p>
+ * Downloads are split into ranges that are fetched with several concurrent
+ * requests and written to the target file at their positions. If the
+ * repository doesn't support ranges, the content is downloaded with a single
+ * request.
+ * <p>
+ * Uploads are split into chunks. The first chunk is sent with
+ * {@code setContentStream}, all other chunks with
+ * {@code appendContentStream}. The chunks of a document have to be sent one
+ * after the other, but the next chunks are read from the source while the
+ * current chunk is being sent.
+ * <p>
+ * Failed chunks are retried. A download continues at the last byte that has
+ * been written. An upload checks the content length of the document to find
+ * out whether a failed chunk has been stored before it sends the chunk again.
+ * <p>
+ * Instances can be shared across threads if the settings are not changed
+ * while transfers are running.
+ */
+public class ContentTransferManager {
+
+    /** Default number of concurrent connections per download. */
+    public static final int DEFAULT_CONNECTIONS = 4;
+
+    /** Default chunk size (8 MiB). */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final Session session;
+    private final int connections;
+    private final int chunkSize;
+    private int readAhead = 2;
+    private int maxRetries = 3;
+    private String digestAlgorithm = "SHA-256";
+    private ProgressListener progressListener;
+
+    /**
+     * Receives progress updates of a transfer. Downloads call the listener
+     * from several threads.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called whenever bytes have been transferred.
+         *
+         * @param transferredBytes
+         *            the number of bytes transferred so far
+         * @param totalBytes
+         *            the total number of bytes or -1 if unknown
+         */
+        void progress(long transferredBytes, long totalBytes);
+    }
+
+    /**
+     * The result of a transfer.
+     */
+    public static class TransferResult {
+        private final Document document;
+        private final long length;
+        private final String digest;
+
+        public TransferResult(Document document, long length, String digest) {
+            this.document = document;
+            this.length = length;
+            this.digest = digest;
+        }
+
+        /**
+         * Returns the document. After an upload this might be a new version
+         * of the original document.
+         */
+        public Document getDocument() {
+            return document;
+        }
+
+        /**
+         * Returns the number of transferred bytes.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the hex encoded digest of the content or {@code null} if no
+         * digest algorithm is set.
+         */
+        public String getDigest() {
+            return digest;
+        }
+    }
+
+    /**
+     * Creates a transfer manager with the default number of connections and
+     * the default chunk size.
+     */
+    public ContentTransferManager(Session session) {
+        this(session, DEFAULT_CONNECTIONS, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a transfer manager.
+     *
+     * @param session
+     *            the session, used to fetch new versions of a document
+     * @param connections
+     *            the number of concurrent requests per download
+     * @param chunkSize
+     *            the size of a download range and of an upload chunk
+     */
+    public ContentTransferManager(Session session, int connections, int chunkSize) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("Number of connections must be greater than 0!");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0!");
+        }
+
+        this.session = session;
+        this.connections = connections;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the number of upload chunks that are read ahead.
+     */
+    public void setReadAhead(int readAhead) {
+        if (readAhead < 1) {
+            throw new IllegalArgumentException("Read ahead must be greater than 0!");
+        }
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Sets how often a failed chunk is retried.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must not be negative!");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the digest algorithm, for example "SHA-256" or "MD5".
+     * {@code null} turns off digest calculation.
+     */
+    public void setDigestAlgorithm(String digestAlgorithm) {
+        if (digestAlgorithm != null) {
+            createDigest(digestAlgorithm);
+        }
+        this.digestAlgorithm = digestAlgorithm;
+    }
+
+    /**
+     * Sets the progress listener.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // --- download ---
+
+    /**
+     * Downloads the content of a document into a file.
+     */
+    public TransferResult download(Document document, File file) throws IOException {
+        return download(document, file, null);
+    }
+
+    /**
+     * Downloads the content of a document into a file and compares the
+     * digest of the file with the expected digest.
+     *
+     * @param expectedDigest
+     *            the hex encoded expected digest or {@code null}
+     *
+     * @throws CmisRuntimeException
+     *             if the digests don't match
+     */
+    public TransferResult download(Document document, File file, String expectedDigest) throws IOException {
+        if (document == null) {
+            throw new IllegalArgumentException("Document must be set!");
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("File must be set!");
+        }
+
+        long length = document.getContentStreamLength();
+        Progress progress = new Progress(length);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+
+            boolean done = false;
+            if (length > chunkSize && connections > 1) {
+                raf.setLength(length);
+                done = downloadRanges(document, channel, length, progress);
+                if (!done) {
+                    // the repository doesn't support ranges
+                    channel.truncate(0);
+                    progress.reset();
+                }
+            }
+
+            if (!done) {
+                long written = downloadRange(document, channel, 0, length < 0 ? Long.MAX_VALUE : length, false,
+                        progress);
+                if (length >= 0 && written != length) {
+                    throw new CmisRuntimeException("Content length mismatch! Expected " + length + " bytes, got "
+                            + written + " bytes.");
+                }
+                length = written;
+            }
+
+            String digest = null;
+            if (digestAlgorithm != null) {
+                digest = digest(channel, length);
+                checkDigest(expectedDigest, digest);
+            }
+
+            return new TransferResult(document, length, digest);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private boolean downloadRanges(final Document document, final FileChannel channel, final long length,
+            final Progress progress) throws IOException {
+        final long chunks = (length + chunkSize - 1) / chunkSize;
+        final AtomicLong nextChunk = new AtomicLong();
+
+        ExecutorService executor = createExecutor(connections);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < Math.min(connections, chunks); i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws IOException {
+                        long chunk;
+                        while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                            long start = chunk * chunkSize;
+                            long end = Math.min(start + chunkSize, length);
+                            long written = downloadRange(document, channel, start, end, true, progress);
+                            if (start + written != end) {
+                                throw new CmisRuntimeException("Range " + start + "-" + end + " is incomplete!");
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // stop the other workers
+                    nextChunk.set(chunks);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RangesNotSupportedException) {
+                        waitForAll(futures);
+                        return false;
+                    }
+                    waitForAll(futures);
+                    throwCause(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new CmisRuntimeException("Download has been interrupted!", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return true;
+    }
+
+    /**
+     * Downloads the range [start, end) and writes it to the channel. Retries
+     * from the last written byte if the connection fails.
+     *
+     * @return the number of bytes written
+     */
+    private long downloadRange(Document document, FileChannel channel, long start, long end,
+            boolean rangesRequired, Progress progress) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long pos = start;
+        int failures = 0;
+
+        while (pos < end) {
+            BigInteger offset = (pos == 0 ? null : BigInteger.valueOf(pos));
+            BigInteger length = (end == Long.MAX_VALUE ? null : BigInteger.valueOf(end - pos));
+
+            InputStream stream = null;
+            long before = pos;
+            try {
+                ContentStream contentStream = document.getContentStream(offset, length);
+                if (contentStream == null || contentStream.getStream() == null) {
+                    throw new CmisRuntimeException("Document has no content!");
+                }
+                stream = contentStream.getStream();
+
+                if (pos > 0 && !(contentStream instanceof PartialContentStream)) {
+                    // the repository ignored the range
+                    if (rangesRequired) {
+                        throw new RangesNotSupportedException();
+                    }
+                    skipFully(stream, pos);
+                }
+
+                while (pos < end) {
+                    int b = stream.read(buffer, 0, (int) Math.min(buffer.length, end - pos));
+                    if (b == -1) {
+                        break;
+                    }
+
+                    ByteBuffer bb = ByteBuffer.wrap(buffer, 0, b);
+                    while (bb.hasRemaining()) {
+                        pos += channel.write(bb, pos);
+                    }
+                    progress.add(b);
+                }
+
+                if (pos < end && end != Long.MAX_VALUE) {
+                    throw new IOException("Unexpected end of stream at byte " + pos + "!");
+                }
+
+                return pos - start;
+            } catch (RangesNotSupportedException e) {
+                throw e;
+            } catch (IOException e) {
+                failures = (pos > before ? 1 : failures + 1);
+                if (failures > maxRetries) {
+                    throw e;
+                }
+            } catch (CmisConnectionException e) {
+                failures = (pos > before ? 1 : failures + 1);
+                if (failures > maxRetries) {
+                    throw e;
+                }
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+        }
+
+        return pos - start;
+    }
+
+    // --- upload ---
+
+    /**
+     * Uploads a stream as the new content of a document.
+     *
+     * @param document
+     *            the document
+     * @param stream
+     *            the content, the stream is not closed by this method
+     * @param filename
+     *            the file name
+     * @param mimeType
+     *            the MIME type
+     */
+    public TransferResult upload(Document document, final InputStream stream, String filename, String mimeType)
+            throws IOException {
+        if (document == null) {
+            throw new IllegalArgumentException("Document must be set!");
+        }
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream must be set!");
+        }
+
+        final MessageDigest md = (digestAlgorithm == null ? null : createDigest(digestAlgorithm));
+        final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(readAhead);
+        Progress progress = new Progress(-1);
+
+        ExecutorService reader = createExecutor(1);
+        try {
+            reader.submit(new Runnable() {
+                public void run() {
+                    readChunks(stream, md, queue);
+                }
+            });
+
+            Chunk current = queue.take();
+            long sent = 0;
+            boolean first = true;
+            while (true) {
+                current.check();
+                Chunk next = (current.data.length == 0 ? current : queue.take());
+                next.check();
+                boolean last = (next.data.length == 0);
+
+                document = sendChunk(document, current.data, first, last, sent, filename, mimeType);
+
+                sent += current.data.length;
+                progress.add(current.data.length);
+
+                if (last) {
+                    break;
+                }
+
+                current = next;
+                first = false;
+            }
+
+            // check what the repository has stored
+            document.refresh();
+            long storedLength = document.getContentStreamLength();
+            if (storedLength >= 0 && storedLength != sent) {
+                throw new CmisRuntimeException("Content length mismatch! Sent " + sent + " bytes, the repository has "
+                        + storedLength + " bytes.");
+            }
+
+            return new TransferResult(document, sent, md == null ? null : toHex(md.digest()));
+        } catch (InterruptedException e) {
+            throw new CmisRuntimeException("Upload has been interrupted!", e);
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    private void readChunks(InputStream stream, MessageDigest md, BlockingQueue<Chunk> queue) {
+        try {
+            while (true) {
+                byte[] buffer = new byte[chunkSize];
+                int len = 0;
+                int b;
+                while (len < chunkSize && (b = stream.read(buffer, len, chunkSize - len)) != -1) {
+                    len += b;
+                }
+
+                if (len == 0) {
+                    queue.put(new Chunk(new byte[0], null));
+                    return;
+                }
+
+                if (len < chunkSize) {
+                    byte[] tmp = new byte[len];
+                    System.arraycopy(buffer, 0, tmp, 0, len);
+                    buffer = tmp;
+                }
+
+                if (md != null) {
+                    md.update(buffer);
+                }
+
+                queue.put(new Chunk(buffer, null));
+            }
+        } catch (InterruptedException e) {
+            // the upload has been aborted
+        } catch (Exception e) {
+            try {
+                queue.put(new Chunk(null, e));
+            } catch (InterruptedException ie) {
+                // the upload has been aborted
+            }
+        }
+    }
+
+    private Document sendChunk(Document document, byte[] data, boolean first, boolean last, long offset,
+            String filename, String mimeType) {
+        int failures = 0;
+        while (true) {
+            ContentStream contentStream = new ContentStreamImpl(filename, BigInteger.valueOf(data.length), mimeType,
+                    new ByteArrayInputStream(data));
+            try {
+                ObjectId newId;
+                if (first) {
+                    newId = document.setContentStream(contentStream, true, false);
+                } else {
+                    newId = document.appendContentStream(contentStream, last, false);
+                }
+
+                return getNewVersion(document, newId);
+            } catch (CmisConnectionException e) {
+                if (++failures > maxRetries) {
+                    throw e;
+                }
+
+                if (!first) {
+                    // find out if the chunk has been stored
+                    document.refresh();
+                    long storedLength = document.getContentStreamLength();
+                    if (storedLength == offset + data.length) {
+                        return document;
+                    } else if (storedLength != offset) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    private Document getNewVersion(Document document, ObjectId newId) {
+        if (newId == null || newId.getId() == null || newId.getId().equals(document.getId()) || session == null) {
+            return document;
+        }
+
+        CmisObject object = session.getObject(newId);
+        if (!(object instanceof Document)) {
+            throw new CmisRuntimeException("Newly created object is not a document! New id: " + newId.getId());
+        }
+
+        return (Document) object;
+    }
+
+    // --- helpers ---
+
+    private String digest(FileChannel channel, long length) throws IOException {
+        MessageDigest md = createDigest(digestAlgorithm);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long pos = 0;
+        while (pos < length) {
+            buffer.clear();
+            int b = channel.read(buffer, pos);
+            if (b == -1) {
+                break;
+            }
+            md.update(buffer.array(), 0, b);
+            pos += b;
+        }
+
+        return toHex(md.digest());
+    }
+
+    private static void checkDigest(String expected, String actual) {
+        if (expected != null && !expected.equalsIgnoreCase(actual)) {
+            throw new CmisRuntimeException("Checksum mismatch! Expected " + expected + ", got " + actual + ".");
+        }
+    }
+
+    private static MessageDigest createDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = "0123456789abcdef".toCharArray();
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(hex[(b >> 4) & 0x0f]);
+            sb.append(hex[b & 0x0f]);
+        }
+        return sb.toString();
+    }
+
+    private static void skipFully(InputStream stream, long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            long skipped = stream.skip(remaining);
+            if (skipped <= 0) {
+                if (stream.read() == -1) {
+                    throw new IOException("Unexpected end of stream!");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void waitForAll(List<Future<Void>> futures) throws InterruptedException {
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // ignore, the first error is reported
+            }
+        }
+    }
+
+    private static void throwCause(Throwable cause) throws IOException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new CmisRuntimeException(cause.getMessage(), cause);
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "opencmis-transfer-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private class Progress {
+        private final AtomicLong transferred = new AtomicLong();
+        private final long total;
+
+        Progress(long total) {
+            this.total = total;
+        }
+
+        void add(long bytes) {
+            long value = transferred.addAndGet(bytes);
+            ProgressListener listener = progressListener;
+            if (listener != null) {
+                listener.progress(value, total);
+            }
+        }
+
+        void reset() {
+            transferred.set(0);
+        }
+    }
+
+    private static class Chunk {
+        final byte[] data;
+        final Exception error;
+
+        Chunk(byte[] data, Exception error) {
+            this.data = data;
+            this.error = error;
+        }
+
+        void check() throws IOException {
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error instanceof CmisBaseException) {
+                throw (CmisBaseException) error;
+            }
+            if (error != null) {
+                throw new CmisRuntimeException("Reading the content failed: " + error.getMessage(), error);
+            }
+        }
+    }
+
+    private static class RangesNotSupportedException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+}
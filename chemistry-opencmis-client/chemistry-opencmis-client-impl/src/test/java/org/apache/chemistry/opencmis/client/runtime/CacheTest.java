@@ -28,12 +28,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
 import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.InvalidatableCache;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.junit.Before;
 import org.junit.Test;
@@ -145,6 +147,32 @@ public class CacheTest {
         }
     }
 
+    @Test
+    public void invalidateTest() {
+        InvalidatableCache cache = (InvalidatableCache) createCache(10, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        cache.putPath("/folder", createCmisObject("folder"), cacheKey);
+        cache.putPath("/folder/doc", createCmisObject("doc"), cacheKey);
+        cache.putPath("/folder2", createCmisObject("folder2"), cacheKey);
+        cache.putPath("/other", createCmisObject("other"), cacheKey);
+
+        cache.invalidate(Arrays.asList("folder", "unknown"));
+
+        // the folder and everything below it are gone
+        assertNull(cache.getById("folder", cacheKey));
+        assertNull(cache.getByPath("/folder", cacheKey));
+        assertNull(cache.getByPath("/folder/doc", cacheKey));
+
+        // the document itself hasn't changed
+        assertNotNull(cache.getById("doc", cacheKey));
+
+        // siblings are not affected
+        assertNotNull(cache.getByPath("/folder2", cacheKey));
+        assertNotNull(cache.getByPath("/other", cacheKey));
+    }
+
     /**
      * Create a Mock for testing Cache is sufficient.
      * 
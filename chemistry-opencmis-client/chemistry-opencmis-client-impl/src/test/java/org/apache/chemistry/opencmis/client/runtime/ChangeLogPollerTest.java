@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ChangeEventInfoDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangeLogPollerTest {
+
+    private static final String CACHE_KEY = "key";
+
+    private Cache cache;
+    private ChangeLogSession session;
+
+    @Before
+    public void setUp() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_SIZE_OBJECTS, "100");
+        parameters.put(SessionParameter.CACHE_TTL_OBJECTS, "3600000");
+
+        cache = new CacheImpl();
+        cache.initialize(null, parameters);
+
+        session = new ChangeLogSession(parameters, cache);
+
+        for (int i = 0; i < 10; i++) {
+            cache.putPath("/doc" + i, new CmisObjectMock("id" + i), CACHE_KEY);
+        }
+    }
+
+    @Test
+    public void testPoll() {
+        // the session has been created after the last change of "id9"
+        session.changes.add("id9");
+        ChangeLogPoller poller = new ChangeLogPoller(session, "1");
+
+        // nothing has changed
+        assertEquals(0, poller.poll(session));
+        assertEquals("1", poller.getChangeLogToken());
+        assertNotNull(cache.getById("id9", CACHE_KEY));
+
+        // four pages of changes, each page repeats the last event of the
+        // previous page
+        session.changes.add("id1");
+        session.changes.add("id2");
+        session.changes.add("id2");
+        session.changes.add("id5");
+        session.pageSize = 2;
+
+        assertEquals(3, poller.poll(session));
+        assertEquals("5", poller.getChangeLogToken());
+
+        assertNull(cache.getById("id1", CACHE_KEY));
+        assertNull(cache.getById("id2", CACHE_KEY));
+        assertNull(cache.getById("id5", CACHE_KEY));
+        assertNull(cache.getByPath("/doc1", CACHE_KEY));
+        assertNotNull(cache.getById("id3", CACHE_KEY));
+        assertNotNull(cache.getByPath("/doc3", CACHE_KEY));
+        assertNotNull(cache.getById("id9", CACHE_KEY));
+
+        // no new changes
+        assertEquals(0, poller.poll(session));
+        assertEquals("5", poller.getChangeLogToken());
+    }
+
+    @Test
+    public void testIdlePoll() {
+        session.changes.add("id1");
+        session.changes.add("id2");
+        ChangeLogPoller poller = new ChangeLogPoller(session, "2");
+
+        // the last seen event comes back first but is not a new change
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, poller.poll(session));
+            assertEquals("2", poller.getChangeLogToken());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.getById("id" + i, CACHE_KEY));
+        }
+    }
+
+    @Test
+    public void testInvalidToken() {
+        ChangeLogPoller poller = new ChangeLogPoller(session, "0");
+
+        session.changes.add("id1");
+        session.rejectToken = true;
+
+        assertEquals(-1, poller.poll(session));
+        assertEquals("latest", poller.getChangeLogToken());
+
+        // we don't know what has changed, so everything is gone
+        for (int i = 0; i < 10; i++) {
+            assertNull(cache.getById("id" + i, CACHE_KEY));
+        }
+    }
+
+    /**
+     * Session with a simulated change log.
+     */
+    private static class ChangeLogSession extends SessionImpl {
+        private static final long serialVersionUID = 1L;
+
+        final List<String> changes = new ArrayList<String>();
+        int pageSize = ChangeLogPoller.MAX_ITEMS;
+        boolean rejectToken = false;
+
+        private final CmisBinding binding;
+
+        ChangeLogSession(Map<String, String> parameters, Cache cache) {
+            super(parameters, null, null, cache);
+
+            final DiscoveryService discoveryService = (DiscoveryService) Proxy.newProxyInstance(getClass()
+                    .getClassLoader(), new Class<?>[] { DiscoveryService.class }, new InvocationHandler() {
+                @SuppressWarnings("unchecked")
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (method.getName().equals("getContentChanges")) {
+                        return getContentChanges((Holder<String>) args[1]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+            binding = (CmisBinding) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { CmisBinding.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (method.getName().equals("getDiscoveryService")) {
+                                return discoveryService;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        private ObjectListImpl getContentChanges(Holder<String> changeLogToken) {
+            if (rejectToken) {
+                throw new CmisConstraintException("Invalid change log token!");
+            }
+
+            // the event at index i has the token i + 1, the token of the
+            // request is inclusive
+            int start = Math.max(0, Integer.parseInt(changeLogToken.getValue()) - 1);
+            int end = Math.min(start + pageSize, changes.size());
+
+            List<ObjectData> objects = new ArrayList<ObjectData>();
+            for (int i = start; i < end; i++) {
+                ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
+                changeEventInfo.setChangeType(ChangeType.UPDATED);
+
+                ObjectDataImpl od = new ObjectDataImpl();
+                PropertiesImpl properties = new PropertiesImpl();
+                properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, changes.get(i)));
+                od.setProperties(properties);
+                od.setChangeEventInfo(changeEventInfo);
+                objects.add(od);
+            }
+
+            if (end > start) {
+                changeLogToken.setValue(String.valueOf(end));
+            }
+
+            ObjectListImpl result = new ObjectListImpl();
+            result.setObjects(objects);
+            result.setHasMoreItems(end < changes.size());
+            result.setNumItems(BigInteger.valueOf(changes.size()));
+
+            return result;
+        }
+
+        @Override
+        public CmisBinding getBinding() {
+            return binding;
+        }
+
+        @Override
+        public String getRepositoryId() {
+            return "repo";
+        }
+
+        @Override
+        public String getLatestChangeLogToken() {
+            return "latest";
+        }
+    }
+}
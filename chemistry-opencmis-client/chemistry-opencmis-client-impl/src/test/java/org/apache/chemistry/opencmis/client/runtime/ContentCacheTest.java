@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+
+import org.apache.chemistry.opencmis.client.runtime.cache.ContentCache;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentCacheTest {
+
+    private static final String REPO = "repo";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("opencmis-content-cache", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    @Test
+    public void testReadThrough() throws Exception {
+        ContentCache cache = new ContentCache(directory, 1000);
+        byte[] content = createContent(100, 1);
+
+        assertNull(cache.get(REPO, "doc1", null, "v1", null, null));
+
+        // the entry is created when the stream has been read
+        ContentStream cs = cache.put(REPO, "doc1", null, "v1", createContentStream(content));
+        assertEquals(0, cache.getEntryCount());
+        assertArrayEquals(content, read(cs));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(100, cache.getSize());
+
+        // same version
+        ContentStream cached = cache.get(REPO, "doc1", null, "v1", null, null);
+        assertNotNull(cached);
+        assertEquals("test.bin", cached.getFileName());
+        assertEquals("application/octet-stream", cached.getMimeType());
+        assertEquals(100, cached.getLength());
+        assertArrayEquals(content, read(cached));
+
+        // range
+        ContentStream range = cache.get(REPO, "doc1", null, "v1", BigInteger.valueOf(10), BigInteger.valueOf(20));
+        assertTrue(range instanceof PartialContentStream);
+        byte[] expected = new byte[20];
+        System.arraycopy(content, 10, expected, 0, 20);
+        assertArrayEquals(expected, read(range));
+
+        // other stream id
+        assertNull(cache.get(REPO, "doc1", "rendition", "v1", null, null));
+
+        // other version, the entry stays until a new version is downloaded
+        assertNull(cache.get(REPO, "doc1", null, "v2", null, null));
+        assertEquals(1, cache.getEntryCount());
+
+        byte[] newContent = createContent(50, 2);
+        read(cache.put(REPO, "doc1", null, "v2", createContentStream(newContent)));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(50, cache.getSize());
+        assertNull(cache.get(REPO, "doc1", null, "v1", null, null));
+        assertArrayEquals(newContent, read(cache.get(REPO, "doc1", null, "v2", null, null)));
+    }
+
+    @Test
+    public void testReplaceWhileReading() throws Exception {
+        ContentCache cache = new ContentCache(directory, 1000);
+        byte[] content = createContent(100, 1);
+        read(cache.put(REPO, "doc1", null, "v1", createContentStream(content)));
+
+        // a stream that has been handed out keeps its content
+        ContentStream cached = cache.get(REPO, "doc1", null, "v1", null, null);
+        read(cache.put(REPO, "doc1", null, "v2", createContentStream(createContent(100, 2))));
+        cache.clear();
+
+        assertArrayEquals(content, read(cached));
+    }
+
+    @Test
+    public void testDeleteAfterLastReader() throws Exception {
+        ContentCache cache = new ContentCache(directory, 150);
+        byte[] content = createContent(100, 1);
+        read(cache.put(REPO, "doc1", null, "v1", createContentStream(content)));
+
+        ContentStream cached1 = cache.get(REPO, "doc1", null, "v1", null, null);
+        ContentStream cached2 = cache.get(REPO, "doc1", null, "v1", BigInteger.ONE, null);
+
+        // the new version gets its own file, the old one stays while it is
+        // read
+        read(cache.put(REPO, "doc1", null, "v2", createContentStream(createContent(100, 2))));
+        assertEquals(2, countDataFiles());
+
+        // evicted while it is read
+        ContentStream cached3 = cache.get(REPO, "doc1", null, "v2", null, null);
+        read(cache.put(REPO, "doc2", null, "v1", createContentStream(createContent(100, 3))));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(3, countDataFiles());
+
+        assertArrayEquals(content, read(cached1));
+        assertEquals(3, countDataFiles());
+        assertEquals(99, read(cached2).length);
+        assertEquals(2, countDataFiles());
+        assertArrayEquals(createContent(100, 2), read(cached3));
+        assertEquals(1, countDataFiles());
+
+        // closing twice doesn't release twice
+        cached3.getStream().close();
+        assertEquals(1, countDataFiles());
+    }
+
+    @Test
+    public void testOrphanedFiles() throws Exception {
+        ContentCache cache = new ContentCache(directory, 1000);
+        read(cache.put(REPO, "doc1", null, "v1", createContentStream(createContent(100, 1))));
+        ContentStream cached = cache.get(REPO, "doc1", null, "v1", null, null);
+        cache.clear();
+        assertEquals(1, countDataFiles());
+
+        // a content file that hasn't been deleted, for example because the
+        // application ended while it was read, is deleted on the next start
+        new ContentCache(directory, 1000);
+        cached.getStream().close();
+        assertEquals(0, countDataFiles());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSharedInstanceSize() throws Exception {
+        assertSame(ContentCache.getInstance(directory, 1000), ContentCache.getInstance(directory, 1000));
+        ContentCache.getInstance(directory, 2000);
+    }
+
+    @Test
+    public void testIncompleteRead() throws Exception {
+        ContentCache cache = new ContentCache(directory, 1000);
+
+        ContentStream cs = cache.put(REPO, "doc1", null, "v1", createContentStream(createContent(100, 1)));
+        cs.getStream().read(new byte[10]);
+        cs.getStream().close();
+
+        assertEquals(0, cache.getEntryCount());
+        assertNull(cache.get(REPO, "doc1", null, "v1", null, null));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        ContentCache cache = new ContentCache(directory, 250);
+
+        read(cache.put(REPO, "doc1", null, "v1", createContentStream(createContent(100, 1))));
+        read(cache.put(REPO, "doc2", null, "v1", createContentStream(createContent(100, 2))));
+
+        // doc1 is now the most recently used entry
+        read(cache.get(REPO, "doc1", null, "v1", null, null));
+
+        read(cache.put(REPO, "doc3", null, "v1", createContentStream(createContent(100, 3))));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(200, cache.getSize());
+        assertNotNull(cache.get(REPO, "doc1", null, "v1", null, null));
+        assertNull(cache.get(REPO, "doc2", null, "v1", null, null));
+        assertNotNull(cache.get(REPO, "doc3", null, "v1", null, null));
+
+        // too big for the cache
+        read(cache.put(REPO, "doc4", null, "v1", createContentStream(createContent(300, 4))));
+        assertNull(cache.get(REPO, "doc4", null, "v1", null, null));
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        byte[] content = createContent(100, 1);
+        ContentCache cache = new ContentCache(directory, 1000);
+        read(cache.put(REPO, "doc1", null, "v1", createContentStream(content)));
+
+        ContentCache reopened = new ContentCache(directory, 1000);
+        assertEquals(1, reopened.getEntryCount());
+        assertArrayEquals(content, read(reopened.get(REPO, "doc1", null, "v1", null, null)));
+
+        reopened.clear();
+        assertEquals(0, new ContentCache(directory, 1000).getEntryCount());
+    }
+
+    private int countDataFiles() {
+        int count = 0;
+        File[] subDirs = directory.listFiles();
+        for (File subDir : subDirs) {
+            File[] files = subDir.listFiles();
+            for (File file : files) {
+                if (file.getName().endsWith(".bin")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static byte[] createContent(int length, int seed) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * seed);
+        }
+        return content;
+    }
+
+    private static ContentStream createContentStream(byte[] content) {
+        return new ContentStreamImpl("test.bin", BigInteger.valueOf(content.length), "application/octet-stream",
+                new ByteArrayInputStream(content));
+    }
+
+    private static byte[] read(ContentStream cs) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            IOUtils.copy(cs.getStream(), out);
+        } finally {
+            cs.getStream().close();
+        }
+        return out.toByteArray();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
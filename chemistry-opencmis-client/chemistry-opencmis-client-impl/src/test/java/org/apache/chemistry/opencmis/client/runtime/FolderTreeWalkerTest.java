@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.TreeVisitor;
+import org.apache.chemistry.opencmis.client.api.TreeWalk;
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
+import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.junit.Test;
+
+public class FolderTreeWalkerTest {
+
+    private static final int FOLDERS_PER_FOLDER = 4;
+    private static final int DOCUMENTS_PER_FOLDER = 3;
+    private static final int TREE_DEPTH = 4;
+    private static final long PAGE_SIZE = 5;
+
+    private final OperationContext context = new OperationContextImpl();
+
+    @Test
+    public void testFullWalk() throws Exception {
+        for (int parallelism = 1; parallelism <= 8; parallelism *= 2) {
+            final Set<String> names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+            TreeWalk walk = new FolderTreeWalker(-1, parallelism, context, new TreeVisitor() {
+                public boolean visit(FileableCmisObject object, int depth) {
+                    assertEquals(depth, object.getName().split("/").length - 1);
+                    assertTrue("Visited twice: " + object.getName(), names.add(object.getName()));
+                    return true;
+                }
+            }).start(createFolder("", TREE_DEPTH));
+
+            walk.await();
+
+            assertTrue(walk.isDone());
+            assertFalse(walk.isCancelled());
+            assertEquals(countObjects(TREE_DEPTH), names.size());
+            assertEquals(names.size(), walk.getVisitedCount());
+        }
+    }
+
+    @Test
+    public void testDepthAndFilter() throws Exception {
+        final AtomicInteger maxDepth = new AtomicInteger();
+
+        TreeWalk walk = new FolderTreeWalker(2, 4, context, new TreeVisitor() {
+            public boolean visit(FileableCmisObject object, int depth) {
+                synchronized (maxDepth) {
+                    maxDepth.set(Math.max(maxDepth.get(), depth));
+                }
+                // skip all subtrees below folder 0
+                return !object.getName().endsWith("/f0");
+            }
+        }).start(createFolder("", TREE_DEPTH));
+
+        walk.await();
+
+        assertEquals(2, maxDepth.get());
+        int children = FOLDERS_PER_FOLDER + DOCUMENTS_PER_FOLDER;
+        assertEquals(children + (FOLDERS_PER_FOLDER - 1) * children, walk.getVisitedCount());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final TreeWalk[] walk = new TreeWalk[1];
+        final AtomicInteger visited = new AtomicInteger();
+
+        synchronized (walk) {
+            walk[0] = new FolderTreeWalker(-1, 4, context, new TreeVisitor() {
+                public boolean visit(FileableCmisObject object, int depth) {
+                    if (visited.incrementAndGet() == 10) {
+                        synchronized (walk) {
+                            walk[0].cancel();
+                        }
+                    }
+                    return true;
+                }
+            }).start(createFolder("", TREE_DEPTH));
+        }
+
+        assertTrue(walk[0].await(10, TimeUnit.SECONDS));
+        assertTrue(walk[0].isCancelled());
+        assertTrue(walk[0].getVisitedCount() < countObjects(TREE_DEPTH));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final CmisRuntimeException failure = new CmisRuntimeException("test");
+
+        TreeWalk walk = new FolderTreeWalker(-1, 4, context, new TreeVisitor() {
+            public boolean visit(FileableCmisObject object, int depth) {
+                if (depth == 2) {
+                    throw failure;
+                }
+                return true;
+            }
+        }).start(createFolder("", TREE_DEPTH));
+
+        try {
+            walk.await();
+            fail("Exception expected!");
+        } catch (CmisRuntimeException e) {
+            assertSame(failure, e);
+        }
+        assertTrue(walk.isCancelled());
+    }
+
+    @Test
+    public void testDeepTreeOnCurrentThread() throws Exception {
+        final int leafs = 100;
+        final int chainDepth = 20000;
+
+        // one thread and more leaf folders than queue slots, so that the
+        // chain is read by the thread that reads the root folder
+        final List<CmisObject> children = new ArrayList<CmisObject>();
+        for (int i = 0; i < leafs; i++) {
+            children.add(createFolder("/f" + i, 0));
+        }
+        children.add(createChain(chainDepth));
+
+        TreeWalk walk = new FolderTreeWalker(-1, 1, context, new TreeVisitor() {
+            public boolean visit(FileableCmisObject object, int depth) {
+                return true;
+            }
+        }).start(createFolder(children));
+
+        assertTrue(walk.await(60, TimeUnit.SECONDS));
+        assertEquals(leafs + chainDepth, walk.getVisitedCount());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        TreeVisitor visitor = new TreeVisitor() {
+            public boolean visit(FileableCmisObject object, int depth) {
+                return true;
+            }
+        };
+
+        try {
+            new FolderTreeWalker(0, 1, context, visitor);
+            fail("Exception expected!");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            new FolderTreeWalker(-1, 0, context, visitor);
+            fail("Exception expected!");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static long countObjects(int depth) {
+        long count = 0;
+        long folders = 1;
+        for (int i = 0; i < depth; i++) {
+            count += folders * (FOLDERS_PER_FOLDER + DOCUMENTS_PER_FOLDER);
+            folders *= FOLDERS_PER_FOLDER;
+        }
+        return count;
+    }
+
+    /**
+     * Creates a folder mock. Its children are created on demand and are
+     * returned page by page.
+     */
+    private static Folder createFolder(final String path, final int levels) {
+        return (Folder) Proxy.newProxyInstance(FolderTreeWalkerTest.class.getClassLoader(),
+                new Class<?>[] { Folder.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getName")) {
+                            return path;
+                        }
+                        if (method.getName().equals("getChildren")) {
+                            List<CmisObject> children = new ArrayList<CmisObject>();
+                            if (levels > 0) {
+                                for (int i = 0; i < FOLDERS_PER_FOLDER; i++) {
+                                    children.add(createFolder(path + "/f" + i, levels - 1));
+                                }
+                                for (int i = 0; i < DOCUMENTS_PER_FOLDER; i++) {
+                                    children.add(createDocument(path + "/d" + i));
+                                }
+                            }
+                            return createIterable(children);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Creates a chain of folders, each one containing the next.
+     */
+    private static Folder createChain(int levels) {
+        Folder folder = createFolder(Collections.<CmisObject> emptyList());
+        for (int i = 1; i < levels; i++) {
+            folder = createFolder(Collections.<CmisObject> singletonList(folder));
+        }
+        return folder;
+    }
+
+    private static Folder createFolder(final List<CmisObject> children) {
+        return (Folder) Proxy.newProxyInstance(FolderTreeWalkerTest.class.getClassLoader(),
+                new Class<?>[] { Folder.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getChildren")) {
+                            return createIterable(children);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static CollectionIterable<CmisObject> createIterable(final List<CmisObject> children) {
+        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(PAGE_SIZE) {
+            @Override
+            protected Page<CmisObject> fetchPage(long skipCount) {
+                int from = (int) skipCount;
+                int to = (int) Math.min(children.size(), skipCount + maxNumItems);
+                return new Page<CmisObject>(children.subList(from, to), children.size(), to < children.size());
+            }
+        });
+    }
+
+    private static Document createDocument(final String path) {
+        return (Document) Proxy.newProxyInstance(FolderTreeWalkerTest.class.getClassLoader(),
+                new Class<?>[] { Document.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getName")) {
+                            return path;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
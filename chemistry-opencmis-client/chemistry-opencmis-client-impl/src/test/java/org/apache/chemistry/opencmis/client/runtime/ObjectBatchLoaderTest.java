@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.ObjectResult;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
+import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ObjectBatchLoaderTest {
+
+    private MultiGetSession session;
+
+    @Before
+    public void setUp() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_SIZE_OBJECTS, "100");
+        parameters.put(SessionParameter.CACHE_TTL_OBJECTS, "3600000");
+
+        Cache cache = new CacheImpl();
+        cache.initialize(null, parameters);
+
+        session = new MultiGetSession(parameters, cache);
+        for (int i = 0; i < 20; i++) {
+            session.repository.put("id" + i, new CmisObjectMock("id" + i));
+        }
+    }
+
+    @Test
+    public void testFanOut() {
+        OperationContext context = new OperationContextImpl();
+        context.setCacheEnabled(true);
+        session.getCache().put(session.repository.get("id3"), context.getCacheKey());
+
+        List<ObjectResult> results = session.getObjects(ids("id5", "id3", "unknown", "id7", "id5"), context);
+
+        assertEquals(5, results.size());
+        assertEquals("id5", results.get(0).getId());
+        assertEquals("id5", results.get(0).getObject().getId());
+        assertEquals("id3", results.get(1).getObject().getId());
+        assertNull(results.get(2).getObject());
+        assertTrue(results.get(2).getException() instanceof CmisObjectNotFoundException);
+        assertEquals("id7", results.get(3).getObject().getId());
+        assertNull(results.get(3).getException());
+        assertEquals("id5", results.get(4).getObject().getId());
+
+        // id3 came from the cache, id5 has been fetched once
+        assertEquals(3, session.getObjectCalls.get());
+        assertEquals(0, session.queries.size());
+    }
+
+    @Test
+    public void testQuery() {
+        session.queryCapability = CapabilityQuery.METADATAONLY;
+
+        OperationContext context = new OperationContextImpl();
+        context.setCacheEnabled(true);
+        context.setFilterString(PropertyIds.NAME);
+
+        List<String> requested = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            requested.add("id" + i);
+        }
+        requested.add("old-version");
+
+        List<ObjectResult> results = session.getObjects(ids(requested.toArray(new String[0])), context);
+
+        assertEquals(21, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("id" + i, results.get(i).getObject().getId());
+            assertNotNull(session.getCache().getById("id" + i, context.getCacheKey()));
+        }
+
+        // the queries didn't find it, it has been looked up directly
+        assertTrue(results.get(20).getException() instanceof CmisObjectNotFoundException);
+        assertEquals(1, session.getObjectCalls.get());
+        assertEquals(2, session.queries.size());
+        assertTrue(session.queries.get(0).startsWith("cmis:document:cmis:objectId IN ('id0','id1',"));
+    }
+
+    @Test
+    public void testNoQueryForStarFilter() {
+        session.queryCapability = CapabilityQuery.BOTHCOMBINED;
+
+        OperationContext context = new OperationContextImpl();
+        context.setCacheEnabled(true);
+        context.setFilterString("*");
+
+        List<ObjectResult> results = session.getObjects(ids("id1", "id2"), context);
+
+        assertEquals("id1", results.get(0).getObject().getId());
+        assertEquals("id2", results.get(1).getObject().getId());
+        assertEquals(0, session.queries.size());
+        assertEquals(2, session.getObjectCalls.get());
+    }
+
+    private static List<ObjectId> ids(String... ids) {
+        List<ObjectId> result = new ArrayList<ObjectId>();
+        for (String id : ids) {
+            result.add(new ObjectIdImpl(id));
+        }
+        return result;
+    }
+
+    /**
+     * Session with a simulated repository.
+     */
+    private static class MultiGetSession extends SessionImpl {
+        private static final long serialVersionUID = 1L;
+
+        final Map<String, CmisObject> repository = new LinkedHashMap<String, CmisObject>();
+        final AtomicInteger getObjectCalls = new AtomicInteger();
+        final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+        CapabilityQuery queryCapability = CapabilityQuery.NONE;
+
+        MultiGetSession(Map<String, String> parameters, Cache cache) {
+            super(parameters, null, null, cache);
+        }
+
+        @Override
+        public CmisObject getObject(String objectId, OperationContext context) {
+            CmisObject result = getCache().getById(objectId, context.getCacheKey());
+            if (result != null) {
+                return result;
+            }
+
+            getObjectCalls.incrementAndGet();
+
+            result = repository.get(objectId);
+            if (result == null) {
+                throw new CmisObjectNotFoundException("Object not found: " + objectId);
+            }
+
+            return result;
+        }
+
+        @Override
+        public RepositoryInfo getRepositoryInfo() {
+            RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setCapabilityQuery(queryCapability);
+
+            RepositoryInfoImpl repositoryInfo = new RepositoryInfoImpl();
+            repositoryInfo.setId("repo");
+            repositoryInfo.setCapabilities(capabilities);
+
+            return repositoryInfo;
+        }
+
+        @Override
+        public ObjectType getTypeDefinition(final String typeId) {
+            final Map<String, PropertyDefinition<?>> propertyDefinitions = new HashMap<String, PropertyDefinition<?>>();
+            for (String propertyId : Arrays.asList(PropertyIds.OBJECT_ID, PropertyIds.BASE_TYPE_ID,
+                    PropertyIds.OBJECT_TYPE_ID, PropertyIds.NAME)) {
+                PropertyIdDefinitionImpl propDef = new PropertyIdDefinitionImpl();
+                propDef.setId(propertyId);
+                propDef.setQueryName(propertyId);
+                propDef.setIsQueryable(Boolean.TRUE);
+                propertyDefinitions.put(propertyId, propDef);
+            }
+
+            return (ObjectType) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { ObjectType.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (method.getName().equals("isQueryable")) {
+                                return Boolean.TRUE;
+                            } else if (method.getName().equals("getPropertyDefinitions")) {
+                                return propertyDefinitions;
+                            } else if (method.getName().equals("getId")) {
+                                return typeId;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        @Override
+        public ItemIterable<CmisObject> queryObjects(String typeId, String where, boolean searchAllVersions,
+                OperationContext context) {
+            queries.add(typeId + ":" + where);
+
+            final List<CmisObject> hits = new ArrayList<CmisObject>();
+            if (typeId.equals("cmis:document")) {
+                for (Map.Entry<String, CmisObject> entry : repository.entrySet()) {
+                    if (where.contains("'" + entry.getKey() + "'")) {
+                        hits.add(entry.getValue());
+                    }
+                }
+            }
+
+            return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(100) {
+                @Override
+                protected Page<CmisObject> fetchPage(long skipCount) {
+                    return new Page<CmisObject>(hits, hits.size(), false);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.runtime.objecttype.DocumentTypeImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the immutable object state of client objects. Getter throughput is
+ * measured by {@code ObjectStateBenchmark} in the benchmarks module.
+ */
+public class ObjectStateTest {
+
+    private static final String[] ID_PROPERTIES = { PropertyIds.OBJECT_ID, PropertyIds.OBJECT_TYPE_ID,
+            PropertyIds.BASE_TYPE_ID, PropertyIds.VERSION_SERIES_ID };
+    private static final String[] STRING_PROPERTIES = { PropertyIds.NAME, PropertyIds.DESCRIPTION,
+            PropertyIds.CREATED_BY, PropertyIds.LAST_MODIFIED_BY, PropertyIds.CHANGE_TOKEN, "test:a", "test:b",
+            "test:c", "test:d", "test:e", "test:f", "test:g", "test:h", "test:i", "test:j", "test:k" };
+
+    private static final int OBJECTS = 1000;
+
+    private SessionImpl session;
+    private ObjectType type;
+
+    @Before
+    public void setUp() {
+        session = new SessionImpl(new HashMap<String, String>(), null, null, null);
+
+        DocumentTypeDefinitionImpl typeDef = new DocumentTypeDefinitionImpl();
+        typeDef.setId("test:document");
+        typeDef.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+        for (String id : ID_PROPERTIES) {
+            PropertyIdDefinitionImpl propDef = new PropertyIdDefinitionImpl();
+            propDef.setPropertyType(PropertyType.ID);
+            typeDef.addPropertyDefinition(initDefinition(propDef, id));
+        }
+        for (String id : STRING_PROPERTIES) {
+            PropertyStringDefinitionImpl propDef = new PropertyStringDefinitionImpl();
+            propDef.setPropertyType(PropertyType.STRING);
+            typeDef.addPropertyDefinition(initDefinition(propDef, id));
+        }
+
+        type = new DocumentTypeImpl(session, typeDef);
+    }
+
+    @Test
+    public void testPropertyLookup() {
+        DocumentImpl doc = createDocument("1");
+
+        assertEquals("1", doc.getId());
+        assertEquals("Document 1", doc.getName());
+        assertEquals("value-test:k", doc.getPropertyValue("test:k"));
+        assertNull(doc.getProperty("unknown"));
+        assertNull(doc.getPropertyValue(null));
+
+        // properties are ordered by the type definition, not by the order the
+        // repository sent them
+        List<Property<?>> properties = doc.getProperties();
+        assertEquals(ID_PROPERTIES.length + STRING_PROPERTIES.length, properties.size());
+        int pos = 0;
+        for (String id : type.getPropertyDefinitions().keySet()) {
+            assertEquals(id, properties.get(pos++).getId());
+        }
+
+        try {
+            properties.remove(0);
+            fail("Property list must not be modifiable!");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSnapshotSwap() {
+        DocumentImpl doc = createDocument("1");
+        ObjectState before = doc.getState();
+        Property<?> name = doc.getProperty(PropertyIds.NAME);
+
+        doc.initialize(session, type, createObjectData("1"), session.getDefaultContext());
+
+        assertNotSame(before, doc.getState());
+        assertNotSame(name, doc.getProperty(PropertyIds.NAME));
+        // the old snapshot is untouched
+        assertSame(name, before.getProperty(PropertyIds.NAME));
+    }
+
+    @Test
+    public void testManyObjects() {
+        List<DocumentImpl> docs = new ArrayList<DocumentImpl>(OBJECTS);
+        for (int i = 0; i < OBJECTS; i++) {
+            docs.add(createDocument(String.valueOf(i)));
+        }
+
+        for (int i = 0; i < OBJECTS; i++) {
+            DocumentImpl doc = docs.get(i);
+            assertEquals(String.valueOf(i), doc.getPropertyValue(PropertyIds.OBJECT_ID));
+            assertEquals("vs" + i, doc.getPropertyValue(PropertyIds.VERSION_SERIES_ID));
+            assertEquals("Document " + i, doc.getPropertyValue(PropertyIds.NAME));
+            for (String id : STRING_PROPERTIES) {
+                assertNotNull(doc.getPropertyValue(id));
+            }
+        }
+
+        // objects created from equal data don't share their state
+        assertNotSame(docs.get(0).getState(), createDocument("0").getState());
+    }
+
+    private DocumentImpl createDocument(String id) {
+        return new DocumentImpl(session, type, createObjectData(id), session.getDefaultContext());
+    }
+
+    private static ObjectData createObjectData(String id) {
+        PropertiesImpl properties = new PropertiesImpl();
+        // reverse order
+        for (int i = STRING_PROPERTIES.length - 1; i >= 0; i--) {
+            String propId = STRING_PROPERTIES[i];
+            properties.addProperty(new PropertyStringImpl(propId, PropertyIds.NAME.equals(propId) ? "Document " + id
+                    : "value-" + propId));
+        }
+        properties.addProperty(new PropertyIdImpl(PropertyIds.VERSION_SERIES_ID, "vs" + id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, "test:document"));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+
+        ObjectDataImpl objectData = new ObjectDataImpl();
+        objectData.setProperties(properties);
+        return objectData;
+    }
+
+    private static AbstractPropertyDefinition<?> initDefinition(AbstractPropertyDefinition<?> propDef, String id) {
+        propDef.setId(id);
+        propDef.setLocalName(id);
+        propDef.setQueryName(id);
+        propDef.setCardinality(Cardinality.SINGLE);
+        propDef.setUpdatability(Updatability.READWRITE);
+        return propDef;
+    }
+}
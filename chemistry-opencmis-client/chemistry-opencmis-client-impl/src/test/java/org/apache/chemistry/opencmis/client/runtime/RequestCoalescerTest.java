@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+    private static final int THREADS = 8;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        final RequestCoalescer<Object> coalescer = new RequestCoalescer<Object>();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final RequestCoalescer.Call<Object> call = new RequestCoalescer.Call<Object>() {
+            public Object call() {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Object();
+            }
+        };
+
+        List<Future<Object>> results = new ArrayList<Future<Object>>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<Object>() {
+                public Object call() {
+                    return coalescer.execute("key", call);
+                }
+            }));
+        }
+
+        // wait until all threads have joined the running call
+        long deadline = System.currentTimeMillis() + 10000;
+        while (coalescer.getCoalescedCount() < THREADS - 1) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        Object first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<Object> result : results) {
+            assertSame(first, result.get(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(THREADS, coalescer.getRequestCount());
+        assertEquals(THREADS - 1, coalescer.getCoalescedCount());
+        assertEquals(0, coalescer.getRunningCount());
+
+        // the next request makes a new call
+        coalescer.execute("key", call);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testDifferentKeys() {
+        RequestCoalescer<String> coalescer = new RequestCoalescer<String>();
+
+        assertEquals("a", coalescer.execute("a", constant("a")));
+        assertEquals("b", coalescer.execute("b", constant("b")));
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testException() throws Exception {
+        final RequestCoalescer<Object> coalescer = new RequestCoalescer<Object>();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final RequestCoalescer.Call<Object> call = new RequestCoalescer.Call<Object>() {
+            public Object call() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new CmisObjectNotFoundException("not found");
+            }
+        };
+
+        List<Future<Object>> results = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 2; i++) {
+            results.add(executor.submit(new Callable<Object>() {
+                public Object call() {
+                    return coalescer.execute("key", call);
+                }
+            }));
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (coalescer.getCoalescedCount() < 1) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("Exception expected!");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CmisObjectNotFoundException);
+            }
+        }
+
+        assertEquals(0, coalescer.getRunningCount());
+    }
+
+    private static RequestCoalescer.Call<String> constant(final String value) {
+        return new RequestCoalescer.Call<String>() {
+            public String call() {
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.util.ContentTransferManager.TransferResult;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentTransferManagerTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private byte[] content;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[10 * CHUNK_SIZE + 123];
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("opencmis-transfer", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testParallelDownload() throws Exception {
+        RepositoryDocument repoDoc = new RepositoryDocument(content, true);
+        repoDoc.failingReads.set(3);
+
+        ContentTransferManager manager = new ContentTransferManager(null, 4, CHUNK_SIZE);
+        final AtomicLong progress = new AtomicLong();
+        manager.setProgressListener(new ContentTransferManager.ProgressListener() {
+            public void progress(long transferredBytes, long totalBytes) {
+                assertEquals(content.length, totalBytes);
+                synchronized (progress) {
+                    progress.set(Math.max(progress.get(), transferredBytes));
+                }
+            }
+        });
+
+        TransferResult result = manager.download(repoDoc.proxy, file, sha256(content));
+
+        assertEquals(content.length, result.getLength());
+        assertArrayEquals(content, readFile());
+        assertEquals(content.length, progress.get());
+        assertTrue(repoDoc.requests.get() > 11);
+    }
+
+    @Test
+    public void testDownloadWithoutRanges() throws Exception {
+        RepositoryDocument repoDoc = new RepositoryDocument(content, false);
+
+        TransferResult result = new ContentTransferManager(null, 4, CHUNK_SIZE).download(repoDoc.proxy, file);
+
+        assertEquals(sha256(content), result.getDigest());
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void testDownloadChecksumMismatch() throws Exception {
+        RepositoryDocument repoDoc = new RepositoryDocument(content, true);
+
+        try {
+            new ContentTransferManager(null, 4, CHUNK_SIZE).download(repoDoc.proxy, file, "00");
+            fail("Exception expected!");
+        } catch (CmisRuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Checksum mismatch"));
+        }
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        RepositoryDocument repoDoc = new RepositoryDocument(new byte[0], true);
+        // the connection breaks after the third chunk has been stored
+        repoDoc.failAfterAppend.set(3);
+
+        ContentTransferManager manager = new ContentTransferManager(null, 4, CHUNK_SIZE);
+        manager.setReadAhead(3);
+        TransferResult result = manager.upload(repoDoc.proxy, new ByteArrayInputStream(content), "test.bin",
+                "application/octet-stream");
+
+        assertEquals(content.length, result.getLength());
+        assertEquals(sha256(content), result.getDigest());
+        assertArrayEquals(content, repoDoc.content);
+        assertEquals(Boolean.TRUE, repoDoc.lastChunkFlags.get(repoDoc.lastChunkFlags.size() - 1));
+        assertEquals(11, repoDoc.lastChunkFlags.size());
+    }
+
+    @Test
+    public void testUploadEmptyStream() throws Exception {
+        RepositoryDocument repoDoc = new RepositoryDocument(content, true);
+
+        TransferResult result = new ContentTransferManager(null, 4, CHUNK_SIZE).upload(repoDoc.proxy,
+                new ByteArrayInputStream(new byte[0]), "test.bin", "application/octet-stream");
+
+        assertEquals(0, result.getLength());
+        assertEquals(0, repoDoc.content.length);
+    }
+
+    private byte[] readFile() throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copy(in, out);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Simulates the content of a document in a repository.
+     */
+    private static class RepositoryDocument implements InvocationHandler {
+        final Document proxy;
+        final boolean supportsRanges;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger failingReads = new AtomicInteger();
+        final AtomicInteger failAfterAppend = new AtomicInteger(-1);
+        final List<Boolean> lastChunkFlags = new ArrayList<Boolean>();
+        volatile byte[] content;
+
+        RepositoryDocument(byte[] content, boolean supportsRanges) {
+            this.content = content;
+            this.supportsRanges = supportsRanges;
+            this.proxy = (Document) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Document.class }, this);
+        }
+
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getId")) {
+                return "doc";
+            } else if (name.equals("refresh")) {
+                return null;
+            } else if (name.equals("getContentStreamLength")) {
+                return Long.valueOf(content.length);
+            } else if (name.equals("getContentStream") && args.length == 2) {
+                return getContentStream((BigInteger) args[0], (BigInteger) args[1]);
+            } else if (name.equals("setContentStream")) {
+                synchronized (this) {
+                    content = read((ContentStream) args[0]);
+                    lastChunkFlags.add(Boolean.FALSE);
+                }
+                return null;
+            } else if (name.equals("appendContentStream")) {
+                synchronized (this) {
+                    byte[] chunk = read((ContentStream) args[0]);
+                    byte[] newContent = new byte[content.length + chunk.length];
+                    System.arraycopy(content, 0, newContent, 0, content.length);
+                    System.arraycopy(chunk, 0, newContent, content.length, chunk.length);
+                    content = newContent;
+                    lastChunkFlags.add((Boolean) args[1]);
+                }
+                if (failAfterAppend.decrementAndGet() == 0) {
+                    throw new CmisConnectionException("Connection reset");
+                }
+                return null;
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+        private ContentStream getContentStream(BigInteger offset, BigInteger length) {
+            requests.incrementAndGet();
+
+            if (!supportsRanges || (offset == null && length == null)) {
+                return new ContentStreamImpl("test.bin", BigInteger.valueOf(content.length),
+                        "application/octet-stream", new ByteArrayInputStream(content));
+            }
+
+            int from = (offset == null ? 0 : offset.intValue());
+            int len = (length == null ? content.length - from : Math.min(length.intValue(), content.length - from));
+            InputStream stream = new ByteArrayInputStream(content, from, len);
+            if (failingReads.getAndDecrement() > 0) {
+                stream = new BrokenInputStream(stream, len / 2);
+            }
+
+            return new PartialContentStreamImpl("test.bin", BigInteger.valueOf(len), "application/octet-stream",
+                    stream);
+        }
+
+        private static byte[] read(ContentStream contentStream) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copy(contentStream.getStream(), out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Stream that breaks after a number of bytes.
+     */
+    private static class BrokenInputStream extends InputStream {
+        private final InputStream stream;
+        private int remaining;
+
+        BrokenInputStream(InputStream stream, int breakAfter) {
+            this.stream = stream;
+            this.remaining = breakAfter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining-- <= 0) {
+                throw new IOException("Connection reset");
+            }
+            return stream.read();
+        }
+    }
+}
@@ -249,6 +249,38 @@ package org.apache.chemistry.opencmis.commons;
  * <td>false</td>
  * </tr>
  * <tr>
+ * <td>{@link #CACHE_CONTENT_DIRECTORY}</td>
+ * <td>Directory of the persistent content cache, turns on the content cache</td>
+ * <td>all</td>
+ * <td>path</td>
+ * <td>no</td>
+ * <td>- (no content cache)</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_CONTENT_SIZE}</td>
+ * <td>Maximum size of the content cache, the same for all sessions that share the directory</td>
+ * <td>all</td>
+ * <td>size in bytes</td>
+ * <td>no</td>
+ * <td>1073741824 (1 GiB)</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_CONTENT_REVALIDATE}</td>
+ * <td>Always ask the repository for the current change token before cached content is used</td>
+ * <td>all</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>false</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_CHANGELOG_INTERVAL}</td>
+ * <td>Interval for polling the change log and removing changed objects from the object cache</td>
+ * <td>all</td>
+ * <td>time in milliseconds, 0 turns polling off</td>
+ * <td>no</td>
+ * <td>0</td>
+ * </tr>
+ * <tr>
  * <td>{@link #CACHE_SIZE_REPOSITORIES}</td>
  * <td>Repository info cache size</td>
  * <td>all</td>
@@ -273,6 +305,15 @@ package org.apache.chemistry.opencmis.commons;
  * <td>400</td>
  * </tr>
  * <tr>
+ * <td>{@link #CACHE_LINKS_FEEDS}</td>
+ * <td>Which links of children feed entries are cached</td>
+ * <td>AtomPub</td>
+ * <td>"all", "folders", "none" ("true" and "false" are aliases of "all" and
+ * "none")</td>
+ * <td>no</td>
+ * <td>all</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>AtomPub Binding settings</b></td>
  * </tr>
  * <tr>
@@ -591,10 +632,15 @@ public final class SessionParameter {
     public static final String CACHE_SIZE_PATHTOID = "org.apache.chemistry.opencmis.cache.pathtoid.size";
     public static final String CACHE_TTL_PATHTOID = "org.apache.chemistry.opencmis.cache.pathtoid.ttl";
     public static final String CACHE_PATH_OMIT = "org.apache.chemistry.opencmis.cache.path.omit";
+    public static final String CACHE_CONTENT_DIRECTORY = "org.apache.chemistry.opencmis.cache.content.directory";
+    public static final String CACHE_CONTENT_SIZE = "org.apache.chemistry.opencmis.cache.content.size";
+    public static final String CACHE_CONTENT_REVALIDATE = "org.apache.chemistry.opencmis.cache.content.revalidate";
+    public static final String CACHE_CHANGELOG_INTERVAL = "org.apache.chemistry.opencmis.cache.changelog.interval";
 
     public static final String CACHE_SIZE_REPOSITORIES = "org.apache.chemistry.opencmis.binding.cache.repositories.size";
     public static final String CACHE_SIZE_TYPES = "org.apache.chemistry.opencmis.binding.cache.types.size";
     public static final String CACHE_SIZE_LINKS = "org.apache.chemistry.opencmis.binding.cache.links.size";
+    public static final String CACHE_LINKS_FEEDS = "org.apache.chemistry.opencmis.binding.cache.links.feeds";
 
     // --- session control ---
 
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.server;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+
+/**
+ * Provides the {@link ObjectInfo} objects for a batch of objects.
+ * 
+ * The AtomPub binding asks for the object infos of all entries of a feed
+ * before it writes the feed. Implementations can use the data of the given
+ * objects and fetch repository-wide data only once instead of once per entry.
+ * 
+ * Objects that implement the {@link CmisService} interface may also implement
+ * this interface.
+ */
+public interface ObjectInfoBatchHandler {
+
+    /**
+     * Returns the {@link ObjectInfo} objects of the given objects.
+     * 
+     * Only AtomPub requests will require object infos.
+     * 
+     * @param repositoryId
+     *            the identifier for the repository
+     * @param objects
+     *            the objects as they have been returned by the service
+     * @param filed
+     *            <code>true</code> if all objects are known to be filed in a
+     *            folder, for example because they are the children or
+     *            descendants of a folder
+     * 
+     * @return a map of object infos; key = object id. Objects without an
+     *         object info are not contained.
+     */
+    Map<String, ObjectInfo> getObjectInfos(String repositoryId, Collection<ObjectData> objects, boolean filed);
+}
@@ -0,0 +1,734 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Block oriented Base64 codec for content streams.
+ * <p>
+ * In contrast to the streams in {@link Base64}, this codec works on whole
+ * blocks of {@value #BLOCK_SIZE} bytes with lookup tables. The stream
+ * wrappers are drop-in replacements for <code>Base64.InputStream</code> and
+ * <code>Base64.OutputStream</code> without line breaks.
+ * <p>
+ * If the runtime provides <code>java.util.Base64</code>, full blocks are
+ * encoded with it. This can be turned off with the system property
+ * {@value #JDK_ENCODER_PROPERTY}.
+ */
+public final class Base64Codec {
+
+    /** Number of raw bytes processed at once. Encodes to 64 KiB. */
+    public static final int BLOCK_SIZE = 48 * 1024;
+
+    /** Number of encoded bytes processed at once. */
+    public static final int ENCODED_BLOCK_SIZE = BLOCK_SIZE / 3 * 4;
+
+    public static final String JDK_ENCODER_PROPERTY = "org.apache.chemistry.opencmis.base64.jdk";
+
+    private static final byte[] ALPHABET = IOUtils.toUTF8Bytes(
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/");
+
+    private static final byte PAD = (byte) '=';
+
+    private static final byte INVALID = -1;
+    private static final byte WHITESPACE = -2;
+    private static final byte PADDING = -3;
+
+    /** First character of each 12 bit value. */
+    private static final byte[] ENCODE_HIGH = new byte[4096];
+    /** Second character of each 12 bit value. */
+    private static final byte[] ENCODE_LOW = new byte[4096];
+    /** 6 bit value of each character, or a negative marker. */
+    private static final byte[] DECODE = new byte[256];
+
+    private static final Object JDK_ENCODER;
+    private static final Method JDK_ENCODE;
+
+    static {
+        for (int i = 0; i < 4096; i++) {
+            ENCODE_HIGH[i] = ALPHABET[i >>> 6];
+            ENCODE_LOW[i] = ALPHABET[i & 0x3f];
+        }
+
+        for (int i = 0; i < 256; i++) {
+            DECODE[i] = INVALID;
+        }
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+        }
+        DECODE[' '] = WHITESPACE;
+        DECODE['\t'] = WHITESPACE;
+        DECODE['\r'] = WHITESPACE;
+        DECODE['\n'] = WHITESPACE;
+        DECODE[PAD] = PADDING;
+
+        Object encoder = null;
+        Method encode = null;
+        if (!"false".equalsIgnoreCase(System.getProperty(JDK_ENCODER_PROPERTY))) {
+            try {
+                Class<?> base64Class = Class.forName("java.util.Base64");
+                encoder = base64Class.getMethod("getEncoder").invoke(null);
+                encode = encoder.getClass().getMethod("encode", byte[].class, byte[].class);
+            } catch (Exception e) {
+                // Java 7 or older
+                encoder = null;
+                encode = null;
+            }
+        }
+        JDK_ENCODER = encoder;
+        JDK_ENCODE = encode;
+    }
+
+    private Base64Codec() {
+    }
+
+    /**
+     * Returns the length of the encoded data, including padding.
+     */
+    public static int getEncodedLength(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * Encodes a block of bytes, including padding.
+     * 
+     * @return the number of bytes written to <code>dest</code>
+     */
+    public static int encode(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) {
+        if (JDK_ENCODE != null && srcOffset == 0 && length == src.length && destOffset == 0 && length > 0) {
+            try {
+                return ((Integer) JDK_ENCODE.invoke(JDK_ENCODER, src, dest)).intValue();
+            } catch (Exception e) {
+                // fall through to the table based encoder
+            }
+        }
+
+        int s = srcOffset;
+        int d = destOffset;
+        int end = srcOffset + length - (length % 3);
+
+        while (s < end) {
+            int bits = (src[s] & 0xff) << 16 | (src[s + 1] & 0xff) << 8 | (src[s + 2] & 0xff);
+            s += 3;
+
+            int high = bits >>> 12;
+            int low = bits & 0xfff;
+            dest[d] = ENCODE_HIGH[high];
+            dest[d + 1] = ENCODE_LOW[high];
+            dest[d + 2] = ENCODE_HIGH[low];
+            dest[d + 3] = ENCODE_LOW[low];
+            d += 4;
+        }
+
+        int rest = length % 3;
+        if (rest == 1) {
+            int bits = (src[s] & 0xff) << 4;
+            dest[d] = ENCODE_HIGH[bits];
+            dest[d + 1] = ENCODE_LOW[bits];
+            dest[d + 2] = PAD;
+            dest[d + 3] = PAD;
+            d += 4;
+        } else if (rest == 2) {
+            int bits = ((src[s] & 0xff) << 8 | (src[s + 1] & 0xff)) << 2;
+            dest[d] = ALPHABET[bits >>> 12];
+            dest[d + 1] = ALPHABET[(bits >>> 6) & 0x3f];
+            dest[d + 2] = ALPHABET[bits & 0x3f];
+            dest[d + 3] = PAD;
+            d += 4;
+        }
+
+        return d - destOffset;
+    }
+
+    /**
+     * Encodes a byte array.
+     */
+    public static byte[] encode(byte[] src) {
+        byte[] result = new byte[getEncodedLength(src.length)];
+        encode(src, 0, src.length, result, 0);
+        return result;
+    }
+
+    /**
+     * Decodes a byte array. Whitespace is ignored.
+     * 
+     * @throws IOException
+     *             if the data is not valid Base64
+     */
+    public static byte[] decode(byte[] src) throws IOException {
+        Decoder decoder = new Decoder();
+
+        byte[] buffer = new byte[decoder.getMaxDecodedLength(src.length)];
+        int length = decoder.decode(src, 0, src.length, buffer, 0);
+        length += decoder.finish(buffer, length);
+
+        if (length == buffer.length) {
+            return buffer;
+        }
+
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Incremental Base64 decoder.
+     * <p>
+     * The input may be split at any position. Whitespace is ignored and
+     * padding may be omitted at the end of the data.
+     */
+    public static final class Decoder {
+
+        private int bits;
+        private int count;
+        private int padding;
+
+        /**
+         * Returns the maximum number of bytes that the next call to
+         * <code>decode</code> with the given length can produce.
+         */
+        public int getMaxDecodedLength(int length) {
+            return (count + length) / 4 * 3 + 3;
+        }
+
+        /**
+         * Decodes Base64 bytes.
+         * 
+         * @return the number of bytes written to <code>dest</code>
+         */
+        public int decode(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+            int s = srcOffset;
+            int d = destOffset;
+            int end = srcOffset + length;
+
+            while (s < end) {
+                if (count == 0) {
+                    // fast path: complete groups without whitespace
+                    int groupsEnd = end - 3;
+                    while (s < groupsEnd) {
+                        int c0 = DECODE[src[s] & 0xff];
+                        int c1 = DECODE[src[s + 1] & 0xff];
+                        int c2 = DECODE[src[s + 2] & 0xff];
+                        int c3 = DECODE[src[s + 3] & 0xff];
+                        if ((c0 | c1 | c2 | c3) < 0) {
+                            break;
+                        }
+
+                        int value = c0 << 18 | c1 << 12 | c2 << 6 | c3;
+                        dest[d] = (byte) (value >>> 16);
+                        dest[d + 1] = (byte) (value >>> 8);
+                        dest[d + 2] = (byte) value;
+                        d += 3;
+                        s += 4;
+                    }
+
+                    if (s == end) {
+                        break;
+                    }
+                }
+
+                d += decodeChar(src[s] & 0xff, dest, d);
+                s++;
+            }
+
+            return d - destOffset;
+        }
+
+        /**
+         * Decodes Base64 characters.
+         * 
+         * @return the number of bytes written to <code>dest</code>
+         */
+        public int decode(char[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+            int s = srcOffset;
+            int d = destOffset;
+            int end = srcOffset + length;
+
+            while (s < end) {
+                if (count == 0) {
+                    // fast path: complete groups without whitespace
+                    int groupsEnd = end - 3;
+                    while (s < groupsEnd) {
+                        char ch0 = src[s];
+                        char ch1 = src[s + 1];
+                        char ch2 = src[s + 2];
+                        char ch3 = src[s + 3];
+                        if ((ch0 | ch1 | ch2 | ch3) > 0xff) {
+                            break;
+                        }
+
+                        int c0 = DECODE[ch0];
+                        int c1 = DECODE[ch1];
+                        int c2 = DECODE[ch2];
+                        int c3 = DECODE[ch3];
+                        if ((c0 | c1 | c2 | c3) < 0) {
+                            break;
+                        }
+
+                        int value = c0 << 18 | c1 << 12 | c2 << 6 | c3;
+                        dest[d] = (byte) (value >>> 16);
+                        dest[d + 1] = (byte) (value >>> 8);
+                        dest[d + 2] = (byte) value;
+                        d += 3;
+                        s += 4;
+                    }
+
+                    if (s == end) {
+                        break;
+                    }
+                }
+
+                char ch = src[s];
+                if (ch > 0xff) {
+                    throw new IOException("Invalid character in Base64 data.");
+                }
+
+                d += decodeChar(ch, dest, d);
+                s++;
+            }
+
+            return d - destOffset;
+        }
+
+        private int decodeChar(int ch, byte[] dest, int destOffset) throws IOException {
+            int value = DECODE[ch];
+
+            if (value >= 0) {
+                if (padding > 0) {
+                    throw new IOException("Invalid character in Base64 data.");
+                }
+
+                bits = bits << 6 | value;
+                count++;
+
+                if (count == 4) {
+                    dest[destOffset] = (byte) (bits >>> 16);
+                    dest[destOffset + 1] = (byte) (bits >>> 8);
+                    dest[destOffset + 2] = (byte) bits;
+                    bits = 0;
+                    count = 0;
+                    return 3;
+                }
+
+                return 0;
+            }
+
+            if (value == WHITESPACE) {
+                return 0;
+            }
+
+            if (value == PADDING) {
+                if (padding > 0) {
+                    // the second padding character of a group
+                    padding--;
+                    return 0;
+                }
+
+                int result = flush(dest, destOffset);
+                // a group with two bytes of data has two padding characters
+                padding = (result == 1 ? 1 : 0);
+                return result;
+            }
+
+            throw new IOException("Invalid character in Base64 data.");
+        }
+
+        /**
+         * Writes the bytes of an incomplete group.
+         */
+        private int flush(byte[] dest, int destOffset) throws IOException {
+            int result;
+
+            switch (count) {
+            case 0:
+                return 0;
+            case 2:
+                dest[destOffset] = (byte) (bits >>> 4);
+                result = 1;
+                break;
+            case 3:
+                dest[destOffset] = (byte) (bits >>> 10);
+                dest[destOffset + 1] = (byte) (bits >>> 2);
+                result = 2;
+                break;
+            default:
+                throw new IOException("Invalid Base64 data.");
+            }
+
+            bits = 0;
+            count = 0;
+
+            return result;
+        }
+
+        /**
+         * Ends the data. Writes the bytes of an incomplete last group if the
+         * padding is missing.
+         * 
+         * @return the number of bytes written to <code>dest</code>
+         */
+        public int finish(byte[] dest, int destOffset) throws IOException {
+            padding = 0;
+            return flush(dest, destOffset);
+        }
+    }
+
+    /**
+     * Reads a stream and returns its Base64 encoding.
+     */
+    public static class EncoderInputStream extends FilterInputStream {
+
+        private final byte[] raw = new byte[BLOCK_SIZE];
+        private final byte[] buffer = new byte[ENCODED_BLOCK_SIZE];
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        public EncoderInputStream(InputStream in) {
+            super(in);
+        }
+
+        private boolean fill() throws IOException {
+            pos = 0;
+            limit = 0;
+
+            if (eof) {
+                return false;
+            }
+
+            // read a whole block
+            int length = 0;
+            while (length < raw.length) {
+                int n = in.read(raw, length, raw.length - length);
+                if (n == -1) {
+                    eof = true;
+                    break;
+                }
+                length += n;
+            }
+
+            if (length == 0) {
+                return false;
+            }
+
+            limit = encode(raw, 0, length, buffer, 0);
+
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+
+            return buffer[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buffer, pos, b, off, n);
+            pos += n;
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                if (pos == limit && !fill()) {
+                    break;
+                }
+
+                int s = (int) Math.min(n - skipped, limit - pos);
+                pos += s;
+                skipped += s;
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - pos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("Mark not supported!");
+        }
+    }
+
+    /**
+     * Reads a Base64 encoded stream and returns the decoded data.
+     */
+    public static class DecoderInputStream extends FilterInputStream {
+
+        private final Decoder decoder = new Decoder();
+        private final byte[] encoded = new byte[ENCODED_BLOCK_SIZE];
+        private final byte[] buffer = new byte[decoder.getMaxDecodedLength(ENCODED_BLOCK_SIZE)];
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        public DecoderInputStream(InputStream in) {
+            super(in);
+        }
+
+        private boolean fill() throws IOException {
+            pos = 0;
+            limit = 0;
+
+            while (limit == 0) {
+                if (eof) {
+                    return false;
+                }
+
+                int n = in.read(encoded, 0, encoded.length);
+                if (n == -1) {
+                    eof = true;
+                    limit = decoder.finish(buffer, 0);
+                } else {
+                    limit = decoder.decode(encoded, 0, n, buffer, 0);
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+
+            return buffer[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buffer, pos, b, off, n);
+            pos += n;
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                if (pos == limit && !fill()) {
+                    break;
+                }
+
+                int s = (int) Math.min(n - skipped, limit - pos);
+                pos += s;
+                skipped += s;
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - pos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("Mark not supported!");
+        }
+    }
+
+    /**
+     * Encodes the data written to it and writes the Base64 encoding to the
+     * underlying stream.
+     */
+    public static class EncoderOutputStream extends FilterOutputStream {
+
+        private final byte[] raw = new byte[BLOCK_SIZE];
+        private final byte[] buffer = new byte[ENCODED_BLOCK_SIZE];
+        private int length;
+        private boolean closed;
+
+        public EncoderOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            raw[length++] = (byte) b;
+            if (length == raw.length) {
+                writeBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, raw.length - length);
+                System.arraycopy(b, off, raw, length, n);
+                length += n;
+                off += n;
+                len -= n;
+
+                if (length == raw.length) {
+                    writeBlock();
+                }
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            out.write(buffer, 0, encode(raw, 0, length, buffer, 0));
+            length = 0;
+        }
+
+        /**
+         * Encodes and writes the remaining data, including padding, and
+         * closes the underlying stream.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                if (length > 0) {
+                    writeBlock();
+                }
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Decodes the Base64 data written to it and writes the decoded data to
+     * the underlying stream.
+     */
+    public static class DecoderOutputStream extends FilterOutputStream {
+
+        private final Decoder decoder = new Decoder();
+        private final byte[] buffer = new byte[decoder.getMaxDecodedLength(ENCODED_BLOCK_SIZE)];
+        private final byte[] single = new byte[1];
+        private boolean closed;
+
+        public DecoderOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, ENCODED_BLOCK_SIZE);
+                int decoded = decoder.decode(b, off, n, buffer, 0);
+                if (decoded > 0) {
+                    out.write(buffer, 0, decoded);
+                }
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * Writes Base64 characters.
+         */
+        public void write(char[] c, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, ENCODED_BLOCK_SIZE);
+                int decoded = decoder.decode(c, off, n, buffer, 0);
+                if (decoded > 0) {
+                    out.write(buffer, 0, decoded);
+                }
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                int decoded = decoder.finish(buffer, 0);
+                if (decoded > 0) {
+                    out.write(buffer, 0, decoded);
+                }
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -139,6 +139,8 @@ public final class Constants {
     public static final String CMISACTION_APPLY_POLICY = "applyPolicy";
     public static final String CMISACTION_REMOVE_POLICY = "removePolicy";
     public static final String CMISACTION_APPLY_ACL = "applyACL";
+    // OpenCMIS extension
+    public static final String CMISACTION_BATCH = "batch";
 
     // browser binding control
     public static final String CONTROL_CMISACTION = "cmisaction";
@@ -160,6 +162,8 @@ public final class Constants {
     public static final String CONTROL_CHANGE_TOKEN = "changeToken";
     public static final String CONTROL_ADD_SECONDARY_TYPE = "addSecondaryTypeId";
     public static final String CONTROL_REMOVE_SECONDARY_TYPE = "removeSecondaryTypeId";
+    // OpenCMIS extension
+    public static final String CONTROL_OPERATIONS = "operations";
 
     // parameter
     public static final String PARAM_ACL = "includeACL";
@@ -18,23 +18,47 @@
  */
 package org.apache.chemistry.opencmis.commons.impl;
 
-import java.math.BigDecimal;
+import java.nio.CharBuffer;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Parses and formats xsd:dateTime and HTTP dates.
+ * <p>
+ * The xsd:dateTime and RFC 1123 codecs work directly on characters and
+ * epoch milliseconds and don't create {@link GregorianCalendar} objects. Dates
+ * before 1583 and after 9999 are handled by {@link GregorianCalendar} to keep
+ * its Julian calendar semantics.
+ */
 public final class DateTimeHelper {
 
+    /** Returned by the millisecond parsers if the string is not a valid date. */
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+
     private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
 
-    private static final Pattern XML_DATETIME = Pattern
-            .compile("(\\d{4,9})-([01]\\d)-([0-3]\\d)T([0-2]\\d):([0-5]\\d):([0-5]\\d)(\\.(\\d+))?(([+-][0-2]\\d:[0-5]\\d)|Z)?");
-    private static final BigDecimal BD1000 = new BigDecimal(1000);
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_MINUTE = 60L * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60L * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24L * MILLIS_PER_HOUR;
+
+    private static final int MIN_FAST_YEAR = 1583;
+    private static final int MAX_FAST_YEAR = 9999;
+    private static final long MIN_FAST_MILLIS = daysFromCivil(MIN_FAST_YEAR, 1, 1) * MILLIS_PER_DAY;
+    private static final long MAX_FAST_MILLIS = daysFromCivil(MAX_FAST_YEAR + 1, 1, 1) * MILLIS_PER_DAY;
+
+    private static final ConcurrentMap<Integer, TimeZone> ZONES = new ConcurrentHashMap<Integer, TimeZone>();
+    static {
+        ZONES.put(0, GMT);
+    }
 
     private static final String[] WDAYS = new String[] { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
 
@@ -48,9 +72,6 @@ public final class DateTimeHelper {
         }
     }
 
-    private static final Pattern HTTP_DATETIME1 = Pattern
-            .compile("\\w{3}, ([0-3]\\d) (\\w{3}) (\\d{4}) ([0-2]\\d):([0-5]\\d):([0-5]\\d) GMT");
-
     private static final Pattern HTTP_DATETIME2 = Pattern
             .compile("\\w{6,9}, ([0-3]\\d)-(\\w{3})-(\\d{2}) ([0-2]\\d):([0-5]\\d):([0-5]\\d) GMT");
 
@@ -68,52 +89,125 @@ public final class DateTimeHelper {
             return null;
         }
 
-        final Matcher m = XML_DATETIME.matcher(s);
-
-        if (!m.matches()) {
+        int[] zoneOffset = new int[1];
+        long millis = parseXmlDateTimeToMillis(s, zoneOffset);
+        if (millis == INVALID_DATE) {
             return null;
         }
 
-        try {
-            int year = Integer.parseInt(m.group(1));
-            int month = Integer.parseInt(m.group(2));
-            int day = Integer.parseInt(m.group(3));
-            int hour = Integer.parseInt(m.group(4));
-            int minute = Integer.parseInt(m.group(5));
-            int second = Integer.parseInt(m.group(6));
-            int millisecond = 0;
+        return createCalendar(millis, zoneOffset[0]);
+    }
 
-            if (m.group(8) != null) {
-                millisecond = (new BigDecimal("0." + m.group(8))).multiply(BD1000).intValue();
-            }
+    /**
+     * Parses a xsd:dateTime string held in a character array.
+     * 
+     * @see #parseXmlDateTimeToMillis(CharSequence, int[])
+     */
+    public static long parseXmlDateTimeToMillis(char[] chars, int offset, int length, int[] zoneOffset) {
+        if (chars == null) {
+            return INVALID_DATE;
+        }
 
-            TimeZone tz = GMT;
+        return parseXmlDateTimeToMillis(CharBuffer.wrap(chars, offset, length), zoneOffset);
+    }
 
-            if (m.group(10) != null) {
-                tz = TimeZone.getTimeZone("GMT" + m.group(10));
-            }
+    /**
+     * Parses a xsd:dateTime string.
+     * 
+     * @param s
+     *            the string
+     * @param zoneOffset
+     *            if not {@code null}, the time zone offset of the string in
+     *            milliseconds is stored in the first element
+     * @return the epoch milliseconds or {@link #INVALID_DATE} if the string is
+     *         not a valid xsd:dateTime value
+     */
+    public static long parseXmlDateTimeToMillis(CharSequence s, int[] zoneOffset) {
+        if (s == null) {
+            return INVALID_DATE;
+        }
 
-            final GregorianCalendar result = new GregorianCalendar();
-            result.clear();
+        final int len = s.length();
+        int pos = 0;
 
-            result.setTimeZone(tz);
-            result.set(year, month - 1, day, hour, minute, second);
-            result.set(Calendar.MILLISECOND, millisecond);
+        // year: 4 to 9 digits
+        int year = 0;
+        while (pos < len && pos < 9 && isDigit(s.charAt(pos))) {
+            year = year * 10 + (s.charAt(pos) - '0');
+            pos++;
+        }
+        if (pos < 4 || pos + 15 > len) {
+            return INVALID_DATE;
+        }
 
-            return result;
-        } catch (NumberFormatException e) {
-            return null;
+        // -MM-DDTHH:MM:SS
+        if (s.charAt(pos) != '-' || !isDigitIn(s.charAt(pos + 1), '0', '1') || !isDigit(s.charAt(pos + 2))
+                || s.charAt(pos + 3) != '-' || !isDigitIn(s.charAt(pos + 4), '0', '3') || !isDigit(s.charAt(pos + 5))
+                || s.charAt(pos + 6) != 'T' || !isDigitIn(s.charAt(pos + 7), '0', '2') || !isDigit(s.charAt(pos + 8))
+                || s.charAt(pos + 9) != ':' || !isDigitIn(s.charAt(pos + 10), '0', '5')
+                || !isDigit(s.charAt(pos + 11)) || s.charAt(pos + 12) != ':'
+                || !isDigitIn(s.charAt(pos + 13), '0', '5') || !isDigit(s.charAt(pos + 14))) {
+            return INVALID_DATE;
         }
+
+        int month = read2d(s, pos + 1);
+        int day = read2d(s, pos + 4);
+        int hour = read2d(s, pos + 7);
+        int minute = read2d(s, pos + 10);
+        int second = read2d(s, pos + 13);
+        pos += 15;
+
+        // fractional seconds, truncated to milliseconds
+        int millisecond = 0;
+        if (pos < len && s.charAt(pos) == '.') {
+            pos++;
+            int digits = 0;
+            while (pos < len && isDigit(s.charAt(pos))) {
+                if (digits < 3) {
+                    millisecond = millisecond * 10 + (s.charAt(pos) - '0');
+                }
+                digits++;
+                pos++;
+            }
+            if (digits == 0) {
+                return INVALID_DATE;
+            }
+            for (int i = digits; i < 3; i++) {
+                millisecond *= 10;
+            }
+        }
+
+        // time zone
+        int offset = 0;
+        if (pos < len) {
+            char c = s.charAt(pos);
+            if (c == 'Z' && pos + 1 == len) {
+                pos++;
+            } else if ((c == '+' || c == '-') && pos + 6 == len && isDigitIn(s.charAt(pos + 1), '0', '2')
+                    && isDigit(s.charAt(pos + 2)) && s.charAt(pos + 3) == ':'
+                    && isDigitIn(s.charAt(pos + 4), '0', '5') && isDigit(s.charAt(pos + 5))) {
+                offset = (int) (read2d(s, pos + 1) * MILLIS_PER_HOUR + read2d(s, pos + 4) * MILLIS_PER_MINUTE);
+                if (c == '-') {
+                    offset = -offset;
+                }
+                pos += 6;
+            } else {
+                return INVALID_DATE;
+            }
+        }
+
+        if (zoneOffset != null && zoneOffset.length > 0) {
+            zoneOffset[0] = offset;
+        }
+
+        return toMillis(year, month - 1, day, hour, minute, second, millisecond, offset);
     }
 
     /**
      * Returns a xsd:dateTime string.
      */
     public static String formatXmlDateTime(long millis) {
-        final GregorianCalendar cal = new GregorianCalendar(GMT);
-        cal.setTimeInMillis(millis);
-
-        return formatXmlDateTime(cal);
+        return formatXmlDateTime(millis, 0);
     }
 
     /**
@@ -124,7 +218,15 @@ public final class DateTimeHelper {
             throw new IllegalArgumentException();
         }
 
-        final StringBuilder sb = new StringBuilder();
+        long millis = cal.getTimeInMillis();
+        int tz = cal.getTimeZone().getOffset(millis);
+        long local = millis + tz;
+
+        if (local >= MIN_FAST_MILLIS && local < MAX_FAST_MILLIS && !isJulian(cal, millis)) {
+            return formatXmlDateTime(millis, tz);
+        }
+
+        final StringBuilder sb = new StringBuilder(32);
         add4d(sb, cal.get(Calendar.YEAR));
         sb.append('-');
         add2d(sb, cal.get(Calendar.MONTH) + 1);
@@ -136,33 +238,72 @@ public final class DateTimeHelper {
         add2d(sb, cal.get(Calendar.MINUTE));
         sb.append(':');
         add2d(sb, cal.get(Calendar.SECOND));
+        addMillisAndZone(sb, cal.get(Calendar.MILLISECOND), tz);
 
-        int ms = cal.get(Calendar.MILLISECOND);
-        if (ms > 0) {
-            sb.append('.');
-            add3d(sb, ms);
-            while (sb.charAt(sb.length() - 1) == '0') {
-                sb.deleteCharAt(sb.length() - 1);
-            }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a xsd:dateTime string for the given epoch milliseconds in the
+     * given time zone offset.
+     */
+    public static String formatXmlDateTime(long millis, int zoneOffset) {
+        long local = millis + zoneOffset;
+        if (local < MIN_FAST_MILLIS || local >= MAX_FAST_MILLIS) {
+            return formatXmlDateTime(createCalendar(millis, zoneOffset));
         }
 
-        int tz = cal.getTimeZone().getOffset(cal.getTimeInMillis());
-        if (tz == 0) {
-            sb.append('Z');
-        } else {
-            if (tz > 0) {
-                sb.append('+');
-            } else {
-                sb.append('-');
-                tz *= -1;
+        long days = floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) (local - days * MILLIS_PER_DAY);
+        int[] ymd = civilFromDays(days);
+
+        final StringBuilder sb = new StringBuilder(32);
+        add4d(sb, ymd[0]);
+        sb.append('-');
+        add2d(sb, ymd[1]);
+        sb.append('-');
+        add2d(sb, ymd[2]);
+        sb.append('T');
+        addTime(sb, millisOfDay);
+        addMillisAndZone(sb, millisOfDay % 1000, zoneOffset);
+
+        return sb.toString();
+    }
+
+    /**
+     * Creates a calendar for the given epoch milliseconds and time zone
+     * offset.
+     */
+    public static GregorianCalendar createCalendar(long millis, int zoneOffset) {
+        GregorianCalendar result = new GregorianCalendar(getTimeZone(zoneOffset));
+        result.setTimeInMillis(millis);
+
+        return result;
+    }
+
+    /**
+     * Returns a time zone with a fixed offset. The time zones are cached per
+     * offset, the caller gets a copy it may modify.
+     */
+    public static TimeZone getTimeZone(int zoneOffset) {
+        Integer key = Integer.valueOf(zoneOffset);
+        TimeZone tz = ZONES.get(key);
+        if (tz == null) {
+            int abs = Math.abs(zoneOffset);
+            StringBuilder id = new StringBuilder(9);
+            id.append("GMT").append(zoneOffset < 0 ? '-' : '+');
+            add2d(id, (int) (abs / MILLIS_PER_HOUR));
+            id.append(':');
+            add2d(id, (int) ((abs % MILLIS_PER_HOUR) / MILLIS_PER_MINUTE));
+
+            tz = TimeZone.getTimeZone(id.toString());
+            TimeZone existing = ZONES.putIfAbsent(key, tz);
+            if (existing != null) {
+                tz = existing;
             }
-            add2d(sb, tz / 3600000);
-            sb.append(':');
-            int tzm = tz % 3600000;
-            add2d(sb, tzm == 0 ? 0 : tzm / 60000);
         }
 
-        return sb.toString();
+        return (TimeZone) tz.clone();
     }
 
     /**
@@ -178,28 +319,17 @@ public final class DateTimeHelper {
             s = s.substring(1, s.length() - 1);
         }
 
+        // RFC 1123 is by far the most common format
+        long millis = parseRfc1123DateTime(s);
+        if (millis != INVALID_DATE) {
+            return new Date(millis);
+        }
+
         final GregorianCalendar cal = new GregorianCalendar(GMT);
         cal.set(Calendar.MILLISECOND, 0);
 
         Matcher m = null;
 
-        m = HTTP_DATETIME1.matcher(s);
-        if (m.matches()) {
-            final Integer month = MONTHS_MAP.get(m.group(2));
-            if (month == null) {
-                return null;
-            }
-
-            cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(m.group(1)));
-            cal.set(Calendar.MONTH, month);
-            cal.set(Calendar.YEAR, Integer.parseInt(m.group(3)));
-            cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(m.group(4)));
-            cal.set(Calendar.MINUTE, Integer.parseInt(m.group(5)));
-            cal.set(Calendar.SECOND, Integer.parseInt(m.group(6)));
-
-            return cal.getTime();
-        }
-
         m = HTTP_DATETIME2.matcher(s);
         if (m.matches()) {
             final Integer month = MONTHS_MAP.get(m.group(2));
@@ -243,14 +373,74 @@ public final class DateTimeHelper {
         return null;
     }
 
+    /**
+     * Parses a RFC 1123 date ("Sun, 06 Nov 1994 08:49:37 GMT").
+     * 
+     * @return the epoch milliseconds or {@link #INVALID_DATE} if the string is
+     *         not a RFC 1123 date
+     */
+    public static long parseRfc1123DateTime(CharSequence s) {
+        if (s == null || s.length() != 29) {
+            return INVALID_DATE;
+        }
+
+        if (!isWordChar(s.charAt(0)) || !isWordChar(s.charAt(1)) || !isWordChar(s.charAt(2)) || s.charAt(3) != ','
+                || s.charAt(4) != ' ' || !isDigitIn(s.charAt(5), '0', '3') || !isDigit(s.charAt(6))
+                || s.charAt(7) != ' ' || s.charAt(11) != ' ' || !isDigit(s.charAt(12)) || !isDigit(s.charAt(13))
+                || !isDigit(s.charAt(14)) || !isDigit(s.charAt(15)) || s.charAt(16) != ' '
+                || !isDigitIn(s.charAt(17), '0', '2') || !isDigit(s.charAt(18)) || s.charAt(19) != ':'
+                || !isDigitIn(s.charAt(20), '0', '5') || !isDigit(s.charAt(21)) || s.charAt(22) != ':'
+                || !isDigitIn(s.charAt(23), '0', '5') || !isDigit(s.charAt(24)) || s.charAt(25) != ' '
+                || s.charAt(26) != 'G' || s.charAt(27) != 'M' || s.charAt(28) != 'T') {
+            return INVALID_DATE;
+        }
+
+        int month = -1;
+        for (int i = 0; i < MONTHS.length; i++) {
+            String name = MONTHS[i];
+            if (name.charAt(0) == s.charAt(8) && name.charAt(1) == s.charAt(9) && name.charAt(2) == s.charAt(10)) {
+                month = i;
+                break;
+            }
+        }
+        if (month == -1) {
+            return INVALID_DATE;
+        }
+
+        int year = read2d(s, 12) * 100 + read2d(s, 14);
+
+        return toMillis(year, month, read2d(s, 5), read2d(s, 17), read2d(s, 20), read2d(s, 23), 0, 0);
+    }
+
     /**
      * Returns a HTTP date.
      */
     public static String formatHttpDateTime(long millis) {
-        final GregorianCalendar cal = new GregorianCalendar(GMT);
-        cal.setTimeInMillis(millis);
+        if (millis < MIN_FAST_MILLIS || millis >= MAX_FAST_MILLIS) {
+            return formatHttpDateTime(createCalendar(millis, 0), millis);
+        }
+
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (millis - days * MILLIS_PER_DAY);
+        int[] ymd = civilFromDays(days);
 
-        final StringBuilder sb = new StringBuilder();
+        final StringBuilder sb = new StringBuilder(29);
+        sb.append(WDAYS[(int) floorMod(days + 4, 7)]);
+        sb.append(", ");
+        add2d(sb, ymd[2]);
+        sb.append(' ');
+        sb.append(MONTHS[ymd[1] - 1]);
+        sb.append(' ');
+        add4d(sb, ymd[0]);
+        sb.append(' ');
+        addTime(sb, millisOfDay);
+        sb.append(" GMT");
+
+        return sb.toString();
+    }
+
+    private static String formatHttpDateTime(GregorianCalendar cal, long millis) {
+        final StringBuilder sb = new StringBuilder(29);
         sb.append(WDAYS[cal.get(Calendar.DAY_OF_WEEK) - 1]);
         sb.append(", ");
         add2d(sb, cal.get(Calendar.DAY_OF_MONTH));
@@ -283,6 +473,130 @@ public final class DateTimeHelper {
         return formatHttpDateTime(cal.getTimeInMillis());
     }
 
+    /**
+     * Converts date fields into epoch milliseconds. Out of range fields are
+     * handled leniently like {@link GregorianCalendar} does.
+     */
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second, int millisecond,
+            int zoneOffset) {
+        // normalize the month
+        year += (int) floorDiv(month, 12);
+        month = (int) floorMod(month, 12);
+
+        if (year < MIN_FAST_YEAR || year > MAX_FAST_YEAR) {
+            // let the calendar deal with the Julian calendar and huge years
+            final GregorianCalendar cal = new GregorianCalendar(getTimeZone(zoneOffset));
+            cal.clear();
+            cal.set(year, month, day, hour, minute, second);
+            cal.set(Calendar.MILLISECOND, millisecond);
+
+            return cal.getTimeInMillis();
+        }
+
+        long days = daysFromCivil(year, month + 1, 1) + day - 1;
+
+        return days * MILLIS_PER_DAY + hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE + second
+                * MILLIS_PER_SECOND + millisecond - zoneOffset;
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01 in the proleptic Gregorian
+     * calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = (month <= 2 ? year - 1 : year);
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Returns year, month (1-12) and day of a number of days since
+     * 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static int[] civilFromDays(long days) {
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        return new int[] { year, month, day };
+    }
+
+    private static boolean isJulian(GregorianCalendar cal, long millis) {
+        return millis < cal.getGregorianChange().getTime();
+    }
+
+    private static long floorDiv(long x, long y) {
+        long r = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            r--;
+        }
+        return r;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDigitIn(char c, char min, char max) {
+        return c >= min && c <= max;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static int read2d(CharSequence s, int pos) {
+        return (s.charAt(pos) - '0') * 10 + (s.charAt(pos + 1) - '0');
+    }
+
+    private static void addTime(final StringBuilder sb, int millisOfDay) {
+        int secondOfDay = millisOfDay / 1000;
+        add2d(sb, secondOfDay / 3600);
+        sb.append(':');
+        add2d(sb, (secondOfDay / 60) % 60);
+        sb.append(':');
+        add2d(sb, secondOfDay % 60);
+    }
+
+    private static void addMillisAndZone(final StringBuilder sb, int ms, int tz) {
+        if (ms > 0) {
+            sb.append('.');
+            add3d(sb, ms);
+            while (sb.charAt(sb.length() - 1) == '0') {
+                sb.deleteCharAt(sb.length() - 1);
+            }
+        }
+
+        if (tz == 0) {
+            sb.append('Z');
+        } else {
+            if (tz > 0) {
+                sb.append('+');
+            } else {
+                sb.append('-');
+                tz *= -1;
+            }
+            add2d(sb, tz / 3600000);
+            sb.append(':');
+            int tzm = tz % 3600000;
+            add2d(sb, tzm == 0 ? 0 : tzm / 60000);
+        }
+    }
+
     private static void add2d(final StringBuilder sb, int value) {
         assert sb != null;
         assert value >= 0;
@@ -528,6 +528,13 @@ public final class JSONConstants {
         BULK_UPDATE_KEYS.add(JSON_BULK_UPDATE_CHANGE_TOKEN);
     }
 
+    // batch (OpenCMIS extension)
+    public static final String JSON_BATCH_PATH = "path";
+    public static final String JSON_BATCH_PARAMETERS = "parameters";
+    public static final String JSON_BATCH_STATUS = "status";
+    public static final String JSON_BATCH_LOCATION = "location";
+    public static final String JSON_BATCH_RESULT = "result";
+
     // Constant utility class.
     private JSONConstants() {
     }
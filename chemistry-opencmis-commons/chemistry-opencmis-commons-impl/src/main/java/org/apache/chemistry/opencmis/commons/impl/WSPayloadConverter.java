@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl;
+
+import static org.apache.chemistry.opencmis.commons.impl.XMLConstants.NAMESPACE_CMIS;
+import static org.apache.chemistry.opencmis.commons.impl.XMLConstants.NAMESPACE_MESSAGING;
+import static org.apache.chemistry.opencmis.commons.impl.XMLConstants.PREFIX_CMIS;
+import static org.apache.chemistry.opencmis.commons.impl.XMLConstants.PREFIX_MESSAGING;
+import static org.apache.chemistry.opencmis.commons.impl.XMLConstants.TAG_OBJECT;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+
+/**
+ * Reads and writes Web Services messaging payloads with StAX.
+ * <p>
+ * This is the streaming counterpart of {@link WSConverter} for the most
+ * frequent operations. It produces the same XML as the JAXB binding, but
+ * writes directly from the data objects without building a JAXB object graph
+ * first.
+ */
+public final class WSPayloadConverter {
+
+    public static final String OPERATION_GET_OBJECT = "getObject";
+    public static final String OPERATION_GET_OBJECT_BY_PATH = "getObjectByPath";
+    public static final String OPERATION_GET_CHILDREN = "getChildren";
+
+    public static final String RESPONSE_SUFFIX = "Response";
+
+    public static final String TAG_OBJECTS = "objects";
+    public static final String TAG_PATH_SEGMENT = "pathSegment";
+    public static final String TAG_HAS_MORE_ITEMS = "hasMoreItems";
+    public static final String TAG_NUM_ITEMS = "numItems";
+    public static final String TAG_EXTENSION = "extension";
+
+    private WSPayloadConverter() {
+    }
+
+    // ---------------
+    // --- writers ---
+    // ---------------
+
+    /**
+     * Writes a response that contains a single object, for example the
+     * response of <code>getObject</code> and <code>getObjectByPath</code>.
+     */
+    public static void writeObjectResponse(XMLStreamWriter writer, CmisVersion cmisVersion, String operation,
+            ObjectData source) throws XMLStreamException {
+        startResponse(writer, operation);
+        XMLConverter.writeObject(writer, cmisVersion, false, TAG_OBJECT, NAMESPACE_MESSAGING, source);
+        writer.writeEndElement();
+    }
+
+    /**
+     * Writes a <code>getChildren</code> response.
+     */
+    public static void writeChildrenResponse(XMLStreamWriter writer, CmisVersion cmisVersion,
+            ObjectInFolderList source) throws XMLStreamException {
+        startResponse(writer, OPERATION_GET_CHILDREN);
+
+        if (source != null) {
+            writer.writeStartElement(NAMESPACE_MESSAGING, TAG_OBJECTS);
+
+            if (source.getObjects() != null) {
+                for (ObjectInFolderData object : source.getObjects()) {
+                    if (object == null) {
+                        continue;
+                    }
+
+                    writer.writeStartElement(NAMESPACE_MESSAGING, TAG_OBJECTS);
+                    XMLConverter.writeObject(writer, cmisVersion, false, TAG_OBJECT, NAMESPACE_MESSAGING,
+                            object.getObject());
+                    XMLUtils.write(writer, PREFIX_MESSAGING, NAMESPACE_MESSAGING, TAG_PATH_SEGMENT,
+                            object.getPathSegment());
+                    XMLConverter.writeExtensions(writer, object);
+                    writer.writeEndElement();
+                }
+            }
+
+            XMLUtils.write(writer, PREFIX_MESSAGING, NAMESPACE_MESSAGING, TAG_HAS_MORE_ITEMS,
+                    Boolean.valueOf(source.hasMoreItems()));
+            XMLUtils.write(writer, PREFIX_MESSAGING, NAMESPACE_MESSAGING, TAG_NUM_ITEMS, source.getNumItems());
+
+            XMLConverter.writeExtensions(writer, source);
+            writer.writeEndElement();
+        }
+
+        writer.writeEndElement();
+    }
+
+    private static void startResponse(XMLStreamWriter writer, String operation) throws XMLStreamException {
+        writer.setPrefix(PREFIX_MESSAGING, NAMESPACE_MESSAGING);
+        writer.setPrefix(PREFIX_CMIS, NAMESPACE_CMIS);
+
+        writer.writeStartElement(PREFIX_MESSAGING, operation + RESPONSE_SUFFIX, NAMESPACE_MESSAGING);
+        writer.writeNamespace(PREFIX_MESSAGING, NAMESPACE_MESSAGING);
+        writer.writeNamespace(PREFIX_CMIS, NAMESPACE_CMIS);
+    }
+
+    // ---------------
+    // --- parsers ---
+    // ---------------
+
+    /**
+     * Reads the parameters of a request.
+     * <p>
+     * The parser must be positioned at the start tag of the request element.
+     * Only requests with simple parameter values are supported. If a
+     * parameter has child elements, for example a non-empty extension, this
+     * method returns <code>null</code> and the caller has to fall back to the
+     * JAXB binding.
+     * 
+     * @return a map from parameter names to values, or <code>null</code>
+     */
+    public static Map<String, String> convertRequestParameters(XMLStreamReader parser) throws XMLStreamException {
+        Map<String, String> result = new HashMap<String, String>();
+
+        XMLUtils.next(parser);
+
+        while (true) {
+            int event = parser.getEventType();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                String name = parser.getLocalName();
+                boolean nil = "true".equals(parser.getAttributeValue(XMLConstants.NAMESPACE_XSI, "nil"));
+
+                StringBuilder sb = new StringBuilder();
+                XMLUtils.next(parser);
+
+                while (parser.getEventType() != XMLStreamReader.END_ELEMENT) {
+                    event = parser.getEventType();
+                    if (event == XMLStreamReader.START_ELEMENT) {
+                        // complex content
+                        return null;
+                    } else if (event == XMLStreamReader.CHARACTERS || event == XMLStreamReader.CDATA) {
+                        if (sb.length() + parser.getTextLength() > XMLConstraints.MAX_STRING_LENGTH) {
+                            throw new CmisInvalidArgumentException("String limit exceeded!");
+                        }
+                        sb.append(parser.getTextCharacters(), parser.getTextStart(), parser.getTextLength());
+                    }
+
+                    if (!XMLUtils.next(parser)) {
+                        return null;
+                    }
+                }
+
+                if (!nil && !TAG_EXTENSION.equals(name)) {
+                    if (result.containsKey(name)) {
+                        // repeated parameter
+                        return null;
+                    }
+                    result.put(name, sb.toString());
+                }
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                break;
+            }
+
+            if (!XMLUtils.next(parser)) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the object of a <code>getObject</code> or
+     * <code>getObjectByPath</code> response.
+     * <p>
+     * The parser must be positioned at the start tag of the response element.
+     */
+    public static ObjectData convertObjectResponse(XMLStreamReader parser) throws XMLStreamException {
+        return OBJECT_RESPONSE_PARSER.walk(parser).object;
+    }
+
+    /**
+     * Reads the children of a <code>getChildren</code> response.
+     * <p>
+     * The parser must be positioned at the start tag of the response element.
+     */
+    public static ObjectInFolderList convertChildrenResponse(XMLStreamReader parser) throws XMLStreamException {
+        return CHILDREN_RESPONSE_PARSER.walk(parser).children;
+    }
+
+    private static boolean isMessagingNamespace(QName name) {
+        return NAMESPACE_MESSAGING.equals(name.getNamespaceURI());
+    }
+
+    private static class ObjectResponse {
+        ObjectData object;
+    }
+
+    private static class ChildrenResponse {
+        ObjectInFolderList children;
+    }
+
+    private static final XMLWalker<ObjectResponse> OBJECT_RESPONSE_PARSER = new XMLWalker<ObjectResponse>() {
+        @Override
+        protected ObjectResponse prepareTarget(XMLStreamReader parser, QName name) throws XMLStreamException {
+            return new ObjectResponse();
+        }
+
+        @Override
+        protected boolean read(XMLStreamReader parser, QName name, ObjectResponse target) throws XMLStreamException {
+            if (isMessagingNamespace(name) && isTag(name, TAG_OBJECT)) {
+                target.object = XMLConverter.convertObject(parser);
+                return true;
+            }
+
+            return false;
+        }
+    };
+
+    private static final XMLWalker<ChildrenResponse> CHILDREN_RESPONSE_PARSER = new XMLWalker<ChildrenResponse>() {
+        @Override
+        protected ChildrenResponse prepareTarget(XMLStreamReader parser, QName name) throws XMLStreamException {
+            return new ChildrenResponse();
+        }
+
+        @Override
+        protected boolean read(XMLStreamReader parser, QName name, ChildrenResponse target)
+                throws XMLStreamException {
+            if (isMessagingNamespace(name) && isTag(name, TAG_OBJECTS)) {
+                target.children = OBJECT_IN_FOLDER_LIST_PARSER.walk(parser);
+                return true;
+            }
+
+            return false;
+        }
+    };
+
+    private static final XMLWalker<ObjectInFolderListImpl> OBJECT_IN_FOLDER_LIST_PARSER = new XMLWalker<ObjectInFolderListImpl>() {
+        @Override
+        protected ObjectInFolderListImpl prepareTarget(XMLStreamReader parser, QName name)
+                throws XMLStreamException {
+            ObjectInFolderListImpl result = new ObjectInFolderListImpl();
+            result.setObjects(new ArrayList<ObjectInFolderData>());
+            return result;
+        }
+
+        @Override
+        protected boolean read(XMLStreamReader parser, QName name, ObjectInFolderListImpl target)
+                throws XMLStreamException {
+            if (isMessagingNamespace(name)) {
+                if (isTag(name, TAG_OBJECTS)) {
+                    List<ObjectInFolderData> objects = target.getObjects();
+                    objects.add(OBJECT_IN_FOLDER_PARSER.walk(parser));
+                    return true;
+                }
+
+                if (isTag(name, TAG_HAS_MORE_ITEMS)) {
+                    target.setHasMoreItems(readBoolean(parser));
+                    return true;
+                }
+
+                if (isTag(name, TAG_NUM_ITEMS)) {
+                    target.setNumItems(readInteger(parser));
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    };
+
+    private static final XMLWalker<ObjectInFolderDataImpl> OBJECT_IN_FOLDER_PARSER = new XMLWalker<ObjectInFolderDataImpl>() {
+        @Override
+        protected ObjectInFolderDataImpl prepareTarget(XMLStreamReader parser, QName name)
+                throws XMLStreamException {
+            return new ObjectInFolderDataImpl();
+        }
+
+        @Override
+        protected boolean read(XMLStreamReader parser, QName name, ObjectInFolderDataImpl target)
+                throws XMLStreamException {
+            if (isMessagingNamespace(name)) {
+                if (isTag(name, TAG_OBJECT)) {
+                    target.setObject(XMLConverter.convertObject(parser));
+                    return true;
+                }
+
+                if (isTag(name, TAG_PATH_SEGMENT)) {
+                    target.setPathSegment(readText(parser));
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    };
+}
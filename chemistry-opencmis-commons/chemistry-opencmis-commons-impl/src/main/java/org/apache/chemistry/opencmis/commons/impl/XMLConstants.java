@@ -29,6 +29,7 @@ public final class XMLConstants {
     public static final String NAMESPACE_ATOM = "http://www.w3.org/2005/Atom";
     public static final String NAMESPACE_APP = "http://www.w3.org/2007/app";
     public static final String NAMESPACE_RESTATOM = "http://docs.oasis-open.org/ns/cmis/restatom/200908/";
+    public static final String NAMESPACE_MESSAGING = "http://docs.oasis-open.org/ns/cmis/messaging/200908/";
     public static final String NAMESPACE_XSI = "http://www.w3.org/2001/XMLSchema-instance";
     public static final String NAMESPACE_APACHE_CHEMISTRY = "http://chemistry.apache.org/";
 
@@ -38,6 +39,7 @@ public final class XMLConstants {
     public static final String PREFIX_APP = "app";
     public static final String PREFIX_CMIS = "cmis";
     public static final String PREFIX_RESTATOM = "cmisra";
+    public static final String PREFIX_MESSAGING = "cmism";
     public static final String PREFIX_APACHE_CHEMISTY = "chemistry";
 
     // tags
@@ -2556,7 +2556,16 @@ public final class XMLConverter {
 
         @Override
         protected void addValue(XMLStreamReader parser, PropertyDateTimeImpl target) throws XMLStreamException {
-            target.setValues(addToList(target.getValues(), readDateTime(parser)));
+            String value = readText(parser);
+
+            int[] zoneOffset = new int[1];
+            long millis = DateTimeHelper.parseXmlDateTimeToMillis(value, zoneOffset);
+            if (millis == DateTimeHelper.INVALID_DATE) {
+                throw new CmisInvalidArgumentException("Invalid datetime value!");
+            }
+
+            // calendars are created lazily
+            target.addValueInMillis(millis, zoneOffset[0]);
         }
     };
 
@@ -18,18 +18,29 @@
  */
 package org.apache.chemistry.opencmis.commons.impl.dataobjects;
 
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 
 import org.apache.chemistry.opencmis.commons.data.MutablePropertyDateTime;
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
 
 /**
  * DateTime property data implementation.
+ * <p>
+ * Values can be added as epoch milliseconds with
+ * {@link #addValueInMillis(long, int)}. The {@link GregorianCalendar} objects
+ * are only created when the values are accessed for the first time.
  */
 public class PropertyDateTimeImpl extends AbstractPropertyData<GregorianCalendar> implements MutablePropertyDateTime {
 
     private static final long serialVersionUID = 1L;
 
+    // values that haven't been converted into calendars yet
+    private long[] lazyMillis;
+    private int[] lazyZoneOffsets;
+    private int lazyCount;
+
     public PropertyDateTimeImpl() {
     }
 
@@ -42,4 +53,90 @@ public class PropertyDateTimeImpl extends AbstractPropertyData<GregorianCalendar
         setId(id);
         setValue(value);
     }
+
+    /**
+     * Adds a value given in epoch milliseconds and a time zone offset in
+     * milliseconds.
+     */
+    public synchronized void addValueInMillis(long millis, int zoneOffset) {
+        if (lazyMillis == null) {
+            List<GregorianCalendar> values = super.getValues();
+            if (!values.isEmpty()) {
+                // there are already calendar values -> keep the order
+                List<GregorianCalendar> newValues = new ArrayList<GregorianCalendar>(values);
+                newValues.add(DateTimeHelper.createCalendar(millis, zoneOffset));
+                super.setValues(newValues);
+                return;
+            }
+
+            lazyMillis = new long[4];
+            lazyZoneOffsets = new int[4];
+        } else if (lazyCount == lazyMillis.length) {
+            long[] newMillis = new long[lazyCount * 2];
+            System.arraycopy(lazyMillis, 0, newMillis, 0, lazyCount);
+            lazyMillis = newMillis;
+
+            int[] newOffsets = new int[lazyCount * 2];
+            System.arraycopy(lazyZoneOffsets, 0, newOffsets, 0, lazyCount);
+            lazyZoneOffsets = newOffsets;
+        }
+
+        lazyMillis[lazyCount] = millis;
+        lazyZoneOffsets[lazyCount] = zoneOffset;
+        lazyCount++;
+    }
+
+    /**
+     * Creates the calendar objects of values that have been added in
+     * milliseconds.
+     */
+    private synchronized void materialize() {
+        if (lazyMillis == null) {
+            return;
+        }
+
+        List<GregorianCalendar> values = new ArrayList<GregorianCalendar>(lazyCount);
+        for (int i = 0; i < lazyCount; i++) {
+            values.add(DateTimeHelper.createCalendar(lazyMillis[i], lazyZoneOffsets[i]));
+        }
+
+        clearLazyValues();
+        super.setValues(values);
+    }
+
+    private void clearLazyValues() {
+        lazyMillis = null;
+        lazyZoneOffsets = null;
+        lazyCount = 0;
+    }
+
+    @Override
+    public List<GregorianCalendar> getValues() {
+        materialize();
+        return super.getValues();
+    }
+
+    @Override
+    public GregorianCalendar getFirstValue() {
+        materialize();
+        return super.getFirstValue();
+    }
+
+    @Override
+    public synchronized void setValues(List<GregorianCalendar> values) {
+        clearLazyValues();
+        super.setValues(values);
+    }
+
+    @Override
+    public synchronized void setValue(GregorianCalendar value) {
+        clearLazyValues();
+        super.setValue(value);
+    }
+
+    @Override
+    public String toString() {
+        materialize();
+        return super.toString();
+    }
 }
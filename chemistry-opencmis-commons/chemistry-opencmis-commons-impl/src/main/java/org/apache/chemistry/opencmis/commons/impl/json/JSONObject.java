@@ -71,13 +71,7 @@ public class JSONObject extends LinkedHashMap<String, Object> implements Map<Str
                 out.write(',');
             }
 
-            out.write('\"');
-            if (entry.getKey() == null) {
-                out.write("null");
-            } else {
-                out.write(escape(entry.getKey()));
-            }
-            out.write('\"');
+            JSONValue.writeString(entry.getKey() == null ? "null" : entry.getKey(), out);
             out.write(':');
             JSONValue.writeJSONString(entry.getValue(), out);
         }
@@ -37,6 +37,28 @@ import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
  */
 public final class JSONValue {
 
+    /**
+     * Escape characters for ASCII. 0 means no escaping, 'u' means a unicode
+     * escape sequence.
+     */
+    static final char[] ESCAPES = new char[128];
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['/'] = '/';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+        ESCAPES[0x7F] = 'u';
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
     private JSONValue() {
     }
 
@@ -115,9 +137,7 @@ public final class JSONValue {
         }
 
         if (value instanceof String) {
-            out.write('\"');
-            out.write(escape((String) value));
-            out.write('\"');
+            writeString((String) value, out);
             return;
         }
 
@@ -252,14 +272,20 @@ public final class JSONValue {
      * (U+0000 through U+001F).
      * 
      * @param s
-     * @return
+     * @return the escaped string, or <code>s</code> itself if nothing has to
+     *         be escaped
      */
     public static String escape(String s) {
         if (s == null) {
             return null;
         }
 
-        StringBuilder sb = new StringBuilder();
+        int i = indexOfEscape(s, 0);
+        if (i < 0) {
+            return s;
+        }
+
+        StringBuilder sb = new StringBuilder(s.length() + 16);
         escape(s, sb);
         return sb.toString();
     }
@@ -270,47 +296,88 @@ public final class JSONValue {
      * @param sb
      */
     static void escape(String s, StringBuilder sb) {
-        for (int i = 0; i < s.length(); i++) {
+        char[] sequence = null;
+        int start = 0;
+        int i;
+        while ((i = indexOfEscape(s, start)) > -1) {
+            if (sequence == null) {
+                sequence = new char[6];
+            }
+            sb.append(s, start, i);
+            sb.append(sequence, 0, escape(s.charAt(i), sequence));
+            start = i + 1;
+        }
+        sb.append(s, start, s.length());
+    }
+
+    /**
+     * Writes a quoted and escaped string.
+     */
+    static void writeString(String s, Writer out) throws IOException {
+        if (out instanceof JSONWriter) {
+            ((JSONWriter) out).writeString(s);
+            return;
+        }
+
+        out.write('"');
+
+        char[] sequence = null;
+        int start = 0;
+        int i;
+        while ((i = indexOfEscape(s, start)) > -1) {
+            if (sequence == null) {
+                sequence = new char[6];
+            }
+            out.write(s, start, i - start);
+            out.write(sequence, 0, escape(s.charAt(i), sequence));
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+
+        out.write('"');
+    }
+
+    /**
+     * Returns the index of the first character that has to be escaped, or -1.
+     */
+    private static int indexOfEscape(String s, int start) {
+        int len = s.length();
+        for (int i = start; i < len; i++) {
             char ch = s.charAt(i);
-            switch (ch) {
-            case '"':
-                sb.append("\\\"");
-                break;
-            case '\\':
-                sb.append("\\\\");
-                break;
-            case '\b':
-                sb.append("\\b");
-                break;
-            case '\f':
-                sb.append("\\f");
-                break;
-            case '\n':
-                sb.append("\\n");
-                break;
-            case '\r':
-                sb.append("\\r");
-                break;
-            case '\t':
-                sb.append("\\t");
-                break;
-            case '/':
-                sb.append("\\/");
-                break;
-            default:
-                // Reference: http://www.unicode.org/versions/Unicode5.1.0/
-                if ((ch >= '\u0000' && ch <= '\u001F') || (ch >= '\u007F' && ch <= '\u009F')
-                        || (ch >= '\u2000' && ch <= '\u20FF')) {
-                    String ss = Integer.toHexString(ch);
-                    sb.append("\\u");
-                    for (int k = 0; k < 4 - ss.length(); k++) {
-                        sb.append('0');
-                    }
-                    sb.append(ss.toUpperCase());
-                } else {
-                    sb.append(ch);
-                }
+            if (ch < 0x80 ? ESCAPES[ch] != 0 : needsEscape(ch)) {
+                return i;
             }
-        }// for
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns whether a non-ASCII character has to be escaped.
+     */
+    static boolean needsEscape(char ch) {
+        // Reference: http://www.unicode.org/versions/Unicode5.1.0/
+        return ch <= '\u009F' || (ch >= '\u2000' && ch <= '\u20FF');
+    }
+
+    /**
+     * Writes the escape sequence of a character into <code>dest</code> and
+     * returns its length.
+     */
+    static int escape(char ch, char[] dest) {
+        dest[0] = '\\';
+
+        char esc = ch < 0x80 ? ESCAPES[ch] : 'u';
+        if (esc != 'u') {
+            dest[1] = esc;
+            return 2;
+        }
+
+        dest[1] = 'u';
+        dest[2] = HEX[(ch >> 12) & 0xF];
+        dest[3] = HEX[(ch >> 8) & 0xF];
+        dest[4] = HEX[(ch >> 4) & 0xF];
+        dest[5] = HEX[ch & 0xF];
+        return 6;
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writer that encodes JSON text directly to UTF-8 bytes.
+ * <p>
+ * {@link JSONValue#writeJSONString(Object, Writer)} recognizes this writer and
+ * escapes strings straight into the byte buffer. Unpaired surrogates are
+ * written as '?' like the JDK encoder does.
+ */
+public class JSONWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private final char[] escape = new char[6];
+    private int count;
+    private char highSurrogate;
+
+    public JSONWriter(OutputStream out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Output stream must be set!");
+        }
+
+        this.out = out;
+    }
+
+    /**
+     * Writes a JSON string including the quotes.
+     */
+    public void writeString(String s) throws IOException {
+        writeAscii('"');
+
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (JSONValue.ESCAPES[c] == 0) {
+                    if (count == buf.length) {
+                        flushBuffer();
+                    }
+                    buf[count++] = (byte) c;
+                    continue;
+                }
+            } else if (!JSONValue.needsEscape(c)) {
+                encode(c);
+                continue;
+            }
+
+            int n = JSONValue.escape(c, escape);
+            for (int j = 0; j < n; j++) {
+                writeAscii(escape[j]);
+            }
+        }
+
+        writeAscii('"');
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = cbuf[i];
+            if (c < 0x80 && highSurrogate == 0) {
+                if (count == buf.length) {
+                    flushBuffer();
+                }
+                buf[count++] = (byte) c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80 && highSurrogate == 0) {
+                if (count == buf.length) {
+                    flushBuffer();
+                }
+                buf[count++] = (byte) c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            writeAscii('?');
+        }
+        flush();
+        out.close();
+    }
+
+    private void writeAscii(char c) throws IOException {
+        if (highSurrogate != 0) {
+            encode(c);
+            return;
+        }
+
+        if (count == buf.length) {
+            flushBuffer();
+        }
+        buf[count++] = (byte) c;
+    }
+
+    private void encode(char c) throws IOException {
+        if (count + 4 > buf.length) {
+            flushBuffer();
+        }
+
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+
+            buf[count++] = '?';
+            encode(c);
+            return;
+        }
+
+        if (c < 0x80) {
+            buf[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[count++] = (byte) (0xC0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buf[count++] = '?';
+        } else {
+            buf[count++] = (byte) (0xE0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+}
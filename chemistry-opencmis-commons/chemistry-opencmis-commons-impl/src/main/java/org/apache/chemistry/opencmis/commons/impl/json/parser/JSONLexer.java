@@ -0,0 +1,591 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * JSON lexer that works directly on UTF-8 bytes.
+ * <p>
+ * Character input is encoded to UTF-8 while it is read, so that there is only
+ * one scanner for streams, readers and strings. Positions are byte offsets.
+ * <p>
+ * The I/O and text buffers are borrowed from a small shared pool when a new
+ * input is set and are handed back when the end of the input has been reached
+ * or the lexer is released. The pool is a plain static field and not a thread
+ * local, so that pooled threads of a servlet container don't keep this class
+ * and its class loader alive after the web application has been stopped.
+ * Object keys are interned in a small cache per buffer set because the same
+ * property ids show up over and over again.
+ */
+class JSONLexer {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int TEXT_SIZE = 256;
+    private static final int MAX_KEPT_TEXT_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 16;
+    private static final int KEY_CACHE_SIZE = 1024;
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    private static final Buffers[] POOL = new Buffers[MAX_POOLED_BUFFERS];
+    private static int pooled;
+
+    private final Yytoken token = new Yytoken(Yytoken.TYPE_EOF, null);
+
+    private InputStream stream;
+    private Reader reader;
+    private Buffers buffers;
+    private byte[] buf = EMPTY;
+    private int pos;
+    private int limit;
+    private int offset;
+    private int tokenStart;
+
+    /**
+     * Sets a new UTF-8 encoded input stream.
+     */
+    public void reset(InputStream in) {
+        reset();
+        stream = in;
+    }
+
+    /**
+     * Sets a new character input.
+     */
+    public void reset(Reader in) {
+        reset();
+        reader = in;
+    }
+
+    private void reset() {
+        release();
+
+        buffers = borrowBuffers();
+
+        buf = buffers.bytes;
+        pos = 0;
+        limit = 0;
+        offset = 0;
+        tokenStart = 0;
+    }
+
+    /**
+     * Hands the buffers back to the pool. The lexer only returns EOF tokens
+     * afterwards until a new input is set. A text buffer that has grown for a
+     * very long string isn't kept.
+     */
+    public void release() {
+        if (buffers != null) {
+            if (buffers.text.length > MAX_KEPT_TEXT_SIZE) {
+                buffers.text = new char[TEXT_SIZE];
+            }
+            returnBuffers(buffers);
+            buffers = null;
+        }
+
+        stream = null;
+        reader = null;
+        buf = EMPTY;
+        pos = 0;
+        limit = 0;
+    }
+
+    private static Buffers borrowBuffers() {
+        synchronized (POOL) {
+            if (pooled > 0) {
+                pooled--;
+                Buffers result = POOL[pooled];
+                POOL[pooled] = null;
+                return result;
+            }
+        }
+
+        return new Buffers();
+    }
+
+    private static void returnBuffers(Buffers buffers) {
+        synchronized (POOL) {
+            // more buffers than that are only needed under peak load
+            if (pooled < POOL.length) {
+                POOL[pooled] = buffers;
+                pooled++;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the beginning of the current token.
+     */
+    public int getPosition() {
+        return tokenStart;
+    }
+
+    /**
+     * Returns the next token. The returned token object is reused by
+     * subsequent calls.
+     * 
+     * @param key
+     *            <code>true</code> if a string token would be an object key
+     */
+    public Yytoken next(boolean key) throws IOException, JSONParseException {
+        int b;
+        while (true) {
+            if (pos == limit && !fill()) {
+                tokenStart = offset;
+                release();
+                return token(Yytoken.TYPE_EOF, null);
+            }
+
+            b = buf[pos];
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+
+        tokenStart = offset + pos;
+        pos++;
+
+        switch (b) {
+        case '{':
+            return token(Yytoken.TYPE_LEFT_BRACE, null);
+        case '}':
+            return token(Yytoken.TYPE_RIGHT_BRACE, null);
+        case '[':
+            return token(Yytoken.TYPE_LEFT_SQUARE, null);
+        case ']':
+            return token(Yytoken.TYPE_RIGHT_SQUARE, null);
+        case ',':
+            return token(Yytoken.TYPE_COMMA, null);
+        case ':':
+            return token(Yytoken.TYPE_COLON, null);
+        case '"':
+            return token(Yytoken.TYPE_VALUE, readString(key));
+        case 't':
+            readLiteral("true");
+            return token(Yytoken.TYPE_VALUE, Boolean.TRUE);
+        case 'f':
+            readLiteral("false");
+            return token(Yytoken.TYPE_VALUE, Boolean.FALSE);
+        case 'n':
+            readLiteral("null");
+            return token(Yytoken.TYPE_VALUE, null);
+        case '-':
+        case '0':
+        case '1':
+        case '2':
+        case '3':
+        case '4':
+        case '5':
+        case '6':
+        case '7':
+        case '8':
+        case '9':
+            return token(Yytoken.TYPE_VALUE, readNumber(b));
+        default:
+            throw unexpectedChar(b);
+        }
+    }
+
+    private Yytoken token(int type, Object value) {
+        token.type = type;
+        token.value = value;
+        return token;
+    }
+
+    // --- strings ---
+
+    private String readString(boolean key) throws IOException, JSONParseException {
+        char[] text = buffers.text;
+        int len = 0;
+
+        while (true) {
+            // fast path: copy plain ASCII straight from the byte buffer
+            int p = pos;
+            int end = Math.min(limit, p + (text.length - len));
+            byte[] b = buf;
+            while (p < end) {
+                int c = b[p];
+                if (c == '"' || c == '\\' || c < 0) {
+                    break;
+                }
+                text[len++] = (char) c;
+                p++;
+            }
+            pos = p;
+
+            if (p == end) {
+                if (len == text.length) {
+                    text = grow(len);
+                } else if (!fill()) {
+                    throw unexpectedEnd();
+                }
+                continue;
+            }
+
+            int c = b[p];
+            pos++;
+            if (c == '"') {
+                break;
+            }
+
+            if (text.length - len < 2) {
+                text = grow(len);
+            }
+
+            if (c == '\\') {
+                text[len++] = readEscape();
+            } else {
+                len = readMultiByte(c & 0xFF, text, len);
+            }
+        }
+
+        if (key) {
+            return intern(text, len);
+        }
+
+        return new String(text, 0, len);
+    }
+
+    private char readEscape() throws IOException, JSONParseException {
+        int c = read();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int h = read();
+                if (h < 0) {
+                    throw unexpectedEnd();
+                }
+                int digit = h < 0x80 ? Character.digit(h, 16) : -1;
+                if (digit < 0) {
+                    throw unexpectedChar(h);
+                }
+                value = (value << 4) | digit;
+            }
+            return (char) value;
+        case -1:
+            throw unexpectedEnd();
+        default:
+            throw unexpectedChar(c);
+        }
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence. Malformed sequences are replaced
+     * with U+FFFD like the JDK decoder does.
+     */
+    private int readMultiByte(int lead, char[] text, int len) throws IOException {
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            int c1 = readContinuation();
+            text[len++] = c1 < 0 ? REPLACEMENT_CHAR : (char) (((lead & 0x1F) << 6) | c1);
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            int c1 = readContinuation();
+            int c2 = c1 < 0 ? -1 : readContinuation();
+            text[len++] = c2 < 0 ? REPLACEMENT_CHAR : (char) (((lead & 0x0F) << 12) | (c1 << 6) | c2);
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            int c1 = readContinuation();
+            int c2 = c1 < 0 ? -1 : readContinuation();
+            int c3 = c2 < 0 ? -1 : readContinuation();
+            int cp = c3 < 0 ? -1 : ((lead & 0x07) << 18) | (c1 << 12) | (c2 << 6) | c3;
+            if (cp < 0x10000 || cp > 0x10FFFF) {
+                text[len++] = REPLACEMENT_CHAR;
+            } else {
+                cp -= 0x10000;
+                text[len++] = (char) (0xD800 | (cp >>> 10));
+                text[len++] = (char) (0xDC00 | (cp & 0x3FF));
+            }
+        } else {
+            text[len++] = REPLACEMENT_CHAR;
+        }
+
+        return len;
+    }
+
+    /**
+     * Returns the payload of the next byte if it is a UTF-8 continuation byte,
+     * otherwise -1. Other bytes are not consumed.
+     */
+    private int readContinuation() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+
+        int c = buf[pos] & 0xFF;
+        if ((c & 0xC0) != 0x80) {
+            return -1;
+        }
+
+        pos++;
+        return c & 0x3F;
+    }
+
+    private String intern(char[] text, int len) {
+        if (len > MAX_KEY_LENGTH) {
+            return new String(text, 0, len);
+        }
+
+        int hash = 0;
+        for (int i = 0; i < len; i++) {
+            hash = 31 * hash + text[i];
+        }
+
+        String[] keys = buffers.keys;
+        int index = (hash ^ (hash >>> 16)) & (keys.length - 1);
+
+        String key = keys[index];
+        if (key != null && key.length() == len && key.hashCode() == hash) {
+            int i = 0;
+            while (i < len && key.charAt(i) == text[i]) {
+                i++;
+            }
+            if (i == len) {
+                return key;
+            }
+        }
+
+        key = new String(text, 0, len);
+        keys[index] = key;
+
+        return key;
+    }
+
+    private char[] grow(int len) {
+        char[] text = new char[buffers.text.length * 2];
+        System.arraycopy(buffers.text, 0, text, 0, len);
+        buffers.text = text;
+        return text;
+    }
+
+    // --- numbers and literals ---
+
+    private Number readNumber(int first) throws IOException, JSONParseException {
+        boolean decimal = false;
+
+        buffers.text[0] = (char) first;
+        int len = readDigits(1, first == '-');
+
+        if (peek() == '.') {
+            decimal = true;
+            pos++;
+            len = append(len, '.');
+            len = readDigits(len, true);
+        }
+
+        int c = peek();
+        if (c == 'e' || c == 'E') {
+            decimal = true;
+            pos++;
+            len = append(len, (char) c);
+            c = peek();
+            if (c == '+' || c == '-') {
+                pos++;
+                len = append(len, (char) c);
+            }
+            len = readDigits(len, true);
+        }
+
+        char[] text = buffers.text;
+
+        if (decimal) {
+            return new BigDecimal(text, 0, len);
+        }
+
+        int start = text[0] == '-' ? 1 : 0;
+        if (len - start <= MAX_LONG_DIGITS) {
+            long value = 0;
+            for (int i = start; i < len; i++) {
+                value = value * 10 + (text[i] - '0');
+            }
+            return BigInteger.valueOf(start == 0 ? value : -value);
+        }
+
+        return new BigInteger(new String(text, 0, len));
+    }
+
+    private int readDigits(int len, boolean required) throws IOException, JSONParseException {
+        int start = len;
+        while (true) {
+            int c = peek();
+            if (c < '0' || c > '9') {
+                if (required && len == start) {
+                    throw c < 0 ? unexpectedEnd() : unexpectedChar(read());
+                }
+                return len;
+            }
+
+            pos++;
+            len = append(len, (char) c);
+        }
+    }
+
+    private int append(int len, char c) {
+        char[] text = buffers.text;
+        if (len == text.length) {
+            text = grow(len);
+        }
+        text[len] = c;
+
+        return len + 1;
+    }
+
+    private void readLiteral(String literal) throws IOException, JSONParseException {
+        for (int i = 1; i < literal.length(); i++) {
+            int c = read();
+            if (c != literal.charAt(i)) {
+                throw c < 0 ? unexpectedEnd() : unexpectedChar(c);
+            }
+        }
+    }
+
+    // --- input ---
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+
+        return buf[pos++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+
+        return buf[pos] & 0xFF;
+    }
+
+    /**
+     * Refills the byte buffer. Must only be called if all bytes have been
+     * consumed.
+     */
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+
+        if (stream != null) {
+            int n;
+            do {
+                n = stream.read(buf, 0, buf.length);
+            } while (n == 0);
+
+            if (n > 0) {
+                limit = n;
+                return true;
+            }
+
+            return false;
+        }
+
+        if (reader != null) {
+            return fillFromReader();
+        }
+
+        return false;
+    }
+
+    /**
+     * Encodes the next chunk of characters to UTF-8. Surrogates are encoded
+     * one by one, which the decoder turns back into the same characters.
+     */
+    private boolean fillFromReader() throws IOException {
+        char[] chars = buffers.chars;
+
+        int n;
+        do {
+            n = reader.read(chars, 0, chars.length);
+        } while (n == 0);
+
+        if (n < 0) {
+            return false;
+        }
+
+        byte[] b = buf;
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                b[p++] = (byte) c;
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        limit = p;
+
+        return true;
+    }
+
+    // --- errors ---
+
+    private JSONParseException unexpectedChar(int b) throws IOException {
+        int c = b & 0xFF;
+        if (c >= 0x80) {
+            char[] tmp = new char[2];
+            readMultiByte(c, tmp, 0);
+            c = tmp[0];
+        }
+
+        return new JSONParseException(tokenStart, JSONParseException.ERROR_UNEXPECTED_CHAR, Character.valueOf((char) c));
+    }
+
+    private JSONParseException unexpectedEnd() {
+        return new JSONParseException(tokenStart, JSONParseException.ERROR_UNEXPECTED_TOKEN, new Yytoken(
+                Yytoken.TYPE_EOF, null));
+    }
+
+    /**
+     * Pooled buffers.
+     */
+    private static class Buffers {
+        final byte[] bytes = new byte[BUFFER_SIZE];
+        final char[] chars = new char[BUFFER_SIZE / 3];
+        final String[] keys = new String[KEY_CACHE_SIZE];
+        char[] text = new char[TEXT_SIZE];
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.chemistry.opencmis.commons.impl.json.parser;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.LinkedList;
@@ -30,6 +31,9 @@ import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 
 /**
  * Parser for JSON text. Please note that JSONParser is NOT thread-safe.
+ * <p>
+ * Byte streams are expected to be UTF-8 encoded and are scanned without
+ * decoding them into a character stream first.
  * 
  * (Taken from JSON.simple <http://code.google.com/p/json-simple/> and modified
  * for OpenCMIS.)
@@ -48,7 +52,7 @@ public class JSONParser {
     public static final int S_IN_ERROR = -1;
 
     private LinkedList<Integer> handlerStatusStack;
-    private Yylex lexer = new Yylex((Reader) null);
+    private JSONLexer lexer = new JSONLexer();
     private Yytoken token = null;
     private int status = S_INIT;
 
@@ -80,7 +84,18 @@ public class JSONParser {
      * @throws JSONParseException
      */
     public void reset(Reader in) {
-        lexer.yyreset(in);
+        lexer.reset(in);
+        reset();
+    }
+
+    /**
+     * Reset the parser to the initial state with a new UTF-8 byte stream.
+     * 
+     * @param in
+     *            - The new byte stream.
+     */
+    public void reset(InputStream in) {
+        lexer.reset(in);
         reset();
     }
 
@@ -111,6 +126,20 @@ public class JSONParser {
         return parse(in, (ContainerFactory) null);
     }
 
+    public Object parse(InputStream in) throws IOException, JSONParseException {
+        return parse(in, (ContainerFactory) null);
+    }
+
+    /**
+     * Parse UTF-8 encoded JSON text into java object from the input stream.
+     * 
+     * @see #parse(Reader, ContainerFactory)
+     */
+    public Object parse(InputStream in, ContainerFactory containerFactory) throws IOException, JSONParseException {
+        reset(in);
+        return parseValue(containerFactory);
+    }
+
     /**
      * Parse JSON text into java object from the input source.
      * 
@@ -125,9 +154,13 @@ public class JSONParser {
      * @throws IOException
      * @throws JSONParseException
      */
-    @SuppressWarnings("unchecked")
     public Object parse(Reader in, ContainerFactory containerFactory) throws IOException, JSONParseException {
         reset(in);
+        return parseValue(containerFactory);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object parseValue(ContainerFactory containerFactory) throws IOException, JSONParseException {
         LinkedList<Integer> statusStack = new LinkedList<Integer>();
         LinkedList<Object> valueStack = new LinkedList<Object>();
 
@@ -273,18 +306,15 @@ public class JSONParser {
                     throw new JSONParseException(getPosition(), JSONParseException.ERROR_UNEXPECTED_TOKEN, token);
                 }
             } while (token.type != Yytoken.TYPE_EOF);
-        } catch (IOException ie) {
-            throw ie;
+        } finally {
+            lexer.release();
         }
 
         throw new JSONParseException(getPosition(), JSONParseException.ERROR_UNEXPECTED_TOKEN, token);
     }
 
     private void nextToken() throws JSONParseException, IOException {
-        token = lexer.yylex();
-        if (token == null) {
-            token = new Yytoken(Yytoken.TYPE_EOF, null);
-        }
+        token = lexer.next(status == S_IN_OBJECT);
     }
 
     private Map<String, Object> createObjectContainer(ContainerFactory containerFactory) {
@@ -335,6 +365,25 @@ public class JSONParser {
         parse(in, contentHandler, false);
     }
 
+    public void parse(InputStream in, ContentHandler contentHandler) throws IOException, JSONParseException {
+        parse(in, contentHandler, false);
+    }
+
+    /**
+     * Stream processing of UTF-8 encoded JSON text.
+     * 
+     * @see #parse(Reader, ContentHandler, boolean)
+     */
+    public void parse(InputStream in, ContentHandler contentHandler, boolean isResume) throws IOException,
+            JSONParseException {
+        if (!isResume || handlerStatusStack == null) {
+            reset(in);
+            handlerStatusStack = new LinkedList<Integer>();
+        }
+
+        parseContent(contentHandler);
+    }
+
     /**
      * Stream processing of JSON text.
      * 
@@ -364,6 +413,10 @@ public class JSONParser {
             }
         }
 
+        parseContent(contentHandler);
+    }
+
+    private void parseContent(ContentHandler contentHandler) throws IOException, JSONParseException {
         LinkedList<Integer> statusStack = handlerStatusStack;
 
         try {
@@ -547,19 +600,24 @@ public class JSONParser {
             } while (token.type != Yytoken.TYPE_EOF);
         } catch (IOException ie) {
             status = S_IN_ERROR;
+            lexer.release();
             throw ie;
         } catch (JSONParseException pe) {
             status = S_IN_ERROR;
+            lexer.release();
             throw pe;
         } catch (RuntimeException re) {
             status = S_IN_ERROR;
+            lexer.release();
             throw re;
         } catch (Error e) {
             status = S_IN_ERROR;
+            lexer.release();
             throw e;
         }
 
         status = S_IN_ERROR;
+        lexer.release();
         throw new JSONParseException(getPosition(), JSONParseException.ERROR_UNEXPECTED_TOKEN, token);
     }
 }
@@ -20,8 +20,10 @@ package org.apache.chemistry.opencmis.commons.impl.server;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -53,6 +55,8 @@ import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.CapabilityAcl;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityRenditions;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
@@ -64,15 +68,23 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfoBatchHandler;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.server.RenditionInfo;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 
-public abstract class AbstractCmisService implements CmisService, ObjectInfoHandler {
+public abstract class AbstractCmisService implements CmisService, ObjectInfoHandler, ObjectInfoBatchHandler {
+
+    /** Maximum number of objects fetched with one object info query. */
+    private static final int OBJECT_INFO_QUERY_SIZE = 100;
 
     private Map<String, ObjectInfo> objectInfoMap;
     private boolean addObjectInfos = true;
 
+    private String objectInfoRepositoryId;
+    private RepositoryInfo objectInfoRepositoryInfo;
+    private TypeDefinitionList objectInfoBaseTypes;
+
     // --- repository service ---
 
     /**
@@ -1068,6 +1080,179 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         return info;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * <b>Implementation Hints:</b>
+     * <ul>
+     * <li>Bindings: AtomPub</li>
+     * <li>Object infos that have already been added are reused. The others
+     * are assembled from the given objects. The repository info and the base
+     * type definitions are fetched only once per request.</li>
+     * <li>An object is only used as it is if it carries all properties an
+     * object info is assembled from and, if the repository supports
+     * relationships or renditions, its relationships or renditions. Objects
+     * that have been fetched with a filter are fetched again, with one query
+     * per base type and up to {@value #OBJECT_INFO_QUERY_SIZE} objects if the
+     * repository supports metadata queries and with
+     * {@link #getObjectInfo(String, String)} otherwise.</li>
+     * <li>The original of a checked out document and the parents of an object
+     * that is not known to be filed are still looked up per object.</li>
+     * </ul>
+     */
+    public Map<String, ObjectInfo> getObjectInfos(String repositoryId, Collection<ObjectData> objects, boolean filed) {
+        Map<String, ObjectInfo> result = new HashMap<String, ObjectInfo>();
+        if (objects == null) {
+            return result;
+        }
+
+        Map<String, ObjectInfo> oim = getObjectInfoMap();
+        Map<String, ObjectData> incomplete = new LinkedHashMap<String, ObjectData>();
+        for (ObjectData object : objects) {
+            if (object == null || object.getId() == null || result.containsKey(object.getId())
+                    || incomplete.containsKey(object.getId())) {
+                continue;
+            }
+
+            ObjectInfo info = oim.get(object.getId());
+            if (info == null) {
+                if (!isObjectInfoComplete(repositoryId, object)) {
+                    incomplete.put(object.getId(), object);
+                    continue;
+                }
+
+                info = createObjectInfo(repositoryId, object, filed);
+            }
+
+            if (info != null) {
+                result.put(object.getId(), info);
+            }
+        }
+
+        if (incomplete.isEmpty()) {
+            return result;
+        }
+
+        // fetch the incomplete objects again
+        for (ObjectData object : queryObjectInfoData(repositoryId, incomplete.values())) {
+            if (object != null && incomplete.containsKey(object.getId()) && hasObjectInfoProperties(object)) {
+                ObjectInfo info = createObjectInfo(repositoryId, object, filed);
+                if (info != null) {
+                    result.put(object.getId(), info);
+                    incomplete.remove(object.getId());
+                }
+            }
+        }
+
+        for (String objectId : incomplete.keySet()) {
+            ObjectInfo info = getObjectInfo(repositoryId, objectId);
+            if (info != null) {
+                result.put(objectId, info);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Assembles and adds the object info of an object that carries all
+     * required data.
+     */
+    private ObjectInfo createObjectInfo(String repositoryId, ObjectData object, boolean filed) {
+        ObjectInfo info = null;
+        try {
+            // switch off object info collection to avoid side effects
+            addObjectInfos = false;
+
+            info = getObjectInfoIntern(repositoryId, object, filed);
+
+            addObjectInfos = true;
+            addObjectInfo(info);
+        } catch (Exception e) {
+            info = null;
+        } finally {
+            addObjectInfos = true;
+        }
+
+        return info;
+    }
+
+    /**
+     * Fetches the given objects with all data an object info is assembled
+     * from. One query is sent per base type and up to
+     * {@value #OBJECT_INFO_QUERY_SIZE} objects. Objects that cannot be found
+     * this way are missing in the returned list.
+     */
+    private List<ObjectData> queryObjectInfoData(String repositoryId, Collection<ObjectData> objects) {
+        List<ObjectData> result = new ArrayList<ObjectData>();
+
+        try {
+            loadObjectInfoRepositoryData(repositoryId);
+        } catch (Exception e) {
+            return result;
+        }
+
+        RepositoryCapabilities capabilities = objectInfoRepositoryInfo.getCapabilities();
+        if (capabilities == null || capabilities.getQueryCapability() == null
+                || capabilities.getQueryCapability() == CapabilityQuery.NONE
+                || capabilities.getQueryCapability() == CapabilityQuery.FULLTEXTONLY) {
+            return result;
+        }
+
+        Boolean searchAllVersions = Boolean.valueOf(Boolean.TRUE.equals(capabilities
+                .isAllVersionsSearchableSupported()));
+
+        for (TypeDefinition type : objectInfoBaseTypes.getList()) {
+            if (type.getQueryName() == null || !Boolean.TRUE.equals(type.isQueryable())) {
+                continue;
+            }
+
+            List<String> ids = new ArrayList<String>();
+            for (ObjectData object : objects) {
+                if (object.getBaseTypeId() != null && object.getBaseTypeId().value().equals(type.getId())) {
+                    ids.add(object.getId());
+                }
+            }
+
+            for (int i = 0; i < ids.size(); i += OBJECT_INFO_QUERY_SIZE) {
+                List<String> chunk = ids.subList(i, Math.min(i + OBJECT_INFO_QUERY_SIZE, ids.size()));
+
+                StringBuilder statement = new StringBuilder("SELECT * FROM ");
+                statement.append(type.getQueryName());
+                statement.append(" WHERE ");
+                statement.append(PropertyIds.OBJECT_ID);
+                statement.append(" IN (");
+                for (int j = 0; j < chunk.size(); j++) {
+                    if (j > 0) {
+                        statement.append(',');
+                    }
+                    statement.append('\'');
+                    statement.append(chunk.get(j).replace("\\", "\\\\").replace("'", "\\'"));
+                    statement.append('\'');
+                }
+                statement.append(')');
+
+                try {
+                    // switch off object info collection to avoid side effects
+                    addObjectInfos = false;
+
+                    ObjectList list = query(repositoryId, statement.toString(), searchAllVersions, Boolean.TRUE,
+                            IncludeRelationships.BOTH, "*", BigInteger.valueOf(chunk.size()), BigInteger.ZERO, null);
+                    if (list != null && list.getObjects() != null) {
+                        result.addAll(list.getObjects());
+                    }
+                } catch (Exception e) {
+                    // the remaining objects are fetched one by one
+                } finally {
+                    addObjectInfos = true;
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Collects the {@link ObjectInfo} about an object.
      * 
@@ -1078,6 +1263,22 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
      * @return the collected object info
      */
     protected ObjectInfo getObjectInfoIntern(String repositoryId, ObjectData object) {
+        return getObjectInfoIntern(repositoryId, object, false);
+    }
+
+    /**
+     * Collects the {@link ObjectInfo} about an object.
+     * 
+     * @param repositoryId
+     *            the repository id
+     * @param object
+     *            the object
+     * @param filed
+     *            <code>true</code> if the object is known to be filed in a
+     *            folder, which saves the lookup of its parents
+     * @return the collected object info
+     */
+    protected ObjectInfo getObjectInfoIntern(String repositoryId, ObjectData object, boolean filed) {
         // if the object has no properties, stop here
         if (object.getProperties() == null || object.getProperties().getProperties() == null) {
             throw new CmisRuntimeException("No properties!");
@@ -1086,7 +1287,8 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         ObjectInfoImpl info = new ObjectInfoImpl();
 
         // get the repository info
-        RepositoryInfo repositoryInfo = getRepositoryInfo(repositoryId, null);
+        loadObjectInfoRepositoryData(repositoryId);
+        RepositoryInfo repositoryInfo = objectInfoRepositoryInfo;
 
         // general properties
         info.setObject(object);
@@ -1142,6 +1344,8 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
             info.setHasParent(false);
         } else if (object.getBaseTypeId() == BaseTypeId.CMIS_FOLDER) {
             info.setHasParent(!object.getId().equals(repositoryInfo.getRootFolderId()));
+        } else if (filed) {
+            info.setHasParent(true);
         } else {
             try {
                 List<ObjectParentData> parents = getObjectParents(repositoryId, object.getId(), null, Boolean.FALSE,
@@ -1156,8 +1360,7 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         info.setSupportsRelationships(false);
         info.setSupportsPolicies(false);
 
-        TypeDefinitionList baseTypesList = getTypeChildren(repositoryId, null, Boolean.FALSE, BigInteger.valueOf(4),
-                BigInteger.ZERO, null);
+        TypeDefinitionList baseTypesList = objectInfoBaseTypes;
         for (TypeDefinition type : baseTypesList.getList()) {
             if (BaseTypeId.CMIS_RELATIONSHIP.value().equals(type.getId())) {
                 info.setSupportsRelationships(true);
@@ -1226,6 +1429,94 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         return info;
     }
 
+    /**
+     * Fetches the repository info and the base types for object infos, unless
+     * they have already been fetched in this request.
+     */
+    private void loadObjectInfoRepositoryData(String repositoryId) {
+        if (repositoryId != null && repositoryId.equals(objectInfoRepositoryId)) {
+            return;
+        }
+
+        objectInfoRepositoryInfo = getRepositoryInfo(repositoryId, null);
+        objectInfoBaseTypes = getTypeChildren(repositoryId, null, Boolean.FALSE, BigInteger.valueOf(4),
+                BigInteger.ZERO, null);
+        objectInfoRepositoryId = repositoryId;
+    }
+
+    /**
+     * Checks whether an object info can be assembled from the object as it is.
+     * Relationships and renditions that have not been requested cannot be
+     * told apart from none, so objects without them are only complete if the
+     * repository does not support them.
+     */
+    private boolean isObjectInfoComplete(String repositoryId, ObjectData object) {
+        if (!hasObjectInfoProperties(object)) {
+            return false;
+        }
+
+        try {
+            loadObjectInfoRepositoryData(repositoryId);
+        } catch (Exception e) {
+            return false;
+        }
+
+        if (object.getRelationships() == null || object.getRelationships().isEmpty()) {
+            for (TypeDefinition type : objectInfoBaseTypes.getList()) {
+                if (BaseTypeId.CMIS_RELATIONSHIP.value().equals(type.getId())) {
+                    return false;
+                }
+            }
+        }
+
+        if (object.getRenditions() == null || object.getRenditions().isEmpty()) {
+            RepositoryCapabilities capabilities = objectInfoRepositoryInfo.getCapabilities();
+            if (capabilities != null && capabilities.getRenditionsCapability() != null
+                    && capabilities.getRenditionsCapability() != CapabilityRenditions.NONE) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether the object carries all properties an object info is
+     * assembled from. Properties can be missing if the object has been
+     * fetched with a filter.
+     */
+    private boolean hasObjectInfoProperties(ObjectData object) {
+        if (object.getBaseTypeId() == null || object.getProperties() == null
+                || object.getProperties().getProperties() == null) {
+            return false;
+        }
+
+        Map<String, PropertyData<?>> properties = object.getProperties().getProperties();
+        if (!containsAll(properties, PropertyIds.NAME, PropertyIds.OBJECT_TYPE_ID, PropertyIds.CREATED_BY,
+                PropertyIds.LAST_MODIFICATION_DATE)) {
+            return false;
+        }
+
+        if (object.getBaseTypeId() == BaseTypeId.CMIS_DOCUMENT) {
+            return containsAll(properties, PropertyIds.VERSION_SERIES_ID, PropertyIds.IS_LATEST_VERSION,
+                    PropertyIds.IS_VERSION_SERIES_CHECKED_OUT, PropertyIds.VERSION_SERIES_CHECKED_OUT_ID,
+                    PropertyIds.CONTENT_STREAM_FILE_NAME, PropertyIds.CONTENT_STREAM_MIME_TYPE,
+                    PropertyIds.CONTENT_STREAM_ID, PropertyIds.CONTENT_STREAM_LENGTH);
+        }
+
+        return true;
+    }
+
+    private static boolean containsAll(Map<String, PropertyData<?>> properties, String... ids) {
+        for (String id : ids) {
+            if (!properties.containsKey(id)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Adds an object info.
      */
@@ -1244,6 +1535,9 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
      */
     public void clearObjectInfos() {
         objectInfoMap = null;
+        objectInfoRepositoryId = null;
+        objectInfoRepositoryInfo = null;
+        objectInfoBaseTypes = null;
     }
 
     public void close() {
@@ -18,6 +18,8 @@
  */
 package org.apache.chemistry.opencmis.commons.impl.tube;
 
+import javax.xml.ws.WebServiceException;
+
 import org.apache.chemistry.opencmis.commons.impl.tube.client.WssMUTube;
 import org.apache.chemistry.opencmis.commons.impl.tube.server.WssTube;
 
@@ -42,6 +44,7 @@ public class OpenCMISTubeAssembler implements TubelineAssembler {
 
     public Tube createServer(ServerTubeAssemblerContext context) {
         Tube head = context.getTerminalTube();
+        head = createEndpointTube(context, head);
         head = new WssTube(head);
         head = context.createHandlerTube(head);
         head = context.createMonitoringTube(head);
@@ -51,4 +54,28 @@ public class OpenCMISTubeAssembler implements TubelineAssembler {
 
         return head;
     }
+
+    /**
+     * Creates the tube that the endpoint implementation asks for with
+     * {@link EndpointTube}.
+     */
+    private Tube createEndpointTube(ServerTubeAssemblerContext context, Tube next) {
+        Class<?> implementationClass = context.getEndpoint().getImplementationClass();
+        if (implementationClass == null) {
+            return next;
+        }
+
+        EndpointTube endpointTube = implementationClass.getAnnotation(EndpointTube.class);
+        if (endpointTube == null) {
+            return next;
+        }
+
+        try {
+            return endpointTube.value().getConstructor(ServerTubeAssemblerContext.class, Tube.class)
+                    .newInstance(context, next);
+        } catch (Exception e) {
+            throw new WebServiceException("Cannot create endpoint tube for " + implementationClass.getName() + ": "
+                    + e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.ContentHandler;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.junit.Test;
+
+public class JSONParserTest {
+
+    private static final String TEXT = "a \"quoted\" \\ / \b\f\n\r\t \u0001 \u007f \u0085 \u00e9 \u20ac \u4e2d \ud834\udd1e end";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testParse() throws Exception {
+        String json = " {\"string\" : \"abc\", \"number\":-42, \"big\":123456789012345678901234567890,"
+                + "\"decimal\":1.5, \"exp\":-2.5E-3, \"exp2\":1e10, \"true\":true, \"false\":false, \"null\":null,"
+                + "\"array\":[1,[],{},\"x\"], \"object\":{\"a\":{\"b\":[]}}, \"\":\"\" }\r\n";
+
+        for (Object obj : new Object[] { new JSONParser().parse(json), parseBytes(json, 8192), parseBytes(json, 1) }) {
+            Map<String, Object> map = (Map<String, Object>) obj;
+            assertEquals("abc", map.get("string"));
+            assertEquals(BigInteger.valueOf(-42), map.get("number"));
+            assertEquals(new BigInteger("123456789012345678901234567890"), map.get("big"));
+            assertEquals(new BigDecimal("1.5"), map.get("decimal"));
+            assertEquals(new BigDecimal("-2.5E-3"), map.get("exp"));
+            assertEquals(new BigDecimal("1e10"), map.get("exp2"));
+            assertEquals(Boolean.TRUE, map.get("true"));
+            assertEquals(Boolean.FALSE, map.get("false"));
+            assertTrue(map.containsKey("null"));
+            assertNull(map.get("null"));
+            assertEquals(4, ((List<Object>) map.get("array")).size());
+            assertTrue(((List<Object>) map.get("array")).get(1) instanceof JSONArray);
+            assertTrue(((List<Object>) map.get("array")).get(2) instanceof JSONObject);
+            assertTrue(((Map<String, Object>) map.get("object")).get("a") instanceof JSONObject);
+            assertEquals("", map.get(""));
+        }
+
+        assertEquals(BigInteger.valueOf(Long.MIN_VALUE), new JSONParser().parse(String.valueOf(Long.MIN_VALUE)));
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE), new JSONParser().parse(String.valueOf(Long.MAX_VALUE)));
+        assertEquals("x", new JSONParser().parse("\"x\""));
+    }
+
+    @Test
+    public void testStrings() throws Exception {
+        JSONArray array = new JSONArray();
+        array.add(TEXT);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char) ('a' + (i % 26)));
+            if (i % 1000 == 0) {
+                sb.append("\u00fc\u20ac\ud83d\ude00");
+            }
+        }
+        array.add(sb.toString());
+        String json = array.toJSONString();
+
+        assertEquals(array, new JSONParser().parse(json));
+        assertEquals(array, parseBytes(json, 8192));
+        assertEquals(array, parseBytes(json, 1));
+        assertEquals(array, parseBytes(json, 3));
+
+        // unescaped non-ASCII and escaped surrogates
+        assertEquals("\u00e9\u20ac\ud834\udd1e", new JSONParser().parse("\"\u00e9\u20ac\ud834\udd1e\""));
+        assertEquals("\u00e9\u20ac\ud834\udd1e", parseBytes("\"\u00e9\u20ac\ud834\udd1e\"", 1));
+        assertEquals("\ud834\udd1e", new JSONParser().parse("\"\\ud834\\uDD1E\""));
+
+        // lone surrogates survive character input
+        assertEquals("\ud834x", new JSONParser().parse("\"\ud834x\""));
+
+        // malformed UTF-8 is replaced
+        assertEquals("a\ufffdb", new JSONParser().parse(new ByteArrayInputStream(new byte[] { '"', 'a', (byte) 0xC3,
+                'b', '"' })));
+    }
+
+    @Test
+    public void testHugeStrings() throws Exception {
+        // the grown text buffer is dropped on release, the next parser that
+        // borrows these buffers starts with a small one again
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        String huge = sb.toString();
+        String json = "[\"" + huge + "\",\"" + huge.substring(0, 70000) + "\"]";
+
+        for (int i = 0; i < 2; i++) {
+            List<?> list = (List<?>) new JSONParser().parse(json);
+            assertEquals(huge, list.get(0));
+            assertEquals(huge.substring(0, 70000), list.get(1));
+            assertEquals(TEXT, new JSONParser().parse("\"" + JSONValue.escape(TEXT) + "\""));
+        }
+    }
+
+    @Test
+    public void testInternedKeys() throws Exception {
+        Map<?, ?> map1 = (Map<?, ?>) new JSONParser().parse("{\"cmis:objectId\":\"cmis:objectId\"}");
+        Map<?, ?> map2 = (Map<?, ?>) parseBytes("{\"cmis:objectId\":1}", 8192);
+
+        String key1 = (String) map1.keySet().iterator().next();
+        String key2 = (String) map2.keySet().iterator().next();
+        assertSame(key1, key2);
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        String[] invalid = { "", "{", "[1,", "{\"a\"}", "{1:2}", "\"abc", "tru", "nul", "-", "1.", "1e",
+                "\"\\x\"", "\"\\u12G4\"", "@", "[\u00e9]", "{} {}" };
+
+        for (String json : invalid) {
+            try {
+                new JSONParser().parse(json);
+                fail("Exception expected for: " + json);
+            } catch (JSONParseException e) {
+                // expected
+            }
+
+            try {
+                parseBytes(json, 1);
+                fail("Exception expected for: " + json);
+            } catch (JSONParseException e) {
+                // expected
+            }
+        }
+
+        try {
+            new JSONParser().parse("[1, @]");
+            fail("Exception expected!");
+        } catch (JSONParseException e) {
+            assertEquals(JSONParseException.ERROR_UNEXPECTED_CHAR, e.getErrorType());
+            assertEquals(Character.valueOf('@'), e.getUnexpectedObject());
+            assertEquals(4, e.getPosition());
+        }
+
+        // the parser stays usable after an error
+        assertEquals(BigInteger.ONE, new JSONParser().parse("1"));
+    }
+
+    @Test
+    public void testContentHandler() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        ContentHandler handler = new ContentHandler() {
+            public void startJSON() {
+                events.add("startJSON");
+            }
+
+            public void endJSON() {
+                events.add("endJSON");
+            }
+
+            public boolean startObject() {
+                events.add("{");
+                return true;
+            }
+
+            public boolean endObject() {
+                events.add("}");
+                return true;
+            }
+
+            public boolean startObjectEntry(String key) {
+                events.add(key);
+                return true;
+            }
+
+            public boolean endObjectEntry() {
+                return true;
+            }
+
+            public boolean startArray() {
+                events.add("[");
+                return true;
+            }
+
+            public boolean endArray() {
+                events.add("]");
+                return true;
+            }
+
+            public boolean primitive(Object value) {
+                events.add(String.valueOf(value));
+                return true;
+            }
+        };
+
+        String json = "{\"a\":[1,\"b\",null],\"c\":{}}";
+        new JSONParser().parse(new ByteArrayInputStream(IOUtils.toUTF8Bytes(json)), handler);
+
+        assertEquals("[startJSON, {, a, [, 1, b, null, ], c, {, }, }, endJSON]", events.toString());
+    }
+
+    @Test
+    public void testEscape() throws Exception {
+        String plain = "cmis:objectId \u00e9\u4e2d";
+        assertSame(plain, JSONValue.escape(plain));
+        assertEquals("a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u0001\\u007F\\u0085\\u2028",
+                JSONValue.escape("a\"b\\c/d\b\f\n\r\t\u0001\u007f\u0085\u2028"));
+    }
+
+    @Test
+    public void testWriter() throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("text", TEXT);
+        json.put("key \"\u00e9\"", BigInteger.TEN);
+        JSONArray array = new JSONArray();
+        array.add(null);
+        array.add(Boolean.TRUE);
+        array.add(new BigDecimal("1.25"));
+        array.add("\ud83d\ude00");
+        json.put("array", array);
+
+        StringWriter sw = new StringWriter();
+        json.writeJSONString(sw);
+        assertEquals(json.toJSONString(), sw.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONWriter writer = new JSONWriter(out);
+        json.writeJSONString(writer);
+        writer.write("\u00e9\ud83d");
+        writer.write("\ude00\ud83d");
+        writer.close();
+
+        assertArrayEquals(IOUtils.toUTF8Bytes(json.toJSONString() + "\u00e9\ud83d\ude00?"), out.toByteArray());
+        assertEquals(json, new JSONParser().parse(new ByteArrayInputStream(out.toByteArray(), 0, out.size() - 7)));
+    }
+
+    private static Object parseBytes(String json, int chunkSize) throws IOException, JSONParseException {
+        return new JSONParser().parse(new ChunkedInputStream(IOUtils.toUTF8Bytes(json), chunkSize));
+    }
+
+    /**
+     * Returns at most <code>chunkSize</code> bytes per read call.
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+        private final int chunkSize;
+
+        public ChunkedInputStream(byte[] bytes, int chunkSize) {
+            super(new ByteArrayInputStream(bytes));
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, chunkSize));
+        }
+    }
+}
@@ -20,12 +20,17 @@ package org.apache.chemistry.opencmis.commons.impl.misc;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Random;
 
 import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.junit.Test;
 
@@ -56,4 +61,115 @@ public class Base64Test {
 
         assertArrayEquals("test".getBytes("US-ASCII"), output.toByteArray());
     }
+
+    @Test
+    public void testBlockCodec() throws Exception {
+        Random random = new Random(42);
+
+        int[] sizes = new int[] { 0, 1, 2, 3, 4, 5, 100, Base64Codec.BLOCK_SIZE - 1, Base64Codec.BLOCK_SIZE,
+                Base64Codec.BLOCK_SIZE + 1, 3 * Base64Codec.BLOCK_SIZE + 2 };
+
+        for (int size : sizes) {
+            byte[] raw = new byte[size];
+            random.nextBytes(raw);
+
+            byte[] encoded = Base64Codec.encode(raw);
+            assertArrayEquals(Base64.encodeBytesToBytes(raw), encoded);
+            assertArrayEquals(raw, Base64Codec.decode(encoded));
+        }
+    }
+
+    @Test
+    public void testBlockCodecStreams() throws Exception {
+        Random random = new Random(4711);
+
+        byte[] raw = new byte[2 * Base64Codec.BLOCK_SIZE + 7];
+        random.nextBytes(raw);
+        byte[] expected = Base64.encodeBytesToBytes(raw);
+
+        // encoding input stream, source delivers small chunks
+        InputStream encoder = new Base64Codec.EncoderInputStream(new TricklingInputStream(raw, 1000));
+        assertArrayEquals(expected, readAll(encoder, 777));
+
+        // decoding input stream
+        InputStream decoder = new Base64Codec.DecoderInputStream(new TricklingInputStream(expected, 1001));
+        assertArrayEquals(raw, readAll(decoder, 4096));
+
+        // encoding output stream
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Base64Codec.EncoderOutputStream encoderOut = new Base64Codec.EncoderOutputStream(out);
+        for (int i = 0; i < raw.length; i += 5000) {
+            encoderOut.write(raw, i, Math.min(5000, raw.length - i));
+        }
+        encoderOut.close();
+        assertArrayEquals(expected, out.toByteArray());
+
+        // decoding output stream, with line breaks and odd chunks
+        char[] chars = new String(expected, "US-ASCII").replaceAll("(.{76})", "$1\r\n").toCharArray();
+        out = new ByteArrayOutputStream();
+        Base64Codec.DecoderOutputStream decoderOut = new Base64Codec.DecoderOutputStream(out);
+        for (int i = 0; i < chars.length; i += 333) {
+            decoderOut.write(chars, i, Math.min(333, chars.length - i));
+        }
+        decoderOut.close();
+        assertArrayEquals(raw, out.toByteArray());
+    }
+
+    @Test
+    public void testBlockCodecDecoding() throws Exception {
+        assertArrayEquals(IOUtils.toUTF8Bytes("test"), Base64Codec.decode(IOUtils.toUTF8Bytes(" dGVz\r\n\tdA== ")));
+        assertArrayEquals(IOUtils.toUTF8Bytes("test"), Base64Codec.decode(IOUtils.toUTF8Bytes("dGVzdA")));
+        assertArrayEquals(IOUtils.toUTF8Bytes("testtest"), Base64Codec.decode(IOUtils.toUTF8Bytes("dGVzdA==dGVzdA==")));
+        assertArrayEquals(IOUtils.toUTF8Bytes("tes"), Base64Codec.decode(IOUtils.toUTF8Bytes("dGVz")));
+
+        try {
+            Base64Codec.decode(IOUtils.toUTF8Bytes("dGV*"));
+            fail("IOException expected!");
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            Base64Codec.decode(IOUtils.toUTF8Bytes("dGVzd"));
+            fail("IOException expected!");
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            Base64Codec.decode(IOUtils.toUTF8Bytes("dGVzdA==x"));
+            fail("IOException expected!");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static byte[] readAll(InputStream stream, int bufferSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        int n;
+        while ((n = stream.read(buffer)) > -1) {
+            out.write(buffer, 0, n);
+        }
+        stream.close();
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns at most a given number of bytes per read call.
+     */
+    private static class TricklingInputStream extends FilterInputStream {
+        private final int chunkSize;
+
+        public TricklingInputStream(byte[] data, int chunkSize) {
+            super(new ByteArrayInputStream(data));
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, chunkSize));
+        }
+    }
 }
@@ -19,14 +19,17 @@
 package org.apache.chemistry.opencmis.commons.impl.misc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
 import org.junit.Test;
 
 public class DateTimeTest {
@@ -225,4 +228,100 @@ public class DateTimeTest {
         // invalid day
         assertNull(DateTimeHelper.parseHttpDateTime("Mon, xy Dec 2012 09:10:11 GMT"));
     }
+
+    @Test
+    public void testXmlDateTimeMillisAgainstCalendar() {
+        Random rnd = new Random(42);
+        int[] offsets = new int[] { 0, 3600000, -3600000, 5 * 3600000 + 30 * 60000, -(3 * 3600000 + 2 * 60000) };
+
+        for (int i = 0; i < 10000; i++) {
+            // between the years 1000 and 4000
+            long millis = -30610224000000L + (long) (rnd.nextDouble() * 94670000000000L);
+            int offset = offsets[i % offsets.length];
+
+            GregorianCalendar cal = new GregorianCalendar(DateTimeHelper.getTimeZone(offset));
+            cal.setTimeInMillis(millis);
+
+            String formatted = DateTimeHelper.formatXmlDateTime(millis, offset);
+            assertEquals(DateTimeHelper.formatXmlDateTime(cal), formatted);
+            assertEquals(expectedXmlDateTime(cal), formatted);
+
+            int[] zoneOffset = new int[1];
+            assertEquals(millis, DateTimeHelper.parseXmlDateTimeToMillis(formatted, zoneOffset));
+            assertEquals(offset, zoneOffset[0]);
+
+            char[] chars = ("xx" + formatted + "yy").toCharArray();
+            assertEquals(millis, DateTimeHelper.parseXmlDateTimeToMillis(chars, 2, formatted.length(), null));
+
+            assertEquals(DateTimeHelper.formatHttpDateTime(cal.getTime()), expectedHttpDateTime(millis));
+            if (millis >= 0) {
+                assertEquals(millis - millis % 1000,
+                        DateTimeHelper.parseHttpDateTime(DateTimeHelper.formatHttpDateTime(millis)).getTime());
+            }
+        }
+    }
+
+    @Test
+    public void testLenientXmlDateTime() {
+        // month 13 and day 32 roll over like GregorianCalendar does
+        GregorianCalendar cal = DateTimeHelper.parseXmlDateTime("2012-13-32T25:00:00Z");
+        assertEquals(2013, cal.get(Calendar.YEAR));
+        assertEquals(1, cal.get(Calendar.MONTH));
+        assertEquals(2, cal.get(Calendar.DAY_OF_MONTH));
+        assertEquals(1, cal.get(Calendar.HOUR_OF_DAY));
+
+        assertNull(DateTimeHelper.parseXmlDateTime("2012-12-24T09:15:06."));
+        assertNull(DateTimeHelper.parseXmlDateTime("2012-12-24T09:15:06Z "));
+        assertNull(DateTimeHelper.parseXmlDateTime("2012-12-24T09:15:06+5:00"));
+        assertEquals(DateTimeHelper.INVALID_DATE, DateTimeHelper.parseXmlDateTimeToMillis("2012-12-24", null));
+    }
+
+    @Test
+    public void testLazyDateTimeProperty() {
+        PropertyDateTimeImpl property = new PropertyDateTimeImpl();
+        property.addValueInMillis(0, 0);
+        property.addValueInMillis(1000, 3600000);
+
+        assertEquals(2, property.getValues().size());
+        assertEquals(0, property.getFirstValue().getTimeInMillis());
+        assertEquals(1000, property.getValues().get(1).getTimeInMillis());
+        assertEquals(3600000, property.getValues().get(1).getTimeZone().getRawOffset());
+
+        property.addValueInMillis(2000, 0);
+        assertEquals(3, property.getValues().size());
+        assertEquals(2000, property.getValues().get(2).getTimeInMillis());
+
+        property.addValueInMillis(3000, 0);
+        property.setValue(null);
+        assertEquals(0, property.getValues().size());
+    }
+
+    @Test
+    public void testCalendarTimeZonesAreNotShared() {
+        GregorianCalendar cal1 = DateTimeHelper.createCalendar(0, 3600000);
+        GregorianCalendar cal2 = DateTimeHelper.createCalendar(0, 3600000);
+        assertNotSame(cal1.getTimeZone(), cal2.getTimeZone());
+
+        cal1.getTimeZone().setRawOffset(0);
+        assertEquals(3600000, cal2.getTimeZone().getRawOffset());
+        assertEquals(3600000, DateTimeHelper.createCalendar(0, 3600000).getTimeZone().getRawOffset());
+    }
+
+    private static String expectedXmlDateTime(GregorianCalendar cal) {
+        int tz = cal.getTimeZone().getOffset(cal.getTimeInMillis());
+        String ms = String.format("%03d", cal.get(Calendar.MILLISECOND)).replaceAll("0+$", "");
+        String zone = tz == 0 ? "Z" : String.format("%s%02d:%02d", tz > 0 ? "+" : "-", Math.abs(tz) / 3600000,
+                (Math.abs(tz) % 3600000) / 60000);
+
+        return String.format("%04d-%02d-%02dT%02d:%02d:%02d%s%s", cal.get(Calendar.YEAR),
+                cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH), cal.get(Calendar.HOUR_OF_DAY),
+                cal.get(Calendar.MINUTE), cal.get(Calendar.SECOND), ms.length() == 0 ? "" : "." + ms, zone);
+    }
+
+    private static String expectedHttpDateTime(long millis) {
+        java.text.SimpleDateFormat format = new java.text.SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'",
+                java.util.Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
 }
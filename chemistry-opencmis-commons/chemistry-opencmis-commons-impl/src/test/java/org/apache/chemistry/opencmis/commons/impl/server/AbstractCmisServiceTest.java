@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectParentData;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyBooleanImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RelationshipTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionListImpl;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.junit.Test;
+
+public class AbstractCmisServiceTest {
+
+    private static final String REPOSITORY_ID = "repo";
+    private static final String ROOT_ID = "root";
+
+    @Test
+    public void testBatchUsesObjectData() {
+        CountingService service = new CountingService();
+
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        for (int i = 0; i < 100; i++) {
+            objects.add(createDocumentData("doc" + i, true));
+        }
+
+        Map<String, ObjectInfo> infos = service.getObjectInfos(REPOSITORY_ID, objects, true);
+
+        assertEquals(100, infos.size());
+        assertEquals(1, service.repositoryInfoCalls);
+        assertEquals(1, service.typeChildrenCalls);
+        assertEquals(0, service.objectCalls);
+        assertEquals(0, service.parentsCalls);
+
+        ObjectInfo info = infos.get("doc42");
+        assertEquals("doc42", info.getId());
+        assertEquals("name-doc42", info.getName());
+        assertEquals(BaseTypeId.CMIS_DOCUMENT, info.getBaseType());
+        assertTrue(info.hasParent());
+        assertTrue(info.hasContent());
+        assertEquals("text/plain", info.getContentType());
+
+        // the infos are now known to the service
+        assertSame(info, service.getObjectInfo(REPOSITORY_ID, "doc42"));
+        assertEquals(0, service.objectCalls);
+    }
+
+    @Test
+    public void testBatchNotFiled() {
+        CountingService service = new CountingService();
+
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        for (int i = 0; i < 10; i++) {
+            objects.add(createDocumentData("doc" + i, true));
+        }
+        objects.add(createFolderData(ROOT_ID));
+        objects.add(createFolderData("folder"));
+
+        Map<String, ObjectInfo> infos = service.getObjectInfos(REPOSITORY_ID, objects, false);
+
+        assertEquals(12, infos.size());
+        assertEquals(1, service.repositoryInfoCalls);
+        assertEquals(10, service.parentsCalls);
+        assertFalse(infos.get("doc0").hasParent());
+        assertFalse(infos.get(ROOT_ID).hasParent());
+        assertTrue(infos.get("folder").hasParent());
+    }
+
+    @Test
+    public void testBatchIncompleteObjects() {
+        CountingService service = new CountingService();
+
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        objects.add(createDocumentData("complete", true));
+        objects.add(createDocumentData("filtered", false));
+
+        Map<String, ObjectInfo> infos = service.getObjectInfos(REPOSITORY_ID, objects, true);
+
+        assertEquals(2, infos.size());
+        assertEquals(1, service.objectCalls);
+        assertEquals("name-filtered", infos.get("filtered").getName());
+        assertEquals("text/plain", infos.get("filtered").getContentType());
+    }
+
+    @Test
+    public void testBatchQueriesIncompleteObjects() {
+        CountingService service = new CountingService();
+        service.queryCapability = CapabilityQuery.METADATAONLY;
+        service.notQueryable.add("doc7");
+
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        for (int i = 0; i < 150; i++) {
+            objects.add(createDocumentData("doc" + i, false));
+        }
+
+        Map<String, ObjectInfo> infos = service.getObjectInfos(REPOSITORY_ID, objects, true);
+
+        assertEquals(150, infos.size());
+        assertEquals(2, service.queryCalls);
+        assertEquals(1, service.objectCalls);
+        assertEquals("name-doc42", infos.get("doc42").getName());
+        assertEquals("text/plain", infos.get("doc42").getContentType());
+        assertEquals("name-doc7", infos.get("doc7").getName());
+    }
+
+    @Test
+    public void testBatchRequiresRelationships() {
+        CountingService service = new CountingService();
+        service.queryCapability = CapabilityQuery.BOTHCOMBINED;
+        service.supportsRelationships = true;
+
+        ObjectDataImpl related = (ObjectDataImpl) createDocumentData("related", true);
+        related.setRelationships(Collections.singletonList(createRelationshipData("rel", "related", "other")));
+
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        objects.add(createDocumentData("plain", true));
+        objects.add(related);
+
+        Map<String, ObjectInfo> infos = service.getObjectInfos(REPOSITORY_ID, objects, true);
+
+        // relationships that have not been requested look like none
+        assertEquals(2, infos.size());
+        assertEquals(1, service.queryCalls);
+        assertEquals(0, service.objectCalls);
+        assertEquals(Collections.singletonList("rel"), infos.get("related").getRelationshipSourceIds());
+        assertTrue(infos.get("plain").supportsRelationships());
+    }
+
+    @Test
+    public void testBatchReusesObjectInfos() {
+        CountingService service = new CountingService();
+
+        ObjectInfoImpl known = new ObjectInfoImpl();
+        known.setId("doc0");
+        service.addObjectInfo(known);
+
+        Map<String, ObjectInfo> infos = service.getObjectInfos(REPOSITORY_ID,
+                Collections.<ObjectData> singletonList(createDocumentData("doc0", true)), true);
+
+        assertSame(known, infos.get("doc0"));
+        assertEquals(0, service.repositoryInfoCalls);
+
+        // a new request starts from scratch
+        service.close();
+        service.getObjectInfos(REPOSITORY_ID, Collections.<ObjectData> singletonList(createDocumentData("doc0", true)),
+                true);
+        assertEquals(1, service.repositoryInfoCalls);
+    }
+
+    private static ObjectData createDocumentData(String id, boolean complete) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        if (complete) {
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name-" + id));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.CREATED_BY, "user"));
+            properties.addProperty(new PropertyDateTimeImpl(PropertyIds.LAST_MODIFICATION_DATE,
+                    new GregorianCalendar()));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.CONTENT_STREAM_FILE_NAME, id + ".txt"));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.CONTENT_STREAM_ID, (String) null));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.VERSION_SERIES_CHECKED_OUT_ID, (String) null));
+            properties.addProperty(new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger.TEN));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.CONTENT_STREAM_MIME_TYPE, "text/plain"));
+            properties.addProperty(new PropertyIdImpl(PropertyIds.VERSION_SERIES_ID, "vs-" + id));
+            properties.addProperty(new PropertyBooleanImpl(PropertyIds.IS_LATEST_VERSION, Boolean.TRUE));
+            properties.addProperty(new PropertyBooleanImpl(PropertyIds.IS_VERSION_SERIES_CHECKED_OUT, Boolean.FALSE));
+        } else {
+            // a typical client filter
+            properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name-" + id));
+            properties.addProperty(new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger.TEN));
+        }
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+
+        return object;
+    }
+
+    private static ObjectData createFolderData(String id) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_FOLDER.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value()));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name-" + id));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.CREATED_BY, "user"));
+        properties.addProperty(new PropertyDateTimeImpl(PropertyIds.LAST_MODIFICATION_DATE, new GregorianCalendar()));
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+
+        return object;
+    }
+
+    private static ObjectData createRelationshipData(String id, String sourceId, String targetId) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_RELATIONSHIP.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.SOURCE_ID, sourceId));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.TARGET_ID, targetId));
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+
+        return object;
+    }
+
+    private static class CountingService extends AbstractCmisService {
+        int repositoryInfoCalls;
+        int typeChildrenCalls;
+        int objectCalls;
+        int parentsCalls;
+        int queryCalls;
+
+        CapabilityQuery queryCapability = CapabilityQuery.NONE;
+        boolean supportsRelationships;
+        Set<String> notQueryable = new HashSet<String>();
+
+        @Override
+        public List<RepositoryInfo> getRepositoryInfos(ExtensionsData extension) {
+            repositoryInfoCalls++;
+
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId(REPOSITORY_ID);
+            info.setRootFolder(ROOT_ID);
+
+            RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setCapabilityQuery(queryCapability);
+            info.setCapabilities(capabilities);
+
+            return Collections.<RepositoryInfo> singletonList(info);
+        }
+
+        @Override
+        public TypeDefinitionList getTypeChildren(String repositoryId, String typeId,
+                Boolean includePropertyDefinitions, BigInteger maxItems, BigInteger skipCount,
+                ExtensionsData extension) {
+            typeChildrenCalls++;
+
+            DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+            type.setId(BaseTypeId.CMIS_DOCUMENT.value());
+            type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+            type.setQueryName(BaseTypeId.CMIS_DOCUMENT.value());
+            type.setIsQueryable(Boolean.TRUE);
+
+            List<TypeDefinition> types = new ArrayList<TypeDefinition>();
+            types.add(type);
+
+            if (supportsRelationships) {
+                RelationshipTypeDefinitionImpl relType = new RelationshipTypeDefinitionImpl();
+                relType.setId(BaseTypeId.CMIS_RELATIONSHIP.value());
+                relType.setBaseTypeId(BaseTypeId.CMIS_RELATIONSHIP);
+                types.add(relType);
+            }
+
+            return new TypeDefinitionListImpl(types);
+        }
+
+        @Override
+        public TypeDefinition getTypeDefinition(String repositoryId, String typeId, ExtensionsData extension) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectInFolderList getChildren(String repositoryId, String folderId, String filter, String orderBy,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includePathSegment, BigInteger maxItems, BigInteger skipCount, ExtensionsData extension) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ObjectParentData> getObjectParents(String repositoryId, String objectId, String filter,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includeRelativePathSegment, ExtensionsData extension) {
+            parentsCalls++;
+            return Collections.<ObjectParentData> emptyList();
+        }
+
+        @Override
+        public ObjectData getObject(String repositoryId, String objectId, String filter,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includePolicyIds, Boolean includeAcl, ExtensionsData extension) {
+            objectCalls++;
+            return createDocumentData(objectId, true);
+        }
+
+        @Override
+        public ObjectList query(String repositoryId, String statement, Boolean searchAllVersions,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                BigInteger maxItems, BigInteger skipCount, ExtensionsData extension) {
+            queryCalls++;
+
+            assertTrue(statement.startsWith("SELECT * FROM cmis:document WHERE cmis:objectId IN ('"));
+            assertEquals(IncludeRelationships.BOTH, includeRelationships);
+
+            List<ObjectData> objects = new ArrayList<ObjectData>();
+            Matcher matcher = Pattern.compile("'([^']*)'").matcher(statement);
+            while (matcher.find()) {
+                String id = matcher.group(1);
+                if (!notQueryable.contains(id)) {
+                    objects.add(createDocumentData(id, true));
+                }
+            }
+
+            assertTrue(objects.size() <= maxItems.intValue());
+
+            ObjectListImpl result = new ObjectListImpl();
+            result.setObjects(objects);
+            return result;
+        }
+    }
+}
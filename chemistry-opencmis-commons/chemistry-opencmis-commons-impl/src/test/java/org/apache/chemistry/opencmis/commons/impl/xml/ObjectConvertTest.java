@@ -19,9 +19,12 @@
 package org.apache.chemistry.opencmis.commons.impl.xml;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.math.BigInteger;
@@ -31,6 +34,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
@@ -50,7 +55,9 @@ import org.apache.chemistry.opencmis.commons.enums.PropertyType;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.WSConverter;
+import org.apache.chemistry.opencmis.commons.impl.WSPayloadConverter;
 import org.apache.chemistry.opencmis.commons.impl.XMLConverter;
+import org.apache.chemistry.opencmis.commons.impl.XMLUtils;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlEntryImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlPrincipalDataImpl;
@@ -68,12 +75,16 @@ import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectInFolderContain
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectInFolderListType;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectListType;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectType;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.GetChildrenResponse;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.GetObjectResponse;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
 import org.junit.Test;
 
 public class ObjectConvertTest extends AbstractXMLConverterTest {
 
+    private JAXBContext wsPayloadContext;
+
     @Test
     public void testObjectData() throws Exception {
         // run the test a few times with different values
@@ -86,6 +97,9 @@ public class ObjectConvertTest extends AbstractXMLConverterTest {
 
             ObjectDataImpl data11j = createObjectData(true, CmisVersion.CMIS_1_1, true, false);
             assertJsonObjectData11(data11j);
+
+            assertWsPayloadObjectData(data10, CmisVersion.CMIS_1_0);
+            assertWsPayloadObjectData(data11, CmisVersion.CMIS_1_1);
         }
     }
 
@@ -125,9 +139,39 @@ public class ObjectConvertTest extends AbstractXMLConverterTest {
             }
 
             assertObjectList(children1, children2);
+            assertWsPayloadObjectInFolderList(children2);
         }
     }
 
+    @Test
+    public void testWsPayloadRequestParameters() throws Exception {
+        String request = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<m:getObject xmlns:m=\"http://docs.oasis-open.org/ns/cmis/messaging/200908/\""
+                + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">" //
+                + "<m:repositoryId>repo</m:repositoryId>" //
+                + "<m:objectId>a&amp;b</m:objectId>" //
+                + "<m:filter xsi:nil=\"true\"/>" //
+                + "<m:includeAllowableActions>true</m:includeAllowableActions>" //
+                + "<m:extension/>" //
+                + "</m:getObject>";
+
+        Map<String, String> parameters = readRequestParameters(request);
+        assertNotNull(parameters);
+        assertEquals(3, parameters.size());
+        assertEquals("repo", parameters.get("repositoryId"));
+        assertEquals("a&b", parameters.get("objectId"));
+        assertEquals("true", parameters.get("includeAllowableActions"));
+        assertFalse(parameters.containsKey("filter"));
+
+        // extensions are not supported
+        String requestWithExtension = "<m:getObject xmlns:m=\"http://docs.oasis-open.org/ns/cmis/messaging/200908/\">"
+                + "<m:repositoryId>repo</m:repositoryId>" //
+                + "<m:extension><x:ext xmlns:x=\"http://chemistry.apache.org/test\">value</x:ext></m:extension>"
+                + "</m:getObject>";
+
+        assertNull(readRequestParameters(requestWithExtension));
+    }
+
     @Test
     public void testDescendants() throws Exception {
         // run the test a few times with different values
@@ -459,4 +503,80 @@ public class ObjectConvertTest extends AbstractXMLConverterTest {
         assertNotNull(result);
         assertDataObjectsEquals("ObjectContainer", container, result, null);
     }
+
+    protected void assertWsPayloadObjectData(ObjectData data, CmisVersion cmisVersion) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        XMLStreamWriter writer = XMLUtils.createWriter(out);
+        writer.writeStartDocument();
+        WSPayloadConverter.writeObjectResponse(writer, cmisVersion, WSPayloadConverter.OPERATION_GET_OBJECT, data);
+        XMLUtils.endXmlDocument(writer);
+
+        byte[] xml = out.toByteArray();
+
+        // JAXB must be able to read it
+        Unmarshaller unmarshaller = getWsPayloadContext().createUnmarshaller();
+        GetObjectResponse response = (GetObjectResponse) unmarshaller.unmarshal(new ByteArrayInputStream(xml));
+
+        ObjectData result = WSConverter.convert(response.getObject());
+
+        assertNotNull(result);
+        assertDataObjectsEquals("ObjectData", data, result, null);
+
+        // and the StAX parser, too
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(xml));
+        XMLUtils.findNextStartElemenet(parser);
+        result = WSPayloadConverter.convertObjectResponse(parser);
+        closeParser(parser);
+
+        assertNotNull(result);
+        assertDataObjectsEquals("ObjectData", data, result, null);
+    }
+
+    protected void assertWsPayloadObjectInFolderList(ObjectInFolderList children) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        XMLStreamWriter writer = XMLUtils.createWriter(out);
+        writer.writeStartDocument();
+        WSPayloadConverter.writeChildrenResponse(writer, CmisVersion.CMIS_1_1, children);
+        XMLUtils.endXmlDocument(writer);
+
+        byte[] xml = out.toByteArray();
+
+        // JAXB must be able to read it
+        Unmarshaller unmarshaller = getWsPayloadContext().createUnmarshaller();
+        GetChildrenResponse response = (GetChildrenResponse) unmarshaller.unmarshal(new ByteArrayInputStream(xml));
+
+        ObjectInFolderList result = WSConverter.convert(response.getObjects());
+
+        assertNotNull(result);
+        assertDataObjectsEquals("ObjectInFolderList", children, result, null);
+
+        // and the StAX parser, too
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(xml));
+        XMLUtils.findNextStartElemenet(parser);
+        result = WSPayloadConverter.convertChildrenResponse(parser);
+        closeParser(parser);
+
+        assertNotNull(result);
+        assertDataObjectsEquals("ObjectInFolderList", children, result, null);
+    }
+
+    protected JAXBContext getWsPayloadContext() throws Exception {
+        if (wsPayloadContext == null) {
+            wsPayloadContext = JAXBContext.newInstance(GetObjectResponse.class, GetChildrenResponse.class);
+        }
+
+        return wsPayloadContext;
+    }
+
+    protected Map<String, String> readRequestParameters(String request) throws Exception {
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(request.getBytes("UTF-8")));
+        try {
+            XMLUtils.findNextStartElemenet(parser);
+            return WSPayloadConverter.convertRequestParameters(parser);
+        } finally {
+            closeParser(parser);
+        }
+    }
 }
@@ -23,6 +23,7 @@
 package org.apache.chemistry.opencmis.server.impl.atompub;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +44,7 @@ import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.NamespaceDefinitions;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfoBatchHandler;
 import org.apache.chemistry.opencmis.commons.server.RenditionInfo;
 import org.apache.chemistry.opencmis.server.shared.AbstractServiceCall;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
@@ -137,6 +139,46 @@ public abstract class AbstractAtomPubServiceCall extends AbstractServiceCall {
         return null;
     }
 
+    // -------------------------------------------------------------------------
+    // --- object infos ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Asks the service for the object infos of all objects of a feed in one
+     * go, if the service supports it. Otherwise the object infos are fetched
+     * one by one while the entries are written.
+     */
+    public void loadObjectInfos(CmisService service, String repositoryId, List<ObjectData> objects, boolean filed) {
+        if ((service instanceof ObjectInfoBatchHandler) && (objects != null) && !objects.isEmpty()) {
+            ((ObjectInfoBatchHandler) service).getObjectInfos(repositoryId, objects, filed);
+        }
+    }
+
+    /**
+     * Collects the objects of a descendants or folder tree.
+     */
+    public List<ObjectData> collectObjects(List<ObjectInFolderContainer> containers) {
+        List<ObjectData> result = new ArrayList<ObjectData>();
+        collectObjects(containers, result);
+        return result;
+    }
+
+    private void collectObjects(List<ObjectInFolderContainer> containers, List<ObjectData> result) {
+        if (containers == null) {
+            return;
+        }
+
+        for (ObjectInFolderContainer container : containers) {
+            if ((container == null) || (container.getObject() == null)
+                    || (container.getObject().getObject() == null)) {
+                continue;
+            }
+
+            result.add(container.getObject().getObject());
+            collectObjects(container.getChildren(), result);
+        }
+    }
+
     // -------------------------------------------------------------------------
     // --- entry builder ---
     // -------------------------------------------------------------------------
@@ -45,7 +45,7 @@ import org.apache.chemistry.opencmis.commons.data.PropertyString;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
-import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.XMLConstants;
 import org.apache.chemistry.opencmis.commons.impl.XMLConstraints;
@@ -449,7 +449,7 @@ public final class AtomEntryParser {
     private ThresholdOutputStream readBase64(XMLStreamReader parser) throws XMLStreamException, IOException {
         ThresholdOutputStream bufferStream = streamFactory.newOutputStream();
         @SuppressWarnings("resource")
-        Base64.OutputStream b64stream = new Base64.OutputStream(bufferStream, Base64.DECODE);
+        Base64Codec.DecoderOutputStream b64stream = new Base64Codec.DecoderOutputStream(bufferStream);
 
         XMLUtils.next(parser);
 
@@ -461,12 +461,7 @@ public final class AtomEntryParser {
                 } else if (event == XMLStreamReader.CHARACTERS) {
                     int len = parser.getTextLength();
                     if (len > 0) {
-                        char[] chars = parser.getTextCharacters();
-                        int offset = parser.getTextStart();
-                        for (int i = 0; i < len; i++) {
-                            // it's base64/ASCII
-                            b64stream.write(chars[offset + i]);
-                        }
+                        b64stream.write(parser.getTextCharacters(), parser.getTextStart(), len);
                         cappedStream.deductBytes(len);
                     }
                 } else if (event == XMLStreamReader.START_ELEMENT) {
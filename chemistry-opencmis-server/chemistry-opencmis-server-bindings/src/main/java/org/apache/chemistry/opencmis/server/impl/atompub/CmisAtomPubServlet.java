@@ -75,7 +75,9 @@ import org.apache.chemistry.opencmis.server.shared.AbstractCmisHttpServlet;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
 import org.apache.chemistry.opencmis.server.shared.ExceptionHelper;
 import org.apache.chemistry.opencmis.server.shared.HttpUtils;
+import org.apache.chemistry.opencmis.server.shared.LimitExceededException;
 import org.apache.chemistry.opencmis.server.shared.QueryStringHttpServletRequestWrapper;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter.Lane;
 import org.apache.chemistry.opencmis.server.shared.ServiceCall;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.slf4j.Logger;
@@ -99,6 +101,12 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
         // set the binding
         setBinding(CallContext.BINDING_ATOMPUB);
 
+        // set the request limits
+        dispatcher.setRequestLimiter(getRequestLimiter());
+
+        // set the metrics
+        dispatcher.setOperationMetrics(getOperationMetrics());
+
         // get and CMIS version
         String cmisVersionStr = config.getInitParameter(PARAM_CMIS_VERSION);
         if (cmisVersionStr != null) {
@@ -130,12 +138,12 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
         addResource(RESOURCE_OBJECTBYID, METHOD_GET, new ObjectService.GetObject());
         addResource(RESOURCE_OBJECTBYPATH, METHOD_GET, new ObjectService.GetObjectByPath());
         addResource(RESOURCE_ALLOWABLEACIONS, METHOD_GET, new ObjectService.GetAllowableActions());
-        addResource(RESOURCE_CONTENT, METHOD_GET, new ObjectService.GetContentStream());
-        addResource(RESOURCE_CONTENT, METHOD_PUT, new ObjectService.SetOrAppendContentStream());
+        addResource(RESOURCE_CONTENT, METHOD_GET, new ObjectService.GetContentStream(), Lane.CONTENT);
+        addResource(RESOURCE_CONTENT, METHOD_PUT, new ObjectService.SetOrAppendContentStream(), Lane.CONTENT);
         addResource(RESOURCE_CONTENT, METHOD_DELETE, new ObjectService.DeleteContentStream());
-        addResource(RESOURCE_CHILDREN, METHOD_POST, new ObjectService.Create());
+        addResource(RESOURCE_CHILDREN, METHOD_POST, new ObjectService.Create(), Lane.CONTENT);
         addResource(RESOURCE_RELATIONSHIPS, METHOD_POST, new ObjectService.CreateRelationship());
-        addResource(RESOURCE_ENTRY, METHOD_PUT, new ObjectService.UpdateProperties());
+        addResource(RESOURCE_ENTRY, METHOD_PUT, new ObjectService.UpdateProperties(), Lane.CONTENT);
         addResource(RESOURCE_ENTRY, METHOD_DELETE, new ObjectService.DeleteObject());
         addResource(RESOURCE_CHILDREN, METHOD_DELETE, new ObjectService.DeleteTree()); // 1.1
         addResource(RESOURCE_DESCENDANTS, METHOD_DELETE, new ObjectService.DeleteTree());
@@ -159,7 +167,9 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
             IOException {
-        QueryStringHttpServletRequestWrapper qsRequest = new QueryStringHttpServletRequestWrapper(request);
+        QueryStringHttpServletRequestWrapper qsRequest = new QueryStringHttpServletRequestWrapper(
+                decodeRequest(countRequest(request)));
+        response = countResponse(compressResponse(request, response));
 
         // set default headers
         response.addHeader("Cache-Control", "private, max-age=0");
@@ -171,7 +181,9 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
             context = createContext(getServletContext(), qsRequest, response);
             dispatch(context, qsRequest, response);
         } catch (Exception e) {
-            if (e instanceof CmisUnauthorizedException) {
+            if (e instanceof LimitExceededException) {
+                sendLimitExceeded((LimitExceededException) e, response);
+            } else if (e instanceof CmisUnauthorizedException) {
                 response.setHeader("WWW-Authenticate", "Basic realm=\"CMIS\"");
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Authorization Required");
             } else if (e instanceof CmisPermissionDeniedException) {
@@ -184,9 +196,11 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
             } else {
                 printError(e, response);
             }
+        } finally {
+            // we are done, this also returns the deflater to the pool
+            finishResponse(response);
         }
 
-        // we are done.
         response.flushBuffer();
     }
 
@@ -197,6 +211,13 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
         dispatcher.addResource(resource, httpMethod, serviceCall);
     }
 
+    /**
+     * Registers a new resource in the given request lane.
+     */
+    protected void addResource(String resource, String httpMethod, ServiceCall serviceCall, Lane lane) {
+        dispatcher.addResource(resource, httpMethod, serviceCall, lane);
+    }
+
     /**
      * Dispatches to feed, entry or whatever.
      */
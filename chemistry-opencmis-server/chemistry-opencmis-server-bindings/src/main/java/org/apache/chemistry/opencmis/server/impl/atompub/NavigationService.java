@@ -19,6 +19,7 @@
 package org.apache.chemistry.opencmis.server.impl.atompub;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -167,6 +168,14 @@ public class NavigationService {
 
             // write entries
             if (children.getObjects() != null) {
+                List<ObjectData> objects = new ArrayList<ObjectData>(children.getObjects().size());
+                for (ObjectInFolderData object : children.getObjects()) {
+                    if ((object != null) && (object.getObject() != null)) {
+                        objects.add(object.getObject());
+                    }
+                }
+                loadObjectInfos(service, repositoryId, objects, true);
+
                 AtomEntry entry = new AtomEntry(feed.getWriter());
                 for (ObjectInFolderData object : children.getObjects()) {
                     if ((object == null) || (object.getObject() == null)) {
@@ -258,6 +267,8 @@ public class NavigationService {
             }
 
             // write entries
+            loadObjectInfos(service, repositoryId, collectObjects(descendants), true);
+
             AtomEntry entry = new AtomEntry(feed.getWriter());
             for (ObjectInFolderContainer container : descendants) {
                 if ((container == null) || (container.getObject() == null)
@@ -351,6 +362,8 @@ public class NavigationService {
             }
 
             // write entries
+            loadObjectInfos(service, repositoryId, collectObjects(folderTree), true);
+
             AtomEntry entry = new AtomEntry(feed.getWriter());
             for (ObjectInFolderContainer container : folderTree) {
                 if ((container == null) || (container.getObject() == null)
@@ -429,6 +442,14 @@ public class NavigationService {
             feed.writeSelfLink(selfLink.toString(), null);
 
             // write entries
+            List<ObjectData> objects = new ArrayList<ObjectData>(parents.size());
+            for (ObjectParentData object : parents) {
+                if ((object != null) && (object.getObject() != null)) {
+                    objects.add(object.getObject());
+                }
+            }
+            loadObjectInfos(service, repositoryId, objects, false);
+
             AtomEntry entry = new AtomEntry(feed.getWriter());
             for (ObjectParentData object : parents) {
                 if ((object == null) || (object.getObject() == null)) {
@@ -533,6 +554,8 @@ public class NavigationService {
 
             // write entries
             if (checkedOut.getObjects() != null) {
+                loadObjectInfos(service, repositoryId, checkedOut.getObjects(), false);
+
                 AtomEntry entry = new AtomEntry(feed.getWriter());
                 for (ObjectData object : checkedOut.getObjects()) {
                     if (object == null) {
@@ -62,6 +62,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyUriImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONWriter;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.server.shared.AbstractServiceCall;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
@@ -126,26 +127,32 @@ public abstract class AbstractBrowserServiceCall extends AbstractServiceCall {
         if (token != null && "POST".equals(request.getMethod())) {
             response.setContentType(HTML_MIME_TYPE);
             response.setContentLength(0);
+            response.getWriter().flush();
         } else {
             response.setContentType(JSON_MIME_TYPE);
             response.setCharacterEncoding(IOUtils.UTF8);
 
             String callback = getStringParameter(request, Constants.PARAM_CALLBACK);
+            if (callback != null && !callback.matches("[A-Za-z0-9._\\[\\]]*")) {
+                throw new CmisInvalidArgumentException("Invalid callback name!");
+            }
+
+            // encode directly to UTF-8 bytes
+            JSONWriter writer = new JSONWriter(response.getOutputStream());
+
             if (callback != null) {
-                if (!callback.matches("[A-Za-z0-9._\\[\\]]*")) {
-                    throw new CmisInvalidArgumentException("Invalid callback name!");
-                }
-                response.getWriter().print(callback + "(");
+                writer.write(callback);
+                writer.write('(');
             }
 
-            json.writeJSONString(response.getWriter());
+            json.writeJSONString(writer);
 
             if (callback != null) {
-                response.getWriter().print(");");
+                writer.write(");");
             }
-        }
 
-        response.getWriter().flush();
+            writer.flush();
+        }
     }
 
     public void writeEmpty(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -0,0 +1,737 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl.browser;
+
+import static org.apache.chemistry.opencmis.commons.impl.Constants.CONTROL_CMISACTION;
+import static org.apache.chemistry.opencmis.commons.impl.Constants.CONTROL_OPERATIONS;
+import static org.apache.chemistry.opencmis.commons.impl.Constants.CONTROL_TOKEN;
+import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_CALLBACK;
+import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.JSON_BATCH_LOCATION;
+import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.JSON_BATCH_PARAMETERS;
+import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.JSON_BATCH_PATH;
+import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.JSON_BATCH_RESULT;
+import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.JSON_BATCH_STATUS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONWriter;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.shared.Dispatcher;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter;
+
+/**
+ * Batch operations (OpenCMIS extension).
+ * <p>
+ * A batch is a POST to the repository URL with the {@code cmisaction}
+ * {@code batch}. The {@code operations} control holds a JSON array of
+ * operations. Each operation has an optional {@code path} relative to the
+ * root URL ({@code "/"} addresses the root folder, no path addresses the
+ * repository URL) and an object of {@code parameters}, which are the
+ * parameters or controls of a regular Browser Binding call. Operations with a
+ * {@code cmisaction} are executed as POST calls, all others as GET calls.
+ * Content streams cannot be sent or received in a batch.
+ * <p>
+ * The response is a JSON array with an entry per operation that holds the
+ * HTTP {@code status}, the {@code location} header if there is one and the
+ * JSON {@code result} of the operation, which is the error object if the
+ * operation failed. A failed operation doesn't stop the batch.
+ */
+public class BatchService {
+
+    /**
+     * Executes a single operation of a batch.
+     */
+    public interface OperationHandler {
+        /**
+         * Executes an operation and writes the result or the error to the
+         * response. Must not throw exceptions.
+         */
+        void execute(CmisService service, HttpServletRequest request, HttpServletResponse response);
+    }
+
+    /**
+     * batch.
+     */
+    public static class Batch extends AbstractBrowserServiceCall {
+
+        private final OperationHandler handler;
+        private final int maxOperations;
+        private final ExecutorService executor;
+        private final RequestLimiter requestLimiter;
+
+        /**
+         * Constructor.
+         * 
+         * @param handler
+         *            the handler that executes the operations
+         * @param maxOperations
+         *            the maximum number of operations per batch
+         * @param executor
+         *            the executor for read-only operations or {@code null}
+         *            if all operations should run in the request thread
+         */
+        public Batch(OperationHandler handler, int maxOperations, ExecutorService executor) {
+            this(handler, maxOperations, executor, null);
+        }
+
+        /**
+         * Constructor.
+         * 
+         * @param handler
+         *            the handler that executes the operations
+         * @param maxOperations
+         *            the maximum number of operations per batch
+         * @param executor
+         *            the executor for read-only operations or {@code null}
+         *            if all operations should run in the request thread
+         * @param requestLimiter
+         *            the limiter that provides a permit for each read-only
+         *            operation that runs in parallel to the others or
+         *            {@code null} if there are no limits
+         */
+        public Batch(OperationHandler handler, int maxOperations, ExecutorService executor,
+                RequestLimiter requestLimiter) {
+            this.handler = handler;
+            this.maxOperations = maxOperations;
+            this.executor = executor;
+            this.requestLimiter = requestLimiter;
+        }
+
+        public void serve(CallContext context, final CmisService service, String repositoryId,
+                HttpServletRequest request, HttpServletResponse response) throws Exception {
+            assert context != null;
+            assert service != null;
+            assert repositoryId != null;
+            assert request != null;
+            assert response != null;
+
+            // get parameters
+            List<OperationRequest> operations = parseOperations(request, repositoryId);
+
+            // execute and write results in the order of the operations
+            setStatus(request, response, HttpServletResponse.SC_OK);
+            response.setContentType(JSON_MIME_TYPE);
+            response.setCharacterEncoding(IOUtils.UTF8);
+
+            OutputStream out = response.getOutputStream();
+            JSONWriter writer = new JSONWriter(out);
+            writer.write('[');
+
+            int i = 0;
+            while (i < operations.size()) {
+                // run consecutive read-only operations in parallel
+                int end = i + 1;
+                if (executor != null) {
+                    while (end < operations.size() && operations.get(i).isReadOnly()
+                            && operations.get(end).isReadOnly()) {
+                        end++;
+                    }
+                }
+
+                if (end - i == 1) {
+                    writeResult(writer, out, i, execute(service, operations.get(i), response));
+                } else {
+                    executeParallel(writer, out, service, repositoryId, operations.subList(i, end), i, response);
+                }
+
+                i = end;
+            }
+
+            writer.write(']');
+            writer.flush();
+        }
+
+        /**
+         * Executes read-only operations in parallel. The batch request holds
+         * one permit of the lane, every further operation that runs at the
+         * same time needs a free permit of its own. Operations that don't get
+         * a permit wait for the next round.
+         */
+        private void executeParallel(JSONWriter writer, OutputStream out, final CmisService service,
+                String repositoryId, List<OperationRequest> operations, int index, final HttpServletResponse response)
+                throws IOException, InterruptedException {
+            List<RequestLimiter.Permit> permits = acquirePermits(repositoryId, operations.size() - 1);
+            try {
+                int width = (requestLimiter == null ? operations.size() : permits.size() + 1);
+
+                for (int i = 0; i < operations.size(); i += width) {
+                    int end = Math.min(operations.size(), i + width);
+
+                    if (end - i == 1) {
+                        writeResult(writer, out, index + i, execute(service, operations.get(i), response));
+                        continue;
+                    }
+
+                    List<Future<OperationResponse>> futures = new ArrayList<Future<OperationResponse>>();
+                    for (int j = i; j < end; j++) {
+                        final OperationRequest operation = operations.get(j);
+                        futures.add(executor.submit(new Callable<OperationResponse>() {
+                            public OperationResponse call() {
+                                return execute(service, operation, response);
+                            }
+                        }));
+                    }
+
+                    for (int j = i; j < end; j++) {
+                        writeResult(writer, out, index + j, getResult(futures.get(j - i)));
+                    }
+                }
+            } finally {
+                for (RequestLimiter.Permit permit : permits) {
+                    permit.release();
+                }
+            }
+        }
+
+        /**
+         * Gets up to the given number of metadata permits without waiting.
+         */
+        private List<RequestLimiter.Permit> acquirePermits(String repositoryId, int count) {
+            List<RequestLimiter.Permit> permits = new ArrayList<RequestLimiter.Permit>();
+            if (requestLimiter == null) {
+                return permits;
+            }
+
+            while (permits.size() < count) {
+                RequestLimiter.Permit permit = requestLimiter.tryAcquire(repositoryId, RequestLimiter.Lane.METADATA);
+                if (permit == null) {
+                    break;
+                }
+                permits.add(permit);
+            }
+
+            return permits;
+        }
+
+        private List<OperationRequest> parseOperations(HttpServletRequest request, String repositoryId) {
+            String operationsStr = getStringParameter(request, CONTROL_OPERATIONS);
+            if (operationsStr == null) {
+                throw new CmisInvalidArgumentException("Operations not set!");
+            }
+
+            Object operationsJson;
+            try {
+                operationsJson = new JSONParser().parse(operationsStr);
+            } catch (JSONParseException e) {
+                throw new CmisInvalidArgumentException("Invalid operations!", e);
+            }
+
+            if (!(operationsJson instanceof List)) {
+                throw new CmisInvalidArgumentException("Operations must be a JSON array!");
+            }
+
+            List<?> list = (List<?>) operationsJson;
+            if (list.size() > maxOperations) {
+                throw new CmisInvalidArgumentException("Too many operations! The limit is " + maxOperations + ".");
+            }
+
+            List<OperationRequest> result = new ArrayList<OperationRequest>(list.size());
+            for (Object operation : list) {
+                if (!(operation instanceof Map)) {
+                    throw new CmisInvalidArgumentException("Invalid operation!");
+                }
+
+                Map<?, ?> map = (Map<?, ?>) operation;
+
+                Object path = map.get(JSON_BATCH_PATH);
+                if (path != null && (!(path instanceof String) || !((String) path).startsWith("/"))) {
+                    throw new CmisInvalidArgumentException("Invalid operation path: " + path);
+                }
+
+                Object parameters = map.get(JSON_BATCH_PARAMETERS);
+                if (parameters != null && !(parameters instanceof Map)) {
+                    throw new CmisInvalidArgumentException("Invalid operation parameters!");
+                }
+
+                result.add(new OperationRequest(request, repositoryId, (String) path, (Map<?, ?>) parameters));
+            }
+
+            return result;
+        }
+
+        private OperationResponse execute(CmisService service, OperationRequest operation,
+                HttpServletResponse response) {
+            OperationResponse result = new OperationResponse(response);
+            handler.execute(service, operation, result);
+            return result;
+        }
+
+        private OperationResponse getResult(Future<OperationResponse> future) throws InterruptedException {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw new CmisRuntimeException("Batch operation failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        private void writeResult(JSONWriter writer, OutputStream out, int index, OperationResponse result)
+                throws IOException {
+            if (index > 0) {
+                writer.write(',');
+            }
+
+            writer.write("{\"");
+            writer.write(JSON_BATCH_STATUS);
+            writer.write("\":");
+            writer.write(String.valueOf(result.getStatus()));
+
+            if (result.getLocation() != null) {
+                writer.write(",\"");
+                writer.write(JSON_BATCH_LOCATION);
+                writer.write("\":");
+                writer.writeString(result.getLocation());
+            }
+
+            byte[] body = result.getBody();
+            if (body.length > 0) {
+                writer.write(",\"");
+                writer.write(JSON_BATCH_RESULT);
+                writer.write("\":");
+                writer.flush();
+                out.write(body);
+            }
+
+            writer.write('}');
+        }
+    }
+
+    /**
+     * Request of a batch operation. It has its own path, method and parameters
+     * and copies of the headers and attributes of the batch request, so that
+     * operations running in other threads don't touch the container request.
+     */
+    static class OperationRequest extends HttpServletRequestWrapper {
+
+        private final String method;
+        private final String requestURI;
+        private final Map<String, String[]> parameters;
+        private final Map<String, List<String>> headers;
+        private final Map<String, Object> attributes;
+
+        public OperationRequest(HttpServletRequest request, String repositoryId, String path, Map<?, ?> parameters) {
+            super(request);
+
+            headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+            Enumeration<?> headerNames = request.getHeaderNames();
+            if (headerNames != null) {
+                while (headerNames.hasMoreElements()) {
+                    String name = (String) headerNames.nextElement();
+                    List<String> values = new ArrayList<String>(1);
+                    Enumeration<?> headerValues = request.getHeaders(name);
+                    if (headerValues != null) {
+                        while (headerValues.hasMoreElements()) {
+                            values.add((String) headerValues.nextElement());
+                        }
+                    }
+                    headers.put(name, values);
+                }
+            }
+
+            attributes = new HashMap<String, Object>();
+            Enumeration<?> attributeNames = request.getAttributeNames();
+            if (attributeNames != null) {
+                while (attributeNames.hasMoreElements()) {
+                    String name = (String) attributeNames.nextElement();
+                    attributes.put(name, request.getAttribute(name));
+                }
+            }
+
+            this.parameters = new HashMap<String, String[]>();
+
+            boolean post = false;
+            if (parameters != null) {
+                for (Map.Entry<?, ?> entry : parameters.entrySet()) {
+                    String name = String.valueOf(entry.getKey());
+                    if (CONTROL_TOKEN.equalsIgnoreCase(name) || PARAM_CALLBACK.equalsIgnoreCase(name)) {
+                        // tokens and callbacks don't make sense in a batch
+                        continue;
+                    }
+                    if (CONTROL_CMISACTION.equalsIgnoreCase(name)) {
+                        post = true;
+                    }
+
+                    Object value = entry.getValue();
+                    if (value instanceof List) {
+                        List<?> list = (List<?>) value;
+                        String[] values = new String[list.size()];
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = (list.get(i) == null ? null : list.get(i).toString());
+                        }
+                        this.parameters.put(name, values);
+                    } else if (value != null) {
+                        this.parameters.put(name, new String[] { value.toString() });
+                    }
+                }
+            }
+
+            method = (post ? Dispatcher.METHOD_POST : Dispatcher.METHOD_GET);
+
+            StringBuilder sb = new StringBuilder(128);
+            sb.append(request.getContextPath());
+            sb.append(request.getServletPath());
+            sb.append('/');
+            sb.append(IOUtils.encodeURL(repositoryId));
+            if (path != null) {
+                sb.append('/');
+                sb.append(AbstractBrowserServiceCall.ROOT_PATH_FRAGMENT);
+                for (String segment : path.split("/")) {
+                    if (segment.length() > 0) {
+                        sb.append('/');
+                        sb.append(IOUtils.encodeURL(segment));
+                    }
+                }
+            }
+            requestURI = sb.toString();
+        }
+
+        /**
+         * Returns whether the operation doesn't modify the repository.
+         */
+        public boolean isReadOnly() {
+            return Dispatcher.METHOD_GET.equals(method);
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return requestURI;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return null;
+        }
+
+        @Override
+        public String getQueryString() {
+            return null;
+        }
+
+        @Override
+        public String getContentType() {
+            return null;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = parameters.get(name);
+            if ((values == null) || (values.length == 0)) {
+                return null;
+            }
+
+            return values[0];
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return parameters;
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(parameters.keySet());
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return parameters.get(name);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            List<String> values = headers.get(name);
+            if ((values == null) || (values.isEmpty())) {
+                return null;
+            }
+
+            return values.get(0);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            List<String> values = headers.get(name);
+            if (values == null) {
+                return Collections.enumeration(Collections.<String> emptyList());
+            }
+
+            return Collections.enumeration(values);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(headers.keySet());
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            String value = getHeader(name);
+            if (value == null) {
+                return -1;
+            }
+
+            return Integer.parseInt(value);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            String value = getHeader(name);
+            if (value == null) {
+                return -1;
+            }
+
+            Date date = DateTimeHelper.parseHttpDateTime(value);
+            if (date == null) {
+                throw new IllegalArgumentException("Invalid date header: " + name);
+            }
+
+            return date.getTime();
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                attributes.remove(name);
+            } else {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+    }
+
+    /**
+     * Response of a batch operation. It buffers the body and keeps the status
+     * code and location. All other headers and cookies are dropped.
+     */
+    static class OperationResponse extends HttpServletResponseWrapper {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+        private int status = SC_OK;
+        private String location;
+
+        public OperationResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public byte[] getBody() {
+            if (writer != null) {
+                writer.flush();
+            }
+
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            status = sc;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setStatus(int sc, String sm) {
+            status = sc;
+        }
+
+        @Override
+        public void sendError(int sc) {
+            status = sc;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) {
+            status = sc;
+        }
+
+        @Override
+        public void sendRedirect(String url) {
+            status = SC_FOUND;
+            location = url;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Location".equalsIgnoreCase(name)) {
+                location = value;
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            setHeader(name, value);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+        }
+
+        @Override
+        public void setContentType(String type) {
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return IOUtils.UTF8;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (stream == null) {
+                stream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        buffer.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        buffer.write(b, off, len);
+                    }
+                };
+            }
+
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), IOUtils.UTF8));
+            }
+
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            status = SC_OK;
+            location = null;
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (writer != null) {
+                writer.flush();
+            }
+            buffer.reset();
+        }
+    }
+}
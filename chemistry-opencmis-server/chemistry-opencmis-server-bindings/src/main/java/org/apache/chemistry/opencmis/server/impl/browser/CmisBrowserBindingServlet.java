@@ -22,6 +22,7 @@ import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_AD
 import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_APPEND_CONTENT;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_APPLY_ACL;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_APPLY_POLICY;
+import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_BATCH;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_BULK_UPDATE;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_CANCEL_CHECK_OUT;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.CMISACTION_CHECK_IN;
@@ -74,6 +75,8 @@ import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_GET;
 import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_POST;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -107,7 +110,9 @@ import org.apache.chemistry.opencmis.server.shared.AbstractCmisHttpServlet;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
 import org.apache.chemistry.opencmis.server.shared.ExceptionHelper;
 import org.apache.chemistry.opencmis.server.shared.HttpUtils;
+import org.apache.chemistry.opencmis.server.shared.LimitExceededException;
 import org.apache.chemistry.opencmis.server.shared.QueryStringHttpServletRequestWrapper;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter.Lane;
 import org.apache.chemistry.opencmis.server.shared.ServiceCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -116,11 +121,36 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Init parameter for the maximum number of operations in a batch.
+     */
+    public static final String PARAM_BATCH_MAX_OPERATIONS = "batchMaxOperations";
+
+    /**
+     * Init parameter for the number of threads that execute read-only batch
+     * operations in parallel. The default is 0, which executes all operations
+     * in the request thread. Parallel execution requires a thread-safe
+     * {@link CmisService} implementation.
+     */
+    public static final String PARAM_BATCH_THREADS = "batchThreads";
+
+    /**
+     * Init parameter that turns on streaming of multipart uploads. The content
+     * is then passed to the service directly from the request instead of
+     * being buffered first. Clients have to send all form fields before the
+     * content. The default is {@code false}.
+     */
+    public static final String PARAM_STREAM_MULTIPART_CONTENT = "streamMultipartContent";
+
+    public static final int DEFAULT_BATCH_MAX_OPERATIONS = 100;
+
     private static final Logger LOG = LoggerFactory.getLogger(CmisBrowserBindingServlet.class);
 
     private final Dispatcher repositoryDispatcher = new Dispatcher(false);
     private final Dispatcher rootDispatcher = new Dispatcher(false);
     private static final ErrorServiceCall ERROR_SERTVICE_CALL = new ErrorServiceCall();
+    private transient ExecutorService batchExecutor;
+    private boolean streamMultipartContent;
 
     public enum CallUrl {
         SERVICE, REPOSITORY, ROOT
@@ -136,6 +166,25 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
         // set CMIS version -> can only be 1.1
         setCmisVersion(CmisVersion.CMIS_1_1);
 
+        // set the request limits
+        repositoryDispatcher.setRequestLimiter(getRequestLimiter());
+        rootDispatcher.setRequestLimiter(getRequestLimiter());
+
+        // set the metrics
+        repositoryDispatcher.setOperationMetrics(getOperationMetrics());
+        rootDispatcher.setOperationMetrics(getOperationMetrics());
+
+        // set up multipart streaming
+        String streamMultipartContentStr = config.getInitParameter(PARAM_STREAM_MULTIPART_CONTENT);
+        streamMultipartContent = streamMultipartContentStr != null
+                && Boolean.parseBoolean(streamMultipartContentStr.trim());
+
+        // set up the batch threads
+        int batchThreads = getIntInitParameter(config, PARAM_BATCH_THREADS, 0);
+        if (batchThreads > 0) {
+            batchExecutor = Executors.newFixedThreadPool(batchThreads);
+        }
+
         // initialize repository resources
         addRepositoryResource("", METHOD_GET, new RepositoryService.GetRepositories());
         addRepositoryResource(SELECTOR_REPOSITORY_INFO, METHOD_GET, new RepositoryService.GetRepositoryInfo());
@@ -151,20 +200,23 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
         addRepositoryResource(SELECTOR_CONTENT_CHANGES, METHOD_GET, new DiscoveryService.GetContentChanges());
 
         addRepositoryResource(CMISACTION_QUERY, METHOD_POST, new DiscoveryService.Query());
-        addRepositoryResource(CMISACTION_CREATE_DOCUMENT, METHOD_POST, new ObjectService.CreateDocument());
+        addRepositoryResource(CMISACTION_CREATE_DOCUMENT, METHOD_POST, new ObjectService.CreateDocument(), Lane.CONTENT);
         addRepositoryResource(CMISACTION_CREATE_DOCUMENT_FROM_SOURCE, METHOD_POST,
-                new ObjectService.CreateDocumentFromSource());
+                new ObjectService.CreateDocumentFromSource(), Lane.CONTENT);
         addRepositoryResource(CMISACTION_CREATE_POLICY, METHOD_POST, new ObjectService.CreatePolicy());
         addRepositoryResource(CMISACTION_CREATE_ITEM, METHOD_POST, new ObjectService.CreateItem());
         addRepositoryResource(CMISACTION_CREATE_RELATIONSHIP, METHOD_POST, new ObjectService.CreateRelationship());
         addRepositoryResource(CMISACTION_BULK_UPDATE, METHOD_POST, new ObjectService.BulkUpdateProperties());
+        addRepositoryResource(CMISACTION_BATCH, METHOD_POST, new BatchService.Batch(new BatchOperationHandler(),
+                getIntInitParameter(config, PARAM_BATCH_MAX_OPERATIONS, DEFAULT_BATCH_MAX_OPERATIONS), batchExecutor,
+                getRequestLimiter()));
 
         // initialize root resources
         addRootResource(SELECTOR_OBJECT, METHOD_GET, new ObjectService.GetObject());
         addRootResource(SELECTOR_PROPERTIES, METHOD_GET, new ObjectService.GetProperties());
         addRootResource(SELECTOR_ALLOWABLEACTIONS, METHOD_GET, new ObjectService.GetAllowableActions());
         addRootResource(SELECTOR_RENDITIONS, METHOD_GET, new ObjectService.GetRenditions());
-        addRootResource(SELECTOR_CONTENT, METHOD_GET, new ObjectService.GetContentStream());
+        addRootResource(SELECTOR_CONTENT, METHOD_GET, new ObjectService.GetContentStream(), Lane.CONTENT);
         addRootResource(SELECTOR_CHILDREN, METHOD_GET, new NavigationService.GetChildren());
         addRootResource(SELECTOR_DESCENDANTS, METHOD_GET, new NavigationService.GetDescendants());
         addRootResource(SELECTOR_FOLDER_TREE, METHOD_GET, new NavigationService.GetFolderTree());
@@ -176,15 +228,15 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
         addRootResource(SELECTOR_POLICIES, METHOD_GET, new PolicyService.GetAppliedPolicies());
         addRootResource(SELECTOR_ACL, METHOD_GET, new AclService.GetACL());
 
-        addRootResource(CMISACTION_CREATE_DOCUMENT, METHOD_POST, new ObjectService.CreateDocument());
+        addRootResource(CMISACTION_CREATE_DOCUMENT, METHOD_POST, new ObjectService.CreateDocument(), Lane.CONTENT);
         addRootResource(CMISACTION_CREATE_DOCUMENT_FROM_SOURCE, METHOD_POST,
-                new ObjectService.CreateDocumentFromSource());
+                new ObjectService.CreateDocumentFromSource(), Lane.CONTENT);
         addRootResource(CMISACTION_CREATE_FOLDER, METHOD_POST, new ObjectService.CreateFolder());
         addRootResource(CMISACTION_CREATE_POLICY, METHOD_POST, new ObjectService.CreatePolicy());
         addRootResource(CMISACTION_CREATE_ITEM, METHOD_POST, new ObjectService.CreateItem());
         addRootResource(CMISACTION_UPDATE_PROPERTIES, METHOD_POST, new ObjectService.UpdateProperties());
-        addRootResource(CMISACTION_SET_CONTENT, METHOD_POST, new ObjectService.SetContentStream());
-        addRootResource(CMISACTION_APPEND_CONTENT, METHOD_POST, new ObjectService.AppendContentStream());
+        addRootResource(CMISACTION_SET_CONTENT, METHOD_POST, new ObjectService.SetContentStream(), Lane.CONTENT);
+        addRootResource(CMISACTION_APPEND_CONTENT, METHOD_POST, new ObjectService.AppendContentStream(), Lane.CONTENT);
         addRootResource(CMISACTION_DELETE_CONTENT, METHOD_POST, new ObjectService.DeleteContentStream());
         addRootResource(CMISACTION_DELETE, METHOD_POST, new ObjectService.DeleteObject());
         addRootResource(CMISACTION_DELETE_TREE, METHOD_POST, new ObjectService.DeleteTree());
@@ -194,16 +246,28 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
                 new MultiFilingService.RemoveObjectFromFolder());
         addRootResource(CMISACTION_CHECK_OUT, METHOD_POST, new VersioningService.CheckOut());
         addRootResource(CMISACTION_CANCEL_CHECK_OUT, METHOD_POST, new VersioningService.CancelCheckOut());
-        addRootResource(CMISACTION_CHECK_IN, METHOD_POST, new VersioningService.CheckIn());
+        addRootResource(CMISACTION_CHECK_IN, METHOD_POST, new VersioningService.CheckIn(), Lane.CONTENT);
         addRootResource(CMISACTION_APPLY_POLICY, METHOD_POST, new PolicyService.ApplyPolicy());
         addRootResource(CMISACTION_REMOVE_POLICY, METHOD_POST, new PolicyService.RemovePolicy());
         addRootResource(CMISACTION_APPLY_ACL, METHOD_POST, new AclService.ApplyACL());
     }
 
+    @Override
+    public void destroy() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+        }
+
+        super.destroy();
+    }
+
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
             IOException {
 
+        request = countRequest(request);
+        response = countResponse(compressResponse(request, response));
+
         // set default headers
         response.addHeader("Cache-Control", "private, max-age=0");
         response.addHeader("Server", ServerVersion.OPENCMIS_SERVER);
@@ -216,7 +280,8 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
             if (METHOD_GET.equals(method)) {
                 request = new QueryStringHttpServletRequestWrapper(request);
             } else if (METHOD_POST.equals(method)) {
-                request = new POSTHttpServletRequestWrapper(request, getThresholdOutputStreamFactory());
+                request = new POSTHttpServletRequestWrapper(decodeRequest(request),
+                        getThresholdOutputStreamFactory(), streamMultipartContent);
             } else {
                 throw new CmisNotSupportedException("Unsupported method");
             }
@@ -230,7 +295,9 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
             context = createContext(getServletContext(), request, response);
             dispatch(context, request, response);
         } catch (Exception e) {
-            if (e instanceof CmisUnauthorizedException) {
+            if (e instanceof LimitExceededException) {
+                sendLimitExceeded((LimitExceededException) e, response);
+            } else if (e instanceof CmisUnauthorizedException) {
                 response.setHeader("WWW-Authenticate", "Basic realm=\"CMIS\"");
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Authorization Required");
             } else if (e instanceof CmisPermissionDeniedException) {
@@ -243,9 +310,11 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
             } else {
                 printError(context, e, request, response);
             }
+        } finally {
+            // we are done, this also returns the deflater to the pool
+            finishResponse(response);
         }
 
-        // we are done.
         response.flushBuffer();
     }
 
@@ -258,6 +327,13 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
         repositoryDispatcher.addResource(resource, httpMethod, serviceCall);
     }
 
+    /**
+     * Registers a new repository resource in the given request lane.
+     */
+    protected void addRepositoryResource(String resource, String httpMethod, ServiceCall serviceCall, Lane lane) {
+        repositoryDispatcher.addResource(resource, httpMethod, serviceCall, lane);
+    }
+
     /**
      * Registers a new root resource.
      */
@@ -265,107 +341,156 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
         rootDispatcher.addResource(resource, httpMethod, serviceCall);
     }
 
+    /**
+     * Registers a new root resource in the given request lane.
+     */
+    protected void addRootResource(String resource, String httpMethod, ServiceCall serviceCall, Lane lane) {
+        rootDispatcher.addResource(resource, httpMethod, serviceCall, lane);
+    }
+
     private void dispatch(CallContext context, HttpServletRequest request, HttpServletResponse response)
             throws Exception {
-        BrowserCallContextImpl browserContext = (BrowserCallContextImpl) context;
         CmisService service = null;
         try {
             // get the service
             service = getServiceFactory().getService(context);
 
-            // analyze the path
-            String[] pathFragments = HttpUtils.splitPath(request);
-
-            if (pathFragments.length < 1) {
-                // root -> repository infos
-                repositoryDispatcher.dispatch("", METHOD_GET, context, service, null, request, response);
-                return;
+            dispatch((BrowserCallContextImpl) context, service, request, response, false);
+        } finally {
+            if (service != null) {
+                service.close();
             }
+        }
+    }
 
-            // select dispatcher
-            CallUrl callUrl = null;
-            if (pathFragments.length == 1) {
-                callUrl = CallUrl.REPOSITORY;
-            } else if (AbstractBrowserServiceCall.ROOT_PATH_FRAGMENT.equals(pathFragments[1])) {
-                callUrl = CallUrl.ROOT;
-            }
+    /**
+     * Selects and executes the service call of a request. Nested calls are the
+     * operations of a batch. They use the service and the request permit of
+     * the batch.
+     */
+    private void dispatch(BrowserCallContextImpl browserContext, CmisService service, HttpServletRequest request,
+            HttpServletResponse response, boolean nested) throws Exception {
+        // analyze the path
+        String[] pathFragments = HttpUtils.splitPath(request);
+
+        if (pathFragments.length < 1) {
+            // root -> repository infos
+            repositoryDispatcher.dispatch("", METHOD_GET, browserContext, service, null, request, response);
+            return;
+        }
 
-            if (callUrl == null) {
-                throw new CmisNotSupportedException("Unknown operation");
-            }
+        // select dispatcher
+        CallUrl callUrl = null;
+        if (pathFragments.length == 1) {
+            callUrl = CallUrl.REPOSITORY;
+        } else if (AbstractBrowserServiceCall.ROOT_PATH_FRAGMENT.equals(pathFragments[1])) {
+            callUrl = CallUrl.ROOT;
+        }
 
-            String method = request.getMethod();
-            String repositoryId = pathFragments[0];
-            boolean callServiceFound = false;
+        if (callUrl == null) {
+            throw new CmisNotSupportedException("Unknown operation");
+        }
 
-            if (METHOD_GET.equals(method)) {
-                String selector = HttpUtils.getStringParameter(request, Constants.PARAM_SELECTOR);
-                String objectId = HttpUtils.getStringParameter(request, PARAM_OBJECT_ID);
+        String method = request.getMethod();
+        String repositoryId = pathFragments[0];
+        boolean callServiceFound = false;
 
-                // dispatch
-                if (callUrl == CallUrl.REPOSITORY) {
-                    if (selector == null) {
-                        selector = "";
-                    }
+        if (METHOD_GET.equals(method)) {
+            String selector = HttpUtils.getStringParameter(request, Constants.PARAM_SELECTOR);
+            String objectId = HttpUtils.getStringParameter(request, PARAM_OBJECT_ID);
 
-                    browserContext.setCallDetails(service, objectId, null, null);
-                    callServiceFound = repositoryDispatcher.dispatch(selector, method, browserContext, service,
-                            repositoryId, request, response);
-                } else if (callUrl == CallUrl.ROOT) {
-                    browserContext.setCallDetails(service, objectId, pathFragments, null);
-
-                    // set default method if necessary
-                    if (selector == null) {
-                        try {
-                            BaseTypeId basetype = browserContext.getBaseTypeId();
-                            switch (basetype) {
-                            case CMIS_DOCUMENT:
-                                selector = SELECTOR_CONTENT;
-                                break;
-                            case CMIS_FOLDER:
-                                selector = SELECTOR_CHILDREN;
-                                break;
-                            default:
-                                selector = SELECTOR_OBJECT;
-                                break;
-                            }
-                        } catch (Exception e) {
+            // dispatch
+            if (callUrl == CallUrl.REPOSITORY) {
+                if (selector == null) {
+                    selector = "";
+                }
+
+                browserContext.setCallDetails(service, objectId, null, null);
+                callServiceFound = dispatch(repositoryDispatcher, selector, method, browserContext, service,
+                        repositoryId, request, response, nested);
+            } else if (callUrl == CallUrl.ROOT) {
+                browserContext.setCallDetails(service, objectId, pathFragments, null);
+
+                // set default method if necessary
+                if (selector == null) {
+                    try {
+                        BaseTypeId basetype = browserContext.getBaseTypeId();
+                        switch (basetype) {
+                        case CMIS_DOCUMENT:
+                            selector = SELECTOR_CONTENT;
+                            break;
+                        case CMIS_FOLDER:
+                            selector = SELECTOR_CHILDREN;
+                            break;
+                        default:
                             selector = SELECTOR_OBJECT;
+                            break;
                         }
+                    } catch (Exception e) {
+                        selector = SELECTOR_OBJECT;
                     }
-
-                    callServiceFound = rootDispatcher.dispatch(selector, method, browserContext, service, repositoryId,
-                            request, response);
                 }
-            } else if (METHOD_POST.equals(method)) {
-                String cmisaction = HttpUtils.getStringParameter(request, Constants.CONTROL_CMISACTION);
-                String objectId = HttpUtils.getStringParameter(request, Constants.CONTROL_OBJECT_ID);
-                String token = HttpUtils.getStringParameter(request, Constants.CONTROL_TOKEN);
 
-                if (cmisaction == null || cmisaction.length() == 0) {
-                    throw new CmisNotSupportedException("Unknown action");
+                if (nested && SELECTOR_CONTENT.equalsIgnoreCase(selector)) {
+                    throw new CmisNotSupportedException("Content streams are not supported in a batch");
                 }
 
-                // dispatch
-                if (callUrl == CallUrl.REPOSITORY) {
-                    browserContext.setCallDetails(service, objectId, null, token);
-                    callServiceFound = repositoryDispatcher.dispatch(cmisaction, method, browserContext, service,
-                            repositoryId, request, response);
-                } else if (callUrl == CallUrl.ROOT) {
-                    browserContext.setCallDetails(service, objectId, pathFragments, token);
-                    callServiceFound = rootDispatcher.dispatch(cmisaction, method, browserContext, service,
-                            repositoryId, request, response);
-                }
+                callServiceFound = dispatch(rootDispatcher, selector, method, browserContext, service, repositoryId,
+                        request, response, nested);
             }
+        } else if (METHOD_POST.equals(method)) {
+            String cmisaction = HttpUtils.getStringParameter(request, Constants.CONTROL_CMISACTION);
+            String objectId = HttpUtils.getStringParameter(request, Constants.CONTROL_OBJECT_ID);
+            String token = HttpUtils.getStringParameter(request, Constants.CONTROL_TOKEN);
 
-            // if the dispatcher couldn't find a matching service call
-            // -> return an error message
-            if (!callServiceFound) {
-                throw new CmisNotSupportedException("Unknown operation");
+            if (cmisaction == null || cmisaction.length() == 0) {
+                throw new CmisNotSupportedException("Unknown action");
             }
-        } finally {
-            if (service != null) {
-                service.close();
+
+            if (nested && CMISACTION_BATCH.equalsIgnoreCase(cmisaction)) {
+                throw new CmisNotSupportedException("Batches cannot be nested");
+            }
+
+            // dispatch
+            if (callUrl == CallUrl.REPOSITORY) {
+                browserContext.setCallDetails(service, objectId, null, token);
+                callServiceFound = dispatch(repositoryDispatcher, cmisaction, method, browserContext, service,
+                        repositoryId, request, response, nested);
+            } else if (callUrl == CallUrl.ROOT) {
+                browserContext.setCallDetails(service, objectId, pathFragments, token);
+                callServiceFound = dispatch(rootDispatcher, cmisaction, method, browserContext, service,
+                        repositoryId, request, response, nested);
+            }
+        }
+
+        // if the dispatcher couldn't find a matching service call
+        // -> return an error message
+        if (!callServiceFound) {
+            throw new CmisNotSupportedException("Unknown operation");
+        }
+    }
+
+    private boolean dispatch(Dispatcher dispatcher, String resource, String method, CallContext context,
+            CmisService service, String repositoryId, HttpServletRequest request, HttpServletResponse response,
+            boolean nested) {
+        if (nested) {
+            return dispatcher.dispatchNested(resource, method, context, service, repositoryId, request, response);
+        }
+
+        return dispatcher.dispatch(resource, method, context, service, repositoryId, request, response);
+    }
+
+    /**
+     * Executes the operations of a batch.
+     */
+    private class BatchOperationHandler implements BatchService.OperationHandler {
+        public void execute(CmisService service, HttpServletRequest request, HttpServletResponse response) {
+            CallContext context = null;
+            try {
+                context = createContext(getServletContext(), request, response);
+                dispatch((BrowserCallContextImpl) context, service, request, response, true);
+            } catch (Exception e) {
+                printError(context, e, request, response);
             }
         }
     }
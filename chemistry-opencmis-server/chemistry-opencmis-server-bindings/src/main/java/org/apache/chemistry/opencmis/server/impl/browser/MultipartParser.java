@@ -31,6 +31,7 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
@@ -42,6 +43,12 @@ import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStreamFactory;
 /**
  * Simple multi-part parser, following all necessary standards for the CMIS
  * browser binding.
+ * <p>
+ * By default, the content part is copied into a {@link ThresholdOutputStream}
+ * before the service is called. In streaming mode, the parser stops at the
+ * content part and hands out a stream that reads the content directly from
+ * the request. The content must then be the last part of the request, all
+ * form fields have to be sent before it.
  */
 public class MultipartParser {
 
@@ -60,6 +67,7 @@ public class MultipartParser {
     private final HttpServletRequest request;
     private final ThresholdOutputStreamFactory streamFactory;
     private final InputStream requestStream;
+    private final boolean streamContent;
 
     private byte[] boundary;
     private int[] badCharacters;
@@ -73,6 +81,7 @@ public class MultipartParser {
 
     private int fieldBytes;
     private boolean hasContent;
+    private boolean contentStreamed;
 
     private Map<String, String> headers;
 
@@ -86,8 +95,21 @@ public class MultipartParser {
     private String charset = IOUtils.ISO_8859_1;
 
     public MultipartParser(HttpServletRequest request, ThresholdOutputStreamFactory streamFactory) throws IOException {
+        this(request, streamFactory, false);
+    }
+
+    /**
+     * Creates a parser.
+     * 
+     * @param streamContent
+     *            if {@code true}, the content part is read directly from the
+     *            request and must be the last part
+     */
+    public MultipartParser(HttpServletRequest request, ThresholdOutputStreamFactory streamFactory,
+            boolean streamContent) throws IOException {
         this.request = request;
         this.streamFactory = streamFactory;
+        this.streamContent = streamContent;
         this.requestStream = request.getInputStream();
 
         extractBoundary();
@@ -454,7 +476,13 @@ public class MultipartParser {
                 contentType = Constants.MEDIATYPE_OCTETSTREAM;
             }
 
-            readBodyAsStream();
+            if (streamContent) {
+                contentSize = null;
+                contentStream = new PartInputStream();
+                contentStreamed = true;
+            } else {
+                readBodyAsStream();
+            }
         } else {
             String name = params.get(MimeHelper.DISPOSITION_NAME);
             byte[] rawValue = readBodyBytes();
@@ -539,7 +567,8 @@ public class MultipartParser {
 
             readBody();
 
-            return true;
+            // a streamed content part is the last part
+            return !contentStreamed;
         } catch (IOException e) {
             IOUtils.closeQuietly(contentStream);
 
@@ -621,6 +650,13 @@ public class MultipartParser {
         return fields;
     }
 
+    /**
+     * Returns if the content is read directly from the request.
+     */
+    public boolean isContentStreamed() {
+        return contentStreamed;
+    }
+
     /**
      * Returns if the request is a multi-part request
      */
@@ -633,4 +669,109 @@ public class MultipartParser {
 
         return false;
     }
+
+    /**
+     * Reads the content part from the request buffer up to the next boundary.
+     */
+    private class PartInputStream extends InputStream {
+
+        private final long maxContentSize = (streamFactory == null ? -1 : streamFactory.getMaxContentSize());
+        private int end = bufferPosition;
+        private boolean boundaryFound;
+        private boolean finished;
+        private boolean closed;
+        private long size;
+
+        /**
+         * Returns the number of bytes that can be read from the buffer or -1
+         * at the end of the part.
+         */
+        private int fill() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is already closed!");
+            }
+
+            while (bufferPosition >= end) {
+                if (boundaryFound) {
+                    finish();
+                    return -1;
+                }
+
+                readBuffer();
+
+                // keep a possibly incomplete boundary at the end of the
+                // buffer for the next round
+                int boundaryPosition = findBoundary();
+                if (boundaryPosition > -1) {
+                    end = boundaryPosition;
+                    boundaryFound = true;
+                } else {
+                    end = Math.min(BUFFER_SIZE, bufferCount);
+                }
+            }
+
+            return end - bufferPosition;
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+
+            finished = true;
+            bufferPosition = end + boundary.length;
+
+            if (nextByte() != DASH || nextByte() != DASH) {
+                throw new CmisInvalidArgumentException("The content must be the last part of the request!");
+            }
+
+            skipEpilogue();
+        }
+
+        private void count(int len) {
+            size += len;
+            if (maxContentSize > -1 && size > maxContentSize) {
+                throw new CmisConstraintException("Content too big!");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (fill() == -1) {
+                return -1;
+            }
+
+            count(1);
+            return buffer[bufferPosition++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            int available = fill();
+            if (available == -1) {
+                return -1;
+            }
+
+            int n = Math.min(available, len);
+            count(n);
+            System.arraycopy(buffer, bufferPosition, b, off, n);
+            bufferPosition += n;
+
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return closed ? 0 : Math.max(0, end - bufferPosition);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
 }
@@ -40,13 +40,25 @@ public final class POSTHttpServletRequestWrapper extends QueryStringHttpServletR
 
     public POSTHttpServletRequestWrapper(HttpServletRequest request, ThresholdOutputStreamFactory streamFactory)
             throws IOException {
+        this(request, streamFactory, false);
+    }
+
+    /**
+     * Parses the request body.
+     * 
+     * @param streamContent
+     *            if {@code true}, the content of a multipart request is read
+     *            directly from the request, see {@link MultipartParser}
+     */
+    public POSTHttpServletRequestWrapper(HttpServletRequest request, ThresholdOutputStreamFactory streamFactory,
+            boolean streamContent) throws IOException {
         super(request);
 
         // check multipart
         boolean isMultipart = MultipartParser.isMultipartContent(request);
 
         if (isMultipart) {
-            MultipartParser parser = new MultipartParser(request, streamFactory);
+            MultipartParser parser = new MultipartParser(request, streamFactory, streamContent);
             parser.parse();
 
             if (parser.hasContent()) {
@@ -25,6 +25,7 @@ import java.util.Map;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.xml.namespace.QName;
 import javax.xml.ws.WebServiceContext;
 import javax.xml.ws.handler.MessageContext;
 
@@ -46,28 +47,45 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisVersioningException;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisException;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisFaultType;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumServiceException;
+import org.apache.chemistry.opencmis.commons.impl.tube.EndpointTube;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
 import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
 import org.apache.chemistry.opencmis.server.impl.CmisRepositoryContextListener;
 import org.apache.chemistry.opencmis.server.impl.ServerVersion;
+import org.apache.chemistry.opencmis.server.shared.CountingHttpServletRequestWrapper;
 import org.apache.chemistry.opencmis.server.shared.ExceptionHelper;
+import org.apache.chemistry.opencmis.server.shared.OperationMetrics;
 import org.w3c.dom.Node;
 
 /**
  * This class contains operations used by all services.
  */
+@EndpointTube(MetricsTube.class)
 public abstract class AbstractService {
 
     public static final String CALL_CONTEXT_MAP = "org.apache.chemistry.opencmis.callcontext";
 
+    /**
+     * The call that is currently recorded by this thread. The entry is removed
+     * when the call has finished, so that pooled container threads don't keep
+     * the classes of this web application alive.
+     */
+    private static final ThreadLocal<MetricsCall> METRICS_CALL = new ThreadLocal<MetricsCall>();
+
     /**
      * Returns the services factory.
      */
     protected CmisServiceFactory getServiceFactory(WebServiceContext wsContext) {
-        ServletContext servletContext = (ServletContext) wsContext.getMessageContext().get(
-                MessageContext.SERVLET_CONTEXT);
+        return getServiceFactory(wsContext.getMessageContext());
+    }
+
+    /**
+     * Returns the services factory.
+     */
+    static CmisServiceFactory getServiceFactory(MessageContext mc) {
+        ServletContext servletContext = (ServletContext) mc.get(MessageContext.SERVLET_CONTEXT);
 
         // get services factory
         CmisServiceFactory factory = (CmisServiceFactory) servletContext
@@ -77,8 +95,7 @@ public abstract class AbstractService {
             throw new CmisRuntimeException("Service factory not available! Configuration problem?");
         }
 
-        HttpServletResponse httpResp = (HttpServletResponse) wsContext.getMessageContext().get(
-                MessageContext.SERVLET_RESPONSE);
+        HttpServletResponse httpResp = (HttpServletResponse) mc.get(MessageContext.SERVLET_RESPONSE);
         httpResp.setHeader("Server", ServerVersion.OPENCMIS_SERVER);
 
         return factory;
@@ -87,22 +104,25 @@ public abstract class AbstractService {
     /**
      * Creates a CallContext object for the Web Service context.
      */
-    @SuppressWarnings("unchecked")
     protected CallContext createContext(WebServiceContext wsContext, CmisServiceFactory factory, String repositoryId) {
-        ServletContext servletContext = (ServletContext) wsContext.getMessageContext().get(
-                MessageContext.SERVLET_CONTEXT);
-        HttpServletRequest request = (HttpServletRequest) wsContext.getMessageContext().get(
-                MessageContext.SERVLET_REQUEST);
-        HttpServletResponse response = (HttpServletResponse) wsContext.getMessageContext().get(
-                MessageContext.SERVLET_RESPONSE);
+        return createContext(wsContext.getMessageContext(), factory, repositoryId);
+    }
+
+    /**
+     * Creates a CallContext object for the message context.
+     */
+    @SuppressWarnings("unchecked")
+    static CallContext createContext(MessageContext mc, CmisServiceFactory factory, String repositoryId) {
+        ServletContext servletContext = (ServletContext) mc.get(MessageContext.SERVLET_CONTEXT);
+        HttpServletRequest request = (HttpServletRequest) mc.get(MessageContext.SERVLET_REQUEST);
+        HttpServletResponse response = (HttpServletResponse) mc.get(MessageContext.SERVLET_RESPONSE);
 
         CmisVersion cmisVersion = (CmisVersion) request.getAttribute(CmisWebServicesServlet.CMIS_VERSION);
 
         CallContextImpl context = new CallContextImpl(CallContext.BINDING_WEBSERVICES, cmisVersion, repositoryId,
                 servletContext, request, response, factory, null);
 
-        Map<String, List<String>> headers = (Map<String, List<String>>) wsContext.getMessageContext().get(
-                MessageContext.HTTP_REQUEST_HEADERS);
+        Map<String, List<String>> headers = (Map<String, List<String>>) mc.get(MessageContext.HTTP_REQUEST_HEADERS);
         if (headers != null) {
             for (Map.Entry<String, List<String>> header : headers.entrySet()) {
                 if (header.getKey().equalsIgnoreCase("Accept-Language") && header.getValue() != null
@@ -113,7 +133,6 @@ public abstract class AbstractService {
             }
         }
 
-        MessageContext mc = wsContext.getMessageContext();
         Map<String, String> callContextMap = (Map<String, String>) mc.get(CALL_CONTEXT_MAP);
         if (callContextMap != null) {
             for (Map.Entry<String, String> e : callContextMap.entrySet()) {
@@ -137,6 +156,8 @@ public abstract class AbstractService {
      * Returns the {@link CmisService} object.
      */
     protected CmisService getService(WebServiceContext wsContext, String repositoryId) {
+        startMetrics(wsContext.getMessageContext(), repositoryId);
+
         CmisServiceFactory factory = getServiceFactory(wsContext);
         CallContext context = createContext(wsContext, factory, repositoryId);
         return factory.getService(context);
@@ -146,15 +167,107 @@ public abstract class AbstractService {
      * Closes the service instance.
      */
     protected void closeService(CmisService service) {
-        if (service != null) {
-            service.close();
+        try {
+            if (service != null) {
+                service.close();
+            }
+        } finally {
+            MetricsCall call = METRICS_CALL.get();
+            if (call != null) {
+                METRICS_CALL.remove();
+                call.finish();
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics recorder of an operation or {@code null} if metrics
+     * are turned off.
+     */
+    static OperationMetrics.Recorder getMetricsRecorder(MessageContext mc, String repositoryId, String operation) {
+        HttpServletRequest request = (HttpServletRequest) mc.get(MessageContext.SERVLET_REQUEST);
+        if (request == null) {
+            return null;
+        }
+
+        OperationMetrics metrics = (OperationMetrics) request.getAttribute(CmisWebServicesServlet.METRICS);
+        if (metrics == null) {
+            return null;
         }
+
+        return metrics.getRecorder(repositoryId, CallContext.BINDING_WEBSERVICES, operation);
+    }
+
+    /**
+     * Returns the number of request body bytes read so far.
+     */
+    static long getRequestBytes(HttpServletRequest request) {
+        CountingHttpServletRequestWrapper countingRequest = CountingHttpServletRequestWrapper.find(request);
+        return countingRequest == null ? request.getContentLength() : countingRequest.getCount();
+    }
+
+    /**
+     * Sets the name of the operation of the current request.
+     * 
+     * @see MetricsTube
+     */
+    static void setMetricsOperation(String operation) {
+        getMetricsCall().operation = operation;
+    }
+
+    /**
+     * Returns the call of the current thread.
+     */
+    private static MetricsCall getMetricsCall() {
+        MetricsCall call = METRICS_CALL.get();
+        if (call == null) {
+            call = new MetricsCall();
+            METRICS_CALL.set(call);
+        }
+
+        return call;
+    }
+
+    /**
+     * Starts recording the current operation if metrics are turned on.
+     */
+    private static void startMetrics(MessageContext mc, String repositoryId) {
+        MetricsCall call = getMetricsCall();
+        call.recorder = null;
+
+        String operation = call.operation;
+        call.operation = null;
+        if (operation == null) {
+            Object wsdlOperation = mc.get(MessageContext.WSDL_OPERATION);
+            operation = (wsdlOperation instanceof QName ? ((QName) wsdlOperation).getLocalPart() : "unknown");
+        }
+
+        OperationMetrics.Recorder recorder = getMetricsRecorder(mc, repositoryId, operation);
+        if (recorder == null) {
+            return;
+        }
+
+        call.recorder = recorder;
+        call.request = (HttpServletRequest) mc.get(MessageContext.SERVLET_REQUEST);
+        call.error = null;
+        call.start = System.nanoTime();
     }
 
     /**
      * Converts a CMIS exception to the appropriate Web Service exception.
      */
     protected CmisException convertException(Exception ex) {
+        getMetricsCall().error = ex;
+
+        CmisFaultType fault = createFault(ex);
+
+        return new CmisException(fault.getMessage(), fault, ex);
+    }
+
+    /**
+     * Creates the CMIS fault for an exception.
+     */
+    static CmisFaultType createFault(Exception ex) {
         CmisFaultType fault = new CmisFaultType();
         fault.setMessage("Unknown exception");
         fault.setCode(BigInteger.ZERO);
@@ -199,6 +312,28 @@ public abstract class AbstractService {
             }
         }
 
-        return new CmisException(fault.getMessage(), fault, ex);
+        return fault;
+    }
+
+    /**
+     * State of a recorded call.
+     */
+    private static class MetricsCall {
+        String operation;
+        OperationMetrics.Recorder recorder;
+        long start;
+        HttpServletRequest request;
+        Throwable error;
+
+        void finish() {
+            if (recorder != null) {
+                // the response is written after the service call, its size
+                // is unknown here
+                recorder.record(System.nanoTime() - start, error, getRequestBytes(request), -1);
+                recorder = null;
+                request = null;
+                error = null;
+            }
+        }
     }
 }
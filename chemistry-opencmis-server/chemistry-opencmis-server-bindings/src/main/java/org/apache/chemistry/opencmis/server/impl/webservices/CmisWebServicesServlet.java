@@ -39,7 +39,9 @@ import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
 import org.apache.chemistry.opencmis.server.impl.CmisRepositoryContextListener;
+import org.apache.chemistry.opencmis.server.shared.CountingHttpServletRequestWrapper;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
+import org.apache.chemistry.opencmis.server.shared.OperationMetrics;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +56,11 @@ public class CmisWebServicesServlet extends WSServlet {
 
     public static final String PARAM_CMIS_VERSION = "cmisVersion";
     public static final String CMIS_VERSION = "org.apache.chemistry.opencmis.cmisVersion";
+    public static final String PARAM_STAX_MARSHALLING = "staxMarshalling";
+    public static final String STAX_MARSHALLING = "org.apache.chemistry.opencmis.staxMarshalling";
+    public static final String PARAM_METRICS = "metrics";
+    public static final String PARAM_METRICS_EXPORTERS = "metricsExporters";
+    public static final String METRICS = "org.apache.chemistry.opencmis.metrics";
 
     private static final long serialVersionUID = 1L;
 
@@ -69,6 +76,8 @@ public class CmisWebServicesServlet extends WSServlet {
     private static final Pattern MSG_PATTERN = Pattern.compile("<%cmismsg%>");
 
     private CmisVersion cmisVersion;
+    private Boolean staxMarshalling;
+    private OperationMetrics operationMetrics;
 
     private Map<String, String> docs;
 
@@ -89,6 +98,26 @@ public class CmisWebServicesServlet extends WSServlet {
             cmisVersion = CmisVersion.CMIS_1_0;
         }
 
+        // direct StAX marshalling is on by default
+        String staxMarshallingStr = config.getInitParameter(PARAM_STAX_MARSHALLING);
+        staxMarshalling = Boolean.valueOf(staxMarshallingStr == null
+                || Boolean.parseBoolean(staxMarshallingStr.trim()));
+
+        // set up metrics
+        operationMetrics = null;
+        String metricsStr = config.getInitParameter(PARAM_METRICS);
+        if (metricsStr != null && Boolean.parseBoolean(metricsStr.trim())) {
+            operationMetrics = OperationMetrics.acquire(config.getServletContext());
+            try {
+                operationMetrics.addExporters(config.getInitParameter(PARAM_METRICS_EXPORTERS),
+                        config.getServletContext());
+            } catch (Exception e) {
+                OperationMetrics.release(config.getServletContext());
+                operationMetrics = null;
+                throw new ServletException(e.getMessage(), e);
+            }
+        }
+
         // set up WSDL and XSD documents
         docs = new HashMap<String, String>();
 
@@ -101,6 +130,16 @@ public class CmisWebServicesServlet extends WSServlet {
         super.init(config);
     }
 
+    @Override
+    public void destroy() {
+        if (operationMetrics != null) {
+            OperationMetrics.release(getServletContext());
+            operationMetrics = null;
+        }
+
+        super.destroy();
+    }
+
     private String readFile(ServletConfig config, String path) throws ServletException {
         InputStream stream = config.getServletContext().getResourceAsStream(path);
         if (stream == null) {
@@ -118,6 +157,10 @@ public class CmisWebServicesServlet extends WSServlet {
     public void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         // set CMIS version
         request.setAttribute(CMIS_VERSION, cmisVersion);
+        request.setAttribute(STAX_MARSHALLING, staxMarshalling);
+        if (operationMetrics != null) {
+            request.setAttribute(METRICS, operationMetrics);
+        }
 
         // handle GET requests
         if (request.getMethod().equals("GET")) {
@@ -143,6 +186,10 @@ public class CmisWebServicesServlet extends WSServlet {
         }
 
         // handle POST requests
+        if (operationMetrics != null) {
+            request = new CountingHttpServletRequestWrapper(request);
+        }
+
         ProtectionRequestWrapper requestWrapper = null;
         try {
             requestWrapper = new ProtectionRequestWrapper(request, MAX_SOAP_SIZE);
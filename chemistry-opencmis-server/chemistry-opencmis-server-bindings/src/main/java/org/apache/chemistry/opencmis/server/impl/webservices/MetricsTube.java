@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl.webservices;
+
+import com.sun.xml.ws.api.message.Message;
+import com.sun.xml.ws.api.message.Packet;
+import com.sun.xml.ws.api.pipe.NextAction;
+import com.sun.xml.ws.api.pipe.ServerTubeAssemblerContext;
+import com.sun.xml.ws.api.pipe.Tube;
+import com.sun.xml.ws.api.pipe.TubeCloner;
+import com.sun.xml.ws.api.pipe.helper.AbstractFilterTubeImpl;
+
+/**
+ * Passes the name of the requested operation on to the metrics recording of
+ * {@link AbstractService}. The message context of the endpoint implementation
+ * doesn't provide it because the endpoints are deployed without a WSDL model.
+ */
+public class MetricsTube extends AbstractFilterTubeImpl {
+
+    public MetricsTube(ServerTubeAssemblerContext context, Tube next) {
+        super(next);
+    }
+
+    protected MetricsTube(MetricsTube that, TubeCloner cloner) {
+        super(that, cloner);
+    }
+
+    public MetricsTube copy(TubeCloner cloner) {
+        return new MetricsTube(this, cloner);
+    }
+
+    @Override
+    public NextAction processRequest(Packet request) {
+        Message message = request.getMessage();
+        if (message != null && message.hasPayload()) {
+            AbstractService.setMetricsOperation(message.getPayloadLocalPart());
+        }
+
+        return super.processRequest(request);
+    }
+}
@@ -42,12 +42,14 @@ import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectParentsType;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectType;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumIncludeRelationships;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.NavigationServicePort;
+import org.apache.chemistry.opencmis.commons.impl.tube.EndpointTube;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 
 /**
  * CMIS Navigation Service.
  */
 @MTOM
+@EndpointTube(StaxMarshallingTube.class)
 @WebService(endpointInterface = "org.apache.chemistry.opencmis.commons.impl.jaxb.NavigationServicePort")
 public class NavigationService extends AbstractService implements NavigationServicePort {
     @Resource
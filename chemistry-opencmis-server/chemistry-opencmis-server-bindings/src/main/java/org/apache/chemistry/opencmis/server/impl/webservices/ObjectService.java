@@ -57,6 +57,7 @@ import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumIncludeRelationships;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumUnfileObject;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumVersioningState;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.ObjectServicePort;
+import org.apache.chemistry.opencmis.commons.impl.tube.EndpointTube;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 
 import com.sun.xml.ws.developer.StreamingAttachment;
@@ -66,6 +67,7 @@ import com.sun.xml.ws.developer.StreamingAttachment;
  */
 @MTOM
 @StreamingAttachment(parseEagerly = false, memoryThreshold = 4 * 1024 * 1204)
+@EndpointTube(StaxMarshallingTube.class)
 @WebService(endpointInterface = "org.apache.chemistry.opencmis.commons.impl.jaxb.ObjectServicePort")
 public class ObjectService extends AbstractService implements ObjectServicePort {
     @Resource
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl.webservices;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPFault;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.handler.MessageContext;
+
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.WSPayloadConverter;
+import org.apache.chemistry.opencmis.commons.impl.XMLConstants;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisFaultType;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
+import org.apache.chemistry.opencmis.server.shared.OperationMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.xml.stream.buffer.MutableXMLStreamBuffer;
+import com.sun.xml.ws.api.SOAPVersion;
+import com.sun.xml.ws.api.WSBinding;
+import com.sun.xml.ws.api.message.Message;
+import com.sun.xml.ws.api.message.Messages;
+import com.sun.xml.ws.api.message.Packet;
+import com.sun.xml.ws.api.model.SEIModel;
+import com.sun.xml.ws.api.model.wsdl.WSDLPort;
+import com.sun.xml.ws.api.pipe.NextAction;
+import com.sun.xml.ws.api.pipe.ServerTubeAssemblerContext;
+import com.sun.xml.ws.api.pipe.Tube;
+import com.sun.xml.ws.api.pipe.TubeCloner;
+import com.sun.xml.ws.api.pipe.helper.AbstractFilterTubeImpl;
+import com.sun.xml.ws.server.EndpointMessageContextImpl;
+
+/**
+ * Handles the most frequent read operations without JAXB.
+ * <p>
+ * <code>getObject</code>, <code>getObjectByPath</code> and
+ * <code>getChildren</code> requests are answered directly by this tube. The
+ * request parameters are read with StAX and the response payload is written
+ * with {@link WSPayloadConverter} straight from the {@code ObjectData}
+ * objects.
+ * <p>
+ * Requests that this tube cannot handle, for example requests with
+ * extensions or invalid parameters, are passed on to the endpoint
+ * implementation before the service is called. Once the service has been
+ * called, exceptions are turned into a SOAP fault by this tube, so that the
+ * repository isn't called twice.
+ * <p>
+ * The tube can be turned off with the servlet init parameter
+ * {@link CmisWebServicesServlet#PARAM_STAX_MARSHALLING}.
+ */
+public class StaxMarshallingTube extends AbstractFilterTubeImpl {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaxMarshallingTube.class);
+
+    private static final QName CMIS_FAULT = new QName(XMLConstants.NAMESPACE_MESSAGING, "cmisFault");
+
+    private static final JAXBContext FAULT_CONTEXT;
+    static {
+        JAXBContext jc = null;
+        try {
+            jc = JAXBContext.newInstance(CmisFaultType.class);
+        } catch (JAXBException e) {
+            LOG.error("Cannot create the CMIS fault context: " + e.toString(), e);
+        }
+        FAULT_CONTEXT = jc;
+    }
+
+    private final WSDLPort wsdlPort;
+    private final SEIModel seiModel;
+    private final WSBinding binding;
+
+    public StaxMarshallingTube(ServerTubeAssemblerContext context, Tube next) {
+        super(next);
+        wsdlPort = context.getWsdlModel();
+        seiModel = context.getSEIModel();
+        binding = context.getEndpoint().getBinding();
+    }
+
+    protected StaxMarshallingTube(StaxMarshallingTube that, TubeCloner cloner) {
+        super(that, cloner);
+        wsdlPort = that.wsdlPort;
+        seiModel = that.seiModel;
+        binding = that.binding;
+    }
+
+    public StaxMarshallingTube copy(TubeCloner cloner) {
+        return new StaxMarshallingTube(this, cloner);
+    }
+
+    @Override
+    public NextAction processRequest(Packet request) {
+        Message message = request.getMessage();
+        if (message == null || !message.hasPayload()
+                || !XMLConstants.NAMESPACE_MESSAGING.equals(message.getPayloadNamespaceURI())) {
+            return super.processRequest(request);
+        }
+
+        String operation = message.getPayloadLocalPart();
+        AbstractService.setMetricsOperation(operation);
+
+        if (!WSPayloadConverter.OPERATION_GET_OBJECT.equals(operation)
+                && !WSPayloadConverter.OPERATION_GET_OBJECT_BY_PATH.equals(operation)
+                && !WSPayloadConverter.OPERATION_GET_CHILDREN.equals(operation)) {
+            return super.processRequest(request);
+        }
+
+        MessageContext mc = new EndpointMessageContextImpl(request);
+
+        HttpServletRequest httpRequest = (HttpServletRequest) mc.get(MessageContext.SERVLET_REQUEST);
+        if (httpRequest == null
+                || !Boolean.TRUE.equals(httpRequest.getAttribute(CmisWebServicesServlet.STAX_MARSHALLING))) {
+            return super.processRequest(request);
+        }
+
+        Map<String, String> parameters = readParameters(message);
+        if (parameters == null) {
+            return super.processRequest(request);
+        }
+
+        OperationMetrics.Recorder recorder = AbstractService.getMetricsRecorder(mc, parameters.get("repositoryId"),
+                operation);
+        long start = System.nanoTime();
+
+        Invocation invocation;
+        try {
+            invocation = new Invocation(mc, operation, parameters);
+        } catch (Exception e) {
+            // the service hasn't been called yet, the JAXB binding reports
+            // the problem and records the call
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Passing " + operation + " on to the JAXB binding: " + e.toString(), e);
+            }
+            return super.processRequest(request);
+        }
+
+        Message response;
+        Exception error = null;
+        try {
+            response = invocation.invoke();
+        } catch (Exception e) {
+            // the JAXB binding would call the service again, answer with the
+            // fault right here
+            error = e;
+            response = createFaultMessage(e);
+        }
+
+        if (recorder != null) {
+            recorder.record(System.nanoTime() - start, error, AbstractService.getRequestBytes(httpRequest), -1);
+        }
+
+        return doReturnWith(request.createServerResponse(response, wsdlPort, seiModel, binding));
+    }
+
+    /**
+     * Reads the request parameters from a copy of the message, so that the
+     * original message can still be passed on.
+     */
+    private Map<String, String> readParameters(Message message) {
+        try {
+            XMLStreamReader parser = message.copy().readPayload();
+            try {
+                return WSPayloadConverter.convertRequestParameters(parser);
+            } finally {
+                parser.close();
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a SOAP fault message that carries the same CMIS fault the JAXB
+     * binding would send.
+     */
+    private Message createFaultMessage(Exception ex) {
+        CmisFaultType cmisFault = AbstractService.createFault(ex);
+        String reason = (cmisFault.getMessage() == null ? "Unknown exception" : cmisFault.getMessage());
+
+        try {
+            SOAPVersion soapVersion = binding.getSOAPVersion();
+            SOAPFault fault = soapVersion.saajSoapFactory.createFault(reason, soapVersion.faultCodeServer);
+            FAULT_CONTEXT.createMarshaller().marshal(
+                    new JAXBElement<CmisFaultType>(CMIS_FAULT, CmisFaultType.class, cmisFault), fault.addDetail());
+
+            return Messages.create(fault);
+        } catch (Exception e) {
+            throw new WebServiceException("Cannot create SOAP fault: " + e.toString(), e);
+        }
+    }
+
+    /**
+     * A parsed request. All parameters are checked before the service is
+     * called.
+     */
+    private class Invocation {
+        private final String operation;
+        private final String repositoryId;
+        private final CmisServiceFactory factory;
+        private final CallContext context;
+        private final String objectId;
+        private final String path;
+        private final String folderId;
+        private final String filter;
+        private final String orderBy;
+        private final Boolean includeAllowableActions;
+        private final IncludeRelationships includeRelationships;
+        private final String renditionFilter;
+        private final Boolean includePathSegment;
+        private final Boolean includePolicyIds;
+        private final Boolean includeAcl;
+        private final BigInteger maxItems;
+        private final BigInteger skipCount;
+
+        Invocation(MessageContext mc, String operation, Map<String, String> parameters) {
+            this.operation = operation;
+            repositoryId = parameters.get("repositoryId");
+
+            factory = AbstractService.getServiceFactory(mc);
+            context = AbstractService.createContext(mc, factory, repositoryId);
+
+            objectId = parameters.get("objectId");
+            path = parameters.get("path");
+            folderId = parameters.get("folderId");
+            filter = parameters.get("filter");
+            orderBy = parameters.get("orderBy");
+            includeAllowableActions = getBoolean(parameters, "includeAllowableActions");
+            includeRelationships = getIncludeRelationships(parameters);
+            renditionFilter = parameters.get("renditionFilter");
+            includePathSegment = getBoolean(parameters, "includePathSegment");
+            includePolicyIds = getBoolean(parameters, "includePolicyIds");
+            includeAcl = getBoolean(parameters, "includeACL");
+            maxItems = getInteger(parameters, "maxItems");
+            skipCount = getInteger(parameters, "skipCount");
+        }
+
+        /**
+         * Calls the service and creates the response message.
+         */
+        Message invoke() throws XMLStreamException {
+            CmisVersion cmisVersion = context.getCmisVersion();
+
+            MutableXMLStreamBuffer buffer = new MutableXMLStreamBuffer();
+            XMLStreamWriter writer = buffer.createFromXMLStreamWriter();
+
+            CmisService service = factory.getService(context);
+            try {
+                if (WSPayloadConverter.OPERATION_GET_CHILDREN.equals(operation)) {
+                    WSPayloadConverter.writeChildrenResponse(writer, cmisVersion, service.getChildren(repositoryId,
+                            folderId, filter, orderBy, includeAllowableActions, includeRelationships,
+                            renditionFilter, includePathSegment, maxItems, skipCount, null));
+                } else if (WSPayloadConverter.OPERATION_GET_OBJECT.equals(operation)) {
+                    WSPayloadConverter.writeObjectResponse(writer, cmisVersion, operation, service.getObject(
+                            repositoryId, objectId, filter, includeAllowableActions, includeRelationships,
+                            renditionFilter, includePolicyIds, includeAcl, null));
+                } else {
+                    WSPayloadConverter.writeObjectResponse(writer, cmisVersion, operation, service.getObjectByPath(
+                            repositoryId, path, filter, includeAllowableActions, includeRelationships,
+                            renditionFilter, includePolicyIds, includeAcl, null));
+                }
+            } finally {
+                service.close();
+            }
+
+            writer.close();
+
+            XMLStreamReader payload = buffer.readAsXMLStreamReader();
+            payload.nextTag();
+
+            return Messages.createUsingPayload(payload, binding.getSOAPVersion());
+        }
+    }
+
+    private static Boolean getBoolean(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return null;
+        }
+
+        value = value.trim();
+        if ("true".equals(value) || "1".equals(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equals(value) || "0".equals(value)) {
+            return Boolean.FALSE;
+        }
+
+        throw new IllegalArgumentException("Invalid boolean value: " + value);
+    }
+
+    private static BigInteger getInteger(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return null;
+        }
+
+        return new BigInteger(value.trim());
+    }
+
+    private static IncludeRelationships getIncludeRelationships(Map<String, String> parameters) {
+        String value = parameters.get("includeRelationships");
+        if (value == null) {
+            return null;
+        }
+
+        return IncludeRelationships.fromValue(value.trim());
+    }
+}
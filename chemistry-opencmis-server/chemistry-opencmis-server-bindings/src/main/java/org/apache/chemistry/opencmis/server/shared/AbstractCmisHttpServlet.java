@@ -18,11 +18,20 @@
  */
 package org.apache.chemistry.opencmis.server.shared;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -40,6 +49,33 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
 
     public static final String PARAM_CALL_CONTEXT_HANDLER = "callContextHandler";
     public static final String PARAM_CMIS_VERSION = "cmisVersion";
+    public static final String PARAM_COMPRESSION = "compression";
+    public static final String PARAM_COMPRESSION_LEVEL = "compressionLevel";
+    public static final String PARAM_COMPRESSION_EXCLUDED_MIME_TYPES = "compressionExcludedMimeTypes";
+    public static final String PARAM_MAX_CONCURRENT_REQUESTS = "maxConcurrentRequests";
+    public static final String PARAM_MAX_CONCURRENT_CONTENT_REQUESTS = "maxConcurrentContentRequests";
+    public static final String PARAM_MAX_QUEUED_REQUESTS = "maxQueuedRequests";
+    public static final String PARAM_MAX_QUEUE_TIME = "maxQueueTime";
+    public static final String PARAM_METRICS = "metrics";
+    public static final String PARAM_METRICS_EXPORTERS = "metricsExporters";
+
+    /**
+     * Servlet context attribute prefix for the {@link RequestLimiter}. The
+     * servlet name is appended.
+     */
+    public static final String REQUEST_LIMITER_ATTRIBUTE = "org.apache.chemistry.opencmis.server.requestlimiter.";
+
+    /**
+     * MIME types that are already compressed. Entries ending with '*' match
+     * all types with this prefix.
+     */
+    public static final List<String> DEFAULT_COMPRESSION_EXCLUDED_MIME_TYPES = Collections.unmodifiableList(Arrays
+            .asList("image/*", "audio/*", "video/*", "application/zip", "application/gzip", "application/x-gzip",
+                    "application/x-bzip2", "application/x-compress", "application/x-7z-compressed",
+                    "application/x-rar-compressed", "application/java-archive", "application/epub+zip",
+                    "application/vnd.openxmlformats-officedocument.*", "application/vnd.oasis.opendocument.*"));
+
+    private static final int DEFLATER_POOL_SIZE = 32;
 
     private static final long serialVersionUID = 1L;
 
@@ -48,6 +84,11 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
     private CmisVersion cmisVersion;
     private CallContextHandler callContextHandler;
     private ThresholdOutputStreamFactory streamFactory;
+    private DeflaterPool gzipPool;
+    private DeflaterPool deflatePool;
+    private List<String> compressionExcludedMimeTypes;
+    private RequestLimiter requestLimiter;
+    private OperationMetrics operationMetrics;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
@@ -76,6 +117,100 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
         // set up stream factory
         streamFactory = ThresholdOutputStreamFactory.newInstance(factory.getTempDirectory(),
                 factory.getMemoryThreshold(), factory.getMaxContentSize(), factory.encryptTempFiles());
+
+        // set up response compression (off by default)
+        gzipPool = null;
+        deflatePool = null;
+        String compression = config.getInitParameter(PARAM_COMPRESSION);
+        if (compression != null && Boolean.parseBoolean(compression.trim())) {
+            int level = Deflater.DEFAULT_COMPRESSION;
+            String levelStr = config.getInitParameter(PARAM_COMPRESSION_LEVEL);
+            if (levelStr != null) {
+                try {
+                    level = Integer.parseInt(levelStr.trim());
+                } catch (NumberFormatException e) {
+                    throw new ServletException("Invalid compression level: " + levelStr);
+                }
+                if (level < 0 || level > 9) {
+                    throw new ServletException("Invalid compression level: " + levelStr);
+                }
+            }
+
+            gzipPool = new DeflaterPool(level, true, DEFLATER_POOL_SIZE);
+            deflatePool = new DeflaterPool(level, false, DEFLATER_POOL_SIZE);
+        }
+
+        String excluded = config.getInitParameter(PARAM_COMPRESSION_EXCLUDED_MIME_TYPES);
+        if (excluded == null) {
+            compressionExcludedMimeTypes = DEFAULT_COMPRESSION_EXCLUDED_MIME_TYPES;
+        } else {
+            compressionExcludedMimeTypes = new ArrayList<String>();
+            for (String mimeType : excluded.split(",")) {
+                mimeType = mimeType.trim().toLowerCase(Locale.ENGLISH);
+                if (mimeType.length() > 0) {
+                    compressionExcludedMimeTypes.add(mimeType);
+                }
+            }
+        }
+
+        // set up request limits
+        requestLimiter = null;
+        int maxRequests = getIntInitParameter(config, PARAM_MAX_CONCURRENT_REQUESTS, 0);
+        if (maxRequests > 0) {
+            int maxContentRequests = getIntInitParameter(config, PARAM_MAX_CONCURRENT_CONTENT_REQUESTS, maxRequests);
+            int maxQueued = getIntInitParameter(config, PARAM_MAX_QUEUED_REQUESTS, maxRequests);
+            int maxQueueTime = getIntInitParameter(config, PARAM_MAX_QUEUE_TIME, 10000);
+
+            requestLimiter = new RequestLimiter(maxRequests, Math.max(1, maxContentRequests), maxQueued,
+                    maxQueueTime);
+            config.getServletContext().setAttribute(REQUEST_LIMITER_ATTRIBUTE + config.getServletName(),
+                    requestLimiter);
+        }
+
+        // set up metrics
+        operationMetrics = null;
+        String metrics = config.getInitParameter(PARAM_METRICS);
+        if (metrics != null && Boolean.parseBoolean(metrics.trim())) {
+            operationMetrics = OperationMetrics.acquire(config.getServletContext());
+            try {
+                operationMetrics.addExporters(config.getInitParameter(PARAM_METRICS_EXPORTERS),
+                        config.getServletContext());
+            } catch (Exception e) {
+                OperationMetrics.release(config.getServletContext());
+                operationMetrics = null;
+                throw new ServletException(e.getMessage(), e);
+            }
+        }
+    }
+
+    protected static int getIntInitParameter(ServletConfig config, String name, int defaultValue)
+            throws ServletException {
+        String value = config.getInitParameter(name);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ServletException("Invalid value for init parameter " + name + ": " + value);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (gzipPool != null) {
+            gzipPool.clear();
+        }
+        if (deflatePool != null) {
+            deflatePool.clear();
+        }
+        if (operationMetrics != null) {
+            OperationMetrics.release(getServletContext());
+            operationMetrics = null;
+        }
+
+        super.destroy();
     }
 
     /**
@@ -117,6 +252,94 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
         return streamFactory;
     }
 
+    /**
+     * Returns the {@link RequestLimiter} or {@code null} if the number of
+     * concurrent requests is not limited.
+     */
+    protected RequestLimiter getRequestLimiter() {
+        return requestLimiter;
+    }
+
+    /**
+     * Returns the {@link OperationMetrics} or {@code null} if metrics are
+     * turned off.
+     */
+    protected OperationMetrics getOperationMetrics() {
+        return operationMetrics;
+    }
+
+    /**
+     * Answers a request that has been rejected by the {@link RequestLimiter}.
+     */
+    protected void sendLimitExceeded(LimitExceededException e, HttpServletResponse response) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+
+        response.setHeader("Retry-After", "1");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+    }
+
+    /**
+     * Wraps the request if the request body is gzip or deflate compressed.
+     */
+    protected HttpServletRequest decodeRequest(HttpServletRequest request) {
+        return ContentEncodingHttpServletRequestWrapper.wrap(request);
+    }
+
+    /**
+     * Wraps the response if compression is turned on and the client accepts
+     * compressed responses. The wrapped response must be passed to
+     * {@link #finishResponse(HttpServletResponse)} at the end of the request.
+     */
+    protected HttpServletResponse compressResponse(HttpServletRequest request, HttpServletResponse response) {
+        if (gzipPool == null || CompressingHttpServletResponseWrapper.selectEncoding(request
+                .getHeader("Accept-Encoding")) == null) {
+            return response;
+        }
+
+        return new CompressingHttpServletResponseWrapper(request, response, gzipPool, deflatePool,
+                compressionExcludedMimeTypes);
+    }
+
+    /**
+     * Wraps the request if metrics are turned on, so that the dispatcher can
+     * record the size of the request body.
+     */
+    protected HttpServletRequest countRequest(HttpServletRequest request) {
+        if (operationMetrics == null) {
+            return request;
+        }
+
+        return new CountingHttpServletRequestWrapper(request);
+    }
+
+    /**
+     * Wraps the response if metrics are turned on, so that the dispatcher can
+     * record the size of the response body.
+     */
+    protected HttpServletResponse countResponse(HttpServletResponse response) {
+        if (operationMetrics == null) {
+            return response;
+        }
+
+        return new CountingHttpServletResponseWrapper(response);
+    }
+
+    /**
+     * Finishes a compressed response body.
+     */
+    protected void finishResponse(HttpServletResponse response) throws IOException {
+        ServletResponse current = response;
+        while (current instanceof ServletResponseWrapper) {
+            if (current instanceof CompressingHttpServletResponseWrapper) {
+                ((CompressingHttpServletResponseWrapper) current).finish();
+                return;
+            }
+            current = ((ServletResponseWrapper) current).getResponse();
+        }
+    }
+
     /**
      * Creates a {@link CallContext} object from a servlet request.
      */
@@ -0,0 +1,603 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * HttpServletResponse wrapper that compresses the response body with gzip or
+ * deflate while it is written.
+ * <p>
+ * The encoding is picked from the {@code Accept-Encoding} header of the
+ * request. Whether the body is compressed is decided when the servlet asks
+ * for the output stream or the writer. Bodies are not compressed if the
+ * content type is excluded, the response is a partial response or the
+ * servlet has set its own {@code Content-Encoding}. Bodies smaller than
+ * {@link #MIN_SIZE} bytes are not compressed either. If the servlet doesn't
+ * set a content length, the first {@link #MIN_SIZE} bytes are buffered until
+ * the size is known; flushing doesn't send them early.
+ * <p>
+ * {@link #finish()} must be called when the servlet is done.
+ */
+public class CompressingHttpServletResponseWrapper extends HttpServletResponseWrapper {
+
+    /** Bodies smaller than this are sent uncompressed. */
+    public static final int MIN_SIZE = 256;
+
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_CONTENT_RANGE = "Content-Range";
+    private static final String HEADER_VARY = "Vary";
+
+    private static final String ENCODING_GZIP = "gzip";
+    private static final String ENCODING_DEFLATE = "deflate";
+
+    private final String encoding;
+    private final DeflaterPool pool;
+    private final Collection<String> excludedMimeTypes;
+
+    private String contentType;
+    private long contentLength = -1;
+    private int status = SC_OK;
+    private boolean partial;
+    private boolean encodedByServlet;
+
+    private Boolean compressing;
+    private ServletOutputStream stream;
+    private CompressingServletOutputStream compressingStream;
+    private PrintWriter writer;
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            the request, used to determine the accepted encodings
+     * @param response
+     *            the response to wrap
+     * @param gzipPool
+     *            deflaters for gzip ({@code nowrap} deflaters)
+     * @param deflatePool
+     *            deflaters for deflate (zlib deflaters)
+     * @param excludedMimeTypes
+     *            MIME types that are never compressed, entries ending with
+     *            '*' match all types with this prefix
+     */
+    public CompressingHttpServletResponseWrapper(HttpServletRequest request, HttpServletResponse response,
+            DeflaterPool gzipPool, DeflaterPool deflatePool, Collection<String> excludedMimeTypes) {
+        super(response);
+
+        this.encoding = selectEncoding(request.getHeader("Accept-Encoding"));
+        this.pool = (ENCODING_GZIP.equals(encoding) ? gzipPool : (ENCODING_DEFLATE.equals(encoding) ? deflatePool
+                : null));
+        this.excludedMimeTypes = excludedMimeTypes;
+    }
+
+    /**
+     * Picks gzip or deflate from an {@code Accept-Encoding} header. gzip is
+     * preferred if both are acceptable.
+     */
+    static String selectEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        boolean gzip = false;
+        boolean deflate = false;
+
+        for (String token : acceptEncoding.split(",")) {
+            String name = token;
+            float q = 1;
+
+            int x = token.indexOf(';');
+            if (x > -1) {
+                name = token.substring(0, x);
+                String param = token.substring(x + 1).trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+
+            if (q <= 0) {
+                continue;
+            }
+
+            name = name.trim().toLowerCase(Locale.ENGLISH);
+            if (name.equals(ENCODING_GZIP) || name.equals("x-gzip")) {
+                gzip = true;
+            } else if (name.equals(ENCODING_DEFLATE)) {
+                deflate = true;
+            }
+        }
+
+        return gzip ? ENCODING_GZIP : (deflate ? ENCODING_DEFLATE : null);
+    }
+
+    /**
+     * Returns whether the given content type is excluded from compression.
+     */
+    static boolean isExcluded(String contentType, Collection<String> excludedMimeTypes) {
+        if (contentType == null || excludedMimeTypes == null) {
+            return false;
+        }
+
+        String mimeType = contentType;
+        int x = mimeType.indexOf(';');
+        if (x > -1) {
+            mimeType = mimeType.substring(0, x);
+        }
+        mimeType = mimeType.trim().toLowerCase(Locale.ENGLISH);
+
+        for (String excluded : excludedMimeTypes) {
+            if (excluded.endsWith("*")) {
+                if (mimeType.startsWith(excluded.substring(0, excluded.length() - 1))) {
+                    return true;
+                }
+            } else if (mimeType.equals(excluded)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns whether the body is compressed. Only meaningful after the body
+     * has been finished.
+     */
+    public boolean isCompressing() {
+        return Boolean.TRUE.equals(compressing);
+    }
+
+    private boolean decide() {
+        if (compressing == null) {
+            boolean compress = pool != null && !encodedByServlet && !partial && !isCommitted()
+                    && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED && status != SC_PARTIAL_CONTENT
+                    && (contentLength < 0 || contentLength >= MIN_SIZE)
+                    && !isExcluded(contentType, excludedMimeTypes);
+
+            compressing = Boolean.valueOf(compress);
+
+            if (pool != null) {
+                // the body depends on the Accept-Encoding header
+                super.addHeader(HEADER_VARY, "Accept-Encoding");
+            }
+
+            if (!compress && contentLength >= 0) {
+                setLengthHeader(contentLength);
+            }
+        }
+
+        return compressing.booleanValue();
+    }
+
+    private void setLengthHeader(long length) {
+        if (length <= Integer.MAX_VALUE) {
+            super.setContentLength((int) length);
+        } else {
+            super.setHeader(HEADER_CONTENT_LENGTH, String.valueOf(length));
+        }
+    }
+
+    private void handleContentLength(long length) {
+        if (compressing == null) {
+            // remember it until we know whether we compress
+            contentLength = length;
+        } else if (!compressing.booleanValue()) {
+            setLengthHeader(length);
+        }
+    }
+
+    private boolean handleHeader(String name, String value) {
+        if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            try {
+                handleContentLength(Long.parseLong(value.trim()));
+            } catch (RuntimeException e) {
+                // ignore invalid values
+            }
+            return true;
+        }
+
+        if (HEADER_CONTENT_ENCODING.equalsIgnoreCase(name)) {
+            encodedByServlet = true;
+        } else if (HEADER_CONTENT_RANGE.equalsIgnoreCase(name)) {
+            partial = true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called!");
+        }
+
+        if (stream == null) {
+            if (decide()) {
+                compressingStream = new CompressingServletOutputStream(super.getOutputStream());
+                stream = compressingStream;
+            } else {
+                stream = super.getOutputStream();
+            }
+        }
+
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer != null) {
+            return writer;
+        }
+
+        if (stream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called!");
+        }
+
+        if (decide()) {
+            String charset = getCharacterEncoding();
+            if (charset == null) {
+                charset = "ISO-8859-1";
+            }
+
+            compressingStream = new CompressingServletOutputStream(super.getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(compressingStream, charset));
+        } else {
+            writer = super.getWriter();
+        }
+
+        return writer;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        contentType = type;
+        super.setContentType(type);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        handleContentLength(len);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!handleHeader(name, value)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!handleHeader(name, value)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            handleContentLength(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            handleContentLength(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+        super.setStatus(sc);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void setStatus(int sc, String sm) {
+        status = sc;
+        super.setStatus(sc, sm);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        discardCompressedBody();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        discardCompressedBody();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (compressingStream != null) {
+            compressingStream.flush();
+            if (compressingStream.isBuffering()) {
+                return;
+            }
+        }
+
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+
+        releaseStream();
+        stream = null;
+        writer = null;
+        compressing = null;
+        contentType = null;
+        contentLength = -1;
+        status = SC_OK;
+        partial = false;
+        encodedByServlet = false;
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+
+        if (compressingStream != null) {
+            // the container has thrown away what we have written so far
+            compressingStream.restart();
+        }
+    }
+
+    /**
+     * Finishes the compressed body and frees the deflater. Does nothing if the
+     * body isn't compressed.
+     */
+    public void finish() throws IOException {
+        try {
+            if (writer != null) {
+                writer.flush();
+            }
+        } finally {
+            if (compressingStream != null) {
+                compressingStream.finish();
+            }
+        }
+    }
+
+    private void discardCompressedBody() {
+        if (compressingStream != null && compressingStream.hasStarted() && !isCommitted()) {
+            // the error page replaces the compressed body
+            super.setHeader(HEADER_CONTENT_ENCODING, "identity");
+        }
+
+        releaseStream();
+    }
+
+    private void releaseStream() {
+        if (compressingStream != null) {
+            compressingStream.release();
+            compressingStream = null;
+        }
+    }
+
+    /**
+     * Stream that compresses into the servlet output stream.
+     */
+    private class CompressingServletOutputStream extends ServletOutputStream {
+
+        private static final int BUFFER_SIZE = 8 * 1024;
+
+        private final ServletOutputStream out;
+        private final boolean gzip;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private Deflater deflater;
+        private boolean encodingSet;
+        private boolean started;
+        private boolean finished;
+
+        /** Start of a body of unknown length, until it reaches MIN_SIZE. */
+        private byte[] head;
+        private int headLength;
+
+        public CompressingServletOutputStream(ServletOutputStream out) {
+            this.out = out;
+            this.gzip = ENCODING_GZIP.equals(encoding);
+            if (contentLength < 0) {
+                this.head = new byte[MIN_SIZE];
+            }
+        }
+
+        boolean hasStarted() {
+            return encodingSet;
+        }
+
+        private void start() throws IOException {
+            if (finished) {
+                throw new IOException("Stream is already closed!");
+            }
+
+            if (!encodingSet) {
+                encodingSet = true;
+                CompressingHttpServletResponseWrapper.super.setHeader(HEADER_CONTENT_ENCODING, encoding);
+            }
+
+            if (deflater == null) {
+                deflater = pool.acquire();
+            }
+
+            if (!started) {
+                started = true;
+                if (gzip) {
+                    out.write(new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 });
+                }
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+
+            if (head != null) {
+                if (headLength + len < MIN_SIZE) {
+                    System.arraycopy(b, off, head, headLength, len);
+                    headLength += len;
+                    return;
+                }
+
+                // big enough, compress the buffered start first
+                byte[] buffered = head;
+                head = null;
+                if (headLength > 0) {
+                    write(buffered, 0, headLength);
+                }
+            }
+
+            start();
+
+            if (gzip) {
+                crc.update(b, off, len);
+            }
+
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        private void deflate() throws IOException {
+            int n = deflater.deflate(buffer, 0, buffer.length);
+            if (n > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+
+        /**
+         * Returns whether the start of the body is still buffered. The
+         * response must not be committed in this state, because the headers
+         * depend on the size of the body.
+         */
+        boolean isBuffering() {
+            return head != null && !finished;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!isBuffering()) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.close();
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+
+            try {
+                if (head != null) {
+                    // the body is too small, send it as it is
+                    compressing = Boolean.FALSE;
+                    setLengthHeader(headLength);
+                    out.write(head, 0, headLength);
+                    head = null;
+                } else if (encodingSet) {
+                    start();
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        deflate();
+                    }
+
+                    if (gzip) {
+                        writeInt((int) crc.getValue());
+                        writeInt((int) deflater.getBytesRead());
+                    }
+                }
+            } finally {
+                finished = true;
+                release();
+            }
+        }
+
+        /**
+         * Starts over with an empty body.
+         */
+        void restart() {
+            if (deflater != null) {
+                deflater.reset();
+            }
+            crc.reset();
+            started = false;
+            if (head != null) {
+                headLength = 0;
+            }
+        }
+
+        void release() {
+            if (deflater != null) {
+                pool.release(deflater);
+                deflater = null;
+            }
+            finished = true;
+        }
+
+        private void writeInt(int i) throws IOException {
+            out.write(i & 0xff);
+            out.write((i >> 8) & 0xff);
+            out.write((i >> 16) & 0xff);
+            out.write((i >> 24) & 0xff);
+        }
+    }
+}
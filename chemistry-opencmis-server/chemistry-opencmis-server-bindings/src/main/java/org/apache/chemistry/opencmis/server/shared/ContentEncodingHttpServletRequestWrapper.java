@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+
+/**
+ * HttpServletRequest wrapper that decodes gzip and deflate compressed request
+ * bodies while they are read.
+ * <p>
+ * The wrapper hides the {@code Content-Encoding} and {@code Content-Length}
+ * headers because they describe the encoded body.
+ */
+public class ContentEncodingHttpServletRequestWrapper extends HttpServletRequestWrapper {
+
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final String encoding;
+    private ServletInputStream stream;
+    private BufferedReader reader;
+
+    public ContentEncodingHttpServletRequestWrapper(HttpServletRequest request, String encoding) {
+        super(request);
+        this.encoding = encoding;
+    }
+
+    /**
+     * Wraps the request if the body is encoded.
+     * 
+     * @return the wrapped request or the original request if the body is not
+     *         encoded
+     */
+    public static HttpServletRequest wrap(HttpServletRequest request) {
+        String encoding = request.getHeader(HEADER_CONTENT_ENCODING);
+        if (encoding == null) {
+            return request;
+        }
+
+        encoding = encoding.trim().toLowerCase(Locale.ENGLISH);
+        if (encoding.length() == 0 || encoding.equals("identity")) {
+            return request;
+        }
+
+        return new ContentEncodingHttpServletRequestWrapper(request, encoding);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() has already been called!");
+        }
+
+        if (stream == null) {
+            stream = new DecodingServletInputStream(decode(super.getInputStream()));
+        }
+
+        return stream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (stream != null) {
+            throw new IllegalStateException("getInputStream() has already been called!");
+        }
+
+        if (reader == null) {
+            String charset = getCharacterEncoding();
+            if (charset == null) {
+                charset = "ISO-8859-1";
+            }
+
+            reader = new BufferedReader(new InputStreamReader(decode(super.getInputStream()), charset));
+        }
+
+        return reader;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (isHiddenHeader(name)) {
+            return null;
+        }
+
+        return super.getHeader(name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Enumeration getHeaders(String name) {
+        if (isHiddenHeader(name)) {
+            return Collections.enumeration(Collections.emptyList());
+        }
+
+        return super.getHeaders(name);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        if (isHiddenHeader(name)) {
+            return -1;
+        }
+
+        return super.getIntHeader(name);
+    }
+
+    private static boolean isHiddenHeader(String name) {
+        return HEADER_CONTENT_ENCODING.equalsIgnoreCase(name) || HEADER_CONTENT_LENGTH.equalsIgnoreCase(name);
+    }
+
+    private InputStream decode(InputStream in) throws IOException {
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        } else if (encoding.equals("deflate")) {
+            // HTTP defines deflate as zlib data, but some clients send raw
+            // deflate data
+            PushbackInputStream pin = new PushbackInputStream(in, 2);
+            int b1 = pin.read();
+            int b2 = pin.read();
+            if (b2 > -1) {
+                pin.unread(b2);
+            }
+            if (b1 > -1) {
+                pin.unread(b1);
+            }
+
+            boolean zlib = b1 > -1 && b2 > -1 && (b1 & 0x0F) == 8 && ((b1 << 8) | b2) % 31 == 0;
+            return new InflaterInputStream(pin, new Inflater(!zlib), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inf.end();
+                }
+            };
+        }
+
+        throw new CmisInvalidArgumentException("Unsupported content encoding: " + encoding);
+    }
+
+    /**
+     * Servlet input stream that reads from a decoding stream.
+     */
+    private static class DecodingServletInputStream extends ServletInputStream {
+
+        private final InputStream stream;
+
+        public DecodingServletInputStream(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return stream.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return stream.read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return stream.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+}
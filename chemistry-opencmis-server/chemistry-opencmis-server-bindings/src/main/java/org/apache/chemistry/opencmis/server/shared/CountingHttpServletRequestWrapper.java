@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.IOException;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Request wrapper that counts the body bytes read from the request.
+ */
+public class CountingHttpServletRequestWrapper extends HttpServletRequestWrapper {
+
+    private ServletInputStream stream;
+    private long count;
+
+    public CountingHttpServletRequestWrapper(HttpServletRequest request) {
+        super(request);
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Finds the counting wrapper in a chain of request wrappers.
+     * 
+     * @return the wrapper or {@code null} if the request isn't counted
+     */
+    public static CountingHttpServletRequestWrapper find(ServletRequest request) {
+        ServletRequest current = request;
+        while (current instanceof ServletRequestWrapper) {
+            if (current instanceof CountingHttpServletRequestWrapper) {
+                return (CountingHttpServletRequestWrapper) current;
+            }
+            current = ((ServletRequestWrapper) current).getRequest();
+        }
+
+        return null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (stream == null) {
+            stream = new CountingServletInputStream(super.getInputStream());
+        }
+
+        return stream;
+    }
+
+    private class CountingServletInputStream extends ServletInputStream {
+
+        private final ServletInputStream in;
+
+        public CountingServletInputStream(ServletInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b > -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            if (skipped > 0) {
+                count += skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
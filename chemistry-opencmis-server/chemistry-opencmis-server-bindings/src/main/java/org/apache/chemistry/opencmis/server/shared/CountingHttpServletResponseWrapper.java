@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that counts the body bytes written by a service call.
+ * <p>
+ * Bytes are counted before compression. Text written through
+ * {@link #getWriter()} is counted in characters.
+ */
+public class CountingHttpServletResponseWrapper extends HttpServletResponseWrapper {
+
+    private ServletOutputStream stream;
+    private PrintWriter writer;
+    private long count;
+
+    public CountingHttpServletResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Finds the counting wrapper in a chain of response wrappers.
+     * 
+     * @return the wrapper or {@code null} if the response isn't counted
+     */
+    public static CountingHttpServletResponseWrapper find(ServletResponse response) {
+        ServletResponse current = response;
+        while (current instanceof ServletResponseWrapper) {
+            if (current instanceof CountingHttpServletResponseWrapper) {
+                return (CountingHttpServletResponseWrapper) current;
+            }
+            current = ((ServletResponseWrapper) current).getResponse();
+        }
+
+        return null;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (stream == null) {
+            stream = new CountingServletOutputStream(super.getOutputStream());
+        }
+
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new CountingWriter(super.getWriter()));
+        }
+
+        return writer;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        count = 0;
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        count = 0;
+    }
+
+    private class CountingServletOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream out;
+
+        public CountingServletOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private class CountingWriter extends FilterWriter {
+
+        public CountingWriter(PrintWriter out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * A pool of {@link Deflater} objects with the same compression level.
+ * <p>
+ * Creating a deflater allocates native memory that is only freed by
+ * {@link Deflater#end()} or the finalizer. Reusing them keeps the native
+ * memory footprint of a busy server stable.
+ */
+public class DeflaterPool {
+
+    private final int level;
+    private final boolean nowrap;
+    private final int maxSize;
+    private final ConcurrentLinkedQueue<Deflater> pool = new ConcurrentLinkedQueue<Deflater>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * 
+     * @param level
+     *            the compression level (0-9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION})
+     * @param nowrap
+     *            {@code true} for raw deflate data (gzip),
+     *            {@code false} for the zlib format (deflate)
+     * @param maxSize
+     *            the maximum number of idle deflaters kept in the pool
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxSize) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a deflater from the pool or a new one if the pool is empty.
+     */
+    public Deflater acquire() {
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            return new Deflater(level, nowrap);
+        }
+
+        size.decrementAndGet();
+        return deflater;
+    }
+
+    /**
+     * Returns a deflater to the pool.
+     */
+    public void release(Deflater deflater) {
+        if (deflater == null) {
+            return;
+        }
+
+        deflater.reset();
+
+        if (size.incrementAndGet() <= maxSize) {
+            pool.offer(deflater);
+        } else {
+            size.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Frees all idle deflaters.
+     */
+    public void clear() {
+        Deflater deflater;
+        while ((deflater = pool.poll()) != null) {
+            size.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns the compression level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the number of idle deflaters.
+     */
+    public int getIdleCount() {
+        return size.get();
+    }
+}
@@ -20,7 +20,9 @@ package org.apache.chemistry.opencmis.server.shared;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -50,6 +52,10 @@ public class Dispatcher implements Serializable {
 
     private final boolean caseSensitive;
     private final Map<String, ServiceCall> serviceCallMap;
+    private final Set<String> contentCalls;
+    private final Map<String, String> operationNames;
+    private transient RequestLimiter requestLimiter;
+    private transient OperationMetrics operationMetrics;
 
     public Dispatcher() {
         this(true);
@@ -58,13 +64,45 @@ public class Dispatcher implements Serializable {
     public Dispatcher(boolean caseSensitive) {
         this.caseSensitive = caseSensitive;
         serviceCallMap = new HashMap<String, ServiceCall>();
+        contentCalls = new HashSet<String>();
+        operationNames = new HashMap<String, String>();
+    }
+
+    /**
+     * Sets the limiter for concurrent requests or {@code null} for no limits.
+     */
+    public void setRequestLimiter(RequestLimiter requestLimiter) {
+        this.requestLimiter = requestLimiter;
+    }
+
+    /**
+     * Sets the metrics that record the calls or {@code null} to turn
+     * recording off.
+     */
+    public void setOperationMetrics(OperationMetrics operationMetrics) {
+        this.operationMetrics = operationMetrics;
     }
 
     /**
      * Connects a resource and HTTP method with an object that handles the call.
      */
     public void addResource(String resource, String httpMethod, ServiceCall serviceCall) {
-        serviceCallMap.put(getKey(resource, httpMethod), serviceCall);
+        addResource(resource, httpMethod, serviceCall, RequestLimiter.Lane.METADATA);
+    }
+
+    /**
+     * Connects a resource and HTTP method with an object that handles the call
+     * and assigns the call to a request lane.
+     */
+    public void addResource(String resource, String httpMethod, ServiceCall serviceCall, RequestLimiter.Lane lane) {
+        String key = getKey(resource, httpMethod);
+        serviceCallMap.put(key, serviceCall);
+        operationNames.put(key, getOperationName(serviceCall));
+        if (lane == RequestLimiter.Lane.CONTENT) {
+            contentCalls.add(key);
+        } else {
+            contentCalls.remove(key);
+        }
     }
 
     /**
@@ -75,7 +113,26 @@ public class Dispatcher implements Serializable {
      */
     public boolean dispatch(String resource, String httpMethod, CallContext context, CmisService service,
             String repositoryId, HttpServletRequest request, HttpServletResponse response) {
-        ServiceCall serviceCall = serviceCallMap.get(getKey(resource, httpMethod));
+        return dispatch(resource, httpMethod, context, service, repositoryId, request, response, true);
+    }
+
+    /**
+     * Handles a call that is part of another request, for example an operation
+     * of a batch. The request limiter is not consulted because the enclosing
+     * request already holds a permit.
+     * 
+     * @return <code>true</code> if an object was found that can handle the
+     *         request, <code>false</code> otherwise.
+     */
+    public boolean dispatchNested(String resource, String httpMethod, CallContext context, CmisService service,
+            String repositoryId, HttpServletRequest request, HttpServletResponse response) {
+        return dispatch(resource, httpMethod, context, service, repositoryId, request, response, false);
+    }
+
+    private boolean dispatch(String resource, String httpMethod, CallContext context, CmisService service,
+            String repositoryId, HttpServletRequest request, HttpServletResponse response, boolean limited) {
+        String key = getKey(resource, httpMethod);
+        ServiceCall serviceCall = serviceCallMap.get(key);
         if (serviceCall == null) {
             return false;
         }
@@ -84,17 +141,69 @@ public class Dispatcher implements Serializable {
             LOG.debug(repositoryId + " / " + resource + ", " + httpMethod + " -> " + serviceCall.getClass().getName());
         }
 
+        RequestLimiter.Permit permit = null;
+        if (limited && requestLimiter != null) {
+            permit = requestLimiter.acquire(repositoryId, contentCalls.contains(key) ? RequestLimiter.Lane.CONTENT
+                    : RequestLimiter.Lane.METADATA);
+        }
+
+        OperationMetrics metrics = operationMetrics;
+        long start = (metrics == null ? 0 : System.nanoTime());
+
+        Throwable error = null;
         try {
             serviceCall.serve(context, service, repositoryId, request, response);
         } catch (CmisBaseException ce) {
+            error = ce;
             throw ce;
         } catch (Exception e) {
+            error = e;
             throw new CmisRuntimeException(e.getMessage(), e);
+        } finally {
+            if (permit != null) {
+                permit.release();
+            }
+
+            if (metrics != null) {
+                // nested calls share the request and response of the
+                // enclosing call, their sizes are unknown
+                long requestBytes = -1;
+                long responseBytes = -1;
+                if (limited) {
+                    CountingHttpServletRequestWrapper countingRequest = CountingHttpServletRequestWrapper
+                            .find(request);
+                    requestBytes = (countingRequest == null ? request.getContentLength() : countingRequest
+                            .getCount());
+
+                    CountingHttpServletResponseWrapper countingResponse = CountingHttpServletResponseWrapper
+                            .find(response);
+                    if (countingResponse != null) {
+                        responseBytes = countingResponse.getCount();
+                    }
+                }
+
+                metrics.getRecorder(repositoryId, context.getBinding(), operationNames.get(key)).record(
+                        System.nanoTime() - start, error, requestBytes, responseBytes);
+            }
         }
 
         return true;
     }
 
+    /**
+     * Derives the operation name from the class name of a service call, for
+     * example "getObject" from "ObjectService.GetObject".
+     */
+    private static String getOperationName(ServiceCall serviceCall) {
+        String name = serviceCall.getClass().getName();
+        name = name.substring(Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1);
+        if (name.length() == 0) {
+            return "unknown";
+        }
+
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
     /**
      * Generates a map key from a resource and an HTTP method.
      */
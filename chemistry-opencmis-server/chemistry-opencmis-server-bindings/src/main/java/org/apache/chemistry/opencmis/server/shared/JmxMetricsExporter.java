@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.servlet.ServletContext;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the {@link OperationMetrics} of a web application as an MBean
+ * with the platform MBean server.
+ * <p>
+ * The object name is
+ * {@code org.apache.chemistry.opencmis:type=OperationMetrics,context=<name>}
+ * where the name is the display name of the web application. If another web
+ * application has already registered an MBean with this name, an
+ * {@code instance=<n>} key is added instead of replacing the existing MBean.
+ */
+public class JmxMetricsExporter implements MetricsExporter {
+
+    public static final String DOMAIN = "org.apache.chemistry.opencmis";
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxMetricsExporter.class);
+
+    private static final int MAX_INSTANCES = 100;
+
+    private ObjectName name;
+
+    public void start(final OperationMetrics metrics, ServletContext servletContext) {
+        String context = servletContext.getServletContextName();
+        if (context == null || context.length() == 0) {
+            context = Integer.toHexString(System.identityHashCode(servletContext));
+        }
+
+        try {
+            OperationMetricsMBean mbean = new OperationMetricsMBean() {
+                public long getCalls() {
+                    long calls = 0;
+                    for (OperationMetrics.OperationStatistics stats : metrics.getStatistics()) {
+                        calls += stats.getCalls();
+                    }
+                    return calls;
+                }
+
+                public long getErrors() {
+                    long errors = 0;
+                    for (OperationMetrics.OperationStatistics stats : metrics.getStatistics()) {
+                        errors += stats.getErrors();
+                    }
+                    return errors;
+                }
+
+                public String[] getOperations() {
+                    List<OperationMetrics.OperationStatistics> statistics = metrics.getStatistics();
+                    String[] result = new String[statistics.size()];
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = statistics.get(i).toString();
+                    }
+                    return result;
+                }
+
+                public void reset() {
+                    metrics.reset();
+                }
+            };
+
+            StandardMBean standardMBean = new StandardMBean(mbean, OperationMetricsMBean.class);
+            String baseName = DOMAIN + ":type=OperationMetrics,context=" + ObjectName.quote(context);
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName registered = null;
+            for (int i = 1; registered == null; i++) {
+                ObjectName candidate = new ObjectName(i == 1 ? baseName : baseName + ",instance=" + i);
+                try {
+                    registered = server.registerMBean(standardMBean, candidate).getObjectName();
+                } catch (InstanceAlreadyExistsException e) {
+                    // belongs to another web application with the same name
+                    if (i >= MAX_INSTANCES) {
+                        throw e;
+                    }
+                }
+            }
+            name = registered;
+        } catch (Exception e) {
+            throw new CmisRuntimeException("Could not register metrics MBean: " + e, e);
+        }
+    }
+
+    public void stop() {
+        if (name == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOG.warn("Could not unregister metrics MBean: " + e, e);
+        } finally {
+            name = null;
+        }
+    }
+}
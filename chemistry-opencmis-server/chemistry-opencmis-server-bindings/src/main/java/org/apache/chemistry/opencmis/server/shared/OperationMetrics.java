@@ -0,0 +1,474 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.servlet.ServletContext;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records call counts, errors, latencies and transferred bytes per
+ * repository, binding and operation.
+ * <p>
+ * All servlets of a web application that have metrics turned on share one
+ * instance, which is kept in the servlet context. Recording is lock-free and
+ * doesn't allocate objects once the recorder of an operation exists.
+ * {@link MetricsExporter}s publish the numbers, for example via JMX.
+ */
+public class OperationMetrics {
+
+    /**
+     * Servlet context attribute that holds the shared instance.
+     */
+    public static final String SERVLET_CONTEXT_ATTRIBUTE = "org.apache.chemistry.opencmis.server.metrics";
+
+    /**
+     * Upper bounds of the latency histogram buckets in milliseconds. The last
+     * bucket catches everything above.
+     */
+    private static final long[] LATENCY_BUCKETS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+    private static final long[] LATENCY_BUCKETS_NANOS = new long[LATENCY_BUCKETS.length];
+    static {
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            LATENCY_BUCKETS_NANOS[i] = LATENCY_BUCKETS[i] * 1000000L;
+        }
+    }
+
+    /**
+     * Maximum number of repositories with their own recorders. Further
+     * repository ids (for example made-up ids in URLs) share one set of
+     * recorders.
+     */
+    private static final int MAX_REPOSITORIES = 1000;
+    private static final String OVERFLOW_REPOSITORY = "?";
+    private static final String NO_REPOSITORY = "";
+
+    private static final Logger LOG = LoggerFactory.getLogger(OperationMetrics.class);
+
+    private final ConcurrentMap<String, ConcurrentMap<String, ConcurrentMap<String, Recorder>>> repositories = new ConcurrentHashMap<String, ConcurrentMap<String, ConcurrentMap<String, Recorder>>>();
+    private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<MetricsExporter>();
+    private int references;
+
+    /**
+     * Returns the shared instance of a web application and creates it if
+     * necessary. Every call must be matched by a call to
+     * {@link #release(ServletContext)}.
+     */
+    public static OperationMetrics acquire(ServletContext servletContext) {
+        synchronized (servletContext) {
+            OperationMetrics metrics = get(servletContext);
+            if (metrics == null) {
+                metrics = new OperationMetrics();
+                servletContext.setAttribute(SERVLET_CONTEXT_ATTRIBUTE, metrics);
+            }
+
+            metrics.references++;
+            return metrics;
+        }
+    }
+
+    /**
+     * Releases the shared instance. The last release stops the exporters.
+     */
+    public static void release(ServletContext servletContext) {
+        synchronized (servletContext) {
+            OperationMetrics metrics = get(servletContext);
+            if (metrics != null && --metrics.references <= 0) {
+                servletContext.removeAttribute(SERVLET_CONTEXT_ATTRIBUTE);
+                metrics.stopExporters();
+            }
+        }
+    }
+
+    /**
+     * Returns the shared instance of a web application or {@code null} if
+     * metrics are turned off.
+     */
+    public static OperationMetrics get(ServletContext servletContext) {
+        Object metrics = servletContext.getAttribute(SERVLET_CONTEXT_ATTRIBUTE);
+        return metrics instanceof OperationMetrics ? (OperationMetrics) metrics : null;
+    }
+
+    /**
+     * Returns the upper bounds of the latency histogram buckets in
+     * milliseconds.
+     */
+    public static long[] getLatencyBuckets() {
+        return LATENCY_BUCKETS.clone();
+    }
+
+    /**
+     * Creates and starts the exporters in the given comma separated list of
+     * class names. Exporters that are already running are skipped.
+     */
+    public void addExporters(String classNames, ServletContext servletContext) {
+        if (classNames == null) {
+            return;
+        }
+
+        for (String className : classNames.split(",")) {
+            className = className.trim();
+            if (className.length() == 0) {
+                continue;
+            }
+
+            MetricsExporter exporter;
+            try {
+                exporter = (MetricsExporter) ClassLoaderUtil.loadClass(className).newInstance();
+            } catch (Exception e) {
+                throw new CmisRuntimeException("Could not load metrics exporter: " + e, e);
+            }
+
+            addExporter(exporter, servletContext);
+        }
+    }
+
+    /**
+     * Starts an exporter unless an exporter of the same class is already
+     * running.
+     */
+    public synchronized void addExporter(MetricsExporter exporter, ServletContext servletContext) {
+        for (MetricsExporter running : exporters) {
+            if (running.getClass() == exporter.getClass()) {
+                return;
+            }
+        }
+
+        exporter.start(this, servletContext);
+        exporters.add(exporter);
+    }
+
+    private synchronized void stopExporters() {
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.stop();
+            } catch (Exception e) {
+                LOG.warn("Could not stop metrics exporter: " + e, e);
+            }
+        }
+        exporters.clear();
+    }
+
+    /**
+     * Returns the recorder of an operation.
+     */
+    public Recorder getRecorder(String repositoryId, String binding, String operation) {
+        String key = (repositoryId == null ? NO_REPOSITORY : repositoryId);
+
+        ConcurrentMap<String, ConcurrentMap<String, Recorder>> bindings = repositories.get(key);
+        if (bindings == null && repositories.size() >= MAX_REPOSITORIES) {
+            key = OVERFLOW_REPOSITORY;
+            bindings = repositories.get(key);
+        }
+
+        if (bindings == null) {
+            bindings = new ConcurrentHashMap<String, ConcurrentMap<String, Recorder>>();
+            ConcurrentMap<String, ConcurrentMap<String, Recorder>> existing = repositories.putIfAbsent(key, bindings);
+            if (existing != null) {
+                bindings = existing;
+            }
+        }
+
+        ConcurrentMap<String, Recorder> operations = bindings.get(binding);
+        if (operations == null) {
+            operations = new ConcurrentHashMap<String, Recorder>();
+            ConcurrentMap<String, Recorder> existing = bindings.putIfAbsent(binding, operations);
+            if (existing != null) {
+                operations = existing;
+            }
+        }
+
+        Recorder recorder = operations.get(operation);
+        if (recorder == null) {
+            recorder = new Recorder(key, binding, operation);
+            Recorder existing = operations.putIfAbsent(operation, recorder);
+            if (existing != null) {
+                recorder = existing;
+            }
+        }
+
+        return recorder;
+    }
+
+    /**
+     * Returns a snapshot of all operations, sorted by repository, binding and
+     * operation.
+     */
+    public List<OperationStatistics> getStatistics() {
+        Map<String, OperationStatistics> sorted = new TreeMap<String, OperationStatistics>();
+        for (ConcurrentMap<String, ConcurrentMap<String, Recorder>> bindings : repositories.values()) {
+            for (ConcurrentMap<String, Recorder> operations : bindings.values()) {
+                for (Recorder recorder : operations.values()) {
+                    OperationStatistics stats = recorder.getStatistics();
+                    sorted.put(stats.getKey(), stats);
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(new ArrayList<OperationStatistics>(sorted.values()));
+    }
+
+    /**
+     * Drops all recorded numbers.
+     */
+    public void reset() {
+        repositories.clear();
+    }
+
+    /**
+     * Records the calls of one operation.
+     */
+    public static final class Recorder {
+        private final String repositoryId;
+        private final String binding;
+        private final String operation;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalTime = new AtomicLong();
+        private final AtomicLong maxTime = new AtomicLong();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+        private final ConcurrentMap<String, AtomicLong> errorTypes = new ConcurrentHashMap<String, AtomicLong>();
+
+        private Recorder(String repositoryId, String binding, String operation) {
+            this.repositoryId = repositoryId;
+            this.binding = binding;
+            this.operation = operation;
+        }
+
+        /**
+         * Records a call.
+         * 
+         * @param duration
+         *            the duration of the call in nanoseconds
+         * @param error
+         *            the exception of a failed call or {@code null}
+         * @param requestBytes
+         *            the size of the request body, values less than 0 are
+         *            ignored
+         * @param responseBytes
+         *            the size of the response body, values less than 0 are
+         *            ignored
+         */
+        public void record(long duration, Throwable error, long requestBytes, long responseBytes) {
+            calls.incrementAndGet();
+            totalTime.addAndGet(duration);
+
+            long max = maxTime.get();
+            while (duration > max && !maxTime.compareAndSet(max, duration)) {
+                max = maxTime.get();
+            }
+
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_NANOS.length && duration > LATENCY_BUCKETS_NANOS[bucket]) {
+                bucket++;
+            }
+            latencies.incrementAndGet(bucket);
+
+            if (requestBytes > 0) {
+                this.requestBytes.addAndGet(requestBytes);
+            }
+            if (responseBytes > 0) {
+                this.responseBytes.addAndGet(responseBytes);
+            }
+
+            if (error != null) {
+                errors.incrementAndGet();
+
+                String type = (error instanceof CmisBaseException ? ((CmisBaseException) error).getExceptionName()
+                        : CmisRuntimeException.EXCEPTION_NAME);
+                AtomicLong counter = errorTypes.get(type);
+                if (counter == null) {
+                    counter = new AtomicLong();
+                    AtomicLong existing = errorTypes.putIfAbsent(type, counter);
+                    if (existing != null) {
+                        counter = existing;
+                    }
+                }
+                counter.incrementAndGet();
+            }
+        }
+
+        OperationStatistics getStatistics() {
+            long[] buckets = new long[latencies.length()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = latencies.get(i);
+            }
+
+            Map<String, Long> types = new TreeMap<String, Long>();
+            for (Map.Entry<String, AtomicLong> entry : errorTypes.entrySet()) {
+                types.put(entry.getKey(), entry.getValue().get());
+            }
+
+            return new OperationStatistics(repositoryId, binding, operation, calls.get(), errors.get(), types,
+                    totalTime.get(), maxTime.get(), buckets, requestBytes.get(), responseBytes.get());
+        }
+    }
+
+    /**
+     * Snapshot of the numbers of one operation.
+     */
+    public static final class OperationStatistics {
+        private final String repositoryId;
+        private final String binding;
+        private final String operation;
+        private final long calls;
+        private final long errors;
+        private final Map<String, Long> errorTypes;
+        private final long totalTime;
+        private final long maxTime;
+        private final long[] latencies;
+        private final long requestBytes;
+        private final long responseBytes;
+
+        private OperationStatistics(String repositoryId, String binding, String operation, long calls, long errors,
+                Map<String, Long> errorTypes, long totalTime, long maxTime, long[] latencies, long requestBytes,
+                long responseBytes) {
+            this.repositoryId = repositoryId;
+            this.binding = binding;
+            this.operation = operation;
+            this.calls = calls;
+            this.errors = errors;
+            this.errorTypes = Collections.unmodifiableMap(errorTypes);
+            this.totalTime = totalTime;
+            this.maxTime = maxTime;
+            this.latencies = latencies;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+        }
+
+        /** Returns "&lt;repository id&gt;/&lt;binding&gt;/&lt;operation&gt;". */
+        public String getKey() {
+            return repositoryId + "/" + binding + "/" + operation;
+        }
+
+        /** Returns the repository id or an empty string for calls without one. */
+        public String getRepositoryId() {
+            return repositoryId;
+        }
+
+        /** Returns the binding. */
+        public String getBinding() {
+            return binding;
+        }
+
+        /** Returns the operation. */
+        public String getOperation() {
+            return operation;
+        }
+
+        /** Returns the number of calls. */
+        public long getCalls() {
+            return calls;
+        }
+
+        /** Returns the number of failed calls. */
+        public long getErrors() {
+            return errors;
+        }
+
+        /** Returns the number of failed calls per CMIS exception name. */
+        public Map<String, Long> getErrorTypes() {
+            return errorTypes;
+        }
+
+        /** Returns the sum of all call durations in nanoseconds. */
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        /** Returns the average call duration in milliseconds. */
+        public double getAverageTime() {
+            return calls == 0 ? 0 : totalTime / 1000000.0 / calls;
+        }
+
+        /** Returns the longest call duration in milliseconds. */
+        public double getMaxTime() {
+            return maxTime / 1000000.0;
+        }
+
+        /**
+         * Returns the number of calls per latency bucket. The last entry
+         * counts the calls above the largest bucket bound.
+         * 
+         * @see OperationMetrics#getLatencyBuckets()
+         */
+        public long[] getLatencies() {
+            return latencies.clone();
+        }
+
+        /**
+         * Estimates a latency percentile in milliseconds from the histogram.
+         * The result is the upper bound of the bucket that contains the
+         * percentile, or the maximum duration for the last bucket.
+         * 
+         * @param percentile
+         *            the percentile between 0 and 100
+         */
+        public double getPercentileTime(double percentile) {
+            if (calls == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * calls);
+            long count = 0;
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                count += latencies[i];
+                if (count >= rank) {
+                    return Math.min(LATENCY_BUCKETS[i], getMaxTime());
+                }
+            }
+
+            return getMaxTime();
+        }
+
+        /** Returns the number of received bytes. */
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        /** Returns the number of sent bytes. */
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + ": calls=" + calls + ", errors=" + errors + ", avg=" + getAverageTime() + "ms, p99="
+                    + getPercentileTime(99) + "ms, max=" + getMaxTime() + "ms, requestBytes=" + requestBytes
+                    + ", responseBytes=" + responseBytes;
+        }
+    }
+}
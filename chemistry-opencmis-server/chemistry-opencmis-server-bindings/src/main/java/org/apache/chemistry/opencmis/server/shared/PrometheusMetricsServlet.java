@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the {@link OperationMetrics} of the web application in the
+ * Prometheus text format.
+ * <p>
+ * The servlet has to be mapped in the web.xml of the web application. If no
+ * CMIS servlet has metrics turned on, it answers with status 404.
+ */
+public class PrometheusMetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+    private static final String PREFIX = "opencmis_";
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+            IOException {
+        OperationMetrics metrics = OperationMetrics.get(getServletContext());
+        if (metrics == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Metrics are not enabled.");
+            return;
+        }
+
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-cache");
+
+        PrintWriter pw = response.getWriter();
+        write(metrics.getStatistics(), pw);
+        pw.flush();
+    }
+
+    /**
+     * Writes statistics in the Prometheus text format.
+     */
+    public static void write(List<OperationMetrics.OperationStatistics> statistics, PrintWriter pw) {
+        long[] buckets = OperationMetrics.getLatencyBuckets();
+
+        writeHeader(pw, "calls_total", "counter", "Number of CMIS operation calls.");
+        for (OperationMetrics.OperationStatistics stats : statistics) {
+            writeSample(pw, "calls_total", stats, null, null, stats.getCalls());
+        }
+
+        writeHeader(pw, "errors_total", "counter", "Number of failed CMIS operation calls by exception.");
+        for (OperationMetrics.OperationStatistics stats : statistics) {
+            for (Map.Entry<String, Long> entry : stats.getErrorTypes().entrySet()) {
+                writeSample(pw, "errors_total", stats, "exception", entry.getKey(), entry.getValue());
+            }
+        }
+
+        writeHeader(pw, "duration_seconds", "histogram", "Duration of CMIS operation calls.");
+        for (OperationMetrics.OperationStatistics stats : statistics) {
+            long[] latencies = stats.getLatencies();
+            long count = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                count += latencies[i];
+                writeSample(pw, "duration_seconds_bucket", stats, "le", Double.toString(buckets[i] / 1000.0), count);
+            }
+            writeSample(pw, "duration_seconds_bucket", stats, "le", "+Inf", stats.getCalls());
+            writeSample(pw, "duration_seconds_sum", stats, null, null, stats.getTotalTime() / 1000000000.0);
+            writeSample(pw, "duration_seconds_count", stats, null, null, stats.getCalls());
+        }
+
+        writeHeader(pw, "request_bytes_total", "counter", "Received request body bytes.");
+        for (OperationMetrics.OperationStatistics stats : statistics) {
+            writeSample(pw, "request_bytes_total", stats, null, null, stats.getRequestBytes());
+        }
+
+        writeHeader(pw, "response_bytes_total", "counter", "Sent response body bytes before compression.");
+        for (OperationMetrics.OperationStatistics stats : statistics) {
+            writeSample(pw, "response_bytes_total", stats, null, null, stats.getResponseBytes());
+        }
+    }
+
+    private static void writeHeader(PrintWriter pw, String name, String type, String help) {
+        String family = PREFIX + name;
+        pw.print("# HELP ");
+        pw.print(family);
+        pw.print(' ');
+        pw.print(help);
+        pw.print('\n');
+        pw.print("# TYPE ");
+        pw.print(family);
+        pw.print(' ');
+        pw.print(type);
+        pw.print('\n');
+    }
+
+    private static void writeSample(PrintWriter pw, String name, OperationMetrics.OperationStatistics stats,
+            String extraLabel, String extraValue, Object value) {
+        pw.print(PREFIX);
+        pw.print(name);
+        pw.print("{repository=\"");
+        writeLabelValue(pw, stats.getRepositoryId());
+        pw.print("\",binding=\"");
+        writeLabelValue(pw, stats.getBinding());
+        pw.print("\",operation=\"");
+        writeLabelValue(pw, stats.getOperation());
+        if (extraLabel != null) {
+            pw.print("\",");
+            pw.print(extraLabel);
+            pw.print("=\"");
+            writeLabelValue(pw, extraValue);
+        }
+        pw.print("\"} ");
+        pw.print(value);
+        pw.print('\n');
+    }
+
+    private static void writeLabelValue(PrintWriter pw, String value) {
+        if (value == null) {
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                pw.print("\\\\");
+            } else if (c == '"') {
+                pw.print("\\\"");
+            } else if (c == '\n') {
+                pw.print("\\n");
+            } else {
+                pw.print(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of concurrent requests per repository.
+ * <p>
+ * Each repository has two lanes with their own limits: one for cheap metadata
+ * calls and one for calls that transfer content. A slow repository can only
+ * block as many container threads as its lanes allow, and long content
+ * transfers cannot starve metadata calls of the same repository.
+ * <p>
+ * If all permits of a lane are taken, requests wait in a bounded queue for a
+ * bounded time. Requests that don't fit into the queue or time out are
+ * rejected with a {@link LimitExceededException}.
+ */
+public class RequestLimiter {
+
+    /**
+     * Request lanes.
+     */
+    public enum Lane {
+        METADATA, CONTENT
+    }
+
+    /**
+     * Maximum number of repositories with their own lanes. Further repository
+     * ids (for example made-up ids in URLs) share one set of lanes.
+     */
+    private static final int MAX_REPOSITORIES = 1000;
+    private static final String OVERFLOW_REPOSITORY = "";
+
+    private final int maxMetadataRequests;
+    private final int maxContentRequests;
+    private final int maxQueued;
+    private final long maxQueueTime;
+
+    private final ConcurrentMap<String, LaneLimiter[]> repositories = new ConcurrentHashMap<String, LaneLimiter[]>();
+
+    /**
+     * Constructor.
+     * 
+     * @param maxMetadataRequests
+     *            maximum number of concurrent metadata requests per repository
+     * @param maxContentRequests
+     *            maximum number of concurrent content requests per repository
+     * @param maxQueued
+     *            maximum number of waiting requests per lane
+     * @param maxQueueTime
+     *            maximum time a request waits for a permit in milliseconds
+     */
+    public RequestLimiter(int maxMetadataRequests, int maxContentRequests, int maxQueued, long maxQueueTime) {
+        if (maxMetadataRequests < 1 || maxContentRequests < 1) {
+            throw new IllegalArgumentException("Request limits must be greater than 0!");
+        }
+
+        this.maxMetadataRequests = maxMetadataRequests;
+        this.maxContentRequests = maxContentRequests;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxQueueTime = Math.max(0, maxQueueTime);
+    }
+
+    /**
+     * Gets a permit for a request.
+     * 
+     * @return the permit, must be released when the request is done
+     * 
+     * @throws LimitExceededException
+     *             if the lane is saturated
+     */
+    public Permit acquire(String repositoryId, Lane lane) {
+        return getLanes(repositoryId)[lane.ordinal()].acquire();
+    }
+
+    /**
+     * Gets a permit for a request if one is free right now. This method
+     * doesn't wait.
+     * 
+     * @return the permit, must be released when the request is done, or
+     *         {@code null} if all permits of the lane are taken
+     */
+    public Permit tryAcquire(String repositoryId, Lane lane) {
+        return getLanes(repositoryId)[lane.ordinal()].tryAcquire();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of all lanes. The keys are
+     * "&lt;repository id&gt;/&lt;lane&gt;".
+     */
+    public Map<String, LaneStatistics> getStatistics() {
+        Map<String, LaneStatistics> result = new TreeMap<String, LaneStatistics>();
+        for (Map.Entry<String, LaneLimiter[]> entry : repositories.entrySet()) {
+            for (LaneLimiter lane : entry.getValue()) {
+                result.put(entry.getKey() + "/" + lane.lane, lane.getStatistics());
+            }
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    private LaneLimiter[] getLanes(String repositoryId) {
+        String key = (repositoryId == null ? OVERFLOW_REPOSITORY : repositoryId);
+
+        LaneLimiter[] lanes = repositories.get(key);
+        if (lanes == null && repositories.size() >= MAX_REPOSITORIES) {
+            key = OVERFLOW_REPOSITORY;
+            lanes = repositories.get(key);
+        }
+
+        if (lanes == null) {
+            lanes = new LaneLimiter[] { new LaneLimiter(Lane.METADATA, maxMetadataRequests),
+                    new LaneLimiter(Lane.CONTENT, maxContentRequests) };
+            LaneLimiter[] existing = repositories.putIfAbsent(key, lanes);
+            if (existing != null) {
+                lanes = existing;
+            }
+        }
+
+        return lanes;
+    }
+
+    /**
+     * Permit of a running request.
+     */
+    public static final class Permit {
+        private final LaneLimiter lane;
+        private final long start;
+        private boolean released;
+
+        private Permit(LaneLimiter lane) {
+            this.lane = lane;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Releases the permit.
+         */
+        public void release() {
+            if (!released) {
+                released = true;
+                lane.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Statistics of a lane.
+     */
+    public static final class LaneStatistics {
+        private final int active;
+        private final int queued;
+        private final long accepted;
+        private final long rejected;
+        private final long totalWaitTime;
+        private final long totalServiceTime;
+        private final long completed;
+
+        private LaneStatistics(int active, int queued, long accepted, long rejected, long totalWaitTime,
+                long totalServiceTime, long completed) {
+            this.active = active;
+            this.queued = queued;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.totalWaitTime = totalWaitTime;
+            this.totalServiceTime = totalServiceTime;
+            this.completed = completed;
+        }
+
+        /** Returns the number of running requests. */
+        public int getActive() {
+            return active;
+        }
+
+        /** Returns the number of waiting requests. */
+        public int getQueued() {
+            return queued;
+        }
+
+        /** Returns the number of requests that got a permit. */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        /** Returns the number of rejected requests. */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /** Returns the average time accepted requests waited in milliseconds. */
+        public double getAverageWaitTime() {
+            return accepted == 0 ? 0 : totalWaitTime / 1000000.0 / accepted;
+        }
+
+        /** Returns the average duration of completed requests in milliseconds. */
+        public double getAverageServiceTime() {
+            return completed == 0 ? 0 : totalServiceTime / 1000000.0 / completed;
+        }
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", queued=" + queued + ", accepted=" + accepted + ", rejected=" + rejected
+                    + ", avgWait=" + getAverageWaitTime() + "ms, avgService=" + getAverageServiceTime() + "ms";
+        }
+    }
+
+    /**
+     * Limits one lane of one repository.
+     */
+    private final class LaneLimiter {
+        private final Lane lane;
+        private final int maxRequests;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitTime = new AtomicLong();
+        private final AtomicLong totalServiceTime = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+
+        LaneLimiter(Lane lane, int maxRequests) {
+            this.lane = lane;
+            this.maxRequests = maxRequests;
+            this.permits = new Semaphore(maxRequests, true);
+        }
+
+        Permit acquire() {
+            if (!permits.tryAcquire()) {
+                if (queued.incrementAndGet() > maxQueued) {
+                    queued.decrementAndGet();
+                    throw reject("Too many requests!");
+                }
+
+                long start = System.nanoTime();
+                try {
+                    if (!permits.tryAcquire(maxQueueTime, TimeUnit.MILLISECONDS)) {
+                        throw reject("Timeout while waiting for a free slot!");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject("Interrupted while waiting for a free slot!");
+                } finally {
+                    queued.decrementAndGet();
+                }
+
+                totalWaitTime.addAndGet(System.nanoTime() - start);
+            }
+
+            accepted.incrementAndGet();
+            return new Permit(this);
+        }
+
+        Permit tryAcquire() {
+            if (!permits.tryAcquire()) {
+                return null;
+            }
+
+            accepted.incrementAndGet();
+            return new Permit(this);
+        }
+
+        void release(long serviceTime) {
+            totalServiceTime.addAndGet(serviceTime);
+            completed.incrementAndGet();
+            permits.release();
+        }
+
+        private LimitExceededException reject(String message) {
+            rejected.incrementAndGet();
+            return new LimitExceededException(message);
+        }
+
+        LaneStatistics getStatistics() {
+            return new LaneStatistics(maxRequests - permits.availablePermits(), queued.get(), accepted.get(),
+                    rejected.get(), totalWaitTime.get(), totalServiceTime.get(), completed.get());
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.impl.browser.BatchService;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class BatchServiceTest {
+
+    private static final String REPOSITORY_ID = "test";
+
+    @Test
+    public void testOperations() throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        BatchService.Batch batch = new BatchService.Batch(handler, 10, null);
+
+        String operations = "[" //
+                + "{\"path\":\"/a b/c\",\"parameters\":{\"cmisselector\":\"object\",\"callback\":\"x\"}}," //
+                + "{\"parameters\":{\"cmisaction\":\"createDocument\",\"propertyId\":[\"a\",\"b\"],\"token\":\"t\"}}," //
+                + "{\"path\":\"/\",\"parameters\":{\"fail\":true}}" //
+                + "]";
+
+        JSONArray results = serve(batch, operations);
+        assertEquals(3, results.size());
+
+        // GET by path
+        assertEquals("GET", handler.methods.get(0));
+        assertEquals("/cmis/browser/test/root/a+b/c", handler.uris.get(0));
+        assertEquals("object", handler.parameters.get(0).get("cmisselector")[0]);
+        assertFalse(handler.parameters.get(0).containsKey("callback"));
+
+        JSONObject result = (JSONObject) results.get(0);
+        assertEquals(200L, ((Number) result.get("status")).longValue());
+        assertNull(result.get("location"));
+        assertEquals("/cmis/browser/test/root/a+b/c", ((JSONObject) result.get("result")).get("uri"));
+
+        // POST to the repository URL
+        assertEquals("POST", handler.methods.get(1));
+        assertEquals("/cmis/browser/test", handler.uris.get(1));
+        assertEquals(2, handler.parameters.get(1).get("propertyId").length);
+        assertFalse(handler.parameters.get(1).containsKey("token"));
+
+        result = (JSONObject) results.get(1);
+        assertEquals(201L, ((Number) result.get("status")).longValue());
+        assertEquals("http://localhost/new", result.get("location"));
+        assertEquals("new", ((JSONObject) result.get("result")).get("id"));
+
+        // error
+        result = (JSONObject) results.get(2);
+        assertEquals(404L, ((Number) result.get("status")).longValue());
+        assertEquals("objectNotFound", ((JSONObject) result.get("result")).get("exception"));
+    }
+
+    @Test
+    public void testParallelReads() throws Exception {
+        final int reads = 4;
+        final CountDownLatch started = new CountDownLatch(reads);
+        final AtomicInteger sequential = new AtomicInteger();
+
+        RecordingHandler handler = new RecordingHandler() {
+            @Override
+            public void execute(CmisService service, HttpServletRequest request, HttpServletResponse response) {
+                if ("GET".equals(request.getMethod())) {
+                    // all reads must run at the same time
+                    started.countDown();
+                    try {
+                        if (!started.await(5, TimeUnit.SECONDS)) {
+                            sequential.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.execute(service, request, response);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(reads);
+        try {
+            BatchService.Batch batch = new BatchService.Batch(handler, 10, executor);
+
+            StringBuilder operations = new StringBuilder("[");
+            for (int i = 0; i < reads; i++) {
+                operations.append("{\"path\":\"/" + i + "\"},");
+            }
+            operations.append("{\"parameters\":{\"cmisaction\":\"delete\"}}]");
+
+            JSONArray results = serve(batch, operations.toString());
+            assertEquals(reads + 1, results.size());
+            assertEquals(0, sequential.get());
+
+            // results are in the order of the operations
+            for (int i = 0; i < reads; i++) {
+                JSONObject result = (JSONObject) ((JSONObject) results.get(i)).get("result");
+                assertEquals("/cmis/browser/test/root/" + i, result.get("uri"));
+            }
+            assertEquals(201L, ((Number) ((JSONObject) results.get(reads)).get("status")).longValue());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelReadsWithLimiter() throws Exception {
+        final int reads = 6;
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        RecordingHandler handler = new RecordingHandler() {
+            @Override
+            public void execute(CmisService service, HttpServletRequest request, HttpServletResponse response) {
+                int now = running.incrementAndGet();
+                while (true) {
+                    int max = maxRunning.get();
+                    if (now <= max || maxRunning.compareAndSet(max, now)) {
+                        break;
+                    }
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                super.execute(service, request, response);
+            }
+        };
+
+        // the batch request itself holds one of the three permits
+        RequestLimiter limiter = new RequestLimiter(3, 1, 0, 0);
+        RequestLimiter.Permit batchPermit = limiter.acquire(REPOSITORY_ID, RequestLimiter.Lane.METADATA);
+
+        ExecutorService executor = Executors.newFixedThreadPool(reads);
+        try {
+            BatchService.Batch batch = new BatchService.Batch(handler, 10, executor, limiter);
+
+            StringBuilder operations = new StringBuilder("[");
+            for (int i = 0; i < reads; i++) {
+                operations.append(i > 0 ? "," : "").append("{\"path\":\"/" + i + "\"}");
+            }
+            operations.append("]");
+
+            JSONArray results = serve(batch, operations.toString());
+            assertEquals(reads, results.size());
+            assertTrue(maxRunning.get() <= 3);
+
+            for (int i = 0; i < reads; i++) {
+                JSONObject result = (JSONObject) ((JSONObject) results.get(i)).get("result");
+                assertEquals("/cmis/browser/test/root/" + i, result.get("uri"));
+            }
+
+            // all extra permits have been returned
+            assertEquals(1, limiter.getStatistics().get(REPOSITORY_ID + "/METADATA").getActive());
+        } finally {
+            executor.shutdownNow();
+            batchPermit.release();
+        }
+    }
+
+    @Test
+    public void testRequestCopies() throws Exception {
+        final List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+
+        RecordingHandler handler = new RecordingHandler() {
+            @Override
+            public void execute(CmisService service, HttpServletRequest request, HttpServletResponse response) {
+                seen.add(request.getHeader("accept-language") + "/" + request.getAttribute("a"));
+                request.setAttribute("a", "changed");
+                super.execute(service, request, response);
+            }
+        };
+
+        HttpServletRequest request = createRequest("[{\"path\":\"/1\"},{\"path\":\"/2\"}]");
+        Mockito.when(request.getHeaderNames()).thenAnswer(new Answer<Enumeration<String>>() {
+            public Enumeration<String> answer(InvocationOnMock invocation) {
+                return Collections.enumeration(Collections.singletonList("Accept-Language"));
+            }
+        });
+        Mockito.when(request.getHeaders("Accept-Language")).thenAnswer(new Answer<Enumeration<String>>() {
+            public Enumeration<String> answer(InvocationOnMock invocation) {
+                return Collections.enumeration(Collections.singletonList("de"));
+            }
+        });
+        Mockito.when(request.getAttributeNames()).thenAnswer(new Answer<Enumeration<String>>() {
+            public Enumeration<String> answer(InvocationOnMock invocation) {
+                return Collections.enumeration(Collections.singletonList("a"));
+            }
+        });
+        Mockito.when(request.getAttribute("a")).thenReturn("x");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            serve(new BatchService.Batch(handler, 10, executor), request);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // each operation sees the original values and keeps its changes
+        assertEquals(2, seen.size());
+        assertEquals("de/x", seen.get(0));
+        assertEquals("de/x", seen.get(1));
+        Mockito.verify(request, Mockito.never()).setAttribute(Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    public void testTooManyOperations() throws Exception {
+        BatchService.Batch batch = new BatchService.Batch(new RecordingHandler(), 2, null);
+
+        try {
+            serve(batch, "[{},{},{}]");
+            fail("CmisInvalidArgumentException expected!");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+
+        try {
+            serve(batch, "{}");
+            fail("CmisInvalidArgumentException expected!");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+    }
+
+    private JSONArray serve(BatchService.Batch batch, String operations) throws Exception {
+        return serve(batch, createRequest(operations));
+    }
+
+    private HttpServletRequest createRequest(String operations) {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("cmisaction", new String[] { "batch" });
+        parameters.put("operations", new String[] { operations });
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn("POST");
+        Mockito.when(request.getContextPath()).thenReturn("/cmis");
+        Mockito.when(request.getServletPath()).thenReturn("/browser");
+        Mockito.when(request.getParameterMap()).thenReturn(parameters);
+
+        return request;
+    }
+
+    private JSONArray serve(BatchService.Batch batch, HttpServletRequest request) throws Exception {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                body.write(b);
+            }
+        });
+
+        batch.serve(Mockito.mock(CallContext.class), Mockito.mock(CmisService.class), REPOSITORY_ID, request,
+                response);
+
+        Mockito.verify(response).setStatus(200);
+        return (JSONArray) new JSONParser().parse(IOUtils.toUTF8String(body.toByteArray()));
+    }
+
+    private static class RecordingHandler implements BatchService.OperationHandler {
+        final List<String> methods = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> uris = Collections.synchronizedList(new ArrayList<String>());
+        final List<Map<String, String[]>> parameters = Collections
+                .synchronizedList(new ArrayList<Map<String, String[]>>());
+
+        @SuppressWarnings("unchecked")
+        public void execute(CmisService service, HttpServletRequest request, HttpServletResponse response) {
+            methods.add(request.getMethod());
+            uris.add(request.getRequestURI());
+            parameters.add(request.getParameterMap());
+
+            try {
+                JSONObject json = new JSONObject();
+                if (request.getParameter("fail") != null) {
+                    response.getWriter().write("partial output");
+                    response.reset();
+                    response.setStatus(404);
+                    json.put("exception", "objectNotFound");
+                    response.getOutputStream().write(IOUtils.toUTF8Bytes(json.toJSONString()));
+                } else if ("POST".equals(request.getMethod())) {
+                    response.setStatus(201);
+                    response.setHeader("Location", "http://localhost/new");
+                    json.put("id", "new");
+                    response.getWriter().write(json.toJSONString());
+                } else {
+                    json.put("uri", request.getRequestURI());
+                    response.getOutputStream().write(IOUtils.toUTF8Bytes(json.toJSONString()));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
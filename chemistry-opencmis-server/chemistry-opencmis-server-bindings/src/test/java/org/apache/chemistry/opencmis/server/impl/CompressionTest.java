@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.server.shared.CompressingHttpServletResponseWrapper;
+import org.apache.chemistry.opencmis.server.shared.ContentEncodingHttpServletRequestWrapper;
+import org.apache.chemistry.opencmis.server.shared.DeflaterPool;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CompressionTest {
+
+    private byte[] content;
+    private DeflaterPool gzipPool;
+    private DeflaterPool deflatePool;
+
+    @Before
+    public void setUp() {
+        // compressible, but not trivial
+        content = new byte[100 * 1024];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + random.nextInt(8));
+        }
+
+        gzipPool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 4);
+        deflatePool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, false, 4);
+    }
+
+    @Test
+    public void testGzipRequest() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(compressed);
+        out.write(content);
+        out.close();
+
+        assertArrayEquals(content, readRequest("gzip", compressed.toByteArray()));
+    }
+
+    @Test
+    public void testDeflateRequest() throws Exception {
+        // zlib format
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflaterOutputStream out = new DeflaterOutputStream(compressed, new Deflater(6, false));
+        out.write(content);
+        out.close();
+
+        assertArrayEquals(content, readRequest("deflate", compressed.toByteArray()));
+
+        // raw deflate data
+        compressed = new ByteArrayOutputStream();
+        out = new DeflaterOutputStream(compressed, new Deflater(6, true));
+        out.write(content);
+        out.close();
+
+        assertArrayEquals(content, readRequest("deflate", compressed.toByteArray()));
+    }
+
+    @Test
+    public void testUncompressedRequest() throws Exception {
+        HttpServletRequest request = createRequest(null, content);
+        assertTrue(request == ContentEncodingHttpServletRequestWrapper.wrap(request));
+    }
+
+    @Test
+    public void testGzipResponse() throws Exception {
+        FakeResponse fake = new FakeResponse();
+        CompressingHttpServletResponseWrapper response = createResponse("deflate;q=0.5, gzip", fake);
+
+        response.setContentType("application/json");
+        response.setContentLength(content.length);
+        OutputStream out = response.getOutputStream();
+        out.write(content, 0, 1000);
+        out.write(content, 1000, content.length - 1000);
+        response.finish();
+
+        assertTrue(response.isCompressing());
+        Mockito.verify(fake.response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(fake.response).addHeader("Vary", "Accept-Encoding");
+        Mockito.verify(fake.response, Mockito.never()).setContentLength(Mockito.anyInt());
+        assertTrue(fake.body.size() < content.length / 2);
+        assertArrayEquals(content, read(new GZIPInputStream(fake.getBody())));
+
+        // the deflater went back to the pool
+        assertEquals(1, gzipPool.getIdleCount());
+    }
+
+    @Test
+    public void testDeflateResponse() throws Exception {
+        FakeResponse fake = new FakeResponse();
+        CompressingHttpServletResponseWrapper response = createResponse("deflate", fake);
+
+        response.setContentType("text/html; charset=UTF-8");
+        PrintWriter pw = response.getWriter();
+        pw.print(new String(content, "UTF-8"));
+        response.finish();
+
+        assertTrue(response.isCompressing());
+        Mockito.verify(fake.response).setHeader("Content-Encoding", "deflate");
+        assertArrayEquals(content, read(new InflaterInputStream(fake.getBody())));
+        assertEquals(1, deflatePool.getIdleCount());
+    }
+
+    @Test
+    public void testExcludedResponse() throws Exception {
+        FakeResponse fake = new FakeResponse();
+        CompressingHttpServletResponseWrapper response = createResponse("gzip", fake);
+
+        response.setContentType("image/png");
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+        response.finish();
+
+        assertFalse(response.isCompressing());
+        Mockito.verify(fake.response).setContentLength(content.length);
+        Mockito.verify(fake.response, Mockito.never()).setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertArrayEquals(content, fake.body.toByteArray());
+    }
+
+    @Test
+    public void testPartialAndSmallResponses() throws Exception {
+        FakeResponse fake = new FakeResponse();
+        CompressingHttpServletResponseWrapper response = createResponse("gzip", fake);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", "bytes 0-99/1000");
+        response.getOutputStream().write(content, 0, 100);
+        response.finish();
+        assertFalse(response.isCompressing());
+
+        fake = new FakeResponse();
+        response = createResponse("gzip", fake);
+        response.setContentLength(10);
+        response.getOutputStream().write(content, 0, 10);
+        response.finish();
+        assertFalse(response.isCompressing());
+        Mockito.verify(fake.response).setContentLength(10);
+    }
+
+    @Test
+    public void testSmallResponseWithoutLength() throws Exception {
+        FakeResponse fake = new FakeResponse();
+        CompressingHttpServletResponseWrapper response = createResponse("gzip", fake);
+
+        response.setContentType("application/json");
+        PrintWriter pw = response.getWriter();
+        pw.print(new String(content, 0, 100, "UTF-8"));
+        // flushing must neither send nor commit the buffered start
+        pw.flush();
+        response.flushBuffer();
+        assertEquals(0, fake.body.size());
+        Mockito.verify(fake.response, Mockito.never()).flushBuffer();
+
+        response.finish();
+
+        assertFalse(response.isCompressing());
+        Mockito.verify(fake.response, Mockito.never()).setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        Mockito.verify(fake.response).setContentLength(100);
+        byte[] expected = new byte[100];
+        System.arraycopy(content, 0, expected, 0, 100);
+        assertArrayEquals(expected, fake.body.toByteArray());
+        assertEquals(0, gzipPool.getIdleCount());
+
+        // the buffered start is compressed with the rest
+        fake = new FakeResponse();
+        response = createResponse("gzip", fake);
+        OutputStream out = response.getOutputStream();
+        out.write(content, 0, 100);
+        out.flush();
+        out.write(content, 100, content.length - 100);
+        response.finish();
+
+        assertTrue(response.isCompressing());
+        assertArrayEquals(content, read(new GZIPInputStream(fake.getBody())));
+        assertEquals(1, gzipPool.getIdleCount());
+    }
+
+    @Test
+    public void testResetResponse() throws Exception {
+        FakeResponse fake = new FakeResponse();
+        CompressingHttpServletResponseWrapper response = createResponse("gzip", fake);
+
+        response.setContentType("application/json");
+        response.getOutputStream().write(content, 0, 1000);
+
+        // error handling resets the response and writes something else
+        response.reset();
+        fake.body.reset();
+        response.setContentType("text/html");
+        response.getWriter().print(new String(content, 0, 2000, "UTF-8"));
+        response.finish();
+
+        byte[] expected = new byte[2000];
+        System.arraycopy(content, 0, expected, 0, 2000);
+        assertArrayEquals(expected, read(new GZIPInputStream(fake.getBody())));
+        assertEquals(1, gzipPool.getIdleCount());
+    }
+
+    @Test
+    public void testAcceptEncoding() throws Exception {
+        for (String acceptEncoding : new String[] { null, "", "identity", "gzip;q=0, identity", "br" }) {
+            CompressingHttpServletResponseWrapper response = createResponse(acceptEncoding, new FakeResponse());
+            response.getOutputStream().write(content);
+            response.finish();
+            assertFalse(response.isCompressing());
+        }
+
+        CompressingHttpServletResponseWrapper response = createResponse("x-gzip;q=0.8", new FakeResponse());
+        response.getOutputStream().write(content);
+        response.finish();
+        assertTrue(response.isCompressing());
+    }
+
+    private CompressingHttpServletResponseWrapper createResponse(String acceptEncoding, FakeResponse fake) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+
+        return new CompressingHttpServletResponseWrapper(request, fake.response, gzipPool, deflatePool,
+                Arrays.asList("image/*", "application/zip"));
+    }
+
+    private static byte[] readRequest(String encoding, byte[] body) throws IOException {
+        HttpServletRequest request = ContentEncodingHttpServletRequestWrapper.wrap(createRequest(encoding, body));
+        assertNull(request.getHeader("Content-Encoding"));
+        assertEquals(-1, request.getContentLength());
+
+        return read(request.getInputStream());
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(stream, out);
+        return out.toByteArray();
+    }
+
+    private static HttpServletRequest createRequest(String encoding, byte[] body) throws IOException {
+        HttpServletRequest request = HttpRequestMockHelper.createRequest("boundary", body);
+        Mockito.when(request.getHeader("Content-Encoding")).thenReturn(encoding);
+        Mockito.when(request.getContentLength()).thenReturn(body.length);
+        return request;
+    }
+
+    /**
+     * Response mock that collects the body.
+     */
+    private static class FakeResponse {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+
+        FakeResponse() throws IOException {
+            Mockito.when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    body.write(b, off, len);
+                }
+            });
+            Mockito.when(response.getWriter()).thenReturn(new PrintWriter(body));
+        }
+
+        InputStream getBody() {
+            return new ByteArrayInputStream(body.toByteArray());
+        }
+    }
+}
@@ -22,7 +22,9 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -365,14 +367,73 @@ public class MultipartParserTest {
         assertMultipartBasics(parser, 2, null, true, "file1", "application/something", content);
     }
 
+    @Test
+    public void testStreamedContent() throws Exception {
+        String boundary = "---- next ----";
+        byte[] content = new byte[1024 * 1024 + 17];
+
+        // random content with fragments of the boundary
+        Random rnd = new Random();
+        byte[] fragment = ("\r\n--" + boundary).getBytes("ISO-8859-1");
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + rnd.nextInt('z' - 'a'));
+            if (i % 10000 == 0 && i + fragment.length < content.length) {
+                System.arraycopy(fragment, 0, content, i, 1 + rnd.nextInt(fragment.length - 1));
+            }
+        }
+
+        byte[] formdata = ("\r\n--" + boundary + "\r\n" + "Content-Disposition: form-data; name=\"field1\"\r\n"
+                + "\r\n" + "value1\r\n" + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"content\"; filename=streamed.bin\r\n"
+                + "Content-Type: application/octet-stream\r\n" + "\r\n" + new String(content, "ISO-8859-1")
+                + "\r\n" + "--" + boundary + "--\r\n").getBytes("ISO-8859-1");
+
+        MultipartParser parser = prepareParser(boundary, formdata, true);
+        parser.parse();
+
+        assertTrue(parser.hasContent());
+        assertTrue(parser.isContentStreamed());
+        assertNull(parser.getSize());
+        assertEquals("streamed.bin", parser.getFilename());
+        assertEquals("application/octet-stream", parser.getContentType());
+        assertEquals("value1", parser.getFields().get("field1")[0]);
+        assertArrayEquals(content, readBytesFromStream(parser.getStream()));
+    }
+
+    @Test
+    public void testStreamedContentNotLast() throws Exception {
+        String boundary = "BoUnDaRy--987654320";
+        byte[] formdata = ("\r\n--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"content\"; filename=\"file\"\r\n" + "\r\n"
+                + "content\r\n--" + boundary + "\r\n" + "Content-Disposition: form-data; name=\"field1\"\r\n"
+                + "\r\n" + "value1\r\n" + "--" + boundary + "--").getBytes("ISO-8859-1");
+
+        MultipartParser parser = prepareParser(boundary, formdata, true);
+        parser.parse();
+
+        // the field after the content is not available
+        assertTrue(parser.getFields().isEmpty());
+
+        try {
+            readBytesFromStream(parser.getStream());
+            fail("Exception expected!");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+    }
+
     // ---- helpers ----
 
     private MultipartParser prepareParser(String boundary, byte[] content) throws Exception {
+        return prepareParser(boundary, content, false);
+    }
+
+    private MultipartParser prepareParser(String boundary, byte[] content, boolean streamContent) throws Exception {
         HttpServletRequest request = HttpRequestMockHelper.createRequest(boundary, content);
 
         ThresholdOutputStreamFactory streamFactory = ThresholdOutputStreamFactory.newInstance(null, THRESHOLD,
                 MAX_SIZE, false);
-        return new MultipartParser(request, streamFactory);
+        return new MultipartParser(request, streamFactory, streamContent);
     }
 
     private byte[] readBytesFromStream(InputStream is) throws IOException {
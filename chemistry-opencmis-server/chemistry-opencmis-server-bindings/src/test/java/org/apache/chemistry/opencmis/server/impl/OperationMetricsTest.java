@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.shared.Dispatcher;
+import org.apache.chemistry.opencmis.server.shared.OperationMetrics;
+import org.apache.chemistry.opencmis.server.shared.OperationMetrics.OperationStatistics;
+import org.apache.chemistry.opencmis.server.shared.OperationMetrics.Recorder;
+import org.apache.chemistry.opencmis.server.shared.PrometheusMetricsServlet;
+import org.apache.chemistry.opencmis.server.shared.ServiceCall;
+import org.junit.Test;
+
+public class OperationMetricsTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testRecorder() {
+        OperationMetrics metrics = new OperationMetrics();
+
+        Recorder recorder = metrics.getRecorder("repo", CallContext.BINDING_BROWSER, "getObject");
+        assertSame(recorder, metrics.getRecorder("repo", CallContext.BINDING_BROWSER, "getObject"));
+
+        recorder.record(3 * MS, null, 100, 2000);
+        recorder.record(7 * MS, null, -1, 3000);
+        recorder.record(40 * MS, new CmisObjectNotFoundException(), -1, -1);
+        recorder.record(20000 * MS, new IllegalStateException(), -1, -1);
+
+        List<OperationStatistics> statistics = metrics.getStatistics();
+        assertEquals(1, statistics.size());
+
+        OperationStatistics stats = statistics.get(0);
+        assertEquals("repo/browser/getObject", stats.getKey());
+        assertEquals(4, stats.getCalls());
+        assertEquals(2, stats.getErrors());
+        assertEquals(Long.valueOf(1), stats.getErrorTypes().get("objectNotFound"));
+        assertEquals(Long.valueOf(1), stats.getErrorTypes().get("runtime"));
+        assertEquals(100, stats.getRequestBytes());
+        assertEquals(5000, stats.getResponseBytes());
+        assertEquals(20000.0, stats.getMaxTime(), 0.001);
+        assertEquals(20050.0 / 4, stats.getAverageTime(), 0.001);
+
+        long[] latencies = stats.getLatencies();
+        assertEquals(1, latencies[2]); // <= 5ms
+        assertEquals(1, latencies[3]); // <= 10ms
+        assertEquals(1, latencies[5]); // <= 50ms
+        assertEquals(1, latencies[latencies.length - 1]);
+
+        assertEquals(10.0, stats.getPercentileTime(50), 0.001);
+        assertEquals(20000.0, stats.getPercentileTime(99), 0.001);
+
+        metrics.reset();
+        assertTrue(metrics.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void testRepositoryOverflow() {
+        OperationMetrics metrics = new OperationMetrics();
+
+        for (int i = 0; i < 1000; i++) {
+            metrics.getRecorder("repo" + i, CallContext.BINDING_BROWSER, "getObject");
+        }
+
+        // further repositories share one recorder per operation
+        Recorder recorder = metrics.getRecorder("new1", CallContext.BINDING_BROWSER, "getObject");
+        assertSame(recorder, metrics.getRecorder("new2", CallContext.BINDING_BROWSER, "getObject"));
+        assertEquals(1001, metrics.getStatistics().size());
+    }
+
+    @Test
+    public void testDispatcher() {
+        OperationMetrics metrics = new OperationMetrics();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setOperationMetrics(metrics);
+        dispatcher.addResource("object", Dispatcher.METHOD_GET, new GetObject());
+        dispatcher.addResource("missing", Dispatcher.METHOD_GET, new Failing());
+
+        CallContext context = mock(CallContext.class);
+        when(context.getBinding()).thenReturn(CallContext.BINDING_ATOMPUB);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getContentLength()).thenReturn(-1);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        assertTrue(dispatcher.dispatch("object", Dispatcher.METHOD_GET, context, null, "repo", request, response));
+        try {
+            dispatcher.dispatch("missing", Dispatcher.METHOD_GET, context, null, "repo", request, response);
+            fail("Exception expected!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        List<OperationStatistics> statistics = metrics.getStatistics();
+        assertEquals(2, statistics.size());
+        assertEquals("repo/atompub/failing", statistics.get(0).getKey());
+        assertEquals(1, statistics.get(0).getErrors());
+        assertEquals("repo/atompub/getObject", statistics.get(1).getKey());
+        assertEquals(1, statistics.get(1).getCalls());
+        assertEquals(0, statistics.get(1).getErrors());
+    }
+
+    @Test
+    public void testPrometheusFormat() {
+        OperationMetrics metrics = new OperationMetrics();
+        metrics.getRecorder("my \"repo\"", CallContext.BINDING_WEBSERVICES, "getChildren").record(2 * MS,
+                new CmisObjectNotFoundException(), 10, -1);
+
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        PrometheusMetricsServlet.write(metrics.getStatistics(), pw);
+        pw.flush();
+
+        String labels = "repository=\"my \\\"repo\\\"\",binding=\"webservices\",operation=\"getChildren\"";
+        String text = sw.toString();
+        assertTrue(text.contains("# TYPE opencmis_calls_total counter\n"));
+        assertTrue(text.contains("opencmis_calls_total{" + labels + "} 1\n"));
+        assertTrue(text.contains("opencmis_errors_total{" + labels + ",exception=\"objectNotFound\"} 1\n"));
+        assertTrue(text.contains("opencmis_duration_seconds_bucket{" + labels + ",le=\"0.001\"} 0\n"));
+        assertTrue(text.contains("opencmis_duration_seconds_bucket{" + labels + ",le=\"0.002\"} 1\n"));
+        assertTrue(text.contains("opencmis_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("opencmis_request_bytes_total{" + labels + "} 10\n"));
+    }
+
+    private static class GetObject implements ServiceCall {
+        public void serve(CallContext context, CmisService service, String repositoryId,
+                HttpServletRequest request, HttpServletResponse response) {
+        }
+    }
+
+    private static class Failing implements ServiceCall {
+        public void serve(CallContext context, CmisService service, String repositoryId,
+                HttpServletRequest request, HttpServletResponse response) {
+            throw new CmisObjectNotFoundException("not found");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.server.shared.LimitExceededException;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter.Lane;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter.LaneStatistics;
+import org.apache.chemistry.opencmis.server.shared.RequestLimiter.Permit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestLimiterTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLanes() {
+        RequestLimiter limiter = new RequestLimiter(2, 1, 0, 0);
+
+        Permit m1 = limiter.acquire("repo", Lane.METADATA);
+        Permit m2 = limiter.acquire("repo", Lane.METADATA);
+        Permit c1 = limiter.acquire("repo", Lane.CONTENT);
+
+        // both lanes of this repository are full
+        assertRejected(limiter, "repo", Lane.METADATA);
+        assertRejected(limiter, "repo", Lane.CONTENT);
+
+        // other repositories are not affected
+        limiter.acquire("other", Lane.METADATA).release();
+
+        m1.release();
+        m1.release(); // no effect
+        limiter.acquire("repo", Lane.METADATA).release();
+
+        m2.release();
+        c1.release();
+
+        LaneStatistics stats = limiter.getStatistics().get("repo/METADATA");
+        assertNotNull(stats);
+        assertEquals(0, stats.getActive());
+        assertEquals(3, stats.getAccepted());
+        assertEquals(1, stats.getRejected());
+        assertEquals(1, limiter.getStatistics().get("repo/CONTENT").getRejected());
+        assertEquals(1, limiter.getStatistics().get("other/METADATA").getAccepted());
+    }
+
+    @Test
+    public void testQueue() throws Exception {
+        final RequestLimiter limiter = new RequestLimiter(1, 1, 1, 10000);
+
+        Permit running = limiter.acquire("repo", Lane.METADATA);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        Future<?> waiting = executor.submit(new Runnable() {
+            public void run() {
+                started.countDown();
+                limiter.acquire("repo", Lane.METADATA).release();
+            }
+        });
+
+        started.await();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (limiter.getStatistics().get("repo/METADATA").getQueued() < 1) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        // the queue is full
+        assertRejected(limiter, "repo", Lane.METADATA);
+
+        running.release();
+        waiting.get(10, TimeUnit.SECONDS);
+
+        LaneStatistics stats = limiter.getStatistics().get("repo/METADATA");
+        assertEquals(2, stats.getAccepted());
+        assertEquals(1, stats.getRejected());
+        assertEquals(0, stats.getQueued());
+        assertTrue(stats.getAverageWaitTime() > 0);
+    }
+
+    @Test
+    public void testRepositoryOverflow() {
+        RequestLimiter limiter = new RequestLimiter(1, 1, 0, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire("repo" + i, Lane.METADATA).release();
+        }
+
+        // further repositories share one set of lanes
+        Permit permit = limiter.acquire("new1", Lane.METADATA);
+        assertRejected(limiter, "new2", Lane.METADATA);
+        permit.release();
+        limiter.acquire("new2", Lane.METADATA).release();
+
+        assertEquals(1000 * 2 + 2, limiter.getStatistics().size());
+    }
+
+    @Test
+    public void testQueueTimeout() {
+        RequestLimiter limiter = new RequestLimiter(1, 1, 10, 50);
+
+        Permit running = limiter.acquire("repo", Lane.CONTENT);
+        long start = System.currentTimeMillis();
+        assertRejected(limiter, "repo", Lane.CONTENT);
+        assertTrue(System.currentTimeMillis() - start >= 40);
+        running.release();
+    }
+
+    private static void assertRejected(RequestLimiter limiter, String repositoryId, Lane lane) {
+        try {
+            limiter.acquire(repositoryId, lane).release();
+            fail("LimitExceededException expected!");
+        } catch (LimitExceededException e) {
+            // expected
+        }
+    }
+}
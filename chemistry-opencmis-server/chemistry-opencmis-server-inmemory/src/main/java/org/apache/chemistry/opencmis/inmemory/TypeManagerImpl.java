@@ -22,9 +22,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
@@ -32,6 +36,7 @@ import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
 import org.apache.chemistry.opencmis.inmemory.types.DocumentTypeCreationHelper;
 import org.apache.chemistry.opencmis.inmemory.types.TypeUtil;
 import org.apache.chemistry.opencmis.server.support.TypeManager;
@@ -41,14 +46,41 @@ import org.slf4j.LoggerFactory;
 /**
  * Class that manages a type system for a repository types can be added, the
  * inheritance can be managed and type can be retrieved for a given type id.
+ * <p>
+ * Lookups by type id and query name are backed by indexes. Root types, subtype
+ * closures, type descendants and property query name mappings are computed on
+ * first use and cached until the type system is modified. Readers never lock;
+ * modifications are serialized and replace the children lists of the affected
+ * containers instead of changing them in place.
  */
 public class TypeManagerImpl implements TypeManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(TypeManagerImpl.class.getName());
     /**
-     * map from repository id to a types map.
+     * map from type id to a type definition container.
      */
-    private final Map<String, TypeDefinitionContainer> fTypesMap = new HashMap<String, TypeDefinitionContainer>();
+    private final Map<String, TypeDefinitionContainer> fTypesMap = new ConcurrentHashMap<String, TypeDefinitionContainer>();
+
+    /**
+     * map from type query name to a type definition container.
+     */
+    private final Map<String, TypeDefinitionContainer> fTypesByQueryName = new ConcurrentHashMap<String, TypeDefinitionContainer>();
+
+    /**
+     * values derived from the type hierarchy, replaced on each modification.
+     */
+    private volatile DerivedTypeData fDerivedData = new DerivedTypeData();
+
+    /**
+     * Holds values computed from the type hierarchy. An instance is discarded
+     * as a whole when the type system changes.
+     */
+    private static final class DerivedTypeData {
+        private volatile List<TypeDefinitionContainer> rootTypes;
+        private final ConcurrentMap<String, Set<String>> subTypeIds = new ConcurrentHashMap<String, Set<String>>();
+        private final ConcurrentMap<String, TypeDefinitionContainer> descendants = new ConcurrentHashMap<String, TypeDefinitionContainer>();
+        private final ConcurrentMap<String, Map<String, String>> propertyIdsByQueryName = new ConcurrentHashMap<String, Map<String, String>>();
+    }
 
     /*
      * (non-Javadoc)
@@ -59,7 +91,7 @@ public class TypeManagerImpl implements TypeManager {
      */
     @Override
     public TypeDefinitionContainer getTypeById(String typeId) {
-        return fTypesMap.get(typeId);
+        return null == typeId ? null : fTypesMap.get(typeId);
     }
 
     /*
@@ -71,12 +103,11 @@ public class TypeManagerImpl implements TypeManager {
      */
     @Override
     public TypeDefinition getTypeByQueryName(String typeQueryName) {
-        for (Entry<String, TypeDefinitionContainer> entry : fTypesMap.entrySet()) {
-            if (entry.getValue().getTypeDefinition().getQueryName().equals(typeQueryName)) {
-                return entry.getValue().getTypeDefinition();
-            }
+        if (null == typeQueryName) {
+            return null;
         }
-        return null;
+        TypeDefinitionContainer tc = fTypesByQueryName.get(typeQueryName);
+        return null == tc ? null : tc.getTypeDefinition();
     }
 
     /*
@@ -98,18 +129,99 @@ public class TypeManagerImpl implements TypeManager {
      */
     @Override
     public List<TypeDefinitionContainer> getRootTypes() {
-        // just take first repository
-        List<TypeDefinitionContainer> rootTypes = new ArrayList<TypeDefinitionContainer>();
-
-        for (TypeDefinitionContainer type : fTypesMap.values()) {
-            if (isRootType(type)) {
-                rootTypes.add(type);
+        DerivedTypeData derived = fDerivedData;
+        List<TypeDefinitionContainer> rootTypes = derived.rootTypes;
+
+        if (null == rootTypes) {
+            rootTypes = new ArrayList<TypeDefinitionContainer>();
+            for (TypeDefinitionContainer type : fTypesMap.values()) {
+                if (isRootType(type)) {
+                    rootTypes.add(type);
+                }
             }
+            rootTypes = Collections.unmodifiableList(rootTypes);
+            derived.rootTypes = rootTypes;
         }
 
         return rootTypes;
     }
 
+    /**
+     * Return the ids of a type and all of its descendant types.
+     * 
+     * @param typeId
+     *            id of the type
+     * @return unmodifiable set of type ids or an empty set if the type is
+     *         unknown
+     */
+    public Set<String> getSubTypeIds(String typeId) {
+        if (null == typeId) {
+            return Collections.emptySet();
+        }
+
+        DerivedTypeData derived = fDerivedData;
+        Set<String> result = derived.subTypeIds.get(typeId);
+
+        if (null == result) {
+            TypeDefinitionContainer tc = getTypeById(typeId);
+            if (null == tc) {
+                return Collections.emptySet();
+            }
+            Set<String> ids = new HashSet<String>();
+            collectSubTypeIds(tc, ids);
+            result = Collections.unmodifiableSet(ids);
+            derived.subTypeIds.put(typeId, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Check if a type is the same as or a descendant of another type.
+     * 
+     * @param typeId
+     *            id of the type to check
+     * @param superTypeId
+     *            id of the potential super type
+     * @return <code>true</code> if <code>typeId</code> is in the type tree
+     *         starting at <code>superTypeId</code>
+     */
+    public boolean isSubTypeOf(String typeId, String superTypeId) {
+        return getSubTypeIds(superTypeId).contains(typeId);
+    }
+
+    /**
+     * Return a copy of a type container with its descendants up to the given
+     * depth. Results are cached until the type system changes, so the children
+     * lists of the returned tree are unmodifiable.
+     * 
+     * @param typeId
+     *            id of the type
+     * @param depth
+     *            levels of children to return, -1 for all
+     * @param includePropertyDefinitions
+     *            indicates with or without property definitions
+     * @return type container or <code>null</code> if the type is unknown
+     */
+    public TypeDefinitionContainer getTypeDescendants(String typeId, int depth, boolean includePropertyDefinitions) {
+        DerivedTypeData derived = fDerivedData;
+        String key = typeId + '/' + depth + '/' + includePropertyDefinitions;
+        TypeDefinitionContainer result = derived.descendants.get(key);
+
+        if (null == result) {
+            TypeDefinitionContainer tc = getTypeById(typeId);
+            if (null == tc) {
+                return null;
+            }
+            result = StoreManagerImpl.cloneTypeList(depth < 0 ? Integer.MAX_VALUE : depth,
+                    includePropertyDefinitions, tc, null);
+            freezeChildren((TypeDefinitionContainerImpl) result);
+            derived.descendants.put(key, result);
+        }
+
+        return result;
+    }
+
     /**
      * Initialize the type system with the given types. This list must not
      * contain the CMIS default types. The default type are always contained by
@@ -152,20 +264,26 @@ public class TypeManagerImpl implements TypeManager {
                 + " to repository.");
         TypeDefinitionContainerImpl typeContainer = new TypeDefinitionContainerImpl(cmisType);
 
-        if (null != cmisType.getParentTypeId()) {
-            // add new type to children of parent types
-            TypeDefinitionContainer parentTypeContainer = fTypesMap.get(cmisType.getParentTypeId());
-            parentTypeContainer.getChildren().add(typeContainer);
-
-            if (addInheritedProperties) {
-                // recursively add inherited properties
-                Map<String, PropertyDefinition<?>> propDefs = typeContainer.getTypeDefinition()
-                        .getPropertyDefinitions();
-                addInheritedProperties(propDefs, parentTypeContainer.getTypeDefinition());
+        synchronized (fTypesMap) {
+            if (null != cmisType.getParentTypeId()) {
+                // add new type to children of parent types
+                TypeDefinitionContainer parentTypeContainer = fTypesMap.get(cmisType.getParentTypeId());
+                List<TypeDefinitionContainer> children = new ArrayList<TypeDefinitionContainer>(
+                        parentTypeContainer.getChildren());
+                children.add(typeContainer);
+                ((TypeDefinitionContainerImpl) parentTypeContainer).setChildren(children);
+
+                if (addInheritedProperties) {
+                    // recursively add inherited properties
+                    Map<String, PropertyDefinition<?>> propDefs = typeContainer.getTypeDefinition()
+                            .getPropertyDefinitions();
+                    addInheritedProperties(propDefs, parentTypeContainer.getTypeDefinition());
+                }
             }
+            // add type to type maps
+            putType(typeContainer);
+            invalidateDerivedData();
         }
-        // add type to type map
-        fTypesMap.put(cmisType.getId(), typeContainer);
     }
 
     /*
@@ -190,11 +308,18 @@ public class TypeManagerImpl implements TypeManager {
      */
     @Override
     public void deleteTypeDefinition(String typeId) {
-        TypeDefinitionContainer typeDef = fTypesMap.remove(typeId);
-        // remove type from children of parent types
-        TypeDefinitionContainer parentTypeContainer = fTypesMap.get(typeDef.getTypeDefinition().getParentTypeId());
-        parentTypeContainer.getChildren().remove(typeDef);
-        fTypesMap.remove(typeId);
+        synchronized (fTypesMap) {
+            TypeDefinitionContainer typeDef = fTypesMap.remove(typeId);
+            fTypesByQueryName.remove(typeDef.getTypeDefinition().getQueryName());
+            // remove type from children of parent types
+            TypeDefinitionContainer parentTypeContainer = fTypesMap.get(typeDef.getTypeDefinition()
+                    .getParentTypeId());
+            List<TypeDefinitionContainer> children = new ArrayList<TypeDefinitionContainer>(
+                    parentTypeContainer.getChildren());
+            children.remove(typeDef);
+            ((TypeDefinitionContainerImpl) parentTypeContainer).setChildren(children);
+            invalidateDerivedData();
+        }
     }
 
     /**
@@ -205,8 +330,12 @@ public class TypeManagerImpl implements TypeManager {
      * @param repositoryId
      */
     public void clearTypeSystem() {
-        fTypesMap.clear();
-        createCmisDefaultTypes();
+        synchronized (fTypesMap) {
+            fTypesMap.clear();
+            fTypesByQueryName.clear();
+            createCmisDefaultTypes();
+            invalidateDerivedData();
+        }
     }
 
     /*
@@ -219,6 +348,27 @@ public class TypeManagerImpl implements TypeManager {
      */
     @Override
     public String getPropertyIdForQueryName(TypeDefinition typeDefinition, String propQueryName) {
+        TypeDefinitionContainer tc = getTypeById(typeDefinition.getId());
+        if (null == tc || tc.getTypeDefinition() != typeDefinition) {
+            // not managed here, no index available
+            return findPropertyIdForQueryName(typeDefinition, propQueryName);
+        }
+
+        DerivedTypeData derived = fDerivedData;
+        Map<String, String> propertyIds = derived.propertyIdsByQueryName.get(typeDefinition.getId());
+        if (null == propertyIds) {
+            propertyIds = new HashMap<String, String>();
+            for (PropertyDefinition<?> pd : typeDefinition.getPropertyDefinitions().values()) {
+                if (!propertyIds.containsKey(pd.getQueryName())) {
+                    propertyIds.put(pd.getQueryName(), pd.getId());
+                }
+            }
+            derived.propertyIdsByQueryName.put(typeDefinition.getId(), propertyIds);
+        }
+        return propertyIds.get(propQueryName);
+    }
+
+    private static String findPropertyIdForQueryName(TypeDefinition typeDefinition, String propQueryName) {
         for (PropertyDefinition<?> pd : typeDefinition.getPropertyDefinitions().values()) {
             if (pd.getQueryName().equals(propQueryName)) {
                 return pd.getId();
@@ -227,6 +377,34 @@ public class TypeManagerImpl implements TypeManager {
         return null;
     }
 
+    private void putType(TypeDefinitionContainer typeContainer) {
+        TypeDefinition typeDef = typeContainer.getTypeDefinition();
+        fTypesMap.put(typeDef.getId(), typeContainer);
+        if (null != typeDef.getQueryName()) {
+            fTypesByQueryName.put(typeDef.getQueryName(), typeContainer);
+        }
+    }
+
+    private void invalidateDerivedData() {
+        fDerivedData = new DerivedTypeData();
+    }
+
+    private static void freezeChildren(TypeDefinitionContainerImpl tc) {
+        List<TypeDefinitionContainer> children = tc.getChildren();
+        for (TypeDefinitionContainer child : children) {
+            freezeChildren((TypeDefinitionContainerImpl) child);
+        }
+        tc.setChildren(Collections.unmodifiableList(children));
+    }
+
+    private static void collectSubTypeIds(TypeDefinitionContainer tc, Set<String> ids) {
+        if (ids.add(tc.getTypeDefinition().getId())) {
+            for (TypeDefinitionContainer child : tc.getChildren()) {
+                collectSubTypeIds(child, ids);
+            }
+        }
+    }
+
     private void addInheritedProperties(Map<String, PropertyDefinition<?>> propDefs, TypeDefinition typeDefinition) {
 
         if (null == typeDefinition) {
@@ -237,7 +415,7 @@ public class TypeManagerImpl implements TypeManager {
             addInheritedPropertyDefinitions(propDefs, typeDefinition.getPropertyDefinitions());
         }
 
-        TypeDefinitionContainer parentTypeContainer = fTypesMap.get(typeDefinition.getParentTypeId());
+        TypeDefinitionContainer parentTypeContainer = getTypeById(typeDefinition.getParentTypeId());
         TypeDefinition parentType = (null == parentTypeContainer ? null : parentTypeContainer.getTypeDefinition());
         addInheritedProperties(propDefs, parentType);
     }
@@ -257,8 +435,9 @@ public class TypeManagerImpl implements TypeManager {
         List<TypeDefinition> typesList = DocumentTypeCreationHelper.createDefaultTypes();
         for (TypeDefinition typeDef : typesList) {
             TypeDefinitionContainerImpl typeContainer = new TypeDefinitionContainerImpl(typeDef);
-            fTypesMap.put(typeDef.getId(), typeContainer);
+            putType(typeContainer);
         }
+        invalidateDerivedData();
     }
 
     private static boolean isRootType(TypeDefinitionContainer c) {
@@ -31,6 +31,7 @@ import java.util.Comparator;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.antlr.runtime.tree.Tree;
@@ -45,6 +46,7 @@ import org.apache.chemistry.opencmis.commons.enums.PropertyType;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.inmemory.TypeManagerImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
@@ -84,6 +86,8 @@ public class InMemoryQueryProcessor {
     private Tree whereTree;
     private ObjectStoreImpl objStore;
     private List<TypeDefinition> secondaryTypeIds;
+    private TypeDefinition fromType;
+    private Set<String> fromTypeIds;
 
     public InMemoryQueryProcessor(ObjectStoreImpl objStore) {
         this.objStore = objStore;
@@ -150,6 +154,14 @@ public class InMemoryQueryProcessor {
         whereTree = walker.getWherePredicateTree();
         secondaryTypeIds = queryObj.getJoinedSecondaryTypes();
         doAdditionalChecks(walker);
+
+        // as we don't support joins take first type
+        String queryName = queryObj.getTypes().values().iterator().next();
+        fromType = queryObj.getTypeDefinitionFromQueryName(queryName);
+        fromTypeIds = null;
+        if (tm instanceof TypeManagerImpl && null != fromType) {
+            fromTypeIds = ((TypeManagerImpl) tm).getSubTypeIds(fromType.getId());
+        }
     }
 
     /**
@@ -218,6 +230,10 @@ public class InMemoryQueryProcessor {
     }
 
     private boolean typeMatches(TypeDefinition td, StoredObject so) {
+        if (null != fromTypeIds) {
+            return fromTypeIds.contains(so.getTypeId()) || so.getSecondaryTypeIds().contains(td.getId());
+        }
+
         String typeId = so.getTypeId();
         while (typeId != null) {
             if (typeId.equals(td.getId())) {
@@ -293,22 +309,15 @@ public class InMemoryQueryProcessor {
      * objects.
      */
     private void match(StoredObject so, String user, boolean searchAllVersions) {
-        // first check if type is matching...
-        // as we don't support joins take first type
-        String queryName = queryObj.getTypes().values().iterator().next();
-
-        TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
-
         // we are only interested in versions not in the series
         boolean skip = so instanceof VersionedDocument;
 
-        boolean typeMatches = typeMatches(td, so);
-        if (!searchAllVersions && so instanceof DocumentVersion
+        if (!skip && !searchAllVersions && so instanceof DocumentVersion
                 && ((DocumentVersion) so).getParentDocument().getLatestVersion(false) != so) {
             skip = true;
         }
-        // ... then check expression...
-        if (typeMatches && !skip) {
+        // first check if type is matching, then check expression...
+        if (!skip && typeMatches(fromType, so)) {
             evalWhereTree(whereTree, user, so);
         }
     }
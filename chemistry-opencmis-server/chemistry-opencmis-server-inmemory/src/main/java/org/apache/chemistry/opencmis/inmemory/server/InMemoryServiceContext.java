@@ -23,7 +23,9 @@ import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
 
 /**
  * Helper class to associate context information with each incoming call.
- * 
+ * <p>
+ * All state is kept in a thread local, therefore no synchronization is
+ * required (and none must be added: every service call passes through here).
  */
 public final class InMemoryServiceContext {
 
@@ -48,12 +50,12 @@ public final class InMemoryServiceContext {
         }
     }
 
-    private static ThreadLocal<ContextHolder> threadLocalService = new ThreadLocal<ContextHolder>();
+    private static final ThreadLocal<ContextHolder> threadLocalService = new ThreadLocal<ContextHolder>();
 
     private InMemoryServiceContext() {
     }
 
-    public static synchronized void setWrapperService(CmisServiceWrapper<InMemoryService> wrapperService) {
+    public static void setWrapperService(CmisServiceWrapper<InMemoryService> wrapperService) {
         threadLocalService.remove();
         if (null != wrapperService) {
             ContextHolder holder = new ContextHolder(wrapperService);
@@ -61,7 +63,7 @@ public final class InMemoryServiceContext {
         }
     }
 
-    public static synchronized InMemoryService getCmisService() {
+    public static InMemoryService getCmisService() {
         ContextHolder holder = threadLocalService.get();
         if (null == holder) {
             return null;
@@ -71,7 +73,7 @@ public final class InMemoryServiceContext {
         }
     }
 
-    public static synchronized void setCallContext(CallContext context) {
+    public static void setCallContext(CallContext context) {
         ContextHolder holder = threadLocalService.get();
         if (null == holder) {
             throw new IllegalStateException("Cannot store call context, no service wrapper set.");
@@ -28,6 +28,7 @@ import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
@@ -44,8 +45,8 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
 
     private static final Logger LOG = LoggerFactory.getLogger(ContentStreamDataImpl.class.getName());
 
-    private static long totalLength = 0L;
-    private static long totalCalls = 0L;
+    private static final AtomicLong TOTAL_LENGTH = new AtomicLong();
+    private static final AtomicLong TOTAL_CALLS = new AtomicLong();
 
     private int fLength;
 
@@ -63,24 +64,20 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
 
     private final long sizeLimitKB;
 
-    private static synchronized long getTotalLength() {
-        return totalLength;
+    private static long getTotalLength() {
+        return TOTAL_LENGTH.get();
     }
 
-    private static synchronized void increaseTotalLength(int length) {
-        totalLength += length;
+    private static void increaseTotalLength(int length) {
+        TOTAL_LENGTH.addAndGet(length);
     }
 
-    private static synchronized void decreaseTotalLength(int length) {
-        totalLength -= length;
+    private static void decreaseTotalLength(int length) {
+        TOTAL_LENGTH.addAndGet(-length);
     }
 
-    private static synchronized long getTotalCalls() {
-        return totalCalls;
-    }
-
-    private static synchronized void increaseTotalCalls() {
-        totalCalls++;
+    private static long increaseTotalCalls() {
+        return TOTAL_CALLS.incrementAndGet();
     }
 
     public ContentStreamDataImpl(long maxAllowedContentSizeKB) {
@@ -113,9 +110,11 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
             in.close();
         }
         increaseTotalLength(fLength);
-        increaseTotalCalls();
-        LOG.debug("setting content stream, total no calls " + getTotalCalls() + ".");
-        LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
+        long calls = increaseTotalCalls();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("setting content stream, total no calls " + calls + ".");
+            LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
+        }
     }
 
     public void appendContent(InputStream is) throws IOException {
@@ -147,9 +146,11 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
             is.close();
         }
         increaseTotalLength(fLength);
-        increaseTotalCalls();
-        LOG.debug("setting content stream, total no calls " + getTotalCalls() + ".");
-        LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
+        long calls = increaseTotalCalls();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("setting content stream, total no calls " + calls + ".");
+            LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
+        }
     }
 
     @Override
@@ -24,7 +24,11 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -63,31 +67,38 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
  * Certain methods in the in-memory repository must guarantee constraints. For
  * example a folder enforces that each child has a unique name. Therefore
  * certain operations must occur in an atomic manner. In the example it must be
- * guaranteed that no write access occurs to the map between acquiring the
- * iterator to find the children and finishing the add operation when no name
- * conflicts can occur. For this purpose this class has methods to lock an
- * unlock the state of the repository. It is very important that the caller
- * acquiring the lock enforces an unlock under all circumstances. Typical code
- * is:
+ * guaranteed that no other child is added to the same folder between acquiring
+ * the iterator to find the children and finishing the add operation when no
+ * name conflicts can occur.
+ * <p>
+ * Read operations never lock. Operations changing the structure of the folder
+ * hierarchy (create, move, rename, add and remove parent) lock only the
+ * affected parent folders. Folder locks are striped by folder id and are always
+ * acquired in stripe order to avoid deadlocks. It is very important that the
+ * caller acquiring the locks enforces an unlock under all circumstances. Typical
+ * code is:
  * <p>
  * 
  * <pre>
- * ObjectStoreImpl os = ... ;
+ * List&lt;Lock&gt; locks = lockFolders(parentId);
  * try {
- *     os.lock();
+ *     ...
  * } finally {
- *     os.unlock();
+ *     unlockFolders(locks);
  * }
  * </pre>
  * 
- * The locking is very coarse-grained. Productive implementations would probably
- * implement finer grained locks on a folder or document rather than the
- * complete repository.
+ * Object and ACL ids are allocated without locking.
  */
 public class ObjectStoreImpl implements ObjectStore {
 
     private static final int FIRST_ID = 100;
 
+    /**
+     * Number of folder lock stripes, must be a power of two.
+     */
+    private static final int LOCK_STRIPES = 64;
+
     /**
      * User id for administrator always having all rights.
      */
@@ -96,7 +107,7 @@ public class ObjectStoreImpl implements ObjectStore {
     /**
      * Simple id generator that uses just an integer.
      */
-    private static int nextUnusedId = FIRST_ID;
+    private static final AtomicInteger NEXT_UNUSED_ID = new AtomicInteger(FIRST_ID);
 
     /**
      * A concurrent HashMap as core element to hold all objects in the
@@ -105,36 +116,75 @@ public class ObjectStoreImpl implements ObjectStore {
     private final Map<String, StoredObject> fStoredObjectMap = new ConcurrentHashMap<String, StoredObject>();
 
     /**
-     * A concurrent HashMap to hold all Acls in the repository.
+     * A copy-on-write list to hold all Acls in the repository. Acls are read
+     * on every permission check but added rarely.
      */
-    private int nextUnusedAclId = 0;
+    private final AtomicInteger fNextUnusedAclId = new AtomicInteger(0);
 
-    private final List<InMemoryAcl> fAcls = new ArrayList<InMemoryAcl>();
+    private final List<InMemoryAcl> fAcls = new CopyOnWriteArrayList<InMemoryAcl>();
 
-    private final Lock fLock = new ReentrantLock();
+    /**
+     * Guards the check-then-add sequence when registering a new Acl.
+     */
+    private final Lock fAclLock = new ReentrantLock();
+
+    /**
+     * Striped locks guarding the children of folders.
+     */
+    private final Lock[] fFolderLocks = new Lock[LOCK_STRIPES];
 
     private final String fRepositoryId;
     private FolderImpl fRootFolder = null;
 
     public ObjectStoreImpl(String repositoryId) {
         fRepositoryId = repositoryId;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            fFolderLocks[i] = new ReentrantLock();
+        }
         createRootFolder();
     }
 
-    private static synchronized Integer getNextId() {
-        return nextUnusedId++;
+    private static Integer getNextId() {
+        return NEXT_UNUSED_ID.getAndIncrement();
     }
 
-    private synchronized Integer getNextAclId() {
-        return nextUnusedAclId++;
+    private Integer getNextAclId() {
+        return fNextUnusedAclId.getAndIncrement();
     }
 
-    private void lock() {
-        fLock.lock();
+    /**
+     * Locks the given folders. <code>null</code> ids are ignored.
+     * 
+     * @param folderIds
+     *            ids of the folders whose children are going to be modified
+     * @return the acquired locks, must be passed to
+     *         {@link #unlockFolders(List)}
+     */
+    private List<Lock> lockFolders(String... folderIds) {
+        SortedSet<Integer> stripes = new TreeSet<Integer>();
+        for (String folderId : folderIds) {
+            if (folderId != null) {
+                stripes.add(folderId.hashCode() & (LOCK_STRIPES - 1));
+            }
+        }
+
+        List<Lock> locks = new ArrayList<Lock>(stripes.size());
+        for (Integer stripe : stripes) {
+            Lock lock = fFolderLocks[stripe];
+            lock.lock();
+            locks.add(lock);
+        }
+        return locks;
+    }
+
+    private static void unlockFolders(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
     }
 
-    private void unlock() {
-        fLock.unlock();
+    private static String getFolderId(Folder folder) {
+        return folder == null ? null : folder.getId();
     }
 
     @Override
@@ -238,10 +288,8 @@ public class ObjectStoreImpl implements ObjectStore {
      */
     @Override
     public void clear() {
-        lock();
         fStoredObjectMap.clear();
         storeObject(fRootFolder);
-        unlock();
     }
 
     @Override
@@ -275,20 +323,25 @@ public class ObjectStoreImpl implements ObjectStore {
         doc.setCustomProperties(propMap);
         doc.setRepositoryId(fRepositoryId);
         doc.setName(name);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
+        List<Lock> locks = lockFolders(getFolderId(folder));
+        try {
+            if (null != folder) {
+                if (hasChild(folder, name)) {
+                    throw new CmisNameConstraintViolationException("Cannot create document an object with name "
+                            + name + " already exists in folder " + getFolderPath(folder.getId()));
+                }
+                doc.addParentId(folder.getId());
             }
-            doc.addParentId(folder.getId());
-        }
-        int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
-        doc.setAclId(aclId);
-        if (null != policies) {
-            doc.setAppliedPolicies(policies);
+            int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
+            doc.setAclId(aclId);
+            if (null != policies) {
+                doc.setAppliedPolicies(policies);
+            }
+            String id = storeObject(doc);
+            doc.setId(id);
+        } finally {
+            unlockFolders(locks);
         }
-        String id = storeObject(doc);
-        doc.setId(id);
         applyAcl(doc, addACEs, removeACEs);
         return doc;
     }
@@ -301,20 +354,25 @@ public class ObjectStoreImpl implements ObjectStore {
         item.setCustomProperties(propMap);
         item.setRepositoryId(fRepositoryId);
         item.setName(name);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
+        List<Lock> locks = lockFolders(getFolderId(folder));
+        try {
+            if (null != folder) {
+                if (hasChild(folder, name)) {
+                    throw new CmisNameConstraintViolationException("Cannot create document an object with name "
+                            + name + " already exists in folder " + getFolderPath(folder.getId()));
+                }
+                item.addParentId(folder.getId());
             }
-            item.addParentId(folder.getId());
-        }
-        if (null != policies) {
-            item.setAppliedPolicies(policies);
+            if (null != policies) {
+                item.setAppliedPolicies(policies);
+            }
+            int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
+            item.setAclId(aclId);
+            String id = storeObject(item);
+            item.setId(id);
+        } finally {
+            unlockFolders(locks);
         }
-        int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
-        item.setAclId(aclId);
-        String id = storeObject(item);
-        item.setId(id);
         applyAcl(item, addACEs, removeACEs);
         return item;
     }
@@ -333,20 +391,25 @@ public class ObjectStoreImpl implements ObjectStore {
         DocumentVersion version = doc.addVersion(contentStream, versioningState, user);
         version.createSystemBasePropertiesWhenCreated(propMap, user);
         version.setCustomProperties(propMap);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
+        List<Lock> locks = lockFolders(getFolderId(folder));
+        try {
+            if (null != folder) {
+                if (hasChild(folder, name)) {
+                    throw new CmisNameConstraintViolationException("Cannot create document an object with name "
+                            + name + " already exists in folder " + getFolderPath(folder.getId()));
+                }
+                doc.addParentId(folder.getId());
             }
-            doc.addParentId(folder.getId());
-        }
-        int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
-        doc.setAclId(aclId);
-        if (null != policies) {
-            doc.setAppliedPolicies(policies);
+            int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
+            doc.setAclId(aclId);
+            if (null != policies) {
+                doc.setAppliedPolicies(policies);
+            }
+            id = storeObject(version);
+            version.setId(id);
+        } finally {
+            unlockFolders(locks);
         }
-        id = storeObject(version);
-        version.setId(id);
         applyAcl(doc, addACEs, removeACEs);
         return version;
     }
@@ -357,10 +420,8 @@ public class ObjectStoreImpl implements ObjectStore {
 
         if (null == parent) {
             throw new CmisInvalidArgumentException("Cannot create root folder.");
-        } else if (hasChild(parent, name)) {
-            throw new CmisNameConstraintViolationException(
-                    "Cannot create folder, this name already exists in parent folder.");
         }
+
         FolderImpl folder = new FolderImpl(name, parent.getId());
         if (null != propMap) {
             folder.createSystemBasePropertiesWhenCreated(propMap, user);
@@ -374,8 +435,17 @@ public class ObjectStoreImpl implements ObjectStore {
             folder.setAppliedPolicies(policies);
         }
 
-        String id = storeObject(folder);
-        folder.setId(id);
+        List<Lock> locks = lockFolders(parent.getId());
+        try {
+            if (hasChild(parent, name)) {
+                throw new CmisNameConstraintViolationException(
+                        "Cannot create folder, this name already exists in parent folder.");
+            }
+            String id = storeObject(folder);
+            folder.setId(id);
+        } finally {
+            unlockFolders(locks);
+        }
         applyAcl(folder, addACEs, removeACEs);
         return folder;
     }
@@ -717,12 +787,12 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public void move(StoredObject so, Folder oldParent, Folder newParent, String user) {
+        List<Lock> locks = lockFolders(getFolderId(oldParent), getFolderId(newParent));
         try {
             if (hasChild(newParent, so.getName())) {
                 throw new CmisInvalidArgumentException("Cannot move object " + so.getName() + " to folder "
                         + getFolderPath(newParent.getId()) + ". A child with this name already exists.");
             }
-            lock();
             if (so instanceof MultiFiling) {
                 MultiFiling fi = (MultiFiling) so;
                 addParentIntern(fi, newParent);
@@ -731,14 +801,20 @@ public class ObjectStoreImpl implements ObjectStore {
                 ((FolderImpl) so).setParentId(newParent.getId());
             }
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
     @Override
     public void rename(StoredObject so, String newName, String user) {
+        List<Lock> locks;
+        if (so instanceof Fileable) {
+            List<String> parentIds = ((Fileable) so).getParentIds();
+            locks = lockFolders(parentIds.toArray(new String[parentIds.size()]));
+        } else {
+            locks = Collections.emptyList();
+        }
         try {
-            lock();
             if (so.getId().equals(fRootFolder.getId())) {
                 throw new CmisInvalidArgumentException("Root folder cannot be renamed.");
             }
@@ -753,7 +829,7 @@ public class ObjectStoreImpl implements ObjectStore {
             }
             so.setName(newName);
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
@@ -867,7 +943,12 @@ public class ObjectStoreImpl implements ObjectStore {
             return 0;
         }
 
-        lock();
+        aclId = hasAcl(acl);
+        if (aclId >= 0) {
+            return aclId;
+        }
+
+        fAclLock.lock();
         try {
             aclId = hasAcl(acl);
             if (aclId < 0) {
@@ -876,7 +957,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 fAcls.add(acl);
             }
         } finally {
-            unlock();
+            fAclLock.unlock();
         }
         return aclId;
     }
@@ -967,8 +1048,8 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public void addParent(StoredObject so, Folder parent) {
+        List<Lock> locks = lockFolders(getFolderId(parent));
         try {
-            lock();
             if (hasChild(parent, so.getName())) {
                 throw new IllegalArgumentException(
                         "Cannot assign new parent folder, this name already exists in target folder.");
@@ -982,14 +1063,14 @@ public class ObjectStoreImpl implements ObjectStore {
 
             addParentIntern(mfi, parent);
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
     @Override
     public void removeParent(StoredObject so, Folder parent) {
+        List<Lock> locks = lockFolders(getFolderId(parent));
         try {
-            lock();
             MultiFiling mfi;
             if (so instanceof MultiFiling) {
                 mfi = (MultiFiling) so;
@@ -999,7 +1080,7 @@ public class ObjectStoreImpl implements ObjectStore {
 
             removeParentIntern(mfi, parent);
         } finally {
-            unlock();
+            unlockFolders(locks);
         }
     }
 
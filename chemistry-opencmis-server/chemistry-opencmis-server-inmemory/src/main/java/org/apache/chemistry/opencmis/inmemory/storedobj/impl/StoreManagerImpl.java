@@ -187,7 +187,7 @@ public class StoreManagerImpl implements StoreManager {
     public TypeDefinitionContainer getTypeById(String repositoryId, String typeId, boolean includePropertyDefinitions,
             int depthParam) {
         int depth = depthParam;
-        TypeManager typeManager = fMapRepositoryToTypeManager.get(repositoryId);
+        TypeManagerImpl typeManager = fMapRepositoryToTypeManager.get(repositoryId);
         if (null == typeManager) {
             throw new CmisInvalidArgumentException(UNKNOWN_REPOSITORY + repositoryId);
         }
@@ -205,7 +205,7 @@ public class StoreManagerImpl implements StoreManager {
                 throw new CmisInvalidArgumentException("illegal depth value: " + depth);
             }
 
-            return cloneTypeList(depth, includePropertyDefinitions, tc, null);
+            return typeManager.getTypeDescendants(typeId, depth, includePropertyDefinitions);
         } else {
             return null;
         }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNameConstraintViolationException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.junit.Test;
+
+/**
+ * Multi-threaded tests of the in-memory object store. Throughput is measured
+ * by {@code ObjectStoreBenchmark} in the benchmarks module.
+ */
+public class ConcurrencyTest {
+
+    private static final String TEST_REPOSITORY_ID = "TestRepositoryId";
+    private static final String USER = "user";
+    private static final int MAX_THREADS = 64;
+    private static final int CHILDREN_PER_THREAD = 20;
+
+    @Test
+    public void testConcurrentCreateAndRead() throws Exception {
+        final ObjectStoreImpl store = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        final Folder root = store.getRootFolder();
+        final Set<String> allIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        runConcurrently(MAX_THREADS, new Task() {
+            public void run(int thread) {
+                Folder folder = store.createFolder("Folder " + thread, null, USER, root, null, null, null);
+                assertTrue("Duplicate id: " + folder.getId(), allIds.add(folder.getId()));
+                for (int i = 0; i < CHILDREN_PER_THREAD; i++) {
+                    StoredObject child = store.createFolder("Child " + i, null, USER, folder, null, null, null);
+                    assertTrue("Duplicate id: " + child.getId(), allIds.add(child.getId()));
+                }
+            }
+        });
+
+        assertEquals(MAX_THREADS * (CHILDREN_PER_THREAD + 1), allIds.size());
+
+        final String[] readIds = allIds.toArray(new String[allIds.size()]);
+        runConcurrently(MAX_THREADS, new Task() {
+            public void run(int thread) {
+                for (int i = 0; i < readIds.length; i++) {
+                    String id = readIds[(thread + i) % readIds.length];
+                    StoredObject so = store.getObjectById(id);
+                    assertNotNull(so);
+                    assertEquals(id, so.getId());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testConcurrentCreateWithSameName() throws Exception {
+        final ObjectStoreImpl store = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        final Folder parent = store.getRootFolder();
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(MAX_THREADS, new Task() {
+            public void run(int thread) {
+                try {
+                    store.createFolder("Same Name", null, USER, parent, null, null, null);
+                    created.incrementAndGet();
+                } catch (CmisNameConstraintViolationException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(1, created.get());
+        assertEquals(MAX_THREADS - 1, rejected.get());
+    }
+
+    private interface Task {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(int threads, final Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch startSignal = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < threads; i++) {
+                final int thread = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        startSignal.await();
+                        task.run(thread);
+                        return null;
+                    }
+                }));
+            }
+            startSignal.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.definitions.MutableTypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.inmemory.types.DocumentTypeCreationHelper;
+import org.apache.chemistry.opencmis.server.support.TypeDefinitionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the indexes and caches of the in-memory type manager.
+ */
+public class TypeManagerTest {
+
+    private static final String DOC_TYPE = BaseTypeId.CMIS_DOCUMENT.value();
+
+    private TypeManagerImpl fTypeManager;
+    private TypeDefinitionFactory fTypeFactory;
+
+    @Before
+    public void setUp() {
+        fTypeManager = new TypeManagerImpl();
+        fTypeManager.initTypeSystem(null, true);
+        fTypeFactory = DocumentTypeCreationHelper.getTypeDefinitionFactory();
+    }
+
+    @Test
+    public void testQueryNameIndex() throws Exception {
+        TypeDefinition type = addType("MyType", DOC_TYPE);
+
+        assertSame(type, fTypeManager.getTypeByQueryName(type.getQueryName()));
+        assertNull(fTypeManager.getTypeByQueryName("unknown"));
+        assertNull(fTypeManager.getTypeByQueryName(null));
+
+        fTypeManager.deleteTypeDefinition(type.getId());
+        assertNull(fTypeManager.getTypeByQueryName(type.getQueryName()));
+    }
+
+    @Test
+    public void testSubTypeIds() throws Exception {
+        addType("Level1", DOC_TYPE);
+        addType("Level2", "Level1");
+
+        Set<String> subTypes = fTypeManager.getSubTypeIds(DOC_TYPE);
+        assertTrue(subTypes.contains(DOC_TYPE));
+        assertTrue(subTypes.contains("Level1"));
+        assertTrue(subTypes.contains("Level2"));
+        assertFalse(subTypes.contains(BaseTypeId.CMIS_FOLDER.value()));
+
+        assertTrue(fTypeManager.isSubTypeOf("Level2", "Level1"));
+        assertFalse(fTypeManager.isSubTypeOf("Level1", "Level2"));
+        assertTrue(fTypeManager.getSubTypeIds("unknown").isEmpty());
+
+        // cache must be invalidated when types are added and removed
+        addType("Level3", "Level2");
+        assertTrue(fTypeManager.isSubTypeOf("Level3", DOC_TYPE));
+        fTypeManager.deleteTypeDefinition("Level3");
+        assertFalse(fTypeManager.isSubTypeOf("Level3", DOC_TYPE));
+    }
+
+    @Test
+    public void testTypeDescendants() throws Exception {
+        addType("Level1", DOC_TYPE);
+
+        TypeDefinitionContainer tc = fTypeManager.getTypeDescendants(DOC_TYPE, -1, false);
+        assertNotNull(tc);
+        assertEquals(1, tc.getChildren().size());
+        assertSame(tc, fTypeManager.getTypeDescendants(DOC_TYPE, -1, false));
+
+        addType("Level2", "Level1");
+        TypeDefinitionContainer tc2 = fTypeManager.getTypeDescendants(DOC_TYPE, -1, false);
+        assertEquals(1, tc2.getChildren().get(0).getChildren().size());
+        assertEquals(0, fTypeManager.getTypeDescendants(DOC_TYPE, 1, false).getChildren().get(0).getChildren()
+                .size());
+        assertNull(fTypeManager.getTypeDescendants("unknown", -1, false));
+
+        // the cached tree is shared and must not be changed by callers
+        try {
+            tc2.getChildren().get(0).getChildren().clear();
+            fail("Children list must not be modifiable!");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(1, fTypeManager.getTypeDescendants(DOC_TYPE, -1, false).getChildren().get(0).getChildren()
+                .size());
+    }
+
+    @Test
+    public void testRootTypes() throws Exception {
+        int rootTypes = fTypeManager.getRootTypes().size();
+        addType("Level1", DOC_TYPE);
+        assertEquals(rootTypes, fTypeManager.getRootTypes().size());
+    }
+
+    @Test
+    public void testPropertyIdForQueryName() throws Exception {
+        TypeDefinition type = addType("MyType", DOC_TYPE);
+        assertEquals(PropertyIds.NAME, fTypeManager.getPropertyIdForQueryName(type, PropertyIds.NAME));
+        assertNull(fTypeManager.getPropertyIdForQueryName(type, "unknown"));
+    }
+
+    private TypeDefinition addType(String id, String parentId) throws Exception {
+        TypeDefinition parent = fTypeManager.getTypeById(parentId).getTypeDefinition();
+        MutableTypeDefinition type = fTypeFactory.createChildTypeDefinition(parent, id);
+        fTypeManager.addTypeDefinition(type, true);
+        return type;
+    }
+}
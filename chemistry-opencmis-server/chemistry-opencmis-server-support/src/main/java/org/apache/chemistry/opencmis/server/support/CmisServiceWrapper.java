@@ -21,7 +21,10 @@
 package org.apache.chemistry.opencmis.server.support;
 
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -52,6 +55,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentExcep
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfoBatchHandler;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,7 +63,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Service wrapper.
  */
-public class CmisServiceWrapper<T extends CmisService> implements CmisService {
+public class CmisServiceWrapper<T extends CmisService> implements CmisService, ObjectInfoBatchHandler {
 
     public static final BigInteger MINUS_ONE = BigInteger.valueOf(-1);
 
@@ -487,6 +491,29 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         return service.getObjectInfo(repositoryId, objectId);
     }
 
+    public Map<String, ObjectInfo> getObjectInfos(String repositoryId, Collection<ObjectData> objects, boolean filed) {
+        if (service instanceof ObjectInfoBatchHandler) {
+            return ((ObjectInfoBatchHandler) service).getObjectInfos(repositoryId, objects, filed);
+        }
+
+        // the wrapped service doesn't support batches -> one by one
+        Map<String, ObjectInfo> result = new HashMap<String, ObjectInfo>();
+        if (objects != null) {
+            for (ObjectData object : objects) {
+                if (object == null || object.getId() == null) {
+                    continue;
+                }
+
+                ObjectInfo info = service.getObjectInfo(repositoryId, object.getId());
+                if (info != null) {
+                    result.put(object.getId(), info);
+                }
+            }
+        }
+
+        return result;
+    }
+
     public void close() {
         service.close();
     }
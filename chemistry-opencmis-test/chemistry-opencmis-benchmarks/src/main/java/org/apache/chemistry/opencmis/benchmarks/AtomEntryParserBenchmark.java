@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.server.impl.atompub.AtomEntryParser;
+import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStreamFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AtomPub entries as sent by the client to create a document with
+ * {@link Fixtures#PROPERTY_COUNT} properties and base64 encoded content.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AtomEntryParserBenchmark {
+
+    private static final int MEMORY_THRESHOLD = 4 * 1024 * 1024;
+    private static final long MAX_CONTENT_SIZE = 4L * 1024 * 1024 * 1024;
+
+    @Param({ "0", "1048576" })
+    public int contentSize;
+
+    private ThresholdOutputStreamFactory streamFactory;
+    private byte[] entry;
+
+    @Setup
+    public void setUp() throws Exception {
+        streamFactory = ThresholdOutputStreamFactory.newInstance(new File(System.getProperty("java.io.tmpdir")),
+                MEMORY_THRESHOLD, MAX_CONTENT_SIZE, false);
+        entry = Fixtures.createAtomEntry(Fixtures.createObject(1),
+                contentSize > 0 ? Fixtures.createContent(contentSize) : null);
+    }
+
+    @Benchmark
+    public AtomEntryParser parse() throws Exception {
+        AtomEntryParser parser = new AtomEntryParser(new ByteArrayInputStream(entry), streamFactory);
+
+        ContentStream contentStream = parser.getContentStream();
+        if (contentStream != null) {
+            IOUtils.closeQuietly(contentStream);
+        }
+
+        return parser;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base64 encoding and decoding as used for AtomPub content, with the
+ * original {@link Base64} streams and with the block oriented
+ * {@link Base64Codec}.
+ * <p>
+ * {@link Base64Codec} uses <code>java.util.Base64</code> for full blocks if
+ * it is available. Run with
+ * <code>-jvmArgsAppend -Dorg.apache.chemistry.opencmis.base64.jdk=false</code>
+ * to measure the table based encoder alone.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Base64Benchmark {
+
+    public static final String LEGACY = "legacy";
+    public static final String BLOCK = "block";
+
+    @Param({ "1024", "1048576" })
+    public int size;
+
+    @Param({ LEGACY, BLOCK })
+    public String codec;
+
+    private byte[] raw;
+    private byte[] encoded;
+    private char[] encodedChars;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        raw = Fixtures.createContent(size);
+        encoded = Base64.encodeBytesToBytes(raw);
+        encodedChars = new char[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+            encodedChars[i] = (char) encoded[i];
+        }
+        buffer = new byte[64 * 1024];
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        if (LEGACY.equals(codec)) {
+            return Base64.encodeBytesToBytes(raw);
+        } else {
+            return Base64Codec.encode(raw);
+        }
+    }
+
+    @Benchmark
+    public byte[] decode() throws IOException {
+        if (LEGACY.equals(codec)) {
+            return Base64.decode(encoded, 0, encoded.length, Base64.NO_OPTIONS);
+        } else {
+            return Base64Codec.decode(encoded);
+        }
+    }
+
+    /**
+     * Encoding stream as used by the AtomPub client for uploads.
+     */
+    @Benchmark
+    public long encodeStream() throws IOException {
+        InputStream stream;
+        if (LEGACY.equals(codec)) {
+            stream = new Base64.InputStream(new ByteArrayInputStream(raw), Base64.ENCODE);
+        } else {
+            stream = new Base64Codec.EncoderInputStream(new ByteArrayInputStream(raw));
+        }
+
+        return consume(stream);
+    }
+
+    /**
+     * Decoding stream as used by the AtomPub client for Base64 encoded
+     * responses.
+     */
+    @Benchmark
+    public long decodeStream() throws IOException {
+        InputStream stream;
+        if (LEGACY.equals(codec)) {
+            stream = new Base64.InputStream(new ByteArrayInputStream(encoded));
+        } else {
+            stream = new Base64Codec.DecoderInputStream(new ByteArrayInputStream(encoded));
+        }
+
+        return consume(stream);
+    }
+
+    /**
+     * Decoding of XML characters as done by the AtomPub server for uploads.
+     */
+    @Benchmark
+    public int decodeChars() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+
+        if (LEGACY.equals(codec)) {
+            Base64.OutputStream stream = new Base64.OutputStream(out, Base64.DECODE);
+            for (int i = 0; i < encodedChars.length; i++) {
+                stream.write(encodedChars[i]);
+            }
+            stream.close();
+        } else {
+            Base64Codec.DecoderOutputStream stream = new Base64Codec.DecoderOutputStream(out);
+            stream.write(encodedChars, 0, encodedChars.length);
+            stream.close();
+        }
+
+        return out.size();
+    }
+
+    private long consume(InputStream stream) throws IOException {
+        long length = 0;
+        int n;
+        while ((n = stream.read(buffer)) > -1) {
+            length += n;
+        }
+        stream.close();
+
+        return length;
+    }
+}
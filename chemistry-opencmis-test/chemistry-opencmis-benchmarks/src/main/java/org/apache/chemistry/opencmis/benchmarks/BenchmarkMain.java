@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.ClientVersion;
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+
+/**
+ * Runs the benchmarks and writes the results in a JSON format that doesn't
+ * depend on the JMH version.
+ * <p>
+ * All JMH command line options are supported. The results file is set with
+ * the system property {@value #RESULTS_PROPERTY} and defaults to
+ * {@value #DEFAULT_RESULTS}.
+ *
+ * <pre>
+ * {
+ *   "format": 1,
+ *   "timestamp": "2014-01-01T00:00:00.000Z",
+ *   "opencmis": "1.0.0-SNAPSHOT",
+ *   "java": "1.7.0_51",
+ *   "vm": "Java HotSpot(TM) 64-Bit Server VM",
+ *   "os": "Linux amd64",
+ *   "results": [
+ *     {
+ *       "benchmark": "org.apache.chemistry.opencmis.benchmarks.Base64Benchmark.decode",
+ *       "params": { "size": "1024" },
+ *       "mode": "thrpt",
+ *       "threads": 1,
+ *       "score": 123456.7,
+ *       "error": 1234.5,
+ *       "unit": "ops/s",
+ *       "samples": 5
+ *     }
+ *   ]
+ * }
+ * </pre>
+ *
+ * The results are sorted by benchmark and parameters, so that two results
+ * files can be compared line by line.
+ */
+public final class BenchmarkMain {
+
+    public static final String RESULTS_PROPERTY = "org.apache.chemistry.opencmis.benchmarks.results";
+    public static final String DEFAULT_RESULTS = "benchmark-results.json";
+
+    /** Version of the results format. */
+    public static final int FORMAT_VERSION = 1;
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new CommandLineOptions(args);
+        Collection<RunResult> results = new Runner(options).run();
+
+        File file = new File(System.getProperty(RESULTS_PROPERTY, DEFAULT_RESULTS));
+        writeResults(results, file);
+
+        System.out.println("Results written to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Writes the results to a file.
+     */
+    public static void writeResults(Collection<RunResult> results, File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), IOUtils.UTF8);
+        try {
+            convertResults(results).writeJSONString(writer);
+            writer.write('\n');
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    /**
+     * Converts the results to JSON.
+     */
+    public static JSONObject convertResults(Collection<RunResult> results) {
+        List<JSONObject> entries = new ArrayList<JSONObject>();
+        for (RunResult result : results) {
+            entries.add(convertResult(result));
+        }
+
+        Collections.sort(entries, new Comparator<JSONObject>() {
+            public int compare(JSONObject o1, JSONObject o2) {
+                int c = o1.get("benchmark").toString().compareTo(o2.get("benchmark").toString());
+                if (c != 0) {
+                    return c;
+                }
+                return o1.get("params").toString().compareTo(o2.get("params").toString());
+            }
+        });
+
+        JSONArray array = new JSONArray();
+        array.addAll(entries);
+
+        JSONObject json = new JSONObject();
+        json.put("format", FORMAT_VERSION);
+        json.put("timestamp", DateTimeHelper.formatXmlDateTime(System.currentTimeMillis()));
+        json.put("opencmis", ClientVersion.OPENCMIS_VERSION);
+        json.put("java", System.getProperty("java.version"));
+        json.put("vm", System.getProperty("java.vm.name"));
+        json.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        json.put("results", array);
+
+        return json;
+    }
+
+    private static JSONObject convertResult(RunResult runResult) {
+        BenchmarkParams params = runResult.getParams();
+        Result<?> result = runResult.getPrimaryResult();
+
+        // parameters in alphabetical order
+        JSONObject paramsJson = new JSONObject();
+        for (String key : new TreeSet<String>(params.getParamsKeys())) {
+            paramsJson.put(key, params.getParam(key));
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("benchmark", params.getBenchmark());
+        json.put("params", paramsJson);
+        json.put("mode", params.getMode().shortLabel());
+        json.put("threads", params.getThreads());
+        json.put("score", toJSONNumber(result.getScore()));
+        json.put("error", toJSONNumber(result.getScoreError()));
+        json.put("unit", result.getScoreUnit());
+        json.put("samples", result.getStatistics().getN());
+
+        return json;
+    }
+
+    private static Double toJSONNumber(double value) {
+        // JSON has no NaN, there is no error with a single sample
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return Double.valueOf(value);
+    }
+}
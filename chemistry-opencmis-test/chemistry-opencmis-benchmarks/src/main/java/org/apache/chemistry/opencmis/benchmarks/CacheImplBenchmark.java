@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Client object cache lookups and updates from several threads, as they
+ * happen when a session is shared by an application.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CacheImplBenchmark {
+
+    private static final int OBJECTS = 10000;
+    private static final String CACHE_KEY = "cache-key";
+
+    private CacheImpl cache;
+    private CmisObject[] objects;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = (next + 7919) % OBJECTS;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_SIZE_OBJECTS, String.valueOf(OBJECTS));
+        parameters.put(SessionParameter.CACHE_SIZE_PATHTOID, String.valueOf(OBJECTS));
+
+        cache = new CacheImpl();
+        cache.initialize(null, parameters);
+
+        objects = new CmisObject[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            objects[i] = createObject("id-" + i, "/folder/" + i);
+            cache.putPath("/folder/" + i, objects[i], CACHE_KEY);
+        }
+    }
+
+    @Benchmark
+    public CmisObject getById(Cursor cursor) {
+        return cache.getById(objects[cursor.next()].getId(), CACHE_KEY);
+    }
+
+    @Benchmark
+    public CmisObject getByPath(Cursor cursor) {
+        return cache.getByPath("/folder/" + cursor.next(), CACHE_KEY);
+    }
+
+    @Benchmark
+    public void put(Cursor cursor) {
+        cache.put(objects[cursor.next()], CACHE_KEY);
+    }
+
+    private static CmisObject createObject(final String id, final String path) {
+        return (CmisObject) Proxy.newProxyInstance(CacheImplBenchmark.class.getClassLoader(),
+                new Class<?>[] { CmisObject.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if ("getId".equals(name)) {
+                            return id;
+                        } else if ("getPropertyValue".equals(name) && PropertyIds.PATH.equals(args[0])) {
+                            return path;
+                        } else if ("hashCode".equals(name)) {
+                            return Integer.valueOf(System.identityHashCode(proxy));
+                        } else if ("equals".equals(name)) {
+                            return Boolean.valueOf(proxy == args[0]);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and formatting of xsd:dateTime values and HTTP dates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateTimeHelperBenchmark {
+
+    private static final int ZONE_OFFSET = 2 * 60 * 60 * 1000;
+
+    private long millis;
+    private String xmlDateTime;
+    private String xmlDateTimeWithZone;
+    private String httpDateTime;
+    private int[] zoneOffset;
+
+    @Setup
+    public void setUp() {
+        millis = Fixtures.getBaseTime() + 123456789L;
+        xmlDateTime = DateTimeHelper.formatXmlDateTime(millis);
+        xmlDateTimeWithZone = DateTimeHelper.formatXmlDateTime(millis, ZONE_OFFSET);
+        httpDateTime = DateTimeHelper.formatHttpDateTime(millis);
+        zoneOffset = new int[1];
+    }
+
+    @Benchmark
+    public long parseXmlDateTimeToMillis() {
+        return DateTimeHelper.parseXmlDateTimeToMillis(xmlDateTimeWithZone, zoneOffset);
+    }
+
+    @Benchmark
+    public GregorianCalendar parseXmlDateTime() {
+        return DateTimeHelper.parseXmlDateTime(xmlDateTime);
+    }
+
+    @Benchmark
+    public String formatXmlDateTime() {
+        return DateTimeHelper.formatXmlDateTime(millis, ZONE_OFFSET);
+    }
+
+    @Benchmark
+    public long parseRfc1123DateTime() {
+        return DateTimeHelper.parseRfc1123DateTime(httpDateTime);
+    }
+
+    @Benchmark
+    public String formatHttpDateTime() {
+        return DateTimeHelper.formatHttpDateTime(millis);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.OperationContextImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Client operations against the InMemory server through all bindings.
+ * <p>
+ * Each trial starts the server in-process, creates a folder with
+ * {@link Fixtures#CHILDREN_COUNT} documents and a document with 1 MiB
+ * content. Client caching is turned off, so that every operation reaches the
+ * server.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+    private static final int CONTENT_SIZE = 1024 * 1024;
+
+    @Param({ InMemoryServer.BINDING_LOCAL, InMemoryServer.BINDING_ATOMPUB, InMemoryServer.BINDING_BROWSER,
+            InMemoryServer.BINDING_WEBSERVICES })
+    public String binding;
+
+    private InMemoryServer server;
+    private Session session;
+    private OperationContext context;
+    private Folder folder;
+    private Document document;
+    private byte[] smallContent;
+    private byte[] buffer;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = InMemoryServer.start();
+        boolean ready = false;
+        try {
+            session = server.createSession(binding);
+
+            context = new OperationContextImpl();
+            context.setCacheEnabled(false);
+            context.setIncludeAllowableActions(true);
+            context.setMaxItemsPerPage(Fixtures.CHILDREN_COUNT);
+
+            folder = createFolder(session.getRootFolder(), "benchmark-" + binding);
+            for (int i = 0; i < Fixtures.CHILDREN_COUNT; i++) {
+                createDocument(folder, "document-" + i + ".txt", null);
+            }
+
+            document = createDocument(session.getRootFolder(), "content-" + binding + ".bin",
+                    Fixtures.createContent(CONTENT_SIZE));
+            ready = true;
+        } finally {
+            if (!ready) {
+                server.stop();
+            }
+        }
+
+        smallContent = Fixtures.createContent(1024);
+        buffer = new byte[64 * 1024];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            if (folder != null) {
+                folder.deleteTree(true, null, true);
+            }
+            if (document != null) {
+                document.delete(true);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Benchmark
+    public CmisObject getObject() {
+        return session.getObject(document, context);
+    }
+
+    @Benchmark
+    public int getChildren() {
+        int count = 0;
+        ItemIterable<CmisObject> children = folder.getChildren(context);
+        for (CmisObject child : children.getPage(Fixtures.CHILDREN_COUNT)) {
+            if (child != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long getContentStream() throws IOException {
+        ContentStream contentStream = session.getContentStream(document);
+
+        long length = 0;
+        InputStream stream = contentStream.getStream();
+        try {
+            int n;
+            while ((n = stream.read(buffer)) > -1) {
+                length += n;
+            }
+        } finally {
+            stream.close();
+        }
+
+        return length;
+    }
+
+    @Benchmark
+    public void createAndDeleteDocument() {
+        Document doc = createDocument(folder, "new-" + (counter++) + ".txt", smallContent);
+        doc.delete(true);
+    }
+
+    private Folder createFolder(Folder parent, String name) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value());
+        properties.put(PropertyIds.NAME, name + "-" + System.currentTimeMillis());
+
+        return parent.createFolder(properties);
+    }
+
+    private Document createDocument(Folder parent, String name, byte[] content) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value());
+        properties.put(PropertyIds.NAME, name);
+
+        ContentStream contentStream = null;
+        if (content != null) {
+            contentStream = new ContentStreamImpl(name, BigInteger.valueOf(content.length),
+                    "application/octet-stream", new ByteArrayInputStream(content));
+        }
+
+        return parent.createDocument(properties, contentStream, VersioningState.NONE);
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AtomEntryWriter;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.Action;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.ContentStreamAllowed;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AllowableActionsImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyBooleanImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDecimalImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
+
+/**
+ * Test data for the benchmarks.
+ * <p>
+ * All fixtures are deterministic, so that results of different runs can be
+ * compared.
+ */
+public final class Fixtures {
+
+    /** Number of properties of a benchmark object. */
+    public static final int PROPERTY_COUNT = 50;
+
+    /** Number of entries of a children list. */
+    public static final int CHILDREN_COUNT = 1000;
+
+    /** Number of levels of the type hierarchy. */
+    public static final int TYPE_DEPTH = 20;
+
+    /** Number of types per level of the type hierarchy. */
+    public static final int TYPE_WIDTH = 5;
+
+    /** Number of property definitions each type adds to its parent. */
+    public static final int TYPE_PROPERTIES = 5;
+
+    /** Size of a multipart upload. */
+    public static final long UPLOAD_SIZE = 100L * 1024 * 1024;
+
+    /** Boundary of the multipart uploads. */
+    public static final String BOUNDARY = "---------------------------opencmis-benchmark";
+
+    private static final long DATE = 1388534400000L; // 2014-01-01T00:00:00Z
+
+    private Fixtures() {
+    }
+
+    /**
+     * Creates a document with {@link #PROPERTY_COUNT} properties and
+     * allowable actions.
+     */
+    public static ObjectData createObject(int index) {
+        PropertiesImpl properties = new PropertiesImpl();
+
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, "id-" + index));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "document-" + index + ".txt"));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.CREATED_BY, "benchmark"));
+        properties.addProperty(new PropertyDateTimeImpl(PropertyIds.CREATION_DATE, createDate(index)));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.LAST_MODIFIED_BY, "benchmark"));
+        properties.addProperty(new PropertyDateTimeImpl(PropertyIds.LAST_MODIFICATION_DATE, createDate(index + 1)));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.CHANGE_TOKEN, String.valueOf(index)));
+        properties.addProperty(new PropertyBooleanImpl(PropertyIds.IS_LATEST_VERSION, Boolean.TRUE));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.VERSION_LABEL, "1.0"));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.VERSION_SERIES_ID, "vs-" + index));
+        properties.addProperty(new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger
+                .valueOf(1024 + index)));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.CONTENT_STREAM_MIME_TYPE, "text/plain"));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.CONTENT_STREAM_FILE_NAME, "document-" + index
+                + ".txt"));
+
+        // fill up with custom properties of all common types
+        int i = 0;
+        while (properties.getPropertyList().size() < PROPERTY_COUNT) {
+            String id = "bench:property" + i;
+            switch (i % 6) {
+            case 0:
+                properties.addProperty(new PropertyStringImpl(id, "value " + index + " / " + i));
+                break;
+            case 1:
+                properties.addProperty(new PropertyIntegerImpl(id, BigInteger.valueOf((long) index * i)));
+                break;
+            case 2:
+                properties.addProperty(new PropertyDecimalImpl(id, BigDecimal.valueOf(index * 1000 + i, 2)));
+                break;
+            case 3:
+                properties.addProperty(new PropertyBooleanImpl(id, Boolean.valueOf(i % 4 == 3)));
+                break;
+            case 4:
+                properties.addProperty(new PropertyDateTimeImpl(id, createDate(index * i)));
+                break;
+            default:
+                properties.addProperty(new PropertyStringImpl(id, Arrays.asList("a" + i, "b" + i, "c" + i)));
+                break;
+            }
+            i++;
+        }
+
+        AllowableActionsImpl allowableActions = new AllowableActionsImpl();
+        allowableActions.setAllowableActions(EnumSet.of(Action.CAN_GET_PROPERTIES, Action.CAN_UPDATE_PROPERTIES,
+                Action.CAN_GET_CONTENT_STREAM, Action.CAN_SET_CONTENT_STREAM, Action.CAN_DELETE_OBJECT,
+                Action.CAN_MOVE_OBJECT, Action.CAN_GET_OBJECT_PARENTS, Action.CAN_CHECK_OUT));
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+        object.setAllowableActions(allowableActions);
+
+        return object;
+    }
+
+    /**
+     * Creates a children list with the given number of entries.
+     */
+    public static ObjectInFolderListImpl createChildren(int count) {
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>(count);
+        for (int i = 0; i < count; i++) {
+            ObjectInFolderDataImpl child = new ObjectInFolderDataImpl(createObject(i));
+            child.setPathSegment("document-" + i + ".txt");
+            objects.add(child);
+        }
+
+        ObjectInFolderListImpl result = new ObjectInFolderListImpl();
+        result.setObjects(objects);
+        result.setNumItems(BigInteger.valueOf(count));
+        result.setHasMoreItems(Boolean.FALSE);
+
+        return result;
+    }
+
+    /**
+     * Creates a type hierarchy below <code>cmis:document</code> with
+     * {@link #TYPE_DEPTH} levels and {@link #TYPE_WIDTH} types per level. Each
+     * type inherits the property definitions of its parent and adds
+     * {@link #TYPE_PROPERTIES} new ones.
+     */
+    public static List<TypeDefinitionContainer> createTypeHierarchy() {
+        return createTypeLevel(BaseTypeId.CMIS_DOCUMENT.value(), new ArrayList<PropertyStringDefinitionImpl>(), 0);
+    }
+
+    private static List<TypeDefinitionContainer> createTypeLevel(String parentId,
+            List<PropertyStringDefinitionImpl> inherited, int level) {
+        List<TypeDefinitionContainer> result = new ArrayList<TypeDefinitionContainer>();
+        if (level >= TYPE_DEPTH) {
+            return result;
+        }
+
+        for (int w = 0; w < TYPE_WIDTH; w++) {
+            String typeId = "bench:type-" + level + "-" + w;
+
+            DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+            type.setId(typeId);
+            type.setLocalName(typeId);
+            type.setLocalNamespace("http://chemistry.apache.org/opencmis/benchmark");
+            type.setQueryName(typeId);
+            type.setDisplayName("Benchmark Type " + level + "/" + w);
+            type.setDescription("Benchmark type on level " + level);
+            type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+            type.setParentTypeId(parentId);
+            type.setIsCreatable(Boolean.TRUE);
+            type.setIsFileable(Boolean.TRUE);
+            type.setIsQueryable(Boolean.TRUE);
+            type.setIsIncludedInSupertypeQuery(Boolean.TRUE);
+            type.setIsFulltextIndexed(Boolean.FALSE);
+            type.setIsControllableAcl(Boolean.TRUE);
+            type.setIsControllablePolicy(Boolean.FALSE);
+            type.setIsVersionable(Boolean.FALSE);
+            type.setContentStreamAllowed(ContentStreamAllowed.ALLOWED);
+
+            for (PropertyStringDefinitionImpl propDef : inherited) {
+                type.addPropertyDefinition(inherit(propDef));
+            }
+
+            List<PropertyStringDefinitionImpl> own = new ArrayList<PropertyStringDefinitionImpl>(inherited);
+            for (int p = 0; p < TYPE_PROPERTIES; p++) {
+                PropertyStringDefinitionImpl propDef = createPropertyDefinition(typeId + "-p" + p);
+                type.addPropertyDefinition(propDef);
+                own.add(propDef);
+            }
+
+            TypeDefinitionContainerImpl container = new TypeDefinitionContainerImpl(type);
+            // only the first type of each level has subtypes
+            if (w == 0) {
+                container.setChildren(createTypeLevel(typeId, own, level + 1));
+            }
+            result.add(container);
+        }
+
+        return result;
+    }
+
+    private static PropertyStringDefinitionImpl createPropertyDefinition(String id) {
+        PropertyStringDefinitionImpl result = new PropertyStringDefinitionImpl();
+        result.setId(id);
+        result.setLocalName(id);
+        result.setQueryName(id);
+        result.setDisplayName(id);
+        result.setDescription("Benchmark property " + id);
+        result.setPropertyType(PropertyType.STRING);
+        result.setCardinality(Cardinality.SINGLE);
+        result.setUpdatability(Updatability.READWRITE);
+        result.setIsInherited(Boolean.FALSE);
+        result.setIsQueryable(Boolean.TRUE);
+        result.setIsOrderable(Boolean.TRUE);
+        result.setIsRequired(Boolean.FALSE);
+        result.setIsOpenChoice(Boolean.TRUE);
+        result.setMaxLength(BigInteger.valueOf(255));
+
+        return result;
+    }
+
+    private static PropertyStringDefinitionImpl inherit(PropertyStringDefinitionImpl source) {
+        PropertyStringDefinitionImpl result = createPropertyDefinition(source.getId());
+        result.setIsInherited(Boolean.TRUE);
+        return result;
+    }
+
+    /**
+     * Creates deterministic binary content.
+     */
+    public static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        fill(content, 0, size, 0);
+        return content;
+    }
+
+    private static void fill(byte[] buffer, int offset, int len, long position) {
+        for (int i = 0; i < len; i++) {
+            buffer[offset + i] = (byte) ('a' + ((position + i) % 26));
+        }
+    }
+
+    /**
+     * Creates an AtomPub entry with all properties of the given object and
+     * base64 encoded content, as sent by the client to create a document.
+     */
+    public static byte[] createAtomEntry(ObjectData object, byte[] content) throws Exception {
+        ContentStreamImpl contentStream = null;
+        if (content != null) {
+            contentStream = new ContentStreamImpl("content.bin", BigInteger.valueOf(content.length),
+                    "application/octet-stream", new ByteArrayInputStream(content));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new AtomEntryWriter(object, CmisVersion.CMIS_1_1, contentStream).write(out);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the multipart header that precedes the content of a Browser
+     * binding <code>createDocument</code> request.
+     */
+    private static byte[] createMultipartHeader() {
+        StringBuilder sb = new StringBuilder();
+
+        appendField(sb, "cmisaction", "createDocument");
+        for (int i = 0; i < PROPERTY_COUNT; i++) {
+            appendField(sb, "propertyId[" + i + "]", "bench:property" + i);
+            appendField(sb, "propertyValue[" + i + "]", "value " + i);
+        }
+
+        sb.append("--").append(BOUNDARY).append("\r\n");
+        sb.append("Content-Disposition: form-data; name=\"content\"; filename=\"upload.bin\"\r\n");
+        sb.append("Content-Type: application/octet-stream\r\n");
+        sb.append("Content-Transfer-Encoding: binary\r\n");
+        sb.append("\r\n");
+
+        return IOUtils.toUTF8Bytes(sb.toString());
+    }
+
+    private static void appendField(StringBuilder sb, String name, String value) {
+        sb.append("--").append(BOUNDARY).append("\r\n");
+        sb.append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n");
+        sb.append("\r\n");
+        sb.append(value).append("\r\n");
+    }
+
+    /**
+     * Creates a multipart request body with the given content size. The body
+     * is generated while it is read and is never held in memory.
+     */
+    public static InputStream createMultipartStream(long contentSize) {
+        final byte[] header = createMultipartHeader();
+        final byte[] trailer = IOUtils.toUTF8Bytes("\r\n--" + BOUNDARY + "--\r\n");
+        final long total = header.length + contentSize + trailer.length;
+        final long contentEnd = header.length + contentSize;
+
+        return new InputStream() {
+            private long position = 0;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= total) {
+                    return -1;
+                }
+
+                int n = (int) Math.min(len, total - position);
+                int done = 0;
+                while (done < n) {
+                    long p = position + done;
+                    int chunk;
+                    if (p < header.length) {
+                        chunk = (int) Math.min(n - done, header.length - p);
+                        System.arraycopy(header, (int) p, b, off + done, chunk);
+                    } else if (p < contentEnd) {
+                        chunk = (int) Math.min(n - done, contentEnd - p);
+                        fill(b, off + done, chunk, p - header.length);
+                    } else {
+                        chunk = n - done;
+                        System.arraycopy(trailer, (int) (p - contentEnd), b, off + done, chunk);
+                    }
+                    done += chunk;
+                }
+
+                position += n;
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Creates a servlet request that delivers a multipart body with the given
+     * content size.
+     */
+    public static HttpServletRequest createMultipartRequest(long contentSize) {
+        final InputStream body = createMultipartStream(contentSize);
+        final ServletInputStream stream = new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return body.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return body.read(b, off, len);
+            }
+        };
+
+        return (HttpServletRequest) Proxy.newProxyInstance(Fixtures.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if ("getContentType".equals(name)) {
+                            return "multipart/form-data; boundary=" + BOUNDARY;
+                        } else if ("getInputStream".equals(name)) {
+                            return stream;
+                        } else if ("getContentLength".equals(name)) {
+                            return Integer.valueOf(-1);
+                        } else if ("getMethod".equals(name)) {
+                            return "POST";
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Creates a date relative to a fixed point in time.
+     */
+    public static GregorianCalendar createDate(long offsetSeconds) {
+        GregorianCalendar result = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        result.setTimeInMillis(DATE + offsetSeconds * 1000);
+        return result;
+    }
+
+    /**
+     * Returns the fixed point in time of the fixtures in milliseconds.
+     */
+    public static long getBaseTime() {
+        return DATE;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.bindings.spi.webservices.CmisWebServicesSpi;
+import org.apache.chemistry.opencmis.client.runtime.SessionFactoryImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceFactoryImpl;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.jetty.webapp.WebAppContext;
+
+/**
+ * Runs the InMemory server WAR in an embedded Jetty and creates sessions for
+ * all bindings.
+ * <p>
+ * The location of the WAR is taken from the system property
+ * {@value #WAR_PROPERTY} and defaults to {@value #DEFAULT_WAR}, where the
+ * build copies it to. The local binding runs its own InMemory repository in
+ * the benchmark class loader with the configuration of the WAR.
+ */
+public class InMemoryServer {
+
+    public static final String WAR_PROPERTY = "org.apache.chemistry.opencmis.benchmarks.war";
+    public static final String DEFAULT_WAR = "target/inmemory.war";
+
+    public static final String BINDING_LOCAL = "local";
+    public static final String BINDING_ATOMPUB = "atompub";
+    public static final String BINDING_BROWSER = "browser";
+    public static final String BINDING_WEBSERVICES = "webservices";
+
+    private static final String CONTEXT_PATH = "/inmemory";
+    private static final String REPOSITORY_PROPERTIES = "WEB-INF/classes/repository.properties";
+    private static final String USER = "benchmark";
+    private static final String PASSWORD = "benchmark";
+
+    private static final String[] WS_SERVICES = { SessionParameter.WEBSERVICES_REPOSITORY_SERVICE,
+            "RepositoryService", SessionParameter.WEBSERVICES_NAVIGATION_SERVICE, "NavigationService",
+            SessionParameter.WEBSERVICES_OBJECT_SERVICE, "ObjectService",
+            SessionParameter.WEBSERVICES_VERSIONING_SERVICE, "VersioningService",
+            SessionParameter.WEBSERVICES_DISCOVERY_SERVICE, "DiscoveryService",
+            SessionParameter.WEBSERVICES_RELATIONSHIP_SERVICE, "RelationshipService",
+            SessionParameter.WEBSERVICES_MULTIFILING_SERVICE, "MultiFilingService",
+            SessionParameter.WEBSERVICES_POLICY_SERVICE, "PolicyService", SessionParameter.WEBSERVICES_ACL_SERVICE,
+            "ACLService" };
+
+    private final Server server;
+    private final String baseUrl;
+    private final Map<String, String> repositoryConfig;
+
+    private InMemoryServer(Server server, String baseUrl, Map<String, String> repositoryConfig) {
+        this.server = server;
+        this.baseUrl = baseUrl;
+        this.repositoryConfig = repositoryConfig;
+    }
+
+    /**
+     * Starts the server on a free local port.
+     */
+    public static InMemoryServer start() throws Exception {
+        File war = new File(System.getProperty(WAR_PROPERTY, DEFAULT_WAR));
+        if (!war.isFile()) {
+            throw new IllegalStateException("InMemory server WAR not found: " + war.getAbsolutePath() + " (set -D"
+                    + WAR_PROPERTY + ")");
+        }
+
+        Server server = new Server();
+
+        SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setHost("127.0.0.1");
+        connector.setPort(0);
+        server.addConnector(connector);
+
+        WebAppContext webapp = new WebAppContext();
+        webapp.setContextPath(CONTEXT_PATH);
+        webapp.setWar(war.getAbsolutePath());
+        server.setHandler(webapp);
+
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + connector.getLocalPort() + CONTEXT_PATH;
+
+        return new InMemoryServer(server, baseUrl, readRepositoryConfig(war));
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() throws Exception {
+        server.stop();
+    }
+
+    /**
+     * Returns the repository id.
+     */
+    public String getRepositoryId() {
+        return repositoryConfig.get("InMemoryServer.RepositoryId");
+    }
+
+    /**
+     * Returns the session parameters for the given binding.
+     */
+    public Map<String, String> getSessionParameters(String binding) {
+        Map<String, String> parameters = new HashMap<String, String>();
+
+        if (BINDING_LOCAL.equals(binding)) {
+            parameters.putAll(repositoryConfig);
+            parameters.put(SessionParameter.BINDING_TYPE, BindingType.LOCAL.value());
+            parameters.put(SessionParameter.LOCAL_FACTORY, InMemoryServiceFactoryImpl.class.getName());
+        } else if (BINDING_ATOMPUB.equals(binding)) {
+            parameters.put(SessionParameter.BINDING_TYPE, BindingType.ATOMPUB.value());
+            parameters.put(SessionParameter.ATOMPUB_URL, baseUrl + "/atom11");
+        } else if (BINDING_BROWSER.equals(binding)) {
+            parameters.put(SessionParameter.BINDING_TYPE, BindingType.BROWSER.value());
+            parameters.put(SessionParameter.BROWSER_URL, baseUrl + "/browser");
+        } else if (BINDING_WEBSERVICES.equals(binding)) {
+            parameters.put(SessionParameter.BINDING_TYPE, BindingType.WEBSERVICES.value());
+            // the JAX-WS RI is only inside the WAR
+            parameters.put(SessionParameter.WEBSERVICES_JAXWS_IMPL, CmisWebServicesSpi.JAXWS_IMPL_JRE);
+            for (int i = 0; i < WS_SERVICES.length; i += 2) {
+                parameters.put(WS_SERVICES[i], baseUrl + "/services11/" + WS_SERVICES[i + 1] + "?wsdl");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown binding: " + binding);
+        }
+
+        parameters.put(SessionParameter.USER, USER);
+        parameters.put(SessionParameter.PASSWORD, PASSWORD);
+        parameters.put(SessionParameter.REPOSITORY_ID, getRepositoryId());
+
+        return parameters;
+    }
+
+    /**
+     * Creates a session for the given binding.
+     */
+    public Session createSession(String binding) {
+        return SessionFactoryImpl.newInstance().createSession(getSessionParameters(binding));
+    }
+
+    private static Map<String, String> readRepositoryConfig(File war) throws IOException {
+        Properties properties = new Properties();
+
+        ZipFile zip = new ZipFile(war);
+        try {
+            ZipEntry entry = zip.getEntry(REPOSITORY_PROPERTIES);
+            if (entry == null) {
+                throw new IllegalStateException("WAR does not contain " + REPOSITORY_PROPERTIES);
+            }
+
+            InputStream stream = zip.getInputStream(entry);
+            try {
+                properties.load(stream);
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+        } finally {
+            zip.close();
+        }
+
+        Map<String, String> result = new HashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            result.put(key, properties.getProperty(key).trim());
+        }
+
+        return result;
+    }
+}
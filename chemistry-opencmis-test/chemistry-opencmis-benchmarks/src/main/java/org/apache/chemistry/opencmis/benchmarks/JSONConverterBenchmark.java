@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter.PropertyMode;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONWriter;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Browser binding serialization: objects, children lists and type
+ * hierarchies to and from JSON.
+ * <p>
+ * The <code>*Bytes</code> benchmarks parse and write UTF-8 bytes without the
+ * converter, like the bindings do on the wire.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JSONConverterBenchmark {
+
+    private ObjectData object;
+    private String objectJson;
+    private ObjectInFolderList children;
+    private String childrenJson;
+    private JSONObject childrenTree;
+    private byte[] childrenBytes;
+    private ByteArrayOutputStream out;
+    private List<TypeDefinitionContainer> types;
+    private String typesJson;
+
+    @Setup
+    public void setUp() {
+        object = Fixtures.createObject(1);
+        objectJson = JSONConverter.convert(object, null, PropertyMode.OBJECT, false).toJSONString();
+
+        children = Fixtures.createChildren(Fixtures.CHILDREN_COUNT);
+        childrenTree = JSONConverter.convert(children, null, false);
+        childrenJson = childrenTree.toJSONString();
+        childrenBytes = IOUtils.toUTF8Bytes(childrenJson);
+        out = new ByteArrayOutputStream(childrenBytes.length * 2);
+
+        types = Fixtures.createTypeHierarchy();
+        typesJson = convertTypes(types).toJSONString();
+    }
+
+    @Benchmark
+    public String writeObject() {
+        return JSONConverter.convert(object, null, PropertyMode.OBJECT, false).toJSONString();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public ObjectData readObject() throws Exception {
+        return JSONConverter.convertObject((Map<String, Object>) new JSONParser().parse(objectJson), null);
+    }
+
+    @Benchmark
+    public String writeChildren() {
+        return JSONConverter.convert(children, null, false).toJSONString();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public ObjectInFolderList readChildren() throws Exception {
+        return JSONConverter.convertObjectInFolderList((Map<String, Object>) new JSONParser().parse(childrenJson),
+                null);
+    }
+
+    @Benchmark
+    public Object parseChildrenBytes() throws Exception {
+        return new JSONParser().parse(new ByteArrayInputStream(childrenBytes));
+    }
+
+    @Benchmark
+    public int writeChildrenBytes() throws Exception {
+        out.reset();
+        JSONWriter writer = new JSONWriter(out);
+        childrenTree.writeJSONString(writer);
+        writer.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public String writeTypeDescendants() {
+        return convertTypes(types).toJSONString();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<TypeDefinitionContainer> readTypeDescendants() throws Exception {
+        return JSONConverter.convertTypeDescendants((List<Object>) new JSONParser().parse(typesJson));
+    }
+
+    private static JSONArray convertTypes(List<TypeDefinitionContainer> types) {
+        JSONArray result = new JSONArray();
+        for (TypeDefinitionContainer container : types) {
+            result.add(JSONConverter.convert(container));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.server.impl.browser.MultipartParser;
+import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStreamFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Browser binding <code>createDocument</code> uploads with
+ * {@link Fixtures#PROPERTY_COUNT} properties. The content is read completely
+ * after parsing, as the server would do when it stores it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultipartParserBenchmark {
+
+    // the server defaults
+    private static final int MEMORY_THRESHOLD = 4 * 1024 * 1024;
+    private static final long MAX_CONTENT_SIZE = 4L * 1024 * 1024 * 1024;
+
+    @Param({ "1048576", "104857600" })
+    public long uploadSize;
+
+    private ThresholdOutputStreamFactory streamFactory;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        streamFactory = ThresholdOutputStreamFactory.newInstance(new File(System.getProperty("java.io.tmpdir")),
+                MEMORY_THRESHOLD, MAX_CONTENT_SIZE, false);
+        buffer = new byte[64 * 1024];
+    }
+
+    @Benchmark
+    public long parse() throws IOException {
+        MultipartParser parser = new MultipartParser(Fixtures.createMultipartRequest(uploadSize), streamFactory);
+        parser.parse();
+
+        long length = 0;
+        InputStream stream = parser.getStream();
+        try {
+            int n;
+            while ((n = stream.read(buffer)) > -1) {
+                length += n;
+            }
+        } finally {
+            stream.close();
+        }
+
+        return length;
+    }
+}
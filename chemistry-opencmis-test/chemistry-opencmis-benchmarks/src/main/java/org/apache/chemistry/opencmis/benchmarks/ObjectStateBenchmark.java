@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.runtime.DocumentImpl;
+import org.apache.chemistry.opencmis.client.runtime.SessionImpl;
+import org.apache.chemistry.opencmis.client.runtime.objecttype.DocumentTypeImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation of client objects and property lookups on them. Run with
+ * {@code -prof gc} to see the allocated bytes per object.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectStateBenchmark {
+
+    private static final String[] ID_PROPERTIES = { PropertyIds.OBJECT_ID, PropertyIds.OBJECT_TYPE_ID,
+            PropertyIds.BASE_TYPE_ID, PropertyIds.VERSION_SERIES_ID };
+    private static final String[] STRING_PROPERTIES = { PropertyIds.NAME, PropertyIds.DESCRIPTION,
+            PropertyIds.CREATED_BY, PropertyIds.LAST_MODIFIED_BY, PropertyIds.CHANGE_TOKEN, "test:a", "test:b",
+            "test:c", "test:d", "test:e", "test:f", "test:g", "test:h", "test:i", "test:j", "test:k" };
+
+    private static final int OBJECTS = 10000;
+
+    private SessionImpl session;
+    private ObjectType type;
+    private ObjectData objectData;
+    private DocumentImpl[] docs;
+    private String[] propertyIds;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & 0x7fffffff;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        session = new SessionImpl(new HashMap<String, String>(), null, null, null);
+
+        DocumentTypeDefinitionImpl typeDef = new DocumentTypeDefinitionImpl();
+        typeDef.setId("test:document");
+        typeDef.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+        for (String id : ID_PROPERTIES) {
+            PropertyIdDefinitionImpl propDef = new PropertyIdDefinitionImpl();
+            propDef.setPropertyType(PropertyType.ID);
+            typeDef.addPropertyDefinition(initDefinition(propDef, id));
+        }
+        for (String id : STRING_PROPERTIES) {
+            PropertyStringDefinitionImpl propDef = new PropertyStringDefinitionImpl();
+            propDef.setPropertyType(PropertyType.STRING);
+            typeDef.addPropertyDefinition(initDefinition(propDef, id));
+        }
+        type = new DocumentTypeImpl(session, typeDef);
+
+        objectData = createObjectData("0");
+        docs = new DocumentImpl[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            docs[i] = new DocumentImpl(session, type, createObjectData(String.valueOf(i)),
+                    session.getDefaultContext());
+        }
+
+        propertyIds = new String[ID_PROPERTIES.length + STRING_PROPERTIES.length];
+        System.arraycopy(ID_PROPERTIES, 0, propertyIds, 0, ID_PROPERTIES.length);
+        System.arraycopy(STRING_PROPERTIES, 0, propertyIds, ID_PROPERTIES.length, STRING_PROPERTIES.length);
+    }
+
+    @Benchmark
+    public DocumentImpl createDocument() {
+        return new DocumentImpl(session, type, objectData, session.getDefaultContext());
+    }
+
+    @Benchmark
+    public Object getPropertyValue(Cursor cursor) {
+        int i = cursor.next();
+        return docs[i % OBJECTS].getPropertyValue(propertyIds[i % propertyIds.length]);
+    }
+
+    private static ObjectData createObjectData(String id) {
+        PropertiesImpl properties = new PropertiesImpl();
+        for (int i = STRING_PROPERTIES.length - 1; i >= 0; i--) {
+            String propId = STRING_PROPERTIES[i];
+            properties.addProperty(new PropertyStringImpl(propId, PropertyIds.NAME.equals(propId) ? "Document " + id
+                    : "value-" + propId));
+        }
+        properties.addProperty(new PropertyIdImpl(PropertyIds.VERSION_SERIES_ID, "vs" + id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, "test:document"));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+
+        ObjectDataImpl result = new ObjectDataImpl();
+        result.setProperties(properties);
+        return result;
+    }
+
+    private static AbstractPropertyDefinition<?> initDefinition(AbstractPropertyDefinition<?> propDef, String id) {
+        propDef.setId(id);
+        propDef.setLocalName(id);
+        propDef.setQueryName(id);
+        propDef.setCardinality(Cardinality.SINGLE);
+        propDef.setUpdatability(Updatability.READWRITE);
+        return propDef;
+    }
+}
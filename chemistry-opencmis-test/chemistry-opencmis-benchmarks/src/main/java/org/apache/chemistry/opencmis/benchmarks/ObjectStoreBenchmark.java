@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Folder creation and object lookups in the in-memory object store from
+ * several threads. Run with {@code -t} to change the number of threads.
+ * <p>
+ * The name check of a create scans the whole store, so
+ * {@link #createAndDelete(Writer)} deletes what it creates to measure at a
+ * fixed store size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ObjectStoreBenchmark {
+
+    private static final String REPOSITORY_ID = "benchmark";
+    private static final String USER = "user";
+
+    @Param({ "1000", "10000" })
+    public int size;
+
+    private ObjectStoreImpl store;
+    private String[] ids;
+    private final AtomicInteger writers = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private Folder folder;
+        private int next;
+
+        @Setup
+        public void setUp(ObjectStoreBenchmark benchmark) {
+            folder = benchmark.store.createFolder("Writer " + benchmark.writers.incrementAndGet(), null, USER,
+                    benchmark.store.getRootFolder(), null, null, null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            next = (next + 7919) % size;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        store = new ObjectStoreImpl(REPOSITORY_ID);
+
+        Folder parent = store.createFolder("Read", null, USER, store.getRootFolder(), null, null, null);
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = store.createFolder("Folder " + i, null, USER, parent, null, null, null).getId();
+        }
+    }
+
+    @Benchmark
+    public void createAndDelete(Writer writer) {
+        Folder folder = store.createFolder("Child " + writer.next++, null, USER, writer.folder, null, null, null);
+        store.deleteObject(folder.getId(), Boolean.FALSE, USER);
+    }
+
+    @Benchmark
+    public StoredObject getObjectById(Cursor cursor) {
+        return store.getObjectById(ids[cursor.next(size)]);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Buffering of request content in memory and in (encrypted) temporary files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThresholdOutputStreamBenchmark {
+
+    private static final int MEMORY_THRESHOLD = 4 * 1024 * 1024;
+    private static final long MAX_CONTENT_SIZE = 4L * 1024 * 1024 * 1024;
+
+    /** Below and above the memory threshold. */
+    @Param({ "65536", "104857600" })
+    public long size;
+
+    @Param({ "false", "true" })
+    public boolean encrypt;
+
+    private File tempDir;
+    private byte[] chunk;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        tempDir = new File(System.getProperty("java.io.tmpdir"));
+        chunk = Fixtures.createContent(64 * 1024);
+        buffer = new byte[64 * 1024];
+    }
+
+    @Benchmark
+    public long writeAndRead() throws IOException {
+        ThresholdOutputStream out = new ThresholdOutputStream(tempDir, MEMORY_THRESHOLD, MAX_CONTENT_SIZE, encrypt);
+        try {
+            long remaining = size;
+            while (remaining > 0) {
+                int n = (int) Math.min(chunk.length, remaining);
+                out.write(chunk, 0, n);
+                remaining -= n;
+            }
+            out.close();
+        } catch (IOException e) {
+            out.destroy();
+            throw e;
+        }
+
+        long length = 0;
+        InputStream in = out.getInputStream();
+        try {
+            int n;
+            while ((n = in.read(buffer)) > -1) {
+                length += n;
+            }
+        } finally {
+            in.close();
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.WSConverter;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectInFolderListType;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.CmisObjectType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Web Services binding conversion between the OpenCMIS data objects and the
+ * JAXB objects.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WSConverterBenchmark {
+
+    private ObjectData object;
+    private CmisObjectType wsObject;
+    private ObjectInFolderList children;
+    private CmisObjectInFolderListType wsChildren;
+
+    @Setup
+    public void setUp() {
+        object = Fixtures.createObject(1);
+        wsObject = WSConverter.convert(object, CmisVersion.CMIS_1_1);
+
+        children = Fixtures.createChildren(Fixtures.CHILDREN_COUNT);
+        wsChildren = WSConverter.convert(children, CmisVersion.CMIS_1_1);
+    }
+
+    @Benchmark
+    public CmisObjectType convertToJaxbObject() {
+        return WSConverter.convert(object, CmisVersion.CMIS_1_1);
+    }
+
+    @Benchmark
+    public ObjectData convertFromJaxbObject() {
+        return WSConverter.convert(wsObject);
+    }
+
+    @Benchmark
+    public CmisObjectInFolderListType convertToJaxbChildren() {
+        return WSConverter.convert(children, CmisVersion.CMIS_1_1);
+    }
+
+    @Benchmark
+    public ObjectInFolderList convertFromJaxbChildren() {
+        return WSConverter.convert(wsChildren);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.WSConverter;
+import org.apache.chemistry.opencmis.commons.impl.WSPayloadConverter;
+import org.apache.chemistry.opencmis.commons.impl.XMLUtils;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.GetChildrenResponse;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.GetObjectResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Web Services payloads of <code>getObject</code> and
+ * <code>getChildren</code> with {@link Fixtures#CHILDREN_COUNT} children,
+ * marshalled through the JAXB binding and directly with StAX.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebServicesMarshallingBenchmark {
+
+    public static final String JAXB = "jaxb";
+    public static final String STAX = "stax";
+
+    @Param({ JAXB, STAX })
+    public String marshalling;
+
+    private JAXBContext jaxbContext;
+    private ObjectData object;
+    private ObjectInFolderList children;
+    private byte[] childrenPayload;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws Exception {
+        jaxbContext = JAXBContext.newInstance(GetObjectResponse.class, GetChildrenResponse.class);
+        object = Fixtures.createObject(1);
+        children = Fixtures.createChildren(Fixtures.CHILDREN_COUNT);
+        out = new ByteArrayOutputStream(1024 * 1024);
+
+        writeChildren();
+        childrenPayload = out.toByteArray();
+    }
+
+    @Benchmark
+    public int writeObject() throws Exception {
+        out.reset();
+
+        if (JAXB.equals(marshalling)) {
+            GetObjectResponse response = new GetObjectResponse();
+            response.setObject(WSConverter.convert(object, CmisVersion.CMIS_1_1));
+            jaxbContext.createMarshaller().marshal(response, out);
+        } else {
+            XMLStreamWriter writer = XMLUtils.createWriter(out);
+            writer.writeStartDocument();
+            WSPayloadConverter.writeObjectResponse(writer, CmisVersion.CMIS_1_1,
+                    WSPayloadConverter.OPERATION_GET_OBJECT, object);
+            XMLUtils.endXmlDocument(writer);
+        }
+
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeChildren() throws Exception {
+        out.reset();
+
+        if (JAXB.equals(marshalling)) {
+            GetChildrenResponse response = new GetChildrenResponse();
+            response.setObjects(WSConverter.convert(children, CmisVersion.CMIS_1_1));
+            jaxbContext.createMarshaller().marshal(response, out);
+        } else {
+            XMLStreamWriter writer = XMLUtils.createWriter(out);
+            writer.writeStartDocument();
+            WSPayloadConverter.writeChildrenResponse(writer, CmisVersion.CMIS_1_1, children);
+            XMLUtils.endXmlDocument(writer);
+        }
+
+        return out.size();
+    }
+
+    @Benchmark
+    public ObjectInFolderList readChildren() throws Exception {
+        if (JAXB.equals(marshalling)) {
+            GetChildrenResponse response = (GetChildrenResponse) jaxbContext.createUnmarshaller().unmarshal(
+                    new ByteArrayInputStream(childrenPayload));
+            return WSConverter.convert(response.getObjects());
+        } else {
+            XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(childrenPayload));
+            try {
+                XMLUtils.findNextStartElemenet(parser);
+                return WSPayloadConverter.convertChildrenResponse(parser);
+            } finally {
+                parser.close();
+            }
+        }
+    }
+}
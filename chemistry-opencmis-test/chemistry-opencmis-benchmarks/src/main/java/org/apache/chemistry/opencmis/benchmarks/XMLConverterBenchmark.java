@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.XMLConstants;
+import org.apache.chemistry.opencmis.commons.impl.XMLConverter;
+import org.apache.chemistry.opencmis.commons.impl.XMLUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AtomPub and Web Services XML serialization of objects and type
+ * definitions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XMLConverterBenchmark {
+
+    private ObjectData object;
+    private byte[] objectXml;
+    private TypeDefinition type;
+    private byte[] typeXml;
+
+    @Setup
+    public void setUp() throws Exception {
+        object = Fixtures.createObject(1);
+        objectXml = writeObject();
+
+        // the deepest type has the most property definitions
+        List<TypeDefinitionContainer> level = Fixtures.createTypeHierarchy();
+        while (!level.isEmpty()) {
+            type = level.get(0).getTypeDefinition();
+            level = level.get(0).getChildren();
+        }
+        typeXml = writeTypeDefinition();
+    }
+
+    @Benchmark
+    public byte[] writeObject() throws XMLStreamException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+
+        XMLStreamWriter writer = XMLUtils.createWriter(out);
+        XMLUtils.startXmlDocument(writer);
+        XMLConverter.writeObject(writer, CmisVersion.CMIS_1_1, true, XMLConstants.TAG_OBJECT,
+                XMLConstants.NAMESPACE_CMIS, object);
+        XMLUtils.endXmlDocument(writer);
+        writer.close();
+
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public ObjectData readObject() throws XMLStreamException {
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(objectXml));
+        try {
+            XMLUtils.findNextStartElemenet(parser);
+            return XMLConverter.convertObject(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] writeTypeDefinition() throws XMLStreamException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+
+        XMLStreamWriter writer = XMLUtils.createWriter(out);
+        XMLUtils.startXmlDocument(writer);
+        XMLConverter.writeTypeDefinition(writer, CmisVersion.CMIS_1_1, XMLConstants.NAMESPACE_CMIS, type);
+        XMLUtils.endXmlDocument(writer);
+        writer.close();
+
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public TypeDefinition readTypeDefinition() throws XMLStreamException {
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(typeXml));
+        try {
+            XMLUtils.findNextStartElemenet(parser);
+            return XMLConverter.convertTypeDefinition(parser);
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -52,13 +52,15 @@ import javax.swing.table.TableColumn;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.workbench.model.ClientModel;
 import org.apache.chemistry.opencmis.workbench.model.ClientModelEvent;
+import org.apache.chemistry.opencmis.workbench.model.FolderChildren;
 import org.apache.chemistry.opencmis.workbench.model.FolderListener;
 import org.apache.chemistry.opencmis.workbench.swing.GregorianCalendarRenderer;
 
-public class FolderTable extends JTable implements FolderListener {
+public class FolderTable extends JTable implements FolderListener, FolderChildren.PageListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -66,6 +68,11 @@ public class FolderTable extends JTable implements FolderListener {
             "Created by", "Modification Date", "Modified by", "Id" };
     private static final int[] COLUMN_WIDTHS = { 24, 200, 150, 150, 80, 180, 100, 180, 100, 300 };
     public static final int ID_COLUMN = 9;
+    private static final String[] ORDER_BY_PROPERTIES = { PropertyIds.BASE_TYPE_ID, PropertyIds.NAME,
+            PropertyIds.OBJECT_TYPE_ID, PropertyIds.CONTENT_STREAM_MIME_TYPE, PropertyIds.CONTENT_STREAM_LENGTH,
+            PropertyIds.CREATION_DATE, PropertyIds.CREATED_BY, PropertyIds.LAST_MODIFICATION_DATE,
+            PropertyIds.LAST_MODIFIED_BY, PropertyIds.OBJECT_ID };
+    private static final String LOADING = "Loading...";
 
     private final ClientModel model;
 
@@ -82,7 +89,6 @@ public class FolderTable extends JTable implements FolderListener {
 
         setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         setAutoResizeMode(AUTO_RESIZE_OFF);
-        setAutoCreateRowSorter(true);
 
         setDefaultRenderer(GregorianCalendar.class, new GregorianCalendarRenderer());
         setTransferHandler(new FolderTransferHandler());
@@ -112,11 +118,15 @@ public class FolderTable extends JTable implements FolderListener {
 
                 int row = getSelectedRow();
                 if (row > -1) {
-                    String id = getModel().getValueAt(getRowSorter().convertRowIndexToModel(row), ID_COLUMN).toString();
+                    Object id = getModel().getValueAt(convertRowIndexToModel(row), ID_COLUMN);
+                    if (id == null) {
+                        // child is still loading
+                        return;
+                    }
 
                     try {
                         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-                        model.loadObject(id);
+                        model.loadObject(id.toString());
                     } catch (Exception ex) {
                         ClientHelper.showError(null, ex);
                         return;
@@ -149,6 +159,32 @@ public class FolderTable extends JTable implements FolderListener {
             }
         });
 
+        // sorting happens in the repository, only the visible pages are
+        // loaded
+        getTableHeader().addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int column = getTableHeader().columnAtPoint(e.getPoint());
+                if (column < 0 || !model.supportsOrderBy()) {
+                    return;
+                }
+
+                String property = ORDER_BY_PROPERTIES[convertColumnIndexToModel(column)];
+                String orderBy = property + " ASC";
+                if (orderBy.equals(model.getCurrentOrderBy())) {
+                    orderBy = property + " DESC";
+                }
+
+                try {
+                    setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+                    model.sortFolder(orderBy);
+                } catch (Exception ex) {
+                    ClientHelper.showError(null, ex);
+                } finally {
+                    setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+                }
+            }
+        });
+
         addKeyListener(new KeyListener() {
             public void keyTyped(KeyEvent e) {
             }
@@ -179,16 +215,40 @@ public class FolderTable extends JTable implements FolderListener {
     }
 
     public void folderLoaded(ClientModelEvent event) {
-        event.getClientModel().getCurrentChildren();
+        event.getClientModel().getCurrentChildren().setPageListener(this);
 
         ((FolderTableModel) getModel()).fireTableDataChanged();
     }
 
+    public void pageLoaded(int firstIndex, int lastIndex, int oldSize) {
+        FolderTableModel tableModel = (FolderTableModel) getModel();
+
+        int newSize = tableModel.getRowCount();
+        if (newSize > oldSize) {
+            tableModel.fireTableRowsInserted(oldSize, newSize - 1);
+        } else if (newSize < oldSize) {
+            tableModel.fireTableRowsDeleted(newSize, oldSize - 1);
+        }
+
+        int last = Math.min(lastIndex, newSize - 1);
+        if (firstIndex <= last) {
+            tableModel.fireTableRowsUpdated(firstIndex, last);
+        }
+    }
+
+    public void pageFailed(Exception ex) {
+        ClientHelper.showError(null, ex);
+    }
+
     private void doAction(boolean alternate) {
         int row = getSelectedRow();
         if ((row > -1) && (row < model.getCurrentChildren().size())) {
-            String id = getModel().getValueAt(getRowSorter().convertRowIndexToModel(row), ID_COLUMN).toString();
-            CmisObject object = model.getFromCurrentChildren(id);
+            Object id = getModel().getValueAt(convertRowIndexToModel(row), ID_COLUMN);
+            if (id == null) {
+                return;
+            }
+
+            CmisObject object = model.getFromCurrentChildren(id.toString());
 
             if (object instanceof Document) {
                 if (alternate) {
@@ -228,6 +288,10 @@ public class FolderTable extends JTable implements FolderListener {
 
         public Object getValueAt(int rowIndex, int columnIndex) {
             CmisObject obj = model.getCurrentChildren().get(rowIndex);
+            if (obj == null) {
+                // placeholder until the page has been loaded
+                return (columnIndex == 1 ? LOADING : null);
+            }
 
             switch (columnIndex) {
             case 0:
@@ -351,8 +415,12 @@ public class FolderTable extends JTable implements FolderListener {
         protected Transferable createTransferable(JComponent c) {
             int row = getSelectedRow();
             if ((row > -1) && (row < model.getCurrentChildren().size())) {
-                String id = getValueAt(row, ID_COLUMN).toString();
-                CmisObject object = model.getFromCurrentChildren(id);
+                Object id = getValueAt(row, ID_COLUMN);
+                if (id == null) {
+                    return null;
+                }
+
+                CmisObject object = model.getFromCurrentChildren(id.toString());
 
                 if (object instanceof Document) {
                     Document doc = (Document) object;
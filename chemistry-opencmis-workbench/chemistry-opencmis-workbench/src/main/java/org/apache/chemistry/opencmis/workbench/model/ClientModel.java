@@ -49,6 +49,7 @@ import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityOrderBy;
 import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
@@ -65,7 +66,8 @@ public class ClientModel {
     private ClientSession clientSession;
 
     private Folder currentFolder = null;
-    private List<CmisObject> currentChildren = Collections.emptyList();
+    private FolderChildren currentChildren = new FolderChildren();
+    private String currentOrderBy = null;
     private CmisObject currentObject = null;
 
     private final EventListenerList listenerList = new EventListenerList();
@@ -123,6 +125,19 @@ public class ClientModel {
         }
     }
 
+    public synchronized boolean supportsOrderBy() {
+        try {
+            RepositoryCapabilities cap = getRepositoryInfo().getCapabilities();
+            if (cap == null) {
+                return true;
+            }
+
+            return (cap.getOrderByCapability() == null) || (cap.getOrderByCapability() != CapabilityOrderBy.NONE);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     public synchronized boolean supportsChangeLog() {
         try {
             RepositoryCapabilities cap = getRepositoryInfo().getCapabilities();
@@ -176,27 +191,30 @@ public class ClientModel {
                     if (parents != null && parents.size() > 0) {
                         folderObject = parents.get(0);
                     } else {
-                        setCurrentFolder(null, new ArrayList<CmisObject>(0));
+                        setCurrentFolder(null, new FolderChildren());
                         return selectedObject;
                     }
                 } else {
-                    setCurrentFolder(null, new ArrayList<CmisObject>(0));
+                    setCurrentFolder(null, new FolderChildren());
                     return selectedObject;
                 }
             }
 
-            List<CmisObject> children = new ArrayList<CmisObject>();
-            ItemIterable<CmisObject> iter = ((Folder) folderObject).getChildren(clientSession
-                    .getFolderOperationContext());
-            for (CmisObject child : iter) {
-                children.add(child);
+            OperationContext folderContext = clientSession.getFolderOperationContext();
+            if (currentOrderBy != null) {
+                folderContext = new OperationContextImpl(folderContext);
+                folderContext.setOrderBy(currentOrderBy);
             }
 
+            // fetch the first page now, the others when they are displayed
+            ItemIterable<CmisObject> iter = ((Folder) folderObject).getChildren(folderContext);
+            FolderChildren children = new FolderChildren(iter, folderContext.getMaxItemsPerPage());
+
             setCurrentFolder((Folder) folderObject, children);
 
             return selectedObject;
         } catch (CmisBaseException ex) {
-            setCurrentFolder(null, new ArrayList<CmisObject>(0));
+            setCurrentFolder(null, new FolderChildren());
             throw ex;
         }
     }
@@ -207,6 +225,22 @@ public class ClientModel {
         }
     }
 
+    /**
+     * Reloads the current folder with the children sorted by the repository.
+     * 
+     * @param orderBy
+     *            the ORDER BY clause or <code>null</code> for the configured
+     *            order
+     */
+    public synchronized void sortFolder(String orderBy) {
+        currentOrderBy = orderBy;
+        reloadFolder();
+    }
+
+    public synchronized String getCurrentOrderBy() {
+        return currentOrderBy;
+    }
+
     public synchronized void loadObject(String objectId) {
         try {
             Session session = clientSession.getSession();
@@ -403,7 +437,7 @@ public class ClientModel {
         return currentFolder;
     }
 
-    public synchronized List<CmisObject> getCurrentChildren() {
+    public synchronized FolderChildren getCurrentChildren() {
         return currentChildren;
     }
 
@@ -412,17 +446,14 @@ public class ClientModel {
             return null;
         }
 
-        for (CmisObject o : currentChildren) {
-            if (o.getId().equals(id)) {
-                return o;
-            }
-        }
-
-        return null;
+        return currentChildren.findLoaded(id);
     }
 
-    private synchronized void setCurrentFolder(Folder folder, List<CmisObject> children) {
+    private synchronized void setCurrentFolder(Folder folder, FolderChildren children) {
         currentFolder = folder;
+        if (currentChildren != null) {
+            currentChildren.close();
+        }
         currentChildren = children;
 
         for (FolderListener fl : listenerList.getListeners(FolderListener.class)) {
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.workbench.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+
+/**
+ * The children of a folder, fetched page by page when they are needed.
+ * <p>
+ * Only the most recently used pages are kept. {@link #get(int)} returns
+ * <code>null</code> for a child that hasn't been loaded yet and requests its
+ * page from a background thread. When the page has arrived, the page listener
+ * is notified on the event dispatch thread. All changes of the size and the
+ * cached pages happen on the event dispatch thread, too.
+ */
+public class FolderChildren extends AbstractList<CmisObject> {
+
+    /** Maximum number of pages kept in memory. */
+    public static final int MAX_PAGES = 10;
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Workbench folder loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public interface PageListener {
+
+        /**
+         * Called after a page has been loaded.
+         * 
+         * @param firstIndex
+         *            index of the first child of the page
+         * @param lastIndex
+         *            index of the last child of the page
+         * @param oldSize
+         *            the number of children before the page has been loaded
+         */
+        void pageLoaded(int firstIndex, int lastIndex, int oldSize);
+
+        /**
+         * Called if a page couldn't be loaded.
+         */
+        void pageFailed(Exception ex);
+    }
+
+    private final ItemIterable<CmisObject> children;
+    private final int pageSize;
+    private final Map<Integer, List<CmisObject>> pages;
+    private final Set<Integer> loading = new HashSet<Integer>();
+    private final Set<Integer> failed = new HashSet<Integer>();
+
+    private int size;
+    private int lastRequestedPage;
+    private PageListener listener;
+    private volatile boolean closed;
+
+    /**
+     * Creates an empty list.
+     */
+    public FolderChildren() {
+        this.children = null;
+        this.pageSize = 1;
+        this.pages = new LinkedHashMap<Integer, List<CmisObject>>();
+    }
+
+    /**
+     * Creates the list and loads the first page in the calling thread.
+     */
+    public FolderChildren(ItemIterable<CmisObject> children, int pageSize) {
+        this.children = children;
+        this.pageSize = (pageSize < 1 ? 100 : pageSize);
+        this.pages = new LinkedHashMap<Integer, List<CmisObject>>(MAX_PAGES + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<CmisObject>> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+
+        Page page = new Page(0);
+        page.load();
+        apply(page);
+    }
+
+    /**
+     * Sets the listener that is notified when pages arrive.
+     */
+    public synchronized void setPageListener(PageListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Stops loading pages. Pages that are in flight are discarded.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the child or <code>null</code> if its page is still loading.
+     */
+    @Override
+    public synchronized CmisObject get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int pageNumber = index / pageSize;
+        lastRequestedPage = pageNumber;
+
+        List<CmisObject> page = pages.get(pageNumber);
+        if (page == null) {
+            requestPage(pageNumber);
+            return null;
+        }
+
+        int offset = index % pageSize;
+        return (offset < page.size() ? page.get(offset) : null);
+    }
+
+    /**
+     * Looks for a child in the loaded pages.
+     */
+    public synchronized CmisObject findLoaded(String id) {
+        for (List<CmisObject> page : pages.values()) {
+            for (CmisObject child : page) {
+                if (child.getId().equals(id)) {
+                    return child;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void requestPage(int pageNumber) {
+        // failed pages are not retried until the folder is reloaded
+        if (closed || failed.contains(pageNumber) || !loading.add(pageNumber)) {
+            return;
+        }
+
+        final Page page = new Page(pageNumber);
+        LOADER.execute(new Runnable() {
+            public void run() {
+                // skip pages that have been scrolled out of sight in the
+                // meantime
+                synchronized (FolderChildren.this) {
+                    if (closed || Math.abs(page.number - lastRequestedPage) >= MAX_PAGES) {
+                        loading.remove(page.number);
+                        return;
+                    }
+                }
+
+                try {
+                    page.load();
+                } catch (Exception ex) {
+                    page.error = ex;
+                }
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        apply(page);
+                    }
+                });
+            }
+        });
+    }
+
+    private void apply(Page page) {
+        PageListener currentListener;
+        int oldSize;
+        int firstIndex = page.number * pageSize;
+        int lastIndex;
+
+        synchronized (this) {
+            loading.remove(page.number);
+            if (closed) {
+                return;
+            }
+
+            currentListener = listener;
+            oldSize = size;
+
+            if (page.error == null) {
+                pages.put(page.number, page.objects);
+
+                int end = firstIndex + page.objects.size();
+                if (page.totalNumItems >= 0 && (page.hasMoreItems || page.objects.size() == pageSize)) {
+                    size = (int) Math.min(Integer.MAX_VALUE, page.totalNumItems);
+                } else if (page.hasMoreItems) {
+                    // total unknown -> one placeholder row loads the next page
+                    size = Math.max(size, end + 1);
+                } else {
+                    size = end;
+                }
+
+                lastIndex = end - 1;
+            } else {
+                failed.add(page.number);
+                lastIndex = -1;
+            }
+        }
+
+        if (currentListener == null) {
+            return;
+        }
+
+        if (page.error != null) {
+            currentListener.pageFailed(page.error);
+        } else {
+            currentListener.pageLoaded(firstIndex, lastIndex, oldSize);
+        }
+    }
+
+    /**
+     * A page of children.
+     */
+    private class Page {
+        final int number;
+        List<CmisObject> objects;
+        long totalNumItems;
+        boolean hasMoreItems;
+        Exception error;
+
+        Page(int number) {
+            this.number = number;
+        }
+
+        void load() {
+            ItemIterable<CmisObject> page = children.skipTo((long) number * pageSize).getPage(pageSize);
+
+            objects = new ArrayList<CmisObject>(pageSize);
+            for (CmisObject child : page) {
+                objects.add(child);
+            }
+
+            totalNumItems = page.getTotalNumItems();
+            hasMoreItems = page.getHasMoreItems();
+        }
+    }
+}